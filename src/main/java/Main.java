@@ -1,14 +1,11 @@
 import service.UserService;
-import storage.FriendsStorage;
-import storage.UserStorage;
-import storage.db.FriendsDbStorage;
-import storage.db.UserDbStorage;
+import storage.StorageFactory;
 
 public class Main {
     public static void main(String[] args) {
-        UserDbStorage userDbStorage = new UserDbStorage();
-        FriendsDbStorage friendsDbStorage = new FriendsDbStorage();
-        UserService userService = new UserService(userDbStorage, friendsDbStorage);
+        StorageFactory storageFactory = StorageFactory.getInstance();
+        UserService userService = new UserService(storageFactory.getUserStorage(),
+                storageFactory.getFriendsStorage());
         System.out.println(userService.getAll());
     }
 }
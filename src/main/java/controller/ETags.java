@@ -0,0 +1,70 @@
+package controller;
+
+import controller.binary.BinaryCodec;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.OptionalLong;
+
+// Strong validators built from row versions; a match is answered with 304 before anything is loaded.
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    // Each encoding is its own representation, so a cached JSON body never validates a Smile or CBOR request.
+    static String of(long version, BinaryCodec codec) {
+        return codec == null ? of(version) : "\"" + version + "-" + codec.getName() + "\"";
+    }
+
+    // Sets the ETag and a 304 status when If-None-Match already names the current version.
+    static boolean notModified(HttpServletRequest request, HttpServletResponse response, OptionalLong version,
+                               BinaryCodec codec) {
+        if (version.isEmpty()) {
+            return false;
+        }
+        String etag = of(version.getAsLong(), codec);
+        if (!matches(request.getHeader("If-None-Match"), etag)) {
+            return false;
+        }
+        response.setHeader("ETag", etag);
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        return true;
+    }
+
+    // If-None-Match uses the weak comparison (RFC 7232, 3.2): W/"7" matches "7". The list is scanned in place.
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        int length = ifNoneMatch.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && (ifNoneMatch.charAt(i) == ' ' || ifNoneMatch.charAt(i) == ',')) {
+                i++;
+            }
+            if (ifNoneMatch.startsWith("*", i)) {
+                return true;
+            }
+            if (ifNoneMatch.startsWith("W/", i)) {
+                i += 2;
+            }
+            if (ifNoneMatch.startsWith(etag, i)) {
+                int end = i + etag.length();
+                if (end == length || ifNoneMatch.charAt(end) == ',' || ifNoneMatch.charAt(end) == ' ') {
+                    return true;
+                }
+            }
+            int comma = ifNoneMatch.indexOf(',', i);
+            if (comma < 0) {
+                return false;
+            }
+            i = comma + 1;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,188 @@
+package controller;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonWriter;
+import controller.compression.CompressionFilter;
+import controller.json.JsonCodec;
+import controller.routing.PathVariables;
+import controller.routing.Router;
+import model.Film;
+import service.FilmService;
+import storage.StorageFactory;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+
+@WebServlet(urlPatterns = "/films/*", asyncSupported = true)
+public class FilmController extends HttpServlet {
+
+    private static final long serialVersionUID = 100981L;
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int DEFAULT_POPULAR_COUNT = 10;
+
+    StorageFactory storageFactory = StorageFactory.getInstance();
+    FilmService filmService = new FilmService(storageFactory.getFilmStorage(), storageFactory.getFilmDictionary(),
+            storageFactory.getLikesStorage(), storageFactory.getUserStorage(), storageFactory.getLikesMatrix());
+    RequestExecutor requestExecutor = RequestExecutor.getInstance();
+    private final Router router = new Router("/films", RequestExecutor::routeTimer);
+
+    public FilmController() {
+        router.add("POST", "", this::add);
+        router.add("GET", "", this::getAll);
+        router.add("GET", "/popular", this::getPopular);
+        router.add("GET", "/{id}", this::getById);
+        router.add("PUT", "", this::update);
+        router.add("PUT", "/{id}/like/{userId}", this::addLike);
+        router.add("DELETE", "/{id}", this::remove);
+        router.add("DELETE", "/{id}/like/{userId}", this::removeLike);
+    }
+
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        requestExecutor.dispatch(request, response, router);
+    }
+
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        requestExecutor.dispatch(request, response, router);
+    }
+
+    protected void doPut(HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        requestExecutor.dispatch(request, response, router);
+    }
+
+    protected void doDelete(HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        requestExecutor.dispatch(request, response, router);
+    }
+
+    private void getById(HttpServletRequest request, HttpServletResponse response, PathVariables variables)
+            throws IOException {
+        Film film = filmService.getById(variables.getLong("id"));
+        CompressionFilter.disable(response);
+        writeFilm(response, HttpServletResponse.SC_OK, film);
+    }
+
+    private void getPopular(HttpServletRequest request, HttpServletResponse response, PathVariables variables)
+            throws IOException {
+        String countParam = request.getParameter("count");
+        int count;
+        try {
+            count = countParam == null ? DEFAULT_POPULAR_COUNT : Integer.parseInt(countParam);
+        } catch (NumberFormatException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "count must be a number");
+            return;
+        }
+        if (count < 1 || count > MAX_PAGE_SIZE) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    String.format("count must be between 1 and %s", MAX_PAGE_SIZE));
+            return;
+        }
+        writeFilms(response, filmService.getPopular(count));
+    }
+
+    private void getAll(HttpServletRequest request, HttpServletResponse response, PathVariables variables)
+            throws IOException {
+        String after = request.getParameter("after");
+        String limit = request.getParameter("limit");
+        if (after == null && limit == null) {
+            writeFilms(response, filmService.getAll());
+            return;
+        }
+
+        long afterId;
+        int pageSize;
+        try {
+            afterId = after == null ? 0 : Long.parseLong(after);
+            pageSize = limit == null ? DEFAULT_PAGE_SIZE : Integer.parseInt(limit);
+        } catch (NumberFormatException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "after and limit must be numbers");
+            return;
+        }
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    String.format("limit must be between 1 and %s", MAX_PAGE_SIZE));
+            return;
+        }
+
+        List<Film> page = filmService.getPage(afterId, pageSize);
+        if (page.size() == pageSize) {
+            long nextAfter = page.get(page.size() - 1).getId();
+            response.setHeader("Link", String.format("<%s?after=%s&limit=%s>; rel=\"next\"",
+                    request.getRequestURI(), nextAfter, pageSize));
+        }
+        writeFilms(response, page);
+    }
+
+    private void add(HttpServletRequest request, HttpServletResponse response, PathVariables variables)
+            throws IOException {
+        Film newFilm = readFilm(request, response);
+        if (newFilm == null) {
+            return;
+        }
+        newFilm.setId(0);
+        Film created = filmService.add(newFilm);
+        writeFilm(response, HttpServletResponse.SC_CREATED, created);
+    }
+
+    private void update(HttpServletRequest request, HttpServletResponse response, PathVariables variables)
+            throws IOException {
+        Film updateFilm = readFilm(request, response);
+        if (updateFilm == null) {
+            return;
+        }
+        Film updated = filmService.update(updateFilm);
+        writeFilm(response, HttpServletResponse.SC_OK, updated);
+    }
+
+    private void addLike(HttpServletRequest request, HttpServletResponse response, PathVariables variables) {
+        filmService.addLike(variables.getLong("id"), variables.getLong("userId"));
+    }
+
+    private void remove(HttpServletRequest request, HttpServletResponse response, PathVariables variables) {
+        filmService.remove(variables.getLong("id"));
+    }
+
+    private void removeLike(HttpServletRequest request, HttpServletResponse response, PathVariables variables) {
+        filmService.removeLike(variables.getLong("id"), variables.getLong("userId"));
+    }
+
+    private Film readFilm(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        try {
+            Film film = JsonCodec.readFilm(JsonCodec.newReader(request.getInputStream()));
+            if (film == null) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Film body is missing");
+            }
+            return film;
+        } catch (JsonParseException | IOException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeFilm(HttpServletResponse response, int status, Film film) throws IOException {
+        prepareJsonResponse(response, status);
+        try (JsonWriter jsonWriter = JsonCodec.newWriter(response.getOutputStream())) {
+            JsonCodec.writeFilm(jsonWriter, film);
+        }
+    }
+
+    private void writeFilms(HttpServletResponse response, List<Film> films) throws IOException {
+        prepareJsonResponse(response, HttpServletResponse.SC_OK);
+        try (JsonWriter jsonWriter = JsonCodec.newWriter(response.getOutputStream())) {
+            JsonCodec.writeFilms(jsonWriter, films);
+        }
+    }
+
+    private void prepareJsonResponse(HttpServletResponse response, int status) {
+        response.setStatus(status);
+        response.setContentType(JsonCodec.CONTENT_TYPE);
+        response.setCharacterEncoding("UTF-8");
+    }
+}
@@ -0,0 +1,33 @@
+package controller;
+
+import metrics.MetricsRegistry;
+import storage.StorageFactory;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+// Prometheus scrape endpoint; rendering reads counters and histograms without blocking recorders.
+@WebServlet(urlPatterns = "/metrics")
+public class MetricsController extends HttpServlet {
+
+    private static final long serialVersionUID = 100982L;
+
+    MetricsRegistry registry = MetricsRegistry.getDefault();
+
+    @Override
+    public void init() {
+        // Storage and executor register their gauges when created; a scrape may come before any request.
+        StorageFactory.getInstance();
+        RequestExecutor.getInstance();
+    }
+
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MetricsRegistry.CONTENT_TYPE);
+        registry.writeTo(response.getWriter());
+    }
+}
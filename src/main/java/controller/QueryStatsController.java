@@ -0,0 +1,79 @@
+package controller;
+
+import com.google.gson.stream.JsonWriter;
+import controller.json.JsonCodec;
+import storage.SqlConnection;
+import storage.trace.SqlTracer;
+import storage.trace.StatementStats;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Locale;
+
+// Slowest normalized SQL statements since start or the last DELETE; served from memory, never touches the pool.
+@WebServlet(urlPatterns = "/admin/queries")
+public class QueryStatsController extends HttpServlet {
+
+    private static final long serialVersionUID = 100983L;
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 500;
+
+    SqlTracer tracer = SqlConnection.getTracer();
+
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        String limitParam = request.getParameter("limit");
+        String orderParam = request.getParameter("order");
+        int limit;
+        SqlTracer.Order order;
+        try {
+            limit = limitParam == null ? DEFAULT_LIMIT : Integer.parseInt(limitParam);
+            order = orderParam == null ? SqlTracer.Order.TOTAL
+                    : SqlTracer.Order.valueOf(orderParam.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    "limit must be a number and order one of total, mean, p99, max, count");
+            return;
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    String.format("limit must be between 1 and %s", MAX_LIMIT));
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(JsonCodec.CONTENT_TYPE);
+        response.setCharacterEncoding("UTF-8");
+        try (JsonWriter jsonWriter = JsonCodec.newWriter(response.getOutputStream())) {
+            jsonWriter.beginObject();
+            jsonWriter.name("slowQueryMillis").value(tracer.getSlowQueryThreshold().toMillis());
+            jsonWriter.name("order").value(order.name().toLowerCase(Locale.ROOT));
+            jsonWriter.name("statements").beginArray();
+            for (StatementStats stats : tracer.top(limit, order)) {
+                jsonWriter.beginObject();
+                jsonWriter.name("sql").value(stats.getSql());
+                jsonWriter.name("count").value(stats.getCount());
+                jsonWriter.name("errors").value(stats.getErrors());
+                jsonWriter.name("slow").value(stats.getSlowCount());
+                jsonWriter.name("rows").value(stats.getRows());
+                jsonWriter.name("totalMillis").value(stats.getTotalMillis());
+                jsonWriter.name("executeMillis").value(stats.getExecuteMillis());
+                jsonWriter.name("fetchMillis").value(stats.getFetchMillis());
+                jsonWriter.name("meanMillis").value(stats.getMeanMillis());
+                jsonWriter.name("p99Millis").value(stats.getP99Millis());
+                jsonWriter.name("maxMillis").value(stats.getMaxMillis());
+                jsonWriter.endObject();
+            }
+            jsonWriter.endArray();
+            jsonWriter.endObject();
+        }
+    }
+
+    protected void doDelete(HttpServletRequest request, HttpServletResponse response) {
+        tracer.reset();
+        response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+    }
+}
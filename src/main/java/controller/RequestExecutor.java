@@ -0,0 +1,276 @@
+package controller;
+
+import controller.compression.CompressionFilter;
+import exception.NotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+import storage.pool.PoolConfig;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+@Slf4j
+public class RequestExecutor {
+
+    private static final String PREFIX = "http.async.";
+
+    private static final int QUEUED = 0;
+    private static final int RUNNING = 1;
+    private static final int DONE = 2;
+
+    // Indexed by status class: 1xx .. 5xx.
+    private static final LongAdder[] RESPONSES = new LongAdder[5];
+
+    static {
+        for (int i = 0; i < RESPONSES.length; i++) {
+            RESPONSES[i] = MetricsRegistry.getDefault().counter("http_responses_total",
+                    "Responses sent by the controllers, by status class.", "code", (i + 1) + "xx");
+        }
+    }
+
+    private final boolean async;
+    private final long timeoutMillis;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService timer;
+
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    public RequestExecutor(boolean async, int threads, int queueCapacity, long timeoutMillis) {
+        this.async = async;
+        this.timeoutMillis = timeoutMillis;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), daemonThreads("db-request-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.timer = Executors.newSingleThreadScheduledExecutor(daemonThreads("db-request-timeout-"));
+    }
+
+    private static class Holder {
+        // One worker per pooled connection: more threads would only queue inside the pool.
+        private static final RequestExecutor INSTANCE = new RequestExecutor(
+                Boolean.parseBoolean(System.getProperty(PREFIX + "enabled", "true")),
+                PoolConfig.fromSystemProperties().getMaxSize(),
+                Integer.getInteger(PREFIX + "queueCapacity", 256),
+                Long.getLong(PREFIX + "timeoutMillis", 10_000));
+
+        static {
+            INSTANCE.registerMetrics(MetricsRegistry.getDefault());
+        }
+    }
+
+    public static RequestExecutor getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public void dispatch(HttpServletRequest request, HttpServletResponse response, RequestHandler handler)
+            throws IOException {
+        if (!async || !request.isAsyncSupported()) {
+            handle(request, response, handler);
+            return;
+        }
+        // Containers may reset the path attributes once service() returns (Jetty does), so freeze them first.
+        HttpServletRequest dispatched = new DispatchedRequest(request);
+        // Passing the response keeps filter wrappers, such as compression, around it for the handler.
+        AsyncContext asyncContext = request.startAsync(request, response);
+        // Timeouts are enforced below; a container timeout could recycle the response under a running handler.
+        asyncContext.setTimeout(0);
+        AtomicInteger state = new AtomicInteger(QUEUED);
+        long enqueuedAt = System.nanoTime();
+
+        Runnable task = () -> {
+            queueWait.record(System.nanoTime() - enqueuedAt);
+            if (!state.compareAndSet(QUEUED, RUNNING)) {
+                return;
+            }
+            HttpServletResponse asyncResponse = (HttpServletResponse) asyncContext.getResponse();
+            try {
+                handle(dispatched, asyncResponse, handler);
+            } catch (IOException e) {
+                log.debug("Request I/O failed: {}", e.getMessage());
+            } finally {
+                state.set(DONE);
+                finishResponse(asyncResponse);
+                asyncContext.complete();
+            }
+        };
+        // Scheduled and registered before the task is submitted: a fast handler may complete the context
+        // as soon as it is queued, and a listener added after that would never be told.
+        ScheduledFuture<?> timeout = timer.schedule(() -> {
+            if (state.compareAndSet(QUEUED, DONE)) {
+                executor.remove(task);
+                timedOut.increment();
+                reject(asyncContext, "Request timed out waiting for a database worker");
+            } else if (state.get() == RUNNING) {
+                log.warn("Request {} {} still running after {} ms", request.getMethod(), request.getRequestURI(),
+                        timeoutMillis);
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        asyncContext.addListener(new CancelOnComplete(timeout));
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            timeout.cancel(false);
+            if (state.compareAndSet(QUEUED, DONE)) {
+                rejected.increment();
+                reject(asyncContext, "Request queue is full");
+            }
+        }
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public LatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getTimedOut() {
+        return timedOut.sum();
+    }
+
+    public void registerMetrics(MetricsRegistry registry) {
+        registry.gauge("http_executor_queue_depth", "Requests waiting for a worker.", this::getQueueDepth);
+        registry.gauge("http_executor_active", "Workers running a request.", this::getActiveCount);
+        registry.counterFunction("http_executor_rejected_total", "Requests rejected with 503: queue full.",
+                this::getRejected);
+        registry.counterFunction("http_executor_timed_out_total", "Requests rejected with 503: queued too long.",
+                this::getTimedOut);
+        registry.timer("http_executor_queue_wait_seconds", "Time requests spent queued for a worker.", queueWait);
+    }
+
+    // One timer per route, created when the controller class loads; handlers only call record().
+    static LatencyHistogram routeTimer(String route) {
+        return MetricsRegistry.getDefault().timer("http_request_duration_seconds",
+                "Time spent in the controller handling a request, by route.", "route", route);
+    }
+
+    private static void handle(HttpServletRequest request, HttpServletResponse response, RequestHandler handler)
+            throws IOException {
+        try {
+            handler.handle(request, response);
+        } catch (NotFoundException e) {
+            sendError(response, HttpServletResponse.SC_NOT_FOUND, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Request {} {} failed", request.getMethod(), request.getRequestURI(), e);
+            sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+        countResponse(response.getStatus());
+    }
+
+    private static void reject(AsyncContext asyncContext, String message) {
+        HttpServletResponse response = (HttpServletResponse) asyncContext.getResponse();
+        response.setHeader("Retry-After", "1");
+        try {
+            sendError(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, message);
+            countResponse(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        } catch (IOException e) {
+            log.debug("Could not send 503: {}", e.getMessage());
+        } finally {
+            asyncContext.complete();
+        }
+    }
+
+    private static void finishResponse(HttpServletResponse response) {
+        try {
+            CompressionFilter.finish(response);
+        } catch (IOException e) {
+            log.debug("Request I/O failed: {}", e.getMessage());
+        }
+    }
+
+    private static void countResponse(int status) {
+        RESPONSES[Math.min(Math.max(status / 100, 1), RESPONSES.length) - 1].increment();
+    }
+
+    private static void sendError(HttpServletResponse response, int status, String message) throws IOException {
+        if (!response.isCommitted()) {
+            response.sendError(status, message);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static class DispatchedRequest extends HttpServletRequestWrapper {
+
+        private final String servletPath;
+        private final String pathInfo;
+
+        DispatchedRequest(HttpServletRequest request) {
+            super(request);
+            this.servletPath = request.getServletPath();
+            this.pathInfo = request.getPathInfo();
+        }
+
+        @Override
+        public String getServletPath() {
+            return servletPath;
+        }
+
+        @Override
+        public String getPathInfo() {
+            return pathInfo;
+        }
+    }
+
+    private static class CancelOnComplete implements AsyncListener {
+
+        private final ScheduledFuture<?> timeout;
+
+        CancelOnComplete(ScheduledFuture<?> timeout) {
+            this.timeout = timeout;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            timeout.cancel(false);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            timeout.cancel(false);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
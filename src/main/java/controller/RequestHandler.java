@@ -0,0 +1,11 @@
+package controller;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+@FunctionalInterface
+public interface RequestHandler {
+
+    void handle(HttpServletRequest request, HttpServletResponse response) throws IOException;
+}
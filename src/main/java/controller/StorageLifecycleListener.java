@@ -0,0 +1,17 @@
+package controller;
+
+import storage.StorageFactory;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+// Flushes write-behind likes and stops the background compactors when the webapp is undeployed.
+@WebListener
+public class StorageLifecycleListener implements ServletContextListener {
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        StorageFactory.shutdown();
+    }
+}
@@ -1,234 +1,588 @@
 package controller;
 
-import com.google.gson.*;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import controller.binary.BinaryCodec;
+import controller.compression.CompressionFilter;
+import controller.json.JsonCodec;
+import controller.routing.PathVariables;
+import controller.routing.Router;
+import model.BatchAddResult;
+import model.FriendsBatchResult;
+import model.Film;
+import model.Recommendation;
 import model.User;
+import service.FilmRecommender;
+import service.FilmService;
+import service.FriendRecommender;
 import service.UserService;
-import storage.db.FriendsDbStorage;
-import storage.db.UserDbStorage;
+import storage.StorageFactory;
+import util.LongArrayBuilder;
+import util.LongHashSet;
 
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.lang.reflect.Type;
-import java.sql.SQLException;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
+import java.util.OptionalLong;
 
-@WebServlet(urlPatterns = "/users/*")
+@WebServlet(urlPatterns = "/users/*", asyncSupported = true)
 public class UserController extends HttpServlet {
 
     private static final long serialVersionUID = 100980L;
-
-    UserDbStorage userDbStorage = new UserDbStorage();
-    FriendsDbStorage friendsDbStorage = new FriendsDbStorage();
-    UserService userService = new UserService(userDbStorage, friendsDbStorage);
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int DEFAULT_BATCH_CHUNK_SIZE = Integer.getInteger("users.batch.chunkSize", 1000);
+    private static final int MAX_BATCH_CHUNK_SIZE = 10_000;
+    private static final int MAX_FRIEND_IDS = 10_000;
+    private static final int MAX_COMMON_FRIENDS_IDS = 100;
+    private static final int DEFAULT_RECOMMENDATIONS = 10;
+
+    StorageFactory storageFactory = StorageFactory.getInstance();
+    UserService userService = new UserService(storageFactory.getUserStorage(),
+            storageFactory.getFriendsStorage());
+    FilmService filmService = new FilmService(storageFactory.getFilmStorage(), storageFactory.getFilmDictionary(),
+            storageFactory.getLikesStorage(), storageFactory.getUserStorage(), storageFactory.getLikesMatrix());
+    RequestExecutor requestExecutor = RequestExecutor.getInstance();
+    private final Router router = new Router("/users", RequestExecutor::routeTimer);
+
+    public UserController() {
+        router.add("POST", "", this::add);
+        router.add("POST", "/batch", this::addBatch);
+        router.add("GET", "", this::getAll);
+        router.add("GET", "/common-friends", this::getGroupCommonFriends);
+        router.add("GET", "/{id}", this::getById);
+        router.add("GET", "/{id}/friends", this::getFriends);
+        router.add("GET", "/{id}/friends/common/{otherId}", this::getCommonFriends);
+        router.add("GET", "/{id}/recommendations", this::getRecommendations);
+        router.add("GET", "/{id}/film-recommendations", this::getFilmRecommendations);
+        router.add("PUT", "", this::update);
+        router.add("PUT", "/{id}/friends", this::addFriendsBatch);
+        router.add("PUT", "/{id}/friends/{friendId}", this::addToFriends);
+        router.add("DELETE", "/{id}", this::remove);
+        router.add("DELETE", "/{id}/friends", this::removeFriendsBatch);
+        router.add("DELETE", "/{id}/friends/{friendId}", this::removeFromFriends);
+    }
 
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
             throws IOException {
-        try {
-            add(request, response);
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+        requestExecutor.dispatch(request, response, router);
     }
 
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws IOException {
-        String pathInfo = request.getPathInfo();
+        requestExecutor.dispatch(request, response, router);
+    }
+
+    protected void doPut(HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        requestExecutor.dispatch(request, response, router);
+    }
+
+    protected void doDelete(HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        requestExecutor.dispatch(request, response, router);
+    }
+
+    private void add(HttpServletRequest request, HttpServletResponse response, PathVariables variables)
+            throws IOException {
+        User newUser = readUser(request, response);
+        if (newUser == null) {
+            return;
+        }
+        newUser.setId(0);
+        User created = userService.add(newUser);
+        writeUser(response, negotiate(request, response), HttpServletResponse.SC_CREATED, created);
+    }
+
+    private void addBatch(HttpServletRequest request, HttpServletResponse response, PathVariables variables)
+            throws IOException {
+        int chunkSize;
         try {
-            if (pathInfo != null) {
-                String[] parts = pathInfo.split("/");
-                if (parts.length == 3 && parts[2].equals("friends")) {
-                    getFriends(request, response);
-                } else if (parts.length == 5 && parts[3].equals("common")) {
-                    getCommonFriends(request, response);
-                } else {
-                    getById(request, response);
-                }
-            } else {
-                getAll(request, response);
+            String chunkParameter = request.getParameter("chunkSize");
+            chunkSize = chunkParameter == null ? DEFAULT_BATCH_CHUNK_SIZE : Integer.parseInt(chunkParameter);
+        } catch (NumberFormatException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "chunkSize must be a number");
+            return;
+        }
+        if (chunkSize < 1 || chunkSize > MAX_BATCH_CHUNK_SIZE) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    String.format("chunkSize must be between 1 and %s", MAX_BATCH_CHUNK_SIZE));
+            return;
+        }
+        String contentType = request.getContentType();
+        BinaryCodec codec = BinaryCodec.forContentType(contentType);
+        BatchImport batch = new BatchImport(chunkSize);
+        String abortReason = codec != null ? readBinaryBatch(request, codec, batch)
+                : readJsonBatch(request, contentType != null && contentType.startsWith("application/x-ndjson"), batch);
+        batch.flush();
+        int status = HttpServletResponse.SC_OK;
+        if (batch.storageError != null) {
+            abortReason = batch.storageError;
+            status = HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+        } else if (abortReason != null) {
+            status = HttpServletResponse.SC_BAD_REQUEST;
+        }
+
+        prepareJsonResponse(response, status);
+        try (JsonWriter jsonWriter = JsonCodec.newWriter(response.getOutputStream())) {
+            jsonWriter.beginObject();
+            jsonWriter.name("received").value(batch.received);
+            jsonWriter.name("added").value(batch.added);
+            jsonWriter.name("failed").value(batch.failures.size());
+            if (abortReason != null) {
+                jsonWriter.name("error").value(abortReason);
+            }
+            jsonWriter.name("failures").beginArray();
+            for (BatchAddResult.Failure failure : batch.failures) {
+                jsonWriter.beginObject();
+                jsonWriter.name("row").value(failure.getRow());
+                jsonWriter.name("error").value(failure.getError());
+                jsonWriter.endObject();
             }
-        } catch (SQLException e) {
-                throw new RuntimeException(e);
+            jsonWriter.endArray();
+            jsonWriter.endObject();
         }
     }
 
-    protected void doPut(HttpServletRequest request, HttpServletResponse response)
-            throws IOException {
-        String pathInfo = request.getPathInfo();
+    private String readJsonBatch(HttpServletRequest request, boolean ndjson, BatchImport batch) {
         try {
-            if (pathInfo != null) {
-                addToFriends(request, response);
+            JsonReader reader = JsonCodec.newReader(request.getInputStream());
+            if (ndjson) {
+                // NDJSON is a sequence of top-level values, which JsonReader only accepts in lenient mode.
+                reader.setLenient(true);
             } else {
-                update(request, response);
+                reader.beginArray();
             }
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
+            while (batch.storageError == null
+                    && (ndjson ? reader.peek() != JsonToken.END_DOCUMENT : reader.hasNext())) {
+                int row = batch.received++;
+                JsonElement element = JsonParser.parseReader(reader);
+                try {
+                    batch.add(row, JsonCodec.readUser(element));
+                } catch (JsonParseException e) {
+                    batch.failures.add(new BatchAddResult.Failure(row, e.getMessage()));
+                }
+            }
+            return null;
+        } catch (JsonParseException | IllegalStateException | IOException e) {
+            return "Malformed batch body after row " + batch.received + ": " + e.getMessage();
         }
     }
 
-    protected void doDelete(HttpServletRequest request, HttpServletResponse response)
-            throws IOException {
-        String pathInfo = request.getPathInfo();
-        try {
-            if (pathInfo != null) {
-                String[] parts = pathInfo.split("/");
-                if (parts.length == 2) {
-                    remove(request, response);
+    // A malformed user fails its row only; broken framing aborts the rest of the body, as with JSON.
+    private String readBinaryBatch(HttpServletRequest request, BinaryCodec codec, BatchImport batch) {
+        try (com.fasterxml.jackson.core.JsonParser parser = codec.newParser(request.getInputStream())) {
+            codec.beginArray(parser);
+            while (batch.storageError == null && codec.hasNext(parser)) {
+                int row = batch.received++;
+                try {
+                    batch.add(row, codec.readUser(parser));
+                } catch (IllegalArgumentException e) {
+                    batch.failures.add(new BatchAddResult.Failure(row, e.getMessage()));
                 }
-                removeFromFriends(request, response);
             }
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
+            return null;
+        } catch (IOException e) {
+            return "Malformed batch body after row " + batch.received + ": " + e.getMessage();
         }
     }
 
-    private void add(HttpServletRequest request, HttpServletResponse response)
-            throws SQLException, IOException {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-        JsonObject json = new Gson().fromJson(request.getReader(), JsonObject.class);
+    // Rows are added in chunks; failures keep their row number in the request body.
+    private class BatchImport {
+
+        private final int chunkSize;
+        private final List<User> chunk;
+        private final List<Integer> chunkRows;
+        private final List<BatchAddResult.Failure> failures = new ArrayList<>();
+        private int received;
+        private int added;
+        private String storageError;
+
+        BatchImport(int chunkSize) {
+            this.chunkSize = chunkSize;
+            this.chunk = new ArrayList<>(chunkSize);
+            this.chunkRows = new ArrayList<>(chunkSize);
+        }
 
-        String email = json.get("email").getAsString();
-        String login = json.get("login").getAsString();
-        String name = json.get("name").getAsString();
-        LocalDate birthday = LocalDate.parse(json.get("birthday").getAsString(), formatter);
+        void add(int row, User user) {
+            chunk.add(user);
+            chunkRows.add(row);
+            if (chunk.size() == chunkSize) {
+                flush();
+            }
+        }
 
-        User newUser = new User(email, login, name, birthday);
-        userService.add(newUser);
+        void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            BatchAddResult result;
+            try {
+                result = userService.addBatch(chunk);
+            } catch (RuntimeException e) {
+                // Keep the counts of earlier chunks; this chunk and the rest of the body are not stored.
+                storageError = "Storage failed at row " + chunkRows.get(0) + ": " + e.getMessage();
+                for (int row : chunkRows) {
+                    failures.add(new BatchAddResult.Failure(row, "not stored"));
+                }
+                chunk.clear();
+                chunkRows.clear();
+                return;
+            }
+            for (BatchAddResult.Failure failure : result.getFailures()) {
+                failures.add(new BatchAddResult.Failure(chunkRows.get(failure.getRow()), failure.getError()));
+            }
+            added += result.getAdded().size();
+            chunk.clear();
+            chunkRows.clear();
+        }
     }
 
-    private void getAll(HttpServletRequest request, HttpServletResponse response)
-            throws SQLException, IOException {
-        List<User> userList = userService.getAll();
-        String userJson = gsonConverter().toJson(userList);
+    private void getAll(HttpServletRequest request, HttpServletResponse response, PathVariables variables)
+            throws IOException {
+        String after = request.getParameter("after");
+        String limit = request.getParameter("limit");
+        if (after != null || limit != null) {
+            getPage(request, response, after, limit);
+            return;
+        }
 
-        PrintWriter printWriter = response.getWriter();
-        response.setContentType("application/json");
-        response.setCharacterEncoding("UTF-8");
-        printWriter.write(userJson);
-        printWriter.close();
+        BinaryCodec codec = negotiate(request, response);
+        if (codec != null) {
+            prepareResponse(response, codec, HttpServletResponse.SC_OK);
+            try (JsonGenerator generator = codec.newGenerator(response.getOutputStream())) {
+                generator.writeStartArray();
+                userService.forEachUser(codec.userWriter(generator));
+                generator.writeEndArray();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return;
+        }
+        prepareJsonResponse(response, HttpServletResponse.SC_OK);
+        try (JsonWriter jsonWriter = JsonCodec.newWriter(response.getOutputStream())) {
+            jsonWriter.beginArray();
+            // Each row is written as it is read from the cursor, so memory does not grow with the table.
+            userService.forEachUser(user -> {
+                try {
+                    JsonCodec.writeUser(jsonWriter, user);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            jsonWriter.endArray();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
 
-    private void getById(HttpServletRequest request, HttpServletResponse response)
-            throws SQLException, IOException {
-        String pathInfo = request.getPathInfo();
-        String[] parts = pathInfo.split("/");
-        String id = parts[1];
+    private void getPage(HttpServletRequest request, HttpServletResponse response, String after, String limit)
+            throws IOException {
+        long afterId;
+        int pageSize;
+        try {
+            afterId = after == null ? 0 : Long.parseLong(after);
+            pageSize = limit == null ? DEFAULT_PAGE_SIZE : Integer.parseInt(limit);
+        } catch (NumberFormatException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "after and limit must be numbers");
+            return;
+        }
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    String.format("limit must be between 1 and %s", MAX_PAGE_SIZE));
+            return;
+        }
 
-        User user = userService.getById(Long.parseLong(id));
-        String userJson = gsonConverter().toJson(user);
+        List<User> page = userService.getPage(afterId, pageSize);
+        if (page.size() == pageSize) {
+            long nextAfter = page.get(page.size() - 1).getId();
+            response.setHeader("Link", String.format("<%s?after=%s&limit=%s>; rel=\"next\"",
+                    request.getRequestURI(), nextAfter, pageSize));
+        }
+        writeUsers(response, negotiate(request, response), page);
+    }
 
-        PrintWriter printWriter = response.getWriter();
-        response.setContentType("application/json");
-        response.setCharacterEncoding("UTF-8");
-        printWriter.write(userJson);
-        printWriter.close();
+    private void getById(HttpServletRequest request, HttpServletResponse response, PathVariables variables)
+            throws IOException {
+        long id = variables.getLong("id");
+        BinaryCodec codec = negotiate(request, response);
+        // The version lookup only pays off for a conditional request; otherwise the user row carries it.
+        if (request.getHeader("If-None-Match") != null
+                && ETags.notModified(request, response, userService.getVersion(id), codec)) {
+            return;
+        }
+        User user = userService.getById(id);
+        response.setHeader("ETag", ETags.of(user.getVersion(), codec));
+        // One user never reaches the compression threshold; write it through without holding it back.
+        CompressionFilter.disable(response);
+        writeUser(response, codec, HttpServletResponse.SC_OK, user);
     }
 
-    private void update(HttpServletRequest request, HttpServletResponse response)
-            throws SQLException, IOException {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-        JsonObject json = new Gson().fromJson(request.getReader(), JsonObject.class);
+    private void update(HttpServletRequest request, HttpServletResponse response, PathVariables variables)
+            throws IOException {
+        User updateUser = readUser(request, response);
+        if (updateUser == null) {
+            return;
+        }
+        User updated = userService.update(updateUser);
+        writeUser(response, negotiate(request, response), HttpServletResponse.SC_OK, updated);
+    }
 
-        long id = json.get("id").getAsLong();
-        String email = json.get("email").getAsString();
-        String login = json.get("login").getAsString();
-        String name = json.get("name").getAsString();
-        LocalDate birthday = LocalDate.parse(json.get("birthday").getAsString(), formatter);
+    private void addToFriends(HttpServletRequest request, HttpServletResponse response, PathVariables variables)
+            throws IOException {
+        userService.addToFriends(variables.getLong("id"), variables.getLong("friendId"));
+    }
 
-        User updateUser = new User(id, email, login, name, birthday);
-        userService.update(updateUser);
+    private void removeFromFriends(HttpServletRequest request, HttpServletResponse response, PathVariables variables)
+            throws IOException {
+        userService.removeFromFriends(variables.getLong("id"), variables.getLong("friendId"));
     }
 
-    private void addToFriends(HttpServletRequest request, HttpServletResponse response)
-            throws SQLException, IOException {
-        String pathInfo = request.getPathInfo();
-        String[] parts = pathInfo.split("/");
-        String userId = parts[1];
-        String friendId = parts[3];
+    private void addFriendsBatch(HttpServletRequest request, HttpServletResponse response, PathVariables variables)
+            throws IOException {
+        long userId = variables.getLong("id");
+        long[] friendIds = readIds(request, response);
+        if (friendIds == null) {
+            return;
+        }
 
-        userService.addToFriends(Long.parseLong(userId), Long.parseLong(friendId));
+        writeFriendsBatchResult(response, userService.addToFriends(userId, friendIds));
     }
 
-    private void removeFromFriends(HttpServletRequest request, HttpServletResponse response)
-            throws SQLException, IOException {
-        String pathInfo = request.getPathInfo();
-        String[] parts = pathInfo.split("/");
-        String userId = parts[1];
-        String friendId = parts[3];
+    private void removeFriendsBatch(HttpServletRequest request, HttpServletResponse response, PathVariables variables)
+            throws IOException {
+        long userId = variables.getLong("id");
+        long[] friendIds = readIds(request, response);
+        if (friendIds == null) {
+            return;
+        }
 
-        userService.removeFromFriends(Long.parseLong(userId), Long.parseLong(friendId));
+        writeFriendsBatchResult(response, userService.removeFromFriends(userId, friendIds));
     }
 
-    private void getFriends(HttpServletRequest request, HttpServletResponse response)
-            throws SQLException, IOException {
-        String pathInfo = request.getPathInfo();
-        String[] parts = pathInfo.split("/");
-        String id = parts[1];
+    private long[] readIds(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        LongArrayBuilder ids = new LongArrayBuilder();
+        try {
+            JsonReader reader = JsonCodec.newReader(request.getInputStream());
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (ids.size() == MAX_FRIEND_IDS) {
+                    response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                            String.format("At most %s friend ids per request", MAX_FRIEND_IDS));
+                    return null;
+                }
+                ids.add(reader.nextLong());
+            }
+            reader.endArray();
+        } catch (IllegalStateException | NumberFormatException | IOException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Expected a JSON array of friend ids");
+            return null;
+        }
+        return ids.toArray();
+    }
 
-        List<User> friends = userService.getFriends(Long.parseLong(id));
-        String friendsJson = gsonConverter().toJson(friends);
+    private void writeFriendsBatchResult(HttpServletResponse response, FriendsBatchResult result)
+            throws IOException {
+        prepareJsonResponse(response, HttpServletResponse.SC_OK);
+        try (JsonWriter jsonWriter = JsonCodec.newWriter(response.getOutputStream())) {
+            jsonWriter.beginObject();
+            writeIds(jsonWriter.name("applied"), result.getApplied());
+            writeIds(jsonWriter.name("duplicates"), result.getDuplicates());
+            writeIds(jsonWriter.name("unknown"), result.getUnknown());
+            jsonWriter.endObject();
+        }
+    }
 
-        PrintWriter printWriter = response.getWriter();
-        response.setContentType("application/json");
-        response.setCharacterEncoding("UTF-8");
-        printWriter.write(friendsJson);
-        printWriter.close();
+    private static void writeIds(JsonWriter jsonWriter, long[] ids) throws IOException {
+        jsonWriter.beginArray();
+        for (long id : ids) {
+            jsonWriter.value(id);
+        }
+        jsonWriter.endArray();
+    }
 
+    private void getFriends(HttpServletRequest request, HttpServletResponse response, PathVariables variables)
+            throws IOException {
+        long id = variables.getLong("id");
+        BinaryCodec codec = negotiate(request, response);
+        // Read before the list, so a concurrent change can only make the tag older than the body, never newer.
+        // Storages report a version only once their list reflects it; see IndexedFriendsStorage.
+        OptionalLong version = userService.getFriendsVersion(id);
+        if (ETags.notModified(request, response, version, codec)) {
+            return;
+        }
+        List<User> friends = userService.getFriends(id);
+        if (version.isPresent()) {
+            response.setHeader("ETag", ETags.of(version.getAsLong(), codec));
+        }
+        writeUsers(response, codec, friends);
     }
 
-    private void getCommonFriends(HttpServletRequest request, HttpServletResponse response)
-            throws SQLException, IOException {
-        String pathInfo = request.getPathInfo();
-        String[] parts = pathInfo.split("/");
-        String userId = parts[1];
-        String friendId = parts[4];
+    private void getCommonFriends(HttpServletRequest request, HttpServletResponse response, PathVariables variables)
+            throws IOException {
+        List<User> commonFriends = userService.getCommonFriends(variables.getLong("id"),
+                variables.getLong("otherId"));
+        writeUsers(response, negotiate(request, response), commonFriends);
+    }
 
-        List<User> commonFriends = userService.getCommonFriends(Long.parseLong(userId), Long.parseLong(friendId));
-        String friendsJson = gsonConverter().toJson(commonFriends);
+    private void getGroupCommonFriends(HttpServletRequest request, HttpServletResponse response,
+                                       PathVariables variables) throws IOException {
+        String ids = request.getParameter("ids");
+        if (ids == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "ids is required");
+            return;
+        }
+        LongHashSet userIds = new LongHashSet();
+        try {
+            for (String id : ids.split(",")) {
+                userIds.add(Long.parseLong(id.trim()));
+            }
+        } catch (NumberFormatException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "ids must be a comma-separated list of numbers");
+            return;
+        }
+        if (userIds.size() < 2 || userIds.size() > MAX_COMMON_FRIENDS_IDS) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    String.format("ids must contain between 2 and %s distinct users", MAX_COMMON_FRIENDS_IDS));
+            return;
+        }
 
-        PrintWriter printWriter = response.getWriter();
-        response.setContentType("application/json");
-        response.setCharacterEncoding("UTF-8");
-        printWriter.write(friendsJson);
-        printWriter.close();
+        writeUsers(response, negotiate(request, response), userService.getCommonFriends(userIds.toArray()));
     }
 
-    private void remove(HttpServletRequest request, HttpServletResponse response)
-            throws SQLException, IOException {
-        String pathInfo = request.getPathInfo();
-        String[] parts = pathInfo.split("/");
-        String param = parts[1];
+    private void getRecommendations(HttpServletRequest request, HttpServletResponse response,
+                                       PathVariables variables) throws IOException {
+        String limit = request.getParameter("limit");
+        int size;
+        try {
+            size = limit == null ? DEFAULT_RECOMMENDATIONS : Integer.parseInt(limit);
+        } catch (NumberFormatException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "limit must be a number");
+            return;
+        }
+        if (size < 1 || size > FriendRecommender.MAX_RECOMMENDATIONS) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    String.format("limit must be between 1 and %s", FriendRecommender.MAX_RECOMMENDATIONS));
+            return;
+        }
 
-        userService.remove(Long.parseLong(param));
+        List<Recommendation> recommendations = userService.getRecommendations(variables.getLong("id"), size);
+        prepareJsonResponse(response, HttpServletResponse.SC_OK);
+        try (JsonWriter jsonWriter = JsonCodec.newWriter(response.getOutputStream())) {
+            jsonWriter.beginArray();
+            for (Recommendation recommendation : recommendations) {
+                jsonWriter.beginObject();
+                JsonCodec.writeUser(jsonWriter.name("user"), recommendation.getUser());
+                jsonWriter.name("mutualFriends").value(recommendation.getMutualFriends());
+                jsonWriter.endObject();
+            }
+            jsonWriter.endArray();
+        }
+    }
+
+    private void getFilmRecommendations(HttpServletRequest request, HttpServletResponse response,
+                                       PathVariables variables) throws IOException {
+        String limit = request.getParameter("limit");
+        int size;
+        try {
+            size = limit == null ? DEFAULT_RECOMMENDATIONS : Integer.parseInt(limit);
+        } catch (NumberFormatException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "limit must be a number");
+            return;
+        }
+        if (size < 1 || size > FilmRecommender.MAX_RECOMMENDATIONS) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    String.format("limit must be between 1 and %s", FilmRecommender.MAX_RECOMMENDATIONS));
+            return;
+        }
+
+        List<Film> films = filmService.getRecommendations(variables.getLong("id"), size);
+        prepareJsonResponse(response, HttpServletResponse.SC_OK);
+        try (JsonWriter jsonWriter = JsonCodec.newWriter(response.getOutputStream())) {
+            JsonCodec.writeFilms(jsonWriter, films);
+        }
+    }
+
+    private void remove(HttpServletRequest request, HttpServletResponse response, PathVariables variables)
+            throws IOException {
+        userService.remove(variables.getLong("id"));
+    }
+
+    private User readUser(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        BinaryCodec codec = BinaryCodec.forContentType(request.getContentType());
+        try {
+            User user;
+            if (codec == null) {
+                user = JsonCodec.readUser(JsonCodec.newReader(request.getInputStream()));
+            } else {
+                try (com.fasterxml.jackson.core.JsonParser parser = codec.newParser(request.getInputStream())) {
+                    user = codec.readUser(parser);
+                }
+            }
+            if (user == null) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "User body is missing");
+            }
+            return user;
+        } catch (JsonParseException | IllegalArgumentException | IOException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return null;
+        }
     }
 
-    private Gson gsonConverter() {
-        GsonBuilder gsonBuilder = new GsonBuilder();
-        gsonBuilder.registerTypeAdapter(LocalDate.class, new LocalDateSerializer());
-        gsonBuilder.registerTypeAdapter(LocalDate.class, new LocalDateDeserializer());
-        return gsonBuilder.setPrettyPrinting().create();
+    // User and user list responses come as JSON, Smile or CBOR, whichever the Accept header prefers.
+    private static BinaryCodec negotiate(HttpServletRequest request, HttpServletResponse response) {
+        response.addHeader("Vary", "Accept");
+        return BinaryCodec.forAccept(request.getHeader("Accept"));
     }
 
-    class LocalDateSerializer implements JsonSerializer<LocalDate> {
-        private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-        @Override
-        public JsonElement serialize(LocalDate localDate, Type srcType, JsonSerializationContext context) {
-            return new JsonPrimitive(formatter.format(localDate));
+    private void writeUser(HttpServletResponse response, BinaryCodec codec, int status, User user)
+            throws IOException {
+        prepareResponse(response, codec, status);
+        if (codec != null) {
+            try (JsonGenerator generator = codec.newGenerator(response.getOutputStream())) {
+                codec.writeUser(generator, user);
+            }
+            return;
+        }
+        try (JsonWriter jsonWriter = JsonCodec.newWriter(response.getOutputStream())) {
+            JsonCodec.writeUser(jsonWriter, user);
         }
     }
 
-    class LocalDateDeserializer implements JsonDeserializer<LocalDate> {
-        @Override
-        public LocalDate deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context)
-                throws JsonParseException {
-            return LocalDate.parse(json.getAsString(),
-                    DateTimeFormatter.ofPattern("yyyy-MM-dd").withLocale(Locale.ENGLISH));
+    private void writeUsers(HttpServletResponse response, BinaryCodec codec, List<User> users) throws IOException {
+        prepareResponse(response, codec, HttpServletResponse.SC_OK);
+        if (codec != null) {
+            try (JsonGenerator generator = codec.newGenerator(response.getOutputStream())) {
+                codec.writeUsers(generator, users);
+            }
+            return;
         }
+        try (JsonWriter jsonWriter = JsonCodec.newWriter(response.getOutputStream())) {
+            JsonCodec.writeUsers(jsonWriter, users);
+        }
+    }
+
+    private void prepareJsonResponse(HttpServletResponse response, int status) {
+        prepareResponse(response, null, status);
+    }
+
+    private void prepareResponse(HttpServletResponse response, BinaryCodec codec, int status) {
+        response.setStatus(status);
+        if (codec != null) {
+            response.setContentType(codec.getContentType());
+            return;
+        }
+        response.setContentType(JsonCodec.CONTENT_TYPE);
+        response.setCharacterEncoding("UTF-8");
     }
 }
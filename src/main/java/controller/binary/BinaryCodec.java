@@ -0,0 +1,302 @@
+package controller.binary;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+import model.User;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Smile and CBOR encodings of users for service-to-service calls, written and read with Jackson's
+ * streaming generator and parser. Field names and values match the JSON form, so a client can
+ * switch formats without remapping.
+ */
+public final class BinaryCodec {
+
+    public static final BinaryCodec SMILE = new BinaryCodec("smile", "application/x-jackson-smile",
+            new SmileFactory());
+    public static final BinaryCodec CBOR = new BinaryCodec("cbor", "application/cbor", new CBORFactory());
+
+    private static final String JSON_CONTENT_TYPE = "application/json";
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE;
+
+    private final String name;
+    private final String contentType;
+    private final JsonFactory factory;
+
+    private final LatencyHistogram writeUser;
+    private final LatencyHistogram writeUsers;
+    private final LatencyHistogram readUser;
+
+    private BinaryCodec(String name, String contentType, JsonFactory factory) {
+        this.name = name;
+        this.contentType = contentType;
+        this.factory = factory;
+        this.writeUser = timer(name, "write", "user");
+        this.writeUsers = timer(name, "write", "users");
+        this.readUser = timer(name, "read", "user");
+    }
+
+    /**
+     * The binary codec the {@code Accept} header prefers, or null when JSON is preferred. JSON wins
+     * ties, so clients sending a wildcard or no header keep getting JSON.
+     */
+    public static BinaryCodec forAccept(String accept) {
+        if (accept == null || accept.isEmpty()) {
+            return null;
+        }
+        double json = quality(accept, JSON_CONTENT_TYPE);
+        double smile = quality(accept, SMILE.contentType);
+        double cbor = quality(accept, CBOR.contentType);
+        if (json >= smile && json >= cbor) {
+            return null;
+        }
+        return smile >= cbor ? SMILE : CBOR;
+    }
+
+    // The codec for a request body of this Content-Type, or null for JSON.
+    public static BinaryCodec forContentType(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        String type = contentType.trim().toLowerCase(Locale.ROOT);
+        if (type.startsWith(SMILE.contentType)) {
+            return SMILE;
+        }
+        return type.startsWith(CBOR.contentType) ? CBOR : null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public JsonGenerator newGenerator(OutputStream out) throws IOException {
+        return factory.createGenerator(out);
+    }
+
+    public JsonParser newParser(InputStream in) throws IOException {
+        return factory.createParser(in);
+    }
+
+    public void writeUser(JsonGenerator generator, User user) throws IOException {
+        long start = System.nanoTime();
+        try {
+            writeUserValue(generator, user);
+        } finally {
+            writeUser.record(System.nanoTime() - start);
+        }
+    }
+
+    // A sized array lets CBOR write a definite length instead of a break marker.
+    public void writeUsers(JsonGenerator generator, Collection<User> users) throws IOException {
+        long start = System.nanoTime();
+        try {
+            generator.writeStartArray(users.size());
+            for (User user : users) {
+                writeUserValue(generator, user);
+            }
+            generator.writeEndArray();
+        } finally {
+            writeUsers.record(System.nanoTime() - start);
+        }
+    }
+
+    // For callbacks that cannot throw, such as a cursor's row consumer; failures come back as UncheckedIOException.
+    public Consumer<User> userWriter(JsonGenerator generator) {
+        return user -> {
+            try {
+                writeUserValue(generator, user);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    // Enters the top-level array of a list body, like JsonReader.beginArray.
+    public void beginArray(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new JsonParseException(parser, "Expected an array of users");
+        }
+    }
+
+    // Moves to the next element of the array; false once the array ends.
+    public boolean hasNext(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null) {
+            throw new JsonParseException(parser, "Unexpected end of array");
+        }
+        return token != JsonToken.END_ARRAY;
+    }
+
+    /**
+     * Reads the user object the parser is at, or the next value if no token has been read yet;
+     * returns null for a null value or an empty body. A field of the wrong type fails with
+     * IllegalArgumentException only after the whole object has been consumed, so the parser can
+     * move on to the next one.
+     */
+    public User readUser(JsonParser parser) throws IOException {
+        long start = System.nanoTime();
+        try {
+            JsonToken token = parser.hasCurrentToken() ? parser.currentToken() : parser.nextToken();
+            if (token == null || token == JsonToken.VALUE_NULL) {
+                return null;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                throw new IllegalArgumentException("Malformed user " + name + ": expected an object but was " + token);
+            }
+            User user = new User();
+            String error = null;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                try {
+                    readField(parser, user, field, value);
+                } catch (IllegalArgumentException | DateTimeParseException e) {
+                    parser.skipChildren();
+                    if (error == null) {
+                        error = field + ": " + e.getMessage();
+                    }
+                }
+            }
+            if (token != JsonToken.END_OBJECT) {
+                throw new JsonParseException(parser, "Unexpected end of user " + name);
+            }
+            if (error != null) {
+                throw new IllegalArgumentException("Malformed user " + name + ": " + error);
+            }
+            return user;
+        } finally {
+            readUser.record(System.nanoTime() - start);
+        }
+    }
+
+    private static void readField(JsonParser parser, User user, String field, JsonToken value) throws IOException {
+        switch (field) {
+            case "id":
+                if (value != JsonToken.VALUE_NUMBER_INT) {
+                    throw new IllegalArgumentException("expected an integer but was " + value);
+                }
+                // The token is already consumed, so rejecting it here fails only this row.
+                if (parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+                    throw new IllegalArgumentException("out of range for a long");
+                }
+                user.setId(parser.getLongValue());
+                break;
+            case "email":
+                user.setEmail(text(parser, value));
+                break;
+            case "login":
+                user.setLogin(text(parser, value));
+                break;
+            case "name":
+                user.setName(text(parser, value));
+                break;
+            case "birthday":
+                user.setBirthday(LocalDate.parse(text(parser, value), DATE_FORMATTER));
+                break;
+            default:
+                parser.skipChildren();
+                break;
+        }
+    }
+
+    private static String text(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.VALUE_STRING) {
+            throw new IllegalArgumentException("expected a string but was " + value);
+        }
+        return parser.getText();
+    }
+
+    private static void writeUserValue(JsonGenerator generator, User user) throws IOException {
+        if (user == null) {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartObject();
+        generator.writeNumberField("id", user.getId());
+        writeString(generator, "email", user.getEmail());
+        writeString(generator, "login", user.getLogin());
+        writeString(generator, "name", user.getName());
+        if (user.getBirthday() != null) {
+            generator.writeStringField("birthday", DATE_FORMATTER.format(user.getBirthday()));
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeString(JsonGenerator generator, String name, String value) throws IOException {
+        if (value != null) {
+            generator.writeStringField(name, value);
+        }
+    }
+
+    // The q-value of the most specific media range that covers the type: exact, then type/*, then */*.
+    static double quality(String accept, String mediaType) {
+        String anySubtype = mediaType.substring(0, mediaType.indexOf('/')) + "/*";
+        double exact = -1;
+        double range = -1;
+        double any = -1;
+        for (String element : accept.split(",")) {
+            int semicolon = element.indexOf(';');
+            String type = (semicolon < 0 ? element : element.substring(0, semicolon)).trim()
+                    .toLowerCase(Locale.ROOT);
+            if (type.equals(mediaType)) {
+                exact = qValue(element, semicolon);
+            } else if (type.equals(anySubtype)) {
+                range = qValue(element, semicolon);
+            } else if (type.equals("*/*")) {
+                any = qValue(element, semicolon);
+            }
+        }
+        if (exact >= 0) {
+            return exact;
+        }
+        return range >= 0 ? range : Math.max(any, 0);
+    }
+
+    private static double qValue(String element, int semicolon) {
+        if (semicolon < 0) {
+            return 1;
+        }
+        for (String parameter : element.substring(semicolon + 1).split(";")) {
+            int equals = parameter.indexOf('=');
+            if (equals > 0 && parameter.substring(0, equals).trim().equalsIgnoreCase("q")) {
+                try {
+                    return Double.parseDouble(parameter.substring(equals + 1).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static LatencyHistogram timer(String codec, String operation, String type) {
+        return MetricsRegistry.getDefault().timer("serialization_duration_seconds",
+                "Time spent encoding and decoding entities, by codec, operation and type.",
+                "codec", codec, "operation", operation, "type", type);
+    }
+}
@@ -0,0 +1,215 @@
+package controller.compression;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.IOException;
+import java.util.zip.Deflater;
+
+/**
+ * Holds back the first {@code minSize} bytes to decide whether compressing is worth it, then
+ * deflates each write straight through to the container's stream. Bodies that end within the
+ * threshold are sent as they are.
+ */
+final class CompressingOutputStream extends ServletOutputStream {
+
+    private static final int PENDING = 0;
+    private static final int IDENTITY = 1;
+    private static final int COMPRESSING = 2;
+    private static final int FINISHED = 3;
+
+    // Magic, CM=deflate, no flags, no mtime, no extra flags, OS unknown.
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final CompressingResponse response;
+    private final ServletOutputStream out;
+    private final ContentEncoding encoding;
+    private final DeflaterPool pool;
+    private final byte[] pending;
+    private final byte[] single = new byte[1];
+
+    private int mode = PENDING;
+    private int pendingCount;
+    private DeflaterPool.Entry compressor;
+    private long inputBytes;
+    private long outputBytes;
+    private long deflateNanos;
+
+    CompressingOutputStream(CompressingResponse response, ServletOutputStream out, ContentEncoding encoding,
+                            DeflaterPool pool, int minSize) {
+        this.response = response;
+        this.out = out;
+        this.encoding = encoding;
+        this.pool = pool;
+        this.pending = new byte[minSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        single[0] = (byte) b;
+        write(single, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (mode == COMPRESSING) {
+            deflate(b, off, len);
+        } else if (mode == IDENTITY) {
+            out.write(b, off, len);
+        } else if (mode == PENDING) {
+            if (len <= pending.length - pendingCount && !response.isDisabled()) {
+                System.arraycopy(b, off, pending, pendingCount, len);
+                pendingCount += len;
+            } else if (response.startCompressing()) {
+                begin();
+                deflate(pending, 0, pendingCount);
+                pendingCount = 0;
+                deflate(b, off, len);
+            } else {
+                sendAsIs();
+                out.write(b, off, len);
+            }
+        } else {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    // A flush commits the response, so a body still under the threshold goes out uncompressed.
+    @Override
+    public void flush() throws IOException {
+        if (mode == COMPRESSING) {
+            drain(Deflater.SYNC_FLUSH);
+            out.flush();
+        } else if (mode == IDENTITY) {
+            out.flush();
+        } else if (mode == PENDING && pendingCount > 0) {
+            sendAsIs();
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+        out.close();
+    }
+
+    // Completes the body without closing the container's stream; safe to call more than once.
+    void finish() throws IOException {
+        if (mode == FINISHED) {
+            return;
+        }
+        int finishing = mode;
+        mode = FINISHED;
+        try {
+            if (finishing == COMPRESSING) {
+                Deflater deflater = compressor.deflater;
+                deflater.finish();
+                while (!deflater.finished()) {
+                    drain(Deflater.NO_FLUSH);
+                }
+                if (encoding == ContentEncoding.GZIP) {
+                    writeGzipTrailer();
+                }
+                CompressionFilter.recordCompressed(encoding, inputBytes, outputBytes, deflateNanos);
+            } else if (finishing == IDENTITY || pendingCount > 0) {
+                out.write(pending, 0, pendingCount);
+                pendingCount = 0;
+                CompressionFilter.recordIdentity();
+            }
+        } finally {
+            if (compressor != null) {
+                pool.release(compressor);
+                compressor = null;
+            }
+        }
+    }
+
+    // Drops bytes not yet sent, for a reset or an error page replacing the body.
+    void discardPending() {
+        pendingCount = 0;
+    }
+
+    void abort() {
+        mode = FINISHED;
+        pendingCount = 0;
+        if (compressor != null) {
+            pool.release(compressor);
+            compressor = null;
+        }
+    }
+
+    boolean isCompressing() {
+        return mode == COMPRESSING;
+    }
+
+    @Override
+    public boolean isReady() {
+        return out.isReady();
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+        out.setWriteListener(writeListener);
+    }
+
+    private void sendAsIs() throws IOException {
+        mode = IDENTITY;
+        out.write(pending, 0, pendingCount);
+        pendingCount = 0;
+    }
+
+    private void begin() throws IOException {
+        compressor = pool.borrow();
+        mode = COMPRESSING;
+        if (encoding == ContentEncoding.GZIP) {
+            out.write(GZIP_HEADER);
+            outputBytes += GZIP_HEADER.length;
+        }
+    }
+
+    private void deflate(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return;
+        }
+        if (encoding == ContentEncoding.GZIP) {
+            compressor.crc.update(b, off, len);
+        }
+        inputBytes += len;
+        Deflater deflater = compressor.deflater;
+        // The deflater keeps a reference to b rather than a copy, so all of it is consumed before returning.
+        deflater.setInput(b, off, len);
+        while (!deflater.needsInput()) {
+            drain(Deflater.NO_FLUSH);
+        }
+    }
+
+    private void drain(int flush) throws IOException {
+        Deflater deflater = compressor.deflater;
+        byte[] buffer = compressor.buffer;
+        int written;
+        do {
+            long start = System.nanoTime();
+            written = deflater.deflate(buffer, 0, buffer.length, flush);
+            deflateNanos += System.nanoTime() - start;
+            if (written > 0) {
+                out.write(buffer, 0, written);
+                outputBytes += written;
+            }
+        } while (written == buffer.length);
+    }
+
+    private void writeGzipTrailer() throws IOException {
+        byte[] trailer = compressor.buffer;
+        writeIntLE(trailer, 0, compressor.crc.getValue());
+        writeIntLE(trailer, 4, inputBytes);
+        out.write(trailer, 0, 8);
+        outputBytes += 8;
+    }
+
+    private static void writeIntLE(byte[] buffer, int offset, long value) {
+        buffer[offset] = (byte) value;
+        buffer[offset + 1] = (byte) (value >>> 8);
+        buffer[offset + 2] = (byte) (value >>> 16);
+        buffer[offset + 3] = (byte) (value >>> 24);
+    }
+}
@@ -0,0 +1,188 @@
+package controller.compression;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+final class CompressingResponse extends HttpServletResponseWrapper {
+
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+    private static final String CONTENT_LENGTH = "Content-Length";
+
+    private final ContentEncoding encoding;
+    private final DeflaterPool pool;
+    private final int minSize;
+
+    private CompressingOutputStream stream;
+    private PrintWriter writer;
+    private boolean disabled;
+
+    CompressingResponse(HttpServletResponse response, ContentEncoding encoding, DeflaterPool pool, int minSize) {
+        super(response);
+        this.encoding = encoding;
+        this.pool = pool;
+        this.minSize = minSize;
+    }
+
+    void disable() {
+        disabled = true;
+    }
+
+    boolean isDisabled() {
+        return disabled;
+    }
+
+    // Called once the body outgrows the threshold; sets the headers if this response should be compressed.
+    boolean startCompressing() {
+        int status = getStatus();
+        if (disabled || status < 200 || status == SC_NO_CONTENT || status == SC_PARTIAL_CONTENT
+                || super.containsHeader(CONTENT_ENCODING) || !isCompressible(getContentType())) {
+            return false;
+        }
+        super.setHeader(CONTENT_ENCODING, encoding.token);
+        // The compressed bytes are a different representation of the same content: only a weak validator fits.
+        String etag = super.getHeader("ETag");
+        if (etag != null && !etag.startsWith("W/")) {
+            super.setHeader("ETag", "W/" + etag);
+        }
+        return true;
+    }
+
+    void finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (stream != null) {
+            stream.finish();
+        }
+    }
+
+    // Leaves the response to the container's error handling, keeping only the deflater.
+    void abort() {
+        if (stream != null) {
+            stream.abort();
+        }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called");
+        }
+        return stream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (stream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called");
+            }
+            writer = new PrintWriter(new OutputStreamWriter(stream(), getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (stream != null) {
+            stream.flush();
+        }
+        super.flushBuffer();
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        discardPending();
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        discardPending();
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        discardPending();
+        disabled = true;
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        discardPending();
+        disabled = true;
+        super.sendError(sc);
+    }
+
+    // A declared length under the threshold is kept as is; a larger one would be wrong once compressed.
+    @Override
+    public void setContentLength(int len) {
+        setContentLengthLong(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        if (stream != null && stream.isCompressing()) {
+            return;
+        }
+        if (len <= minSize) {
+            disabled = true;
+            super.setContentLengthLong(len);
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(Long.parseLong(value));
+            return;
+        }
+        if (CONTENT_ENCODING.equalsIgnoreCase(name)) {
+            disabled = true;
+        }
+        super.setHeader(name, value);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(Long.parseLong(value));
+            return;
+        }
+        if (CONTENT_ENCODING.equalsIgnoreCase(name)) {
+            disabled = true;
+        }
+        super.addHeader(name, value);
+    }
+
+    private CompressingOutputStream stream() throws IOException {
+        if (stream == null) {
+            stream = new CompressingOutputStream(this, super.getOutputStream(), encoding, pool, minSize);
+        }
+        return stream;
+    }
+
+    private void discardPending() {
+        if (stream != null) {
+            stream.discardPending();
+        }
+    }
+
+    private static boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        return type.startsWith("text/") || type.startsWith("application/json") || type.contains("+json");
+    }
+}
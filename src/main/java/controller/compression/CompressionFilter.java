@@ -0,0 +1,169 @@
+package controller.compression;
+
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.ServletResponseWrapper;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses controller responses with gzip or deflate, as negotiated from {@code Accept-Encoding},
+ * while they are written. Bodies up to {@code http.compression.minSize} bytes are sent uncompressed,
+ * and a handler can opt its response out with {@link #disable}.
+ */
+@WebFilter(urlPatterns = {"/users/*", "/films/*"}, asyncSupported = true)
+public class CompressionFilter implements Filter {
+
+    private static final String PREFIX = "http.compression.";
+
+    private static final LongAdder[] COMPRESSED = new LongAdder[ContentEncoding.values().length];
+    private static final LongAdder UNCOMPRESSED;
+    private static final LongAdder INPUT_BYTES;
+    private static final LongAdder OUTPUT_BYTES;
+    private static final LatencyHistogram DEFLATE_TIME;
+
+    static {
+        MetricsRegistry registry = MetricsRegistry.getDefault();
+        for (ContentEncoding encoding : ContentEncoding.values()) {
+            COMPRESSED[encoding.ordinal()] = registry.counter("http_compression_responses_total",
+                    "Responses the client accepted compressed, by the encoding sent.", "encoding", encoding.token);
+        }
+        UNCOMPRESSED = registry.counter("http_compression_responses_total",
+                "Responses the client accepted compressed, by the encoding sent.", "encoding", "identity");
+        INPUT_BYTES = registry.counter("http_compression_input_bytes_total",
+                "Body bytes of compressed responses before compression.");
+        OUTPUT_BYTES = registry.counter("http_compression_output_bytes_total",
+                "Body bytes of compressed responses after compression.");
+        registry.gauge("http_compression_ratio", "Input over output bytes of all compressed responses.",
+                () -> ratio(INPUT_BYTES.sum(), OUTPUT_BYTES.sum()));
+        DEFLATE_TIME = registry.timer("http_compression_duration_seconds",
+                "Time spent in the deflater per compressed response.");
+    }
+
+    private final boolean enabled;
+    private final int minSize;
+    private final DeflaterPool[] pools = new DeflaterPool[ContentEncoding.values().length];
+
+    public CompressionFilter() {
+        this(Boolean.parseBoolean(System.getProperty(PREFIX + "enabled", "true")),
+                Integer.getInteger(PREFIX + "minSize", 1024),
+                Integer.getInteger(PREFIX + "level", Deflater.DEFAULT_COMPRESSION),
+                Integer.getInteger(PREFIX + "poolSize", 2 * Runtime.getRuntime().availableProcessors()));
+    }
+
+    public CompressionFilter(boolean enabled, int minSize, int level, int poolSize) {
+        if (minSize < 0) {
+            throw new IllegalArgumentException("minSize must not be negative: " + minSize);
+        }
+        this.enabled = enabled;
+        this.minSize = minSize;
+        for (ContentEncoding encoding : ContentEncoding.values()) {
+            pools[encoding.ordinal()] = new DeflaterPool(level, encoding.nowrap, poolSize);
+        }
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain)
+            throws IOException, ServletException {
+        if (!enabled || !(servletRequest instanceof HttpServletRequest)) {
+            chain.doFilter(servletRequest, servletResponse);
+            return;
+        }
+        HttpServletRequest request = (HttpServletRequest) servletRequest;
+        HttpServletResponse response = (HttpServletResponse) servletResponse;
+        response.addHeader("Vary", "Accept-Encoding");
+        ContentEncoding encoding = "HEAD".equals(request.getMethod()) ? null
+                : ContentEncoding.negotiate(request.getHeader("Accept-Encoding"));
+        if (encoding == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        CompressingResponse compressing = new CompressingResponse(response, encoding, pools[encoding.ordinal()],
+                minSize);
+        try {
+            chain.doFilter(request, compressing);
+        } catch (IOException | ServletException | RuntimeException e) {
+            compressing.abort();
+            throw e;
+        }
+        // An async handler finishes the response itself, see finish().
+        if (!request.isAsyncStarted()) {
+            compressing.finish();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        for (DeflaterPool pool : pools) {
+            pool.close();
+        }
+    }
+
+    /**
+     * Sends this response uncompressed, for routes whose bodies are small or already compact.
+     * Has no effect once compressed output has started.
+     */
+    public static void disable(ServletResponse response) {
+        CompressingResponse compressing = unwrap(response);
+        if (compressing != null) {
+            compressing.disable();
+        }
+    }
+
+    /**
+     * Writes out what the filter still holds: the deflate trailer, or a body under the threshold.
+     * Handlers running after {@code startAsync} call this before {@code complete()}, which closes
+     * the container's stream underneath the filter.
+     */
+    public static void finish(ServletResponse response) throws IOException {
+        CompressingResponse compressing = unwrap(response);
+        if (compressing != null) {
+            compressing.finish();
+        }
+    }
+
+    static void recordCompressed(ContentEncoding encoding, long inputBytes, long outputBytes, long deflateNanos) {
+        COMPRESSED[encoding.ordinal()].increment();
+        INPUT_BYTES.add(inputBytes);
+        OUTPUT_BYTES.add(outputBytes);
+        DEFLATE_TIME.record(deflateNanos);
+    }
+
+    static void recordIdentity() {
+        UNCOMPRESSED.increment();
+    }
+
+    // 1 until something has been compressed: 0 / 0 would export NaN.
+    static double ratio(long inputBytes, long outputBytes) {
+        return outputBytes == 0 ? 1 : (double) inputBytes / outputBytes;
+    }
+
+    int idleDeflaters(ContentEncoding encoding) {
+        return pools[encoding.ordinal()].idleCount();
+    }
+
+    private static CompressingResponse unwrap(ServletResponse response) {
+        while (response instanceof ServletResponseWrapper) {
+            if (response instanceof CompressingResponse) {
+                return (CompressingResponse) response;
+            }
+            response = ((ServletResponseWrapper) response).getResponse();
+        }
+        return null;
+    }
+}
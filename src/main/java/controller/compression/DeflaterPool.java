@@ -0,0 +1,56 @@
+package controller.compression;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+// A Deflater holds native zlib state until end() is called; reusing them avoids that allocation per response.
+final class DeflaterPool {
+
+    static final int BUFFER_SIZE = 8192;
+
+    private final int level;
+    private final boolean nowrap;
+    private final ArrayBlockingQueue<Entry> idle;
+
+    DeflaterPool(int level, boolean nowrap, int capacity) {
+        this.level = level;
+        this.nowrap = nowrap;
+        this.idle = new ArrayBlockingQueue<>(capacity);
+    }
+
+    Entry borrow() {
+        Entry entry = idle.poll();
+        return entry != null ? entry : new Entry(new Deflater(level, nowrap));
+    }
+
+    void release(Entry entry) {
+        entry.deflater.reset();
+        entry.crc.reset();
+        if (!idle.offer(entry)) {
+            entry.deflater.end();
+        }
+    }
+
+    int idleCount() {
+        return idle.size();
+    }
+
+    void close() {
+        Entry entry;
+        while ((entry = idle.poll()) != null) {
+            entry.deflater.end();
+        }
+    }
+
+    static final class Entry {
+
+        final Deflater deflater;
+        final CRC32 crc = new CRC32();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+
+        Entry(Deflater deflater) {
+            this.deflater = deflater;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package controller.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import model.Film;
+import model.Genre;
+import model.Mpa;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+// Reads only the ids of mpa and genres; their names always come from the dictionary.
+public class FilmTypeAdapter extends TypeAdapter<Film> {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE;
+
+    @Override
+    public void write(JsonWriter out, Film film) throws IOException {
+        if (film == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("id").value(film.getId());
+        writeString(out, "name", film.getName());
+        writeString(out, "description", film.getDescription());
+        if (film.getReleaseDate() != null) {
+            out.name("releaseDate").value(DATE_FORMATTER.format(film.getReleaseDate()));
+        }
+        out.name("duration").value(film.getDuration());
+        if (film.getMpa() != null) {
+            out.name("mpa");
+            writeEntry(out, film.getMpa().getId(), film.getMpa().getName());
+        }
+        out.name("genres").beginArray();
+        if (film.getGenres() != null) {
+            for (Genre genre : film.getGenres()) {
+                writeEntry(out, genre.getId(), genre.getName());
+            }
+        }
+        out.endArray();
+        out.endObject();
+    }
+
+    @Override
+    public Film read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        Film film = new Film();
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "id":
+                    film.setId(in.nextLong());
+                    break;
+                case "name":
+                    film.setName(in.nextString());
+                    break;
+                case "description":
+                    film.setDescription(in.nextString());
+                    break;
+                case "releaseDate":
+                    film.setReleaseDate(LocalDate.parse(in.nextString(), DATE_FORMATTER));
+                    break;
+                case "duration":
+                    film.setDuration(in.nextInt());
+                    break;
+                case "mpa":
+                    film.setMpa(new Mpa(readId(in), null));
+                    break;
+                case "genres":
+                    List<Genre> genres = new ArrayList<>();
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        genres.add(new Genre(readId(in), null));
+                    }
+                    in.endArray();
+                    film.setGenres(genres);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return film;
+    }
+
+    private static int readId(JsonReader in) throws IOException {
+        int id = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            if ("id".equals(in.nextName())) {
+                id = in.nextInt();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return id;
+    }
+
+    private static void writeEntry(JsonWriter out, int id, String name) throws IOException {
+        out.beginObject();
+        out.name("id").value(id);
+        writeString(out, "name", name);
+        out.endObject();
+    }
+
+    private static void writeString(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package controller.json;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+import model.Film;
+import model.User;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeParseException;
+
+// Shared by all requests: the adapters are stateless and JsonWriter setup is per-call.
+public final class JsonCodec {
+
+    public static final String CONTENT_TYPE = "application/json";
+
+    private static final int BUFFER_SIZE = 4096;
+    private static final boolean PRETTY = Boolean.getBoolean("json.pretty");
+    private static final UserTypeAdapter USER_ADAPTER = new UserTypeAdapter();
+    private static final FilmTypeAdapter FILM_ADAPTER = new FilmTypeAdapter();
+
+    // Writes include the time to drain full buffers into the response, so slow clients show up here too.
+    private static final LatencyHistogram WRITE_USER = timer("write", "user");
+    private static final LatencyHistogram WRITE_USERS = timer("write", "users");
+    private static final LatencyHistogram READ_USER = timer("read", "user");
+    private static final LatencyHistogram WRITE_FILM = timer("write", "film");
+    private static final LatencyHistogram WRITE_FILMS = timer("write", "films");
+    private static final LatencyHistogram READ_FILM = timer("read", "film");
+
+    private JsonCodec() {
+    }
+
+    public static JsonWriter newWriter(OutputStream out) {
+        // JsonWriter issues many tiny writes, which OutputStreamWriter would turn into a CharBuffer each.
+        JsonWriter writer = new JsonWriter(new Utf8Writer(out, BUFFER_SIZE));
+        if (PRETTY) {
+            writer.setIndent("  ");
+        }
+        return writer;
+    }
+
+    public static JsonReader newReader(InputStream in) {
+        return new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    public static void writeUser(JsonWriter writer, User user) throws IOException {
+        long start = System.nanoTime();
+        try {
+            USER_ADAPTER.write(writer, user);
+        } finally {
+            WRITE_USER.record(System.nanoTime() - start);
+        }
+    }
+
+    public static void writeUsers(JsonWriter writer, Iterable<User> users) throws IOException {
+        long start = System.nanoTime();
+        try {
+            writer.beginArray();
+            for (User user : users) {
+                USER_ADAPTER.write(writer, user);
+            }
+            writer.endArray();
+        } finally {
+            WRITE_USERS.record(System.nanoTime() - start);
+        }
+    }
+
+    public static User readUser(JsonElement element) {
+        long start = System.nanoTime();
+        try {
+            return USER_ADAPTER.fromJsonTree(element);
+        } catch (IllegalStateException | NumberFormatException | DateTimeParseException e) {
+            throw new JsonParseException("Malformed user JSON: " + e.getMessage(), e);
+        } finally {
+            READ_USER.record(System.nanoTime() - start);
+        }
+    }
+
+    public static User readUser(JsonReader reader) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return USER_ADAPTER.read(reader);
+        } catch (IllegalStateException | NumberFormatException | DateTimeParseException e) {
+            throw new JsonParseException("Malformed user JSON: " + e.getMessage(), e);
+        } finally {
+            READ_USER.record(System.nanoTime() - start);
+        }
+    }
+
+    public static void writeFilms(JsonWriter writer, Iterable<Film> films) throws IOException {
+        long start = System.nanoTime();
+        try {
+            writer.beginArray();
+            for (Film film : films) {
+                FILM_ADAPTER.write(writer, film);
+            }
+            writer.endArray();
+        } finally {
+            WRITE_FILMS.record(System.nanoTime() - start);
+        }
+    }
+
+    public static void writeFilm(JsonWriter writer, Film film) throws IOException {
+        long start = System.nanoTime();
+        try {
+            FILM_ADAPTER.write(writer, film);
+        } finally {
+            WRITE_FILM.record(System.nanoTime() - start);
+        }
+    }
+
+    public static Film readFilm(JsonReader reader) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return FILM_ADAPTER.read(reader);
+        } catch (IllegalStateException | NumberFormatException | DateTimeParseException e) {
+            throw new JsonParseException("Malformed film JSON: " + e.getMessage(), e);
+        } finally {
+            READ_FILM.record(System.nanoTime() - start);
+        }
+    }
+
+    private static LatencyHistogram timer(String operation, String type) {
+        return MetricsRegistry.getDefault().timer("serialization_duration_seconds",
+                "Time spent encoding and decoding entities, by codec, operation and type.",
+                "codec", "json", "operation", operation, "type", type);
+    }
+}
@@ -0,0 +1,78 @@
+package controller.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import model.User;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+public class UserTypeAdapter extends TypeAdapter<User> {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE;
+
+    @Override
+    public void write(JsonWriter out, User user) throws IOException {
+        if (user == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("id").value(user.getId());
+        writeString(out, "email", user.getEmail());
+        writeString(out, "login", user.getLogin());
+        writeString(out, "name", user.getName());
+        if (user.getBirthday() != null) {
+            out.name("birthday").value(DATE_FORMATTER.format(user.getBirthday()));
+        }
+        out.endObject();
+    }
+
+    @Override
+    public User read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        User user = new User();
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "id":
+                    user.setId(in.nextLong());
+                    break;
+                case "email":
+                    user.setEmail(in.nextString());
+                    break;
+                case "login":
+                    user.setLogin(in.nextString());
+                    break;
+                case "name":
+                    user.setName(in.nextString());
+                    break;
+                case "birthday":
+                    user.setBirthday(LocalDate.parse(in.nextString(), DATE_FORMATTER));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return user;
+    }
+
+    private static void writeString(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package controller.routing;
+
+/**
+ * Variables of a matched route, kept as offsets into the request path and parsed on access, so
+ * matching never cuts substrings out of the path.
+ */
+public final class PathVariables {
+
+    private final String path;
+    private final int[] starts;
+    private final int[] ends;
+    private String[] names;
+
+    PathVariables(String path, int capacity) {
+        this.path = path;
+        this.starts = new int[capacity];
+        this.ends = new int[capacity];
+    }
+
+    void set(int index, int start, int end) {
+        starts[index] = start;
+        ends[index] = end;
+    }
+
+    void bind(String[] names) {
+        this.names = names;
+    }
+
+    // A malformed value is a NumberFormatException, which the executor answers with 400 like any bad argument.
+    public long getLong(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return parseLong(path, starts[i], ends[i], name);
+            }
+        }
+        throw new IllegalStateException("Route has no path variable " + name);
+    }
+
+    // Long.parseLong over path[start, end) without the substring; accumulates negatively to reach MIN_VALUE.
+    static long parseLong(CharSequence path, int start, int end, String name) {
+        int i = start;
+        boolean negative = i < end && path.charAt(i) == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == end) {
+            throw notANumber(name);
+        }
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = path.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || result < (Long.MIN_VALUE + digit) / 10) {
+                throw notANumber(name);
+            }
+            result = result * 10 - digit;
+        }
+        if (negative) {
+            return result;
+        }
+        if (result == Long.MIN_VALUE) {
+            throw notANumber(name);
+        }
+        return -result;
+    }
+
+    private static NumberFormatException notANumber(String name) {
+        return new NumberFormatException(name + " must be a number");
+    }
+}
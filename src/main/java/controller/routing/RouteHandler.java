@@ -0,0 +1,12 @@
+package controller.routing;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+@FunctionalInterface
+public interface RouteHandler {
+
+    void handle(HttpServletRequest request, HttpServletResponse response, PathVariables variables)
+            throws IOException;
+}
@@ -0,0 +1,168 @@
+package controller.routing;
+
+import controller.RequestHandler;
+import metrics.LatencyHistogram;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Dispatches a servlet's requests by method and path info against a trie of route templates such
+ * as {@code /{id}/friends/common/{otherId}}, built when the servlet is created. Literal segments
+ * win over variables; a path no template matches gets 404, a matched path without a handler for
+ * the method gets 405 with an Allow header. Each route records into its own timer.
+ */
+public class Router implements RequestHandler {
+
+    private final String basePath;
+    private final Function<String, LatencyHistogram> timers;
+    private final LatencyHistogram unmatched;
+    private final Node root = new Node(null);
+    private int maxVariables;
+
+    public Router(String basePath, Function<String, LatencyHistogram> timers) {
+        this.basePath = basePath;
+        this.timers = timers;
+        this.unmatched = timers.apply("unmatched");
+    }
+
+    // Templates are relative to the servlet path: "" is the collection itself, "/{id}" one of its members.
+    public void add(String method, String template, RouteHandler handler) {
+        if (!template.isEmpty() && (!template.startsWith("/") || template.endsWith("/"))) {
+            throw new IllegalArgumentException("Invalid route template: " + template);
+        }
+        Node node = root;
+        List<String> names = new ArrayList<>();
+        for (String segment : template.isEmpty() ? new String[0] : template.substring(1).split("/", -1)) {
+            if (segment.isEmpty()) {
+                throw new IllegalArgumentException("Invalid route template: " + template);
+            }
+            if (segment.startsWith("{") && segment.endsWith("}")) {
+                names.add(segment.substring(1, segment.length() - 1));
+                if (node.variable == null) {
+                    node.variable = new Node(null);
+                }
+                node = node.variable;
+            } else {
+                node = node.literal(segment);
+            }
+        }
+        String name = method + " " + basePath + template;
+        if (node.routes.containsKey(method)) {
+            throw new IllegalArgumentException("Duplicate route: " + name);
+        }
+        node.routes.put(method, new Route(handler, names.toArray(new String[0]), timers.apply(name)));
+        maxVariables = Math.max(maxVariables, names.size());
+    }
+
+    @Override
+    public void handle(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long start = System.nanoTime();
+        String method = request.getMethod();
+        if ("HEAD".equals(method)) {
+            method = "GET";
+        }
+        String path = request.getPathInfo() == null ? "" : request.getPathInfo();
+        PathVariables variables = new PathVariables(path, maxVariables);
+        Node node = find(root, path, 0, variables, 0);
+        Route route = node == null ? null : node.routes.get(method);
+        if (route == null) {
+            try {
+                reject(node, response);
+            } finally {
+                unmatched.record(System.nanoTime() - start);
+            }
+            return;
+        }
+        variables.bind(route.variableNames);
+        try {
+            route.handler.handle(request, response, variables);
+        } finally {
+            route.timer.record(System.nanoTime() - start);
+        }
+    }
+
+    // Depth-first from path[from]; a literal that leads nowhere falls back to the variable at the same level.
+    private static Node find(Node node, String path, int from, PathVariables variables, int variableCount) {
+        int length = path.length();
+        if (from == length || (from == length - 1 && path.charAt(from) == '/')) {
+            return node.routes.isEmpty() ? null : node;
+        }
+        if (path.charAt(from) != '/') {
+            return null;
+        }
+        int start = from + 1;
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = length;
+        }
+        if (end == start) {
+            return null;
+        }
+        for (int i = 0; i < node.literals.size(); i++) {
+            Node literal = node.literals.get(i);
+            if (literal.segment.length() == end - start && path.startsWith(literal.segment, start)) {
+                Node found = find(literal, path, end, variables, variableCount);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        if (node.variable == null) {
+            return null;
+        }
+        variables.set(variableCount, start, end);
+        return find(node.variable, path, end, variables, variableCount + 1);
+    }
+
+    private static void reject(Node node, HttpServletResponse response) throws IOException {
+        if (node == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        response.setHeader("Allow", String.join(", ", node.routes.keySet()));
+        response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+    }
+
+    private static final class Route {
+
+        private final RouteHandler handler;
+        private final String[] variableNames;
+        private final LatencyHistogram timer;
+
+        Route(RouteHandler handler, String[] variableNames, LatencyHistogram timer) {
+            this.handler = handler;
+            this.variableNames = variableNames;
+            this.timer = timer;
+        }
+    }
+
+    private static final class Node {
+
+        private final String segment;
+        private final List<Node> literals = new ArrayList<>();
+        private final Map<String, Route> routes = new LinkedHashMap<>();
+        private Node variable;
+
+        Node(String segment) {
+            this.segment = segment;
+        }
+
+        Node literal(String segment) {
+            for (Node literal : literals) {
+                if (literal.segment.equals(segment)) {
+                    return literal;
+                }
+            }
+            Node literal = new Node(segment);
+            literals.add(literal);
+            return literal;
+        }
+    }
+}
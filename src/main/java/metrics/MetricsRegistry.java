@@ -0,0 +1,204 @@
+package metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Named counters, gauges and latency timers rendered in the Prometheus text format. Metrics are
+ * registered once and the returned instance is kept by the caller, so recording never looks anything up.
+ */
+public class MetricsRegistry {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final Pattern NAME = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+    private static final Pattern LABEL_NAME = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    private static class Holder {
+        private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+    }
+
+    public static MetricsRegistry getDefault() {
+        return Holder.INSTANCE;
+    }
+
+    public LongAdder counter(String name, String help, String... labels) {
+        return (LongAdder) register(name, help, Type.COUNTER, labels, new LongAdder());
+    }
+
+    public void counterFunction(String name, String help, LongSupplier value, String... labels) {
+        register(name, help, Type.COUNTER, labels, value);
+    }
+
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        register(name, help, Type.GAUGE, labels, value);
+    }
+
+    public LatencyHistogram timer(String name, String help, String... labels) {
+        return (LatencyHistogram) register(name, help, Type.SUMMARY, labels, new LatencyHistogram());
+    }
+
+    // For histograms a component already records into, such as the pool's acquire latency.
+    public void timer(String name, String help, LatencyHistogram histogram, String... labels) {
+        register(name, help, Type.SUMMARY, labels, histogram);
+    }
+
+    public void writeTo(Writer writer) throws IOException {
+        List<Family> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(families.size());
+            for (Family family : families.values()) {
+                snapshot.add(family.copy());
+            }
+        }
+        StringBuilder out = new StringBuilder(256);
+        for (Family family : snapshot) {
+            out.setLength(0);
+            family.appendTo(out);
+            writer.write(out.toString());
+        }
+        writer.flush();
+    }
+
+    // Registering the same name and labels again returns the existing metric.
+    private synchronized Object register(String name, String help, Type type, String[] labels, Object metric) {
+        if (!NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid metric name: " + name);
+        }
+        Family family = families.computeIfAbsent(name, key -> new Family(name, help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException(String.format("Metric %s is already registered as a %s",
+                    name, family.type.text));
+        }
+        return family.children.computeIfAbsent(formatLabels(labels), key -> metric);
+    }
+
+    private static String formatLabels(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs");
+        }
+        StringBuilder formatted = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (!LABEL_NAME.matcher(labels[i]).matches() || labels[i].equals("quantile")) {
+                throw new IllegalArgumentException("Invalid label name: " + labels[i]);
+            }
+            if (formatted.length() > 0) {
+                formatted.append(',');
+            }
+            formatted.append(labels[i]).append("=\"");
+            String value = labels[i + 1];
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                if (c == '\\' || c == '"') {
+                    formatted.append('\\').append(c);
+                } else if (c == '\n') {
+                    formatted.append("\\n");
+                } else {
+                    formatted.append(c);
+                }
+            }
+            formatted.append('"');
+        }
+        return formatted.toString();
+    }
+
+    private enum Type {
+        COUNTER("counter"), GAUGE("gauge"), SUMMARY("summary");
+
+        private final String text;
+
+        Type(String text) {
+            this.text = text;
+        }
+    }
+
+    private static class Family {
+
+        private final String name;
+        private final String help;
+        private final Type type;
+        private final Map<String, Object> children = new LinkedHashMap<>();
+
+        Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        Family copy() {
+            Family copy = new Family(name, help, type);
+            copy.children.putAll(children);
+            return copy;
+        }
+
+        void appendTo(StringBuilder out) {
+            out.append("# HELP ").append(name).append(' ')
+                    .append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(type.text).append('\n');
+            for (Map.Entry<String, Object> child : children.entrySet()) {
+                String labels = child.getKey();
+                Object metric = child.getValue();
+                if (metric instanceof LatencyHistogram) {
+                    appendSummary(out, labels, (LatencyHistogram) metric);
+                } else {
+                    appendSample(out, name, labels, null, value(metric));
+                }
+            }
+        }
+
+        private void appendSummary(StringBuilder out, String labels, LatencyHistogram histogram) {
+            for (double quantile : QUANTILES) {
+                appendSample(out, name, labels, Double.toString(quantile),
+                        histogram.valueAtPercentile(quantile * 100) / NANOS_PER_SECOND);
+            }
+            appendSample(out, name + "_sum", labels, null, histogram.getTotalNanos() / NANOS_PER_SECOND);
+            appendSample(out, name + "_count", labels, null, histogram.getCount());
+        }
+
+        private static double value(Object metric) {
+            if (metric instanceof LongAdder) {
+                return ((LongAdder) metric).sum();
+            }
+            if (metric instanceof LongSupplier) {
+                return ((LongSupplier) metric).getAsLong();
+            }
+            return ((DoubleSupplier) metric).getAsDouble();
+        }
+
+        private static void appendSample(StringBuilder out, String name, String labels, String quantile,
+                                         double value) {
+            out.append(name);
+            if (!labels.isEmpty() || quantile != null) {
+                out.append('{').append(labels);
+                if (quantile != null) {
+                    out.append(labels.isEmpty() ? "" : ",").append("quantile=\"").append(quantile).append('"');
+                }
+                out.append('}');
+            }
+            out.append(' ');
+            if (Double.isNaN(value)) {
+                out.append("NaN");
+            } else if (Double.isInfinite(value)) {
+                out.append(value > 0 ? "+Inf" : "-Inf");
+            } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+                out.append((long) value);
+            } else {
+                out.append(value);
+            }
+            out.append('\n');
+        }
+    }
+}
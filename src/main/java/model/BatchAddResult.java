@@ -0,0 +1,67 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+public class BatchAddResult {
+
+    private final List<User> added = new ArrayList<>();
+    private final List<Failure> failures = new ArrayList<>();
+
+    public List<User> getAdded() {
+        return added;
+    }
+
+    public List<Failure> getFailures() {
+        return failures;
+    }
+
+    public void addUser(User user) {
+        added.add(user);
+    }
+
+    public void addFailure(int row, String error) {
+        failures.add(new Failure(row, error));
+    }
+
+    public static class Failure {
+
+        private final int row;
+        private final String error;
+
+        public Failure(int row, String error) {
+            this.row = row;
+            this.error = error;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Failure failure = (Failure) o;
+            return row == failure.row && Objects.equals(error, failure.error);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(row, error);
+        }
+
+        @Override
+        public String toString() {
+            return "Failure{" +
+                    "row=" + row +
+                    ", error='" + error + '\'' +
+                    '}';
+        }
+    }
+}
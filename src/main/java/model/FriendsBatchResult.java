@@ -0,0 +1,56 @@
+package model;
+
+import java.util.Arrays;
+
+public class FriendsBatchResult {
+
+    private final long[] applied;
+    private final long[] duplicates;
+    private final long[] unknown;
+
+    public FriendsBatchResult(long[] applied, long[] duplicates, long[] unknown) {
+        this.applied = applied;
+        this.duplicates = duplicates;
+        this.unknown = unknown;
+    }
+
+    public long[] getApplied() {
+        return applied;
+    }
+
+    // For additions: the edge already existed or the id was repeated; for removals: there was no edge to remove.
+    public long[] getDuplicates() {
+        return duplicates;
+    }
+
+    // No such user, or the user's own id.
+    public long[] getUnknown() {
+        return unknown;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FriendsBatchResult that = (FriendsBatchResult) o;
+        return Arrays.equals(applied, that.applied) && Arrays.equals(duplicates, that.duplicates) &&
+                Arrays.equals(unknown, that.unknown);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(applied);
+        result = 31 * result + Arrays.hashCode(duplicates);
+        result = 31 * result + Arrays.hashCode(unknown);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "FriendsBatchResult{" +
+                "applied=" + Arrays.toString(applied) +
+                ", duplicates=" + Arrays.toString(duplicates) +
+                ", unknown=" + Arrays.toString(unknown) +
+                '}';
+    }
+}
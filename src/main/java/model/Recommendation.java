@@ -0,0 +1,43 @@
+package model;
+
+import java.util.Objects;
+
+public class Recommendation {
+
+    private final User user;
+    private final int mutualFriends;
+
+    public Recommendation(User user, int mutualFriends) {
+        this.user = user;
+        this.mutualFriends = mutualFriends;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public int getMutualFriends() {
+        return mutualFriends;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Recommendation that = (Recommendation) o;
+        return mutualFriends == that.mutualFriends && Objects.equals(user, that.user);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(user, mutualFriends);
+    }
+
+    @Override
+    public String toString() {
+        return "Recommendation{" +
+                "user=" + user +
+                ", mutualFriends=" + mutualFriends +
+                '}';
+    }
+}
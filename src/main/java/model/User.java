@@ -22,6 +22,9 @@ public class User {
     @Past(message = "User birthday is in future")
     private LocalDate birthday;
 
+    // Row version, bumped on every write; not part of the JSON representation or of equals.
+    private long version;
+
     public User() {
     }
 
@@ -80,6 +83,14 @@ public class User {
         this.birthday = birthday;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
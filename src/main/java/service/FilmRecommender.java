@@ -0,0 +1,137 @@
+package service;
+
+import model.Film;
+import storage.FilmStorage;
+import storage.likes.LikesMatrix;
+import util.LongIntHashMap;
+import util.LongObjectHashMap;
+import util.TopK;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Collaborative filtering over the likes matrix: finds the users whose liked films overlap most
+ * with the target's and ranks the films they liked that the target has not, weighted by overlap.
+ */
+public class FilmRecommender {
+
+    public static final int MAX_RECOMMENDATIONS = 100;
+
+    // Below this many (film, liker) pairs the overlap count is cheaper than forking.
+    private static final int PARALLEL_THRESHOLD = 4096;
+    private static final int LEAF_SIZE = 1024;
+
+    private final LikesMatrix likesMatrix;
+    private final FilmStorage filmStorage;
+    private final int neighbours;
+
+    public FilmRecommender(LikesMatrix likesMatrix, FilmStorage filmStorage, int neighbours) {
+        this.likesMatrix = likesMatrix;
+        this.filmStorage = filmStorage;
+        this.neighbours = neighbours;
+    }
+
+    public List<Film> recommend(long userId, int limit) {
+        long[] liked = likesMatrix.filmsOf(userId);
+        if (liked.length == 0) {
+            return new ArrayList<>();
+        }
+
+        long[][] likers = new long[liked.length][];
+        int pairs = 0;
+        for (int i = 0; i < liked.length; i++) {
+            likers[i] = likesMatrix.usersOf(liked[i]);
+            pairs += likers[i].length;
+        }
+        OverlapTask task = new OverlapTask(userId, likers, 0, likers.length);
+        LongIntHashMap overlaps = pairs < PARALLEL_THRESHOLD
+                ? task.compute()
+                : ForkJoinPool.commonPool().invoke(task);
+
+        TopK similar = new TopK(neighbours);
+        overlaps.forEach(similar::offer);
+        long[] similarIds = new long[similar.size()];
+        int[] similarOverlaps = new int[similar.size()];
+        similar.drainTo(similarIds, similarOverlaps);
+
+        LongIntHashMap scores = new LongIntHashMap();
+        for (int i = 0; i < similarIds.length; i++) {
+            int overlap = similarOverlaps[i];
+            likesMatrix.forEachFilmOf(similarIds[i], filmId -> {
+                if (Arrays.binarySearch(liked, filmId) < 0) {
+                    scores.addTo(filmId, overlap);
+                }
+            });
+        }
+        TopK best = new TopK(Math.min(limit, MAX_RECOMMENDATIONS));
+        scores.forEach(best::offer);
+        long[] filmIds = new long[best.size()];
+        best.drainTo(filmIds, new int[filmIds.length]);
+        return resolve(filmIds);
+    }
+
+    // Keeps ranking order; films deleted since the matrix saw their likes are skipped.
+    private List<Film> resolve(long[] filmIds) {
+        LongObjectHashMap<Film> films = new LongObjectHashMap<>(filmIds.length);
+        for (Film film : filmStorage.getByIds(filmIds)) {
+            films.put(film.getId(), film);
+        }
+        List<Film> recommendations = new ArrayList<>(filmIds.length);
+        for (long filmId : filmIds) {
+            Film film = films.get(filmId);
+            if (film != null) {
+                recommendations.add(film);
+            }
+        }
+        return recommendations;
+    }
+
+    private static class OverlapTask extends RecursiveTask<LongIntHashMap> {
+
+        private final long userId;
+        private final long[][] likers;
+        private final int from;
+        private final int to;
+
+        OverlapTask(long userId, long[][] likers, int from, int to) {
+            this.userId = userId;
+            this.likers = likers;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected LongIntHashMap compute() {
+            int pairs = 0;
+            for (int i = from; i < to; i++) {
+                pairs += likers[i].length;
+            }
+            if (pairs <= LEAF_SIZE || to - from == 1) {
+                LongIntHashMap overlaps = new LongIntHashMap();
+                for (int i = from; i < to; i++) {
+                    for (long other : likers[i]) {
+                        if (other != userId) {
+                            overlaps.addTo(other, 1);
+                        }
+                    }
+                }
+                return overlaps;
+            }
+            int middle = (from + to) >>> 1;
+            OverlapTask left = new OverlapTask(userId, likers, from, middle);
+            left.fork();
+            LongIntHashMap right = new OverlapTask(userId, likers, middle, to).compute();
+            LongIntHashMap leftOverlaps = left.join();
+            if (leftOverlaps.size() < right.size()) {
+                right.addAll(leftOverlaps);
+                return right;
+            }
+            leftOverlaps.addAll(right);
+            return leftOverlaps;
+        }
+    }
+}
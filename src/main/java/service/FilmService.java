@@ -0,0 +1,174 @@
+package service;
+
+import exception.NotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import model.Film;
+import model.Genre;
+import storage.FilmDictionary;
+import storage.FilmStorage;
+import storage.LikesStorage;
+import storage.UserStorage;
+import storage.likes.LikesMatrix;
+import util.LongHashSet;
+import util.LongObjectHashMap;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+public class FilmService {
+
+    private static final LocalDate FIRST_FILM_DATE = LocalDate.of(1895, 12, 28);
+    private static final int MAX_NAME_LENGTH = 64;
+    private static final int MAX_DESCRIPTION_LENGTH = 200;
+    private static final String RECOMMENDATIONS_PREFIX = "recommendations.films.";
+
+    private final FilmStorage filmStorage;
+    private final FilmDictionary dictionary;
+    private final LikesStorage likesStorage;
+    private final UserStorage userStorage;
+    private final FilmRecommender filmRecommender;
+
+    public FilmService(FilmStorage filmStorage, FilmDictionary dictionary, LikesStorage likesStorage,
+                       UserStorage userStorage, LikesMatrix likesMatrix) {
+        this(filmStorage, dictionary, likesStorage, userStorage, new FilmRecommender(likesMatrix, filmStorage,
+                Integer.getInteger(RECOMMENDATIONS_PREFIX + "neighbours", 50)));
+    }
+
+    public FilmService(FilmStorage filmStorage, FilmDictionary dictionary, LikesStorage likesStorage,
+                       UserStorage userStorage, FilmRecommender filmRecommender) {
+        this.filmStorage = filmStorage;
+        this.dictionary = dictionary;
+        this.likesStorage = likesStorage;
+        this.userStorage = userStorage;
+        this.filmRecommender = filmRecommender;
+    }
+
+    public List<Film> getAll() {
+        return filmStorage.getFilms();
+    }
+
+    public List<Film> getPage(long afterId, int limit) {
+        return filmStorage.getFilms(afterId, limit);
+    }
+
+    public Film getById(long id) {
+        return filmStorage.getById(id)
+                .orElseThrow(() -> new NotFoundException(String.format("Film id=%s not found", id)));
+    }
+
+    public Film add(Film film) {
+        filmValidation(film);
+        Film created = filmStorage.add(film);
+        log.debug("Added film {}", created);
+        return created;
+    }
+
+    public Film update(Film film) {
+        filmValidation(film);
+        Film updated = filmStorage.update(film).orElseThrow(() ->
+                new NotFoundException(String.format("Film id = %s not found", film.getId())));
+        log.debug("Updated film {}", updated);
+        return updated;
+    }
+
+    public void remove(long filmId) {
+        if (filmStorage.remove(filmId)) {
+            likesStorage.removeFilm(filmId);
+            log.debug("Film id = {} removed", filmId);
+        } else {
+            throw new NotFoundException(String.format("Film id = %s not found", filmId));
+        }
+    }
+
+    public void addLike(long filmId, long userId) {
+        checkFilmExists(filmId);
+        checkUserExists(userId);
+        if (likesStorage.addLike(filmId, userId)) {
+            log.debug("User id = {} liked film id = {}", userId, filmId);
+        }
+    }
+
+    public void removeLike(long filmId, long userId) {
+        checkFilmExists(filmId);
+        checkUserExists(userId);
+        if (likesStorage.removeLike(filmId, userId)) {
+            log.debug("User id = {} unliked film id = {}", userId, filmId);
+        } else {
+            throw new NotFoundException(String.format("Like of film id = %s by user id = %s not found",
+                    filmId, userId));
+        }
+    }
+
+    // Ranked films first; when fewer than count films have likes, the rest are filled in id order.
+    // The ranking is read while likes change, so it may list an id twice; only the first counts.
+    public List<Film> getPopular(int count) {
+        long[] ranked = likesStorage.getPopularFilmIds(count);
+        LongObjectHashMap<Film> filmsById = new LongObjectHashMap<>(ranked.length);
+        for (Film film : filmStorage.getByIds(ranked)) {
+            filmsById.put(film.getId(), film);
+        }
+        List<Film> popular = new ArrayList<>(count);
+        LongHashSet included = new LongHashSet(count);
+        for (long id : ranked) {
+            Film film = filmsById.get(id);
+            if (film != null && included.add(id)) {
+                popular.add(film);
+            }
+        }
+        if (popular.size() < count) {
+            for (Film film : filmStorage.getFilms(0, count)) {
+                if (popular.size() == count) {
+                    break;
+                }
+                if (!included.contains(film.getId())) {
+                    popular.add(film);
+                }
+            }
+        }
+        return popular;
+    }
+
+    public List<Film> getRecommendations(long userId, int limit) {
+        checkUserExists(userId);
+        return filmRecommender.recommend(userId, limit);
+    }
+
+    private void checkFilmExists(long id) {
+        filmStorage.getById(id)
+                .orElseThrow(() -> new NotFoundException(String.format("Film id=%s not found", id)));
+    }
+
+    private void checkUserExists(long id) {
+        userStorage.getById(id)
+                .orElseThrow(() -> new NotFoundException(String.format("User id=%s not found", id)));
+    }
+
+    private void filmValidation(Film film) {
+        if (film.getName() == null || film.getName().isBlank() || film.getName().length() > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException(
+                    String.format("Film name must be 1 to %s characters", MAX_NAME_LENGTH));
+        }
+        if (film.getDescription() != null && film.getDescription().length() > MAX_DESCRIPTION_LENGTH) {
+            throw new IllegalArgumentException(
+                    String.format("Film description is longer than %s characters", MAX_DESCRIPTION_LENGTH));
+        }
+        if (film.getReleaseDate() != null && film.getReleaseDate().isBefore(FIRST_FILM_DATE)) {
+            throw new IllegalArgumentException("Film release date is before " + FIRST_FILM_DATE);
+        }
+        if (film.getDuration() <= 0) {
+            throw new IllegalArgumentException("Film duration must be positive");
+        }
+        if (film.getMpa() == null || dictionary.getMpa(film.getMpa().getId()).isEmpty()) {
+            throw new IllegalArgumentException("Film mpa is missing or unknown");
+        }
+        if (film.getGenres() != null) {
+            for (Genre genre : film.getGenres()) {
+                if (dictionary.getGenre(genre.getId()).isEmpty()) {
+                    throw new IllegalArgumentException(String.format("Genre id=%s is unknown", genre.getId()));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package service;
+
+import model.Recommendation;
+import model.User;
+import storage.FriendsStorage;
+import storage.UserStorage;
+import util.LongIntHashMap;
+import util.LongObjectHashMap;
+import util.TopK;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Friends-of-friends ranked by mutual friend count. Rankings are cached per user until the
+ * user's own edges change or the TTL passes, which bounds staleness from second-hop changes.
+ */
+public class FriendRecommender {
+
+    public static final int MAX_RECOMMENDATIONS = 100;
+
+    // Below this many friends the walk is cheaper than forking.
+    private static final int PARALLEL_THRESHOLD = 256;
+    private static final int LEAF_SIZE = 64;
+
+    private final FriendsStorage friendsStorage;
+    private final UserStorage userStorage;
+    private final long ttlNanos;
+    private final int maxCachedUsers;
+    private final LongSupplier ticker;
+    private final ConcurrentHashMap<Long, Ranking> cache = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    public FriendRecommender(FriendsStorage friendsStorage, UserStorage userStorage, Duration ttl,
+                             int maxCachedUsers) {
+        this(friendsStorage, userStorage, ttl, maxCachedUsers, System::nanoTime);
+    }
+
+    FriendRecommender(FriendsStorage friendsStorage, UserStorage userStorage, Duration ttl, int maxCachedUsers,
+                      LongSupplier ticker) {
+        this.friendsStorage = friendsStorage;
+        this.userStorage = userStorage;
+        this.ttlNanos = ttl.toNanos();
+        this.maxCachedUsers = maxCachedUsers;
+        this.ticker = ticker;
+    }
+
+    public List<Recommendation> recommend(long userId, int limit) {
+        Ranking ranking = ranking(userId);
+        List<Recommendation> recommendations = resolve(ranking, limit);
+        // The cached ranking ran out because users in it were deleted; a fresh walk no longer reaches them.
+        if (recommendations.size() < Math.min(limit, ranking.ids.length) && cache.remove(userId, ranking)) {
+            recommendations = resolve(ranking(userId), limit);
+        }
+        return recommendations;
+    }
+
+    public void invalidate(long userId) {
+        generation.incrementAndGet();
+        cache.remove(userId);
+    }
+
+    // Walks the ranking in order; ids whose users are gone are replaced by the next ones.
+    private List<Recommendation> resolve(Ranking ranking, int limit) {
+        List<Recommendation> recommendations = new ArrayList<>(Math.min(limit, ranking.ids.length));
+        int next = 0;
+        while (recommendations.size() < limit && next < ranking.ids.length) {
+            int size = Math.min(limit - recommendations.size(), ranking.ids.length - next);
+            long[] ids = Arrays.copyOfRange(ranking.ids, next, next + size);
+            LongObjectHashMap<User> users = new LongObjectHashMap<>(size);
+            for (User user : userStorage.getByIds(ids)) {
+                users.put(user.getId(), user);
+            }
+            for (int i = 0; i < size; i++) {
+                User user = users.get(ids[i]);
+                if (user != null) {
+                    recommendations.add(new Recommendation(user, ranking.counts[next + i]));
+                }
+            }
+            next += size;
+        }
+        return recommendations;
+    }
+
+    private Ranking ranking(long userId) {
+        long now = ticker.getAsLong();
+        Ranking cached = cache.get(userId);
+        if (cached != null && now - cached.expiresAtNanos < 0) {
+            return cached;
+        }
+        long observedGeneration = generation.get();
+        Ranking ranking = compute(userId, now + ttlNanos);
+        // An edge change raced with the walk; the ranking may already be stale.
+        if (generation.get() == observedGeneration) {
+            if (cache.size() >= maxCachedUsers) {
+                cache.values().removeIf(entry -> now - entry.expiresAtNanos >= 0);
+                if (cache.size() >= maxCachedUsers) {
+                    cache.clear();
+                }
+            }
+            cache.put(userId, ranking);
+        }
+        return ranking;
+    }
+
+    private Ranking compute(long userId, long expiresAtNanos) {
+        long[] friends = friendsStorage.getFriendIds(userId);
+        // Fanning out blocking friend-list queries would tie up the shared common pool.
+        LongIntHashMap mutualCounts = friends.length < PARALLEL_THRESHOLD || !friendsStorage.isInMemory()
+                ? countMutual(userId, friends, 0, friends.length)
+                : ForkJoinPool.commonPool().invoke(new ScoreTask(userId, friends, 0, friends.length));
+
+        TopK topK = new TopK(MAX_RECOMMENDATIONS);
+        mutualCounts.forEach(topK::offer);
+        long[] rankedIds = new long[topK.size()];
+        int[] rankedCounts = new int[topK.size()];
+        topK.drainTo(rankedIds, rankedCounts);
+        return new Ranking(rankedIds, rankedCounts, expiresAtNanos);
+    }
+
+    private LongIntHashMap countMutual(long userId, long[] friends, int from, int to) {
+        LongIntHashMap mutualCounts = new LongIntHashMap();
+        for (int i = from; i < to; i++) {
+            friendsStorage.forEachFriendId(friends[i], candidate -> {
+                if (candidate != userId && Arrays.binarySearch(friends, candidate) < 0) {
+                    mutualCounts.addTo(candidate, 1);
+                }
+            });
+        }
+        return mutualCounts;
+    }
+
+    private class ScoreTask extends RecursiveTask<LongIntHashMap> {
+
+        private final long userId;
+        private final long[] friends;
+        private final int from;
+        private final int to;
+
+        ScoreTask(long userId, long[] friends, int from, int to) {
+            this.userId = userId;
+            this.friends = friends;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected LongIntHashMap compute() {
+            if (to - from <= LEAF_SIZE) {
+                return countMutual(userId, friends, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            ScoreTask left = new ScoreTask(userId, friends, from, middle);
+            left.fork();
+            LongIntHashMap right = new ScoreTask(userId, friends, middle, to).compute();
+            LongIntHashMap leftCounts = left.join();
+            if (leftCounts.size() < right.size()) {
+                right.addAll(leftCounts);
+                return right;
+            }
+            leftCounts.addAll(right);
+            return leftCounts;
+        }
+    }
+
+    private static class Ranking {
+
+        private final long[] ids;
+        private final int[] counts;
+        private final long expiresAtNanos;
+
+        Ranking(long[] ids, int[] counts, long expiresAtNanos) {
+            this.ids = ids;
+            this.counts = counts;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+}
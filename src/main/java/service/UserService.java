@@ -1,50 +1,73 @@
 package service;
 
-import exception.DbCreateEntityFaultException;
 import exception.NotFoundException;
 import lombok.extern.slf4j.Slf4j;
+import model.BatchAddResult;
+import model.FriendsBatchResult;
+import model.Recommendation;
 import model.User;
 import storage.FriendsStorage;
 import storage.UserStorage;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
 
 @Slf4j
 public class UserService {
 
+    private static final String RECOMMENDATIONS_PREFIX = "recommendations.";
+
     private final UserStorage userStorage;
     private final FriendsStorage friendsStorage;
+    private final FriendRecommender friendRecommender;
 
     public UserService(UserStorage userStorage, FriendsStorage friendsStorage) {
+        this(userStorage, friendsStorage, new FriendRecommender(friendsStorage, userStorage,
+                Duration.ofMillis(Long.getLong(RECOMMENDATIONS_PREFIX + "cacheTtlMillis", 60_000)),
+                Integer.getInteger(RECOMMENDATIONS_PREFIX + "cacheMaxUsers", 10_000)));
+    }
+
+    public UserService(UserStorage userStorage, FriendsStorage friendsStorage, FriendRecommender friendRecommender) {
         this.userStorage = userStorage;
         this.friendsStorage = friendsStorage;
+        this.friendRecommender = friendRecommender;
     }
 
     public List<User> getAll() {
         return userStorage.getUsers();
     }
 
+    public List<User> getPage(long afterId, int limit) {
+        return userStorage.getUsers(afterId, limit);
+    }
+
+    public void forEachUser(Consumer<User> consumer) {
+        userStorage.forEachUser(consumer);
+    }
+
     public User add(User user) {
         userValidationByName(user);
-        long id = user.getId();
-        userStorage.add(user);
-        user = userStorage.getById(id).orElseThrow(() ->
-                new DbCreateEntityFaultException(String.format("User (id=%s) hasn't been added to database", id)));
-        log.debug("Added user {}", user);
-        return user;
+        User created = userStorage.add(user);
+        log.debug("Added user {}", created);
+        return created;
+    }
+
+    public BatchAddResult addBatch(List<User> users) {
+        users.forEach(this::userValidationByName);
+        BatchAddResult result = userStorage.addBatch(users);
+        log.debug("Added {} of {} users in batch", result.getAdded().size(), users.size());
+        return result;
     }
 
     public User update(User user) {
         userValidationByName(user);
-        if (!userStorage.update(user)) {
-            throw new NotFoundException(String.format("User id = %s not found", user.getId()));
-        }
-        long id = user.getId();
-        user = userStorage.getById(id).orElseThrow(() ->
-                new DbCreateEntityFaultException(String.format("User (id=%s) hasn't been updated in database", id)));
-        log.debug("Updated user {}", user);
-        return user;
+        User updated = userStorage.update(user).orElseThrow(() ->
+                new NotFoundException(String.format("User id = %s not found", user.getId())));
+        log.debug("Updated user {}", updated);
+        return updated;
     }
 
     private void userValidationByName(User user) {
@@ -60,10 +83,19 @@ public class UserService {
                 .orElseThrow(() -> new NotFoundException(String.format("User id=%s not found", id)));
     }
 
+    public OptionalLong getVersion(long id) {
+        return userStorage.getVersion(id);
+    }
+
+    public OptionalLong getFriendsVersion(long userId) {
+        return friendsStorage.getFriendsVersion(userId);
+    }
+
     public void addToFriends(long userId, long friendId) {
         checkUserExists(userId);
         checkUserExists(friendId);
         friendsStorage.addFriend(userId, friendId);
+        friendRecommender.invalidate(userId);
         log.debug("Add friends id={} and id={}", userId, friendId);
     }
 
@@ -71,9 +103,26 @@ public class UserService {
         checkUserExists(userId);
         checkUserExists(friendId);
         friendsStorage.removeFriend(userId, friendId);
+        friendRecommender.invalidate(userId);
         log.debug("Remove friends id={} and id={}", userId, friendId);
     }
 
+    public FriendsBatchResult addToFriends(long userId, long[] friendIds) {
+        checkUserExists(userId);
+        FriendsBatchResult result = friendsStorage.addFriends(userId, friendIds);
+        friendRecommender.invalidate(userId);
+        log.debug("Add friends of id={}: {}", userId, result);
+        return result;
+    }
+
+    public FriendsBatchResult removeFromFriends(long userId, long[] friendIds) {
+        checkUserExists(userId);
+        FriendsBatchResult result = friendsStorage.removeFriends(userId, friendIds);
+        friendRecommender.invalidate(userId);
+        log.debug("Remove friends of id={}: {}", userId, result);
+        return result;
+    }
+
     public List<User> getFriends(long userId) {
         checkUserExists(userId);
         return friendsStorage.getFriends(userId);
@@ -85,8 +134,19 @@ public class UserService {
         return friendsStorage.getCommonFriends(userId, otherId);
     }
 
+    // Unknown ids simply have no friends, so the group lookup skips per-user existence checks.
+    public List<User> getCommonFriends(long[] userIds) {
+        return friendsStorage.getCommonFriends(userIds);
+    }
+
+    public List<Recommendation> getRecommendations(long userId, int limit) {
+        checkUserExists(userId);
+        return friendRecommender.recommend(userId, limit);
+    }
+
     public void remove(long userId) {
         if (userStorage.remove(userId)) {
+            friendRecommender.invalidate(userId);
             log.debug("User id = {} removed", userId);
         } else {
             throw new NotFoundException((String.format("User id = %s not found", userId)));
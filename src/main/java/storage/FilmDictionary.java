@@ -0,0 +1,50 @@
+package storage;
+
+import model.Genre;
+import model.Mpa;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// MPA ratings and genres are seed data (data.sql), so they are read once and shared immutably.
+public final class FilmDictionary {
+
+    private final List<Mpa> mpaList;
+    private final List<Genre> genres;
+    private final Map<Integer, Mpa> mpaById = new HashMap<>();
+    private final Map<Integer, Genre> genresById = new HashMap<>();
+
+    public FilmDictionary(List<Mpa> mpaList, List<Genre> genres) {
+        this.mpaList = List.copyOf(mpaList);
+        this.genres = List.copyOf(genres);
+        mpaList.forEach(mpa -> mpaById.put(mpa.getId(), mpa));
+        genres.forEach(genre -> genresById.put(genre.getId(), genre));
+    }
+
+    // Same rows as data.sql, for the in-memory storage mode.
+    public static FilmDictionary defaults() {
+        return new FilmDictionary(
+                List.of(new Mpa(1, "G"), new Mpa(2, "PG"), new Mpa(3, "PG-13"), new Mpa(4, "R"),
+                        new Mpa(5, "NC-17")),
+                List.of(new Genre(1, "Комедия"), new Genre(2, "Драма"), new Genre(3, "Мультфильм"),
+                        new Genre(4, "Триллер"), new Genre(5, "Документальный"), new Genre(6, "Боевик")));
+    }
+
+    public Optional<Mpa> getMpa(int id) {
+        return Optional.ofNullable(mpaById.get(id));
+    }
+
+    public List<Mpa> getMpaList() {
+        return mpaList;
+    }
+
+    public Optional<Genre> getGenre(int id) {
+        return Optional.ofNullable(genresById.get(id));
+    }
+
+    public List<Genre> getGenres() {
+        return genres;
+    }
+}
@@ -0,0 +1,23 @@
+package storage;
+
+import model.Film;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface FilmStorage {
+
+    List<Film> getFilms();
+
+    List<Film> getFilms(long afterId, int limit);
+
+    Optional<Film> getById(long id);
+
+    List<Film> getByIds(long[] ids);
+
+    Film add(Film film);
+
+    Optional<Film> update(Film film);
+
+    boolean remove(long filmId);
+}
@@ -1,8 +1,11 @@
 package storage;
 
+import model.FriendsBatchResult;
 import model.User;
 
 import java.util.List;
+import java.util.OptionalLong;
+import java.util.function.LongConsumer;
 
 public interface FriendsStorage {
 
@@ -10,7 +13,30 @@ public interface FriendsStorage {
 
     boolean removeFriend(long userId, long friendId);
 
+    FriendsBatchResult addFriends(long userId, long[] friendIds);
+
+    FriendsBatchResult removeFriends(long userId, long[] friendIds);
+
     List<User> getFriends(long userId);
 
+    long[] getFriendIds(long userId);
+
+    // Same ids as getFriendIds, for callers that only iterate; an indexed storage skips the copy.
+    default void forEachFriendId(long userId, LongConsumer consumer) {
+        for (long friendId : getFriendIds(userId)) {
+            consumer.accept(friendId);
+        }
+    }
+
+    // True when forEachFriendId reads memory instead of issuing a query, so callers may fan it out.
+    default boolean isInMemory() {
+        return false;
+    }
+
+    // Grows whenever getFriends(userId) would return something different; empty for an unknown user.
+    OptionalLong getFriendsVersion(long userId);
+
     List<User> getCommonFriends(long userId, long otherId);
+
+    List<User> getCommonFriends(long[] userIds);
 }
@@ -0,0 +1,40 @@
+package storage;
+
+public interface LikesStorage {
+
+    boolean addLike(long filmId, long userId);
+
+    boolean removeLike(long filmId, long userId);
+
+    long getLikeCount(long filmId);
+
+    // Ids of the most liked films, most likes first and lower id on ties; films without likes are not ranked.
+    long[] getPopularFilmIds(int count);
+
+    void removeFilm(long filmId);
+
+    // Called once the user row is gone; drops the user's likes like the ON DELETE CASCADE does.
+    void removeUser(long userId);
+
+    void forEachLike(LikeConsumer consumer);
+
+    // Told about every like or unlike that changed something, and about films and users whose likes were dropped.
+    void addLikeListener(LikeListener listener);
+
+    @FunctionalInterface
+    interface LikeConsumer {
+        void accept(long filmId, long userId);
+    }
+
+    @FunctionalInterface
+    interface LikeListener {
+        void onLikeChanged(long filmId, long userId, boolean liked);
+
+        // Cascades are reported once per film or user, not once per dropped like.
+        default void onFilmRemoved(long filmId) {
+        }
+
+        default void onUserRemoved(long userId) {
+        }
+    }
+}
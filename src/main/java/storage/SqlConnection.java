@@ -1,5 +1,12 @@
 package storage;
 
+import storage.pool.ConnectionPool;
+import storage.pool.PoolConfig;
+import storage.pool.PoolStats;
+import storage.trace.SqlTracer;
+import storage.trace.TracingDataSource;
+
+import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
@@ -11,8 +18,7 @@ public class SqlConnection {
     private static final String USER = "postgres";
     private static final String PASSWORD = "iamroot";
 
-    public static Connection createConnection() {
-
+    static {
         try {
             Class.forName("org.postgresql.Driver");
             System.out.println("Driver found.");
@@ -20,9 +26,39 @@ public class SqlConnection {
         } catch(ClassNotFoundException e) {
             System.out.println("Driver not found. " + e.getMessage());
         }
+    }
+
+    private static class PoolHolder {
+        private static final ConnectionPool POOL =
+                new ConnectionPool(SqlConnection::openConnection, PoolConfig.fromSystemProperties());
+        private static final DataSource DATA_SOURCE = SqlTracer.isEnabled()
+                ? new TracingDataSource(POOL, TracerHolder.TRACER) : POOL;
+    }
+
+    // Separate from the pool so the admin endpoint can read it without opening connections.
+    private static class TracerHolder {
+        private static final SqlTracer TRACER = SqlTracer.fromSystemProperties();
+    }
+
+    public static DataSource getDataSource() {
+        return PoolHolder.DATA_SOURCE;
+    }
 
+    public static SqlTracer getTracer() {
+        return TracerHolder.TRACER;
+    }
+
+    public static ConnectionPool getPool() {
+        return PoolHolder.POOL;
+    }
+
+    public static PoolStats getPoolStats() {
+        return PoolHolder.POOL.getStats();
+    }
+
+    public static Connection createConnection() {
         try {
-            Connection connection = DriverManager.getConnection(URL, USER, PASSWORD);
+            Connection connection = openConnection();
             System.out.println("Connected to database.");
             return connection;
 
@@ -31,4 +67,8 @@ public class SqlConnection {
             return null;
         }
     }
+
+    private static Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(URL, USER, PASSWORD);
+    }
 }
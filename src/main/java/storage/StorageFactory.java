@@ -0,0 +1,218 @@
+package storage;
+
+import metrics.MetricsRegistry;
+import storage.cache.CacheStats;
+import storage.cache.CachingUserStorage;
+import storage.db.DictionaryDbStorage;
+import storage.db.FilmDbStorage;
+import storage.db.FriendsDbStorage;
+import storage.db.LikesDbStorage;
+import storage.db.UserDbStorage;
+import storage.graph.CsrAdjacency;
+import storage.graph.IndexedFriendsStorage;
+import storage.likes.LikesMatrix;
+import storage.likes.WriteBehindLikesStorage;
+import storage.memory.InMemoryFilmStorage;
+import storage.memory.InMemoryFriendsStorage;
+import storage.memory.InMemoryLikesStorage;
+import storage.memory.InMemoryUserStorage;
+import storage.metrics.TimedFriendsStorage;
+import storage.metrics.TimedUserStorage;
+import storage.pool.ConnectionPool;
+
+import java.time.Duration;
+import java.util.Optional;
+
+public class StorageFactory implements AutoCloseable {
+
+    private static final String USER_CACHE_PREFIX = "user.cache.";
+    private static final String FRIENDS_INDEX_PREFIX = "friends.index.";
+    private static final String LIKES_INDEX_PREFIX = "likes.index.";
+    private static final String LIKES_MATRIX_PREFIX = "likes.matrix.";
+
+    private final UserStorage userStorage;
+    private final FriendsStorage friendsStorage;
+    private final FilmDictionary filmDictionary;
+    private final FilmStorage filmStorage;
+    private final LikesStorage likesStorage;
+    private final LikesMatrix likesMatrix;
+    private final MetricsRegistry registry = MetricsRegistry.getDefault();
+
+    private CachingUserStorage userCache;
+    private IndexedFriendsStorage friendsIndex;
+    private WriteBehindLikesStorage likesIndex;
+
+    private static volatile boolean created;
+
+    private StorageFactory(StorageMode mode) {
+        if (mode == StorageMode.MEMORY) {
+            InMemoryUserStorage inMemoryUserStorage = new InMemoryUserStorage();
+            userStorage = new TimedUserStorage(inMemoryUserStorage, registry, "memory");
+            friendsStorage = new TimedFriendsStorage(new InMemoryFriendsStorage(inMemoryUserStorage), registry,
+                    "memory");
+            filmDictionary = FilmDictionary.defaults();
+            filmStorage = new InMemoryFilmStorage(filmDictionary);
+            InMemoryLikesStorage inMemoryLikesStorage = new InMemoryLikesStorage();
+            inMemoryUserStorage.addRemovalListener(inMemoryLikesStorage::removeUser);
+            likesStorage = inMemoryLikesStorage;
+        } else {
+            UserDbStorage userDbStorage = new UserDbStorage();
+            userStorage = withUserCache(new TimedUserStorage(userDbStorage, registry, "db"));
+            friendsStorage = withFriendsIndex(new FriendsDbStorage(), userStorage);
+            filmDictionary = new DictionaryDbStorage().load();
+            filmStorage = new FilmDbStorage(SqlConnection.getDataSource(), filmDictionary);
+            likesStorage = withLikesIndex(new LikesDbStorage());
+            userDbStorage.addRemovalListener(likesStorage::removeUser);
+            if (friendsIndex != null) {
+                userDbStorage.addRemovalListener(friendsIndex::removeUser);
+            }
+        }
+        likesMatrix = LikesMatrix.load(likesStorage,
+                Integer.getInteger(LIKES_MATRIX_PREFIX + "compactThreshold", 10_000),
+                Duration.ofMillis(Long.getLong(LIKES_MATRIX_PREFIX + "compactIntervalMillis", 30_000)));
+        registerMetrics(mode);
+        created = true;
+    }
+
+    private LikesStorage withLikesIndex(LikesDbStorage likesStorage) {
+        if (!Boolean.parseBoolean(System.getProperty(LIKES_INDEX_PREFIX + "enabled", "true"))) {
+            return likesStorage;
+        }
+        InMemoryLikesStorage index = new InMemoryLikesStorage();
+        likesStorage.forEachLike(index::addLike);
+        likesIndex = new WriteBehindLikesStorage(index, likesStorage,
+                Integer.getInteger(LIKES_INDEX_PREFIX + "flushBatchSize", 1_000),
+                Duration.ofMillis(Long.getLong(LIKES_INDEX_PREFIX + "flushIntervalMillis", 200)));
+        return likesIndex;
+    }
+
+    private FriendsStorage withFriendsIndex(FriendsDbStorage friendsStorage, UserStorage userStorage) {
+        FriendsStorage timed = new TimedFriendsStorage(friendsStorage, registry, "db");
+        if (!Boolean.parseBoolean(System.getProperty(FRIENDS_INDEX_PREFIX + "enabled", "true"))) {
+            return timed;
+        }
+        CsrAdjacency.Builder builder = new CsrAdjacency.Builder();
+        friendsStorage.forEachEdge(builder::add);
+        friendsIndex = new IndexedFriendsStorage(timed, userStorage, builder.build(),
+                Integer.getInteger(FRIENDS_INDEX_PREFIX + "compactThreshold", 10_000),
+                Duration.ofMillis(Long.getLong(FRIENDS_INDEX_PREFIX + "compactIntervalMillis", 30_000)));
+        return new TimedFriendsStorage(friendsIndex, registry, "index");
+    }
+
+    private UserStorage withUserCache(UserStorage userStorage) {
+        if (!Boolean.parseBoolean(System.getProperty(USER_CACHE_PREFIX + "enabled", "true"))) {
+            return userStorage;
+        }
+        userCache = new CachingUserStorage(userStorage,
+                Integer.getInteger(USER_CACHE_PREFIX + "maxSize", 10_000),
+                Duration.ofMillis(Long.getLong(USER_CACHE_PREFIX + "ttlMillis", 60_000)),
+                Duration.ofMillis(Long.getLong(USER_CACHE_PREFIX + "negativeTtlMillis", 5_000)));
+        return new TimedUserStorage(userCache, registry, "cache");
+    }
+
+    // Gauges read component state at scrape time; nothing here runs on the request path.
+    private void registerMetrics(StorageMode mode) {
+        if (userCache != null) {
+            CachingUserStorage cache = userCache;
+            registry.counterFunction("user_cache_hits_total", "User cache hits, including negative hits.",
+                    () -> cache.getStats().getHits());
+            registry.counterFunction("user_cache_misses_total", "User cache misses.",
+                    () -> cache.getStats().getMisses());
+            registry.counterFunction("user_cache_evictions_total", "User cache evictions.",
+                    () -> cache.getStats().getEvictions());
+            registry.gauge("user_cache_size", "Users currently cached.", () -> cache.getStats().getSize());
+        }
+        if (friendsIndex != null) {
+            IndexedFriendsStorage index = friendsIndex;
+            registry.gauge("friends_graph_edges", "Directed friendship edges in the in-memory graph.",
+                    () -> index.getGraph().edgeCount());
+            registry.gauge("friends_graph_pending_changes", "Graph edge changes waiting for compaction.",
+                    () -> index.getGraph().pendingChanges());
+        }
+        if (likesIndex != null) {
+            WriteBehindLikesStorage likes = likesIndex;
+            registry.gauge("likes_write_behind_pending", "Like changes not yet flushed to the database.",
+                    likes::getPendingCount);
+            registry.counterFunction("likes_write_behind_failed_flushes_total", "Failed like flushes.",
+                    likes::getFailedFlushes);
+        }
+        LikesMatrix matrix = likesMatrix;
+        registry.gauge("likes_matrix_likes", "Likes held by the recommendation matrix.", matrix::likeCount);
+        registry.gauge("likes_matrix_pending_changes", "Like changes waiting for matrix compaction.",
+                matrix::pendingChanges);
+        if (mode == StorageMode.DB) {
+            registerPoolMetrics(SqlConnection.getPool());
+            SqlConnection.getTracer().registerMetrics(registry);
+        }
+    }
+
+    private void registerPoolMetrics(ConnectionPool pool) {
+        registry.gauge("db_pool_connections", "Open pooled connections.", () -> pool.getStats().getTotal());
+        registry.gauge("db_pool_connections_active", "Connections lent out.", () -> pool.getStats().getActive());
+        registry.gauge("db_pool_connections_idle", "Idle connections.", () -> pool.getStats().getIdle());
+        registry.gauge("db_pool_waiting", "Threads waiting for a connection.", () -> pool.getStats().getWaiting());
+        registry.counterFunction("db_pool_acquire_timeouts_total", "Connection acquires that timed out.",
+                () -> pool.getStats().getTimeouts());
+        registry.timer("db_pool_acquire_duration_seconds", "Time spent waiting for a pooled connection.",
+                pool.getAcquireLatency());
+        registry.counterFunction("db_statement_cache_hits_total", "Prepared statement cache hits.",
+                () -> pool.getStats().getStatementCacheHits());
+        registry.counterFunction("db_statement_cache_misses_total", "Prepared statement cache misses.",
+                () -> pool.getStats().getStatementCacheMisses());
+    }
+
+    private static class Holder {
+        private static final StorageFactory INSTANCE = new StorageFactory(StorageMode.fromSystemProperty());
+    }
+
+    public static StorageFactory getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    // Closes the instance only if something created it; shutting down must not start storage.
+    public static void shutdown() {
+        if (created) {
+            getInstance().close();
+        }
+    }
+
+    // Pending likes are flushed first, while the matrix and the graph can still take their events.
+    @Override
+    public void close() {
+        if (likesIndex != null) {
+            likesIndex.close();
+        }
+        likesMatrix.close();
+        if (friendsIndex != null) {
+            friendsIndex.close();
+        }
+    }
+
+    public UserStorage getUserStorage() {
+        return userStorage;
+    }
+
+    public FriendsStorage getFriendsStorage() {
+        return friendsStorage;
+    }
+
+    public FilmDictionary getFilmDictionary() {
+        return filmDictionary;
+    }
+
+    public FilmStorage getFilmStorage() {
+        return filmStorage;
+    }
+
+    public LikesStorage getLikesStorage() {
+        return likesStorage;
+    }
+
+    public LikesMatrix getLikesMatrix() {
+        return likesMatrix;
+    }
+
+    public Optional<CacheStats> getUserCacheStats() {
+        return Optional.ofNullable(userCache).map(CachingUserStorage::getStats);
+    }
+}
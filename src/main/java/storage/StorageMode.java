@@ -0,0 +1,19 @@
+package storage;
+
+import java.util.Locale;
+
+public enum StorageMode {
+    DB,
+    MEMORY;
+
+    public static final String PROPERTY = "storage.mode";
+
+    public static StorageMode fromSystemProperty() {
+        String mode = System.getProperty(PROPERTY, DB.name());
+        try {
+            return valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("Unknown %s: %s", PROPERTY, mode), e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package storage;
+
+import model.User;
+
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The users table constraints and the failure reported for each, shared by the database and
+ * in-memory storages so both modes reject the same rows with the same message.
+ */
+public final class UserConstraints {
+
+    public static final int MAX_COLUMN_LENGTH = 64;
+
+    public static final String REQUIRED = "email, login and name are required";
+    public static final String TOO_LONG =
+            String.format("email, login and name must be at most %s characters", MAX_COLUMN_LENGTH);
+    public static final String DUPLICATE_EMAIL = "duplicate email (users_email_index)";
+    public static final String DUPLICATE_LOGIN = "duplicate login (users_login_index)";
+    public static final String DUPLICATE_EMAIL_IN_BATCH = "duplicate email within batch";
+    public static final String DUPLICATE_LOGIN_IN_BATCH = "duplicate login within batch";
+
+    private UserConstraints() {
+    }
+
+    // Null when the row satisfies the NOT NULL and varchar(64) columns.
+    public static String check(User user) {
+        if (Objects.isNull(user.getEmail()) || Objects.isNull(user.getLogin()) || Objects.isNull(user.getName())) {
+            return REQUIRED;
+        }
+        if (user.getEmail().length() > MAX_COLUMN_LENGTH || user.getLogin().length() > MAX_COLUMN_LENGTH
+                || user.getName().length() > MAX_COLUMN_LENGTH) {
+            return TOO_LONG;
+        }
+        return null;
+    }
+
+    // Also rejects a row repeating an email or login of an earlier row in the same batch.
+    public static String checkBatchRow(User user, Set<String> batchEmails, Set<String> batchLogins) {
+        String error = check(user);
+        if (error != null) {
+            return error;
+        }
+        if (!batchEmails.add(user.getEmail())) {
+            return DUPLICATE_EMAIL_IN_BATCH;
+        }
+        if (!batchLogins.add(user.getLogin())) {
+            batchEmails.remove(user.getEmail());
+            return DUPLICATE_LOGIN_IN_BATCH;
+        }
+        return null;
+    }
+}
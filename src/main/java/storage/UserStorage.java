@@ -1,19 +1,32 @@
 package storage;
 
+import model.BatchAddResult;
 import model.User;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
 
 public interface UserStorage {
 
     List<User> getUsers();
 
+    List<User> getUsers(long afterId, int limit);
+
+    void forEachUser(Consumer<User> consumer);
+
     Optional<User> getById(long id);
 
-    long add(User user);
+    OptionalLong getVersion(long id);
+
+    List<User> getByIds(long[] ids);
+
+    User add(User user);
+
+    BatchAddResult addBatch(List<User> users);
 
-    boolean update(User user);
+    Optional<User> update(User user);
 
     boolean remove(long userId);
 }
@@ -0,0 +1,304 @@
+package storage.cache;
+
+import model.BatchAddResult;
+import model.User;
+import storage.UserStorage;
+
+import util.LongArrayBuilder;
+import util.LongHashSet;
+import util.LongObjectHashMap;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+public class CachingUserStorage implements UserStorage {
+
+    private static final int SEGMENTS = 16;
+
+    private final UserStorage delegate;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final LongSupplier ticker;
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public CachingUserStorage(UserStorage delegate, int maxSize, Duration ttl, Duration negativeTtl) {
+        this(delegate, maxSize, ttl, negativeTtl, System::nanoTime);
+    }
+
+    CachingUserStorage(UserStorage delegate, int maxSize, Duration ttl, Duration negativeTtl, LongSupplier ticker) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache maxSize must be positive: " + maxSize);
+        }
+        this.delegate = delegate;
+        this.ttlNanos = ttl.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        this.ticker = ticker;
+        int segmentSize = Math.max(1, (maxSize + SEGMENTS - 1) / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    @Override
+    public List<User> getUsers() {
+        return delegate.getUsers();
+    }
+
+    @Override
+    public List<User> getUsers(long afterId, int limit) {
+        return delegate.getUsers(afterId, limit);
+    }
+
+    @Override
+    public void forEachUser(Consumer<User> consumer) {
+        delegate.forEachUser(consumer);
+    }
+
+    @Override
+    public Optional<User> getById(long id) {
+        Segment segment = segment(id);
+        long now = ticker.getAsLong();
+        long generation;
+        synchronized (segment) {
+            CacheEntry entry = segment.entries.get(id);
+            if (entry != null) {
+                if (entry.isLive(now)) {
+                    hits.increment();
+                    if (entry.user == null) {
+                        negativeHits.increment();
+                        return Optional.empty();
+                    }
+                    return Optional.of(copy(entry.user));
+                }
+                segment.entries.remove(id);
+                expirations.increment();
+            }
+            generation = segment.generation;
+        }
+        misses.increment();
+        Optional<User> loaded = delegate.getById(id);
+        CacheEntry entry = loaded.isPresent()
+                ? new CacheEntry(copy(loaded.get()), now + ttlNanos)
+                : new CacheEntry(null, now + negativeTtlNanos);
+        synchronized (segment) {
+            // An invalidation raced with the load; the loaded value may already be stale.
+            if (segment.generation == generation) {
+                segment.entries.put(id, entry);
+            }
+        }
+        return loaded;
+    }
+
+    // Answered from a live entry when there is one; a miss asks the delegate without loading the row.
+    @Override
+    public OptionalLong getVersion(long id) {
+        Segment segment = segment(id);
+        long now = ticker.getAsLong();
+        synchronized (segment) {
+            CacheEntry entry = segment.entries.get(id);
+            if (entry != null && entry.isLive(now)) {
+                return entry.user == null ? OptionalLong.empty() : OptionalLong.of(entry.user.getVersion());
+            }
+        }
+        return delegate.getVersion(id);
+    }
+
+    @Override
+    public List<User> getByIds(long[] ids) {
+        long now = ticker.getAsLong();
+        List<User> users = new ArrayList<>(ids.length);
+        LongArrayBuilder missing = new LongArrayBuilder();
+        LongObjectHashMap<Long> generations = new LongObjectHashMap<>();
+        for (long id : ids) {
+            Segment segment = segment(id);
+            synchronized (segment) {
+                CacheEntry entry = segment.entries.get(id);
+                if (entry != null && entry.isLive(now)) {
+                    hits.increment();
+                    if (entry.user == null) {
+                        negativeHits.increment();
+                    } else {
+                        users.add(copy(entry.user));
+                    }
+                    continue;
+                }
+                if (entry != null) {
+                    segment.entries.remove(id);
+                    expirations.increment();
+                }
+                if (generations.put(id, segment.generation) == null) {
+                    misses.increment();
+                    missing.add(id);
+                }
+            }
+        }
+        if (missing.size() > 0) {
+            List<User> loaded = delegate.getByIds(missing.toArray());
+            LongHashSet found = new LongHashSet(loaded.size());
+            for (User user : loaded) {
+                found.add(user.getId());
+                putIfCurrent(user.getId(), generations.get(user.getId()),
+                        new CacheEntry(copy(user), now + ttlNanos));
+            }
+            generations.forEach((id, generation) -> {
+                if (!found.contains(id)) {
+                    putIfCurrent(id, generation, new CacheEntry(null, now + negativeTtlNanos));
+                }
+            });
+            users.addAll(loaded);
+        }
+        users.sort(Comparator.comparingLong(User::getId));
+        return users;
+    }
+
+    private void putIfCurrent(long id, long generation, CacheEntry entry) {
+        Segment segment = segment(id);
+        synchronized (segment) {
+            if (segment.generation == generation) {
+                segment.entries.put(id, entry);
+            }
+        }
+    }
+
+    @Override
+    public User add(User user) {
+        User created = delegate.add(user);
+        // Replaces a cached "not found" for the new id, so the read right after the insert is a hit.
+        store(created);
+        return created;
+    }
+
+    @Override
+    public BatchAddResult addBatch(List<User> users) {
+        BatchAddResult result = delegate.addBatch(users);
+        // Bulk loads would flush the working set, so only drop cached misses for the new ids.
+        for (User user : result.getAdded()) {
+            invalidate(user.getId());
+        }
+        return result;
+    }
+
+    @Override
+    public Optional<User> update(User user) {
+        invalidate(user.getId());
+        Optional<User> updated = Optional.empty();
+        try {
+            updated = delegate.update(user);
+            return updated;
+        } finally {
+            invalidate(user.getId());
+            updated.ifPresent(this::store);
+        }
+    }
+
+    @Override
+    public boolean remove(long userId) {
+        invalidate(userId);
+        try {
+            return delegate.remove(userId);
+        } finally {
+            invalidate(userId);
+        }
+    }
+
+    private void store(User user) {
+        Segment segment = segment(user.getId());
+        CacheEntry entry = new CacheEntry(copy(user), ticker.getAsLong() + ttlNanos);
+        synchronized (segment) {
+            segment.generation++;
+            segment.entries.put(user.getId(), entry);
+        }
+    }
+
+    public void invalidate(long id) {
+        Segment segment = segment(id);
+        synchronized (segment) {
+            segment.generation++;
+            if (segment.entries.remove(id) != null) {
+                invalidations.increment();
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.generation++;
+                invalidations.add(segment.entries.size());
+                segment.entries.clear();
+            }
+        }
+    }
+
+    public CacheStats getStats() {
+        long size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+            }
+        }
+        return new CacheStats(hits.sum(), negativeHits.sum(), misses.sum(), evictions.sum(), expirations.sum(),
+                invalidations.sum(), size);
+    }
+
+    private Segment segment(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return segments[(int) (hash >>> 60) & (SEGMENTS - 1)];
+    }
+
+    private static User copy(User user) {
+        User copy = new User(user.getId(), user.getEmail(), user.getLogin(), user.getName(), user.getBirthday());
+        copy.setVersion(user.getVersion());
+        return copy;
+    }
+
+    private static class CacheEntry {
+
+        private final User user;
+        private final long expiresAtNanos;
+
+        CacheEntry(User user, long expiresAtNanos) {
+            this.user = user;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        boolean isLive(long now) {
+            return now - expiresAtNanos < 0;
+        }
+    }
+
+    private class Segment {
+
+        private final Map<Long, CacheEntry> entries;
+        private long generation;
+
+        Segment(int maxSize) {
+            entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, CacheEntry> eldest) {
+                    if (size() > maxSize) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package storage.db;
+
+import model.Genre;
+import model.Mpa;
+import storage.FilmDictionary;
+import storage.SqlConnection;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DictionaryDbStorage {
+
+    private final DataSource dataSource;
+
+    public DictionaryDbStorage() {
+        this(SqlConnection.getDataSource());
+    }
+
+    public DictionaryDbStorage(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public FilmDictionary load() {
+        List<Mpa> mpaList = new ArrayList<>();
+        List<Genre> genres = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection()) {
+            try (PreparedStatement preparedStatement = connection.prepareStatement(
+                    "SELECT id, name FROM mpa ORDER BY id");
+                 ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    mpaList.add(new Mpa(resultSet.getInt("id"), resultSet.getString("name")));
+                }
+            }
+            try (PreparedStatement preparedStatement = connection.prepareStatement(
+                    "SELECT id, name FROM genre ORDER BY id");
+                 ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    genres.add(new Genre(resultSet.getInt("id"), resultSet.getString("name")));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("DictionaryDbStorage: load sql exception.");
+        }
+        return new FilmDictionary(mpaList, genres);
+    }
+}
@@ -0,0 +1,285 @@
+package storage.db;
+
+import exception.DbCreateEntityFaultException;
+import model.Film;
+import model.Genre;
+import model.Mpa;
+import storage.FilmDictionary;
+import storage.FilmStorage;
+import storage.SqlConnection;
+import util.LongObjectHashMap;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+public class FilmDbStorage implements FilmStorage {
+
+    private static final String FILM_COLUMNS = "id, name, description, release_date, duration, mpa_id";
+
+    private final DataSource dataSource;
+    private final FilmDictionary dictionary;
+    private final RowMapperCache<Film> filmRows = new RowMapperCache<>(this::compileFilmMapper);
+
+    public FilmDbStorage() {
+        this(SqlConnection.getDataSource());
+    }
+
+    public FilmDbStorage(DataSource dataSource) {
+        this(dataSource, new DictionaryDbStorage(dataSource).load());
+    }
+
+    public FilmDbStorage(DataSource dataSource, FilmDictionary dictionary) {
+        this.dataSource = dataSource;
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public List<Film> getFilms() {
+        String sql = "SELECT " + FILM_COLUMNS + " FROM film ORDER BY id";
+        try (Connection connection = dataSource.getConnection()) {
+            List<Film> films = new ArrayList<>();
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                preparedStatement.setFetchSize(UserDbStorage.STREAM_FETCH_SIZE);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    RowMapper<Film> mapper = filmRows.forQuery(sql, resultSet);
+                    while (resultSet.next()) {
+                        films.add(mapper.mapRow(resultSet));
+                    }
+                }
+            }
+            loadGenres(connection, films);
+            connection.commit();
+            return films;
+        } catch (SQLException e) {
+            throw new RuntimeException("FilmDbStorage: getFilms sql exception.");
+        }
+    }
+
+    @Override
+    public List<Film> getFilms(long afterId, int limit) {
+        String sql = "SELECT " + FILM_COLUMNS + " FROM film WHERE id > ? ORDER BY id LIMIT ?";
+        try (Connection connection = dataSource.getConnection()) {
+            List<Film> films = new ArrayList<>(limit);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                preparedStatement.setLong(1, afterId);
+                preparedStatement.setInt(2, limit);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    RowMapper<Film> mapper = filmRows.forQuery(sql, resultSet);
+                    while (resultSet.next()) {
+                        films.add(mapper.mapRow(resultSet));
+                    }
+                }
+            }
+            loadGenres(connection, films);
+            return films;
+        } catch (SQLException e) {
+            throw new RuntimeException("FilmDbStorage: getFilms sql exception.");
+        }
+    }
+
+    @Override
+    public Optional<Film> getById(long id) {
+        List<Film> films = getByIds(new long[]{id});
+        return films.isEmpty() ? Optional.empty() : Optional.of(films.get(0));
+    }
+
+    @Override
+    public List<Film> getByIds(long[] ids) {
+        List<Film> films = new ArrayList<>(ids.length);
+        if (ids.length == 0) {
+            return films;
+        }
+        String sql = "SELECT " + FILM_COLUMNS + " FROM film WHERE id = ANY(?) ORDER BY id";
+        try (Connection connection = dataSource.getConnection()) {
+            try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                preparedStatement.setObject(1, ids);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    RowMapper<Film> mapper = filmRows.forQuery(sql, resultSet);
+                    while (resultSet.next()) {
+                        films.add(mapper.mapRow(resultSet));
+                    }
+                }
+            }
+            loadGenres(connection, films);
+            return films;
+        } catch (SQLException e) {
+            throw new RuntimeException("FilmDbStorage: getByIds sql exception.");
+        }
+    }
+
+    @Override
+    public Film add(Film film) {
+        String sql = "INSERT INTO film (name, description, release_date, duration, mpa_id) " +
+                "VALUES (?, ?, ?, ?, ?) RETURNING " + FILM_COLUMNS;
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                Film created;
+                try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                    setFilmColumns(preparedStatement, film);
+                    try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                        RowMapper<Film> mapper = filmRows.forQuery(sql, resultSet);
+                        if (!resultSet.next()) {
+                            throw new DbCreateEntityFaultException("FilmDbStorage: add returned no row.");
+                        }
+                        created = mapper.mapRow(resultSet);
+                    }
+                }
+                insertGenres(connection, created.getId(), film.getGenres());
+                connection.commit();
+                created.setGenres(resolveGenres(film.getGenres()));
+                return created;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("FilmDbStorage: add sql exception.");
+        }
+    }
+
+    @Override
+    public Optional<Film> update(Film film) {
+        String sql = "UPDATE film SET name=?, description=?, release_date=?, duration=?, mpa_id=? " +
+                "WHERE id=? RETURNING " + FILM_COLUMNS;
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                Film updated = null;
+                try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                    setFilmColumns(preparedStatement, film);
+                    preparedStatement.setLong(6, film.getId());
+                    try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                        RowMapper<Film> mapper = filmRows.forQuery(sql, resultSet);
+                        if (resultSet.next()) {
+                            updated = mapper.mapRow(resultSet);
+                        }
+                    }
+                }
+                if (updated == null) {
+                    connection.rollback();
+                    return Optional.empty();
+                }
+                try (PreparedStatement preparedStatement = connection.prepareStatement(
+                        "DELETE FROM film_genre WHERE film_id=?")) {
+                    preparedStatement.setLong(1, film.getId());
+                    preparedStatement.executeUpdate();
+                }
+                insertGenres(connection, film.getId(), film.getGenres());
+                connection.commit();
+                updated.setGenres(resolveGenres(film.getGenres()));
+                return Optional.of(updated);
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("FilmDbStorage: update sql exception.");
+        }
+    }
+
+    @Override
+    public boolean remove(long filmId) {
+        String sql = "DELETE FROM film WHERE id=?";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setLong(1, filmId);
+
+            return preparedStatement.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw new RuntimeException("FilmDbStorage: remove sql exception.");
+        }
+    }
+
+    public void clearFilms() {
+        String sql = "DELETE FROM film";
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate(sql);
+        } catch (SQLException e) {
+            throw new RuntimeException("FilmDbStorage: clearFilms sql exception.");
+        }
+    }
+
+    // One query for the genres of the whole page; names come from the dictionary, not a join.
+    private void loadGenres(Connection connection, List<Film> films) throws SQLException {
+        if (films.isEmpty()) {
+            return;
+        }
+        long[] ids = new long[films.size()];
+        LongObjectHashMap<Film> filmsById = new LongObjectHashMap<>(films.size());
+        for (int i = 0; i < ids.length; i++) {
+            Film film = films.get(i);
+            ids[i] = film.getId();
+            filmsById.put(film.getId(), film);
+        }
+        String sql = "SELECT film_id, genre_id FROM film_genre WHERE film_id = ANY(?) ORDER BY film_id, genre_id";
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setObject(1, ids);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    Film film = filmsById.get(resultSet.getLong(1));
+                    dictionary.getGenre(resultSet.getInt(2)).ifPresent(film.getGenres()::add);
+                }
+            }
+        }
+    }
+
+    private void insertGenres(Connection connection, long filmId, List<Genre> genres) throws SQLException {
+        if (genres == null || genres.isEmpty()) {
+            return;
+        }
+        Integer[] genreIds = genres.stream().map(Genre::getId).distinct().toArray(Integer[]::new);
+        String sql = "INSERT INTO film_genre (film_id, genre_id) SELECT ?, unnest(?::int[])";
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setLong(1, filmId);
+            preparedStatement.setArray(2, connection.createArrayOf("int4", genreIds));
+            preparedStatement.executeUpdate();
+        }
+    }
+
+    private List<Genre> resolveGenres(List<Genre> genres) {
+        List<Genre> resolved = new ArrayList<>();
+        if (genres != null) {
+            genres.stream()
+                    .map(Genre::getId)
+                    .distinct()
+                    .sorted()
+                    .forEach(id -> dictionary.getGenre(id).ifPresent(resolved::add));
+        }
+        return resolved;
+    }
+
+    private RowMapper<Film> compileFilmMapper(RowMapperCache.Columns columns) throws SQLException {
+        int id = columns.index("id");
+        int name = columns.index("name");
+        int description = columns.index("description");
+        int releaseDate = columns.index("release_date");
+        int duration = columns.index("duration");
+        int mpaId = columns.index("mpa_id");
+        return resultSet -> {
+            int mpa = resultSet.getInt(mpaId);
+            return new Film(resultSet.getLong(id),
+                    resultSet.getString(name),
+                    resultSet.getString(description),
+                    resultSet.getObject(releaseDate, LocalDate.class),
+                    resultSet.getInt(duration),
+                    dictionary.getMpa(mpa).orElse(new Mpa(mpa, null)),
+                    new ArrayList<>());
+        };
+    }
+
+    private static void setFilmColumns(PreparedStatement preparedStatement, Film film) throws SQLException {
+        LocalDate releaseDate = film.getReleaseDate();
+        preparedStatement.setString(1, film.getName());
+        preparedStatement.setString(2, film.getDescription());
+        preparedStatement.setDate(3, releaseDate == null ? null : Date.valueOf(releaseDate));
+        preparedStatement.setInt(4, film.getDuration());
+        preparedStatement.setInt(5, film.getMpa().getId());
+    }
+}
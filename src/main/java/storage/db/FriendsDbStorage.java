@@ -1,26 +1,47 @@
 package storage.db;
 
+import model.FriendsBatchResult;
 import model.User;
 import storage.FriendsStorage;
 import storage.SqlConnection;
+import util.LongArrayBuilder;
+import util.LongHashSet;
+import util.LongObjectHashMap;
+import util.SortedLongs;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.OptionalLong;
 
 public class FriendsDbStorage implements FriendsStorage {
 
-    private static Connection connection = SqlConnection.createConnection();
+    private static final int STREAM_FETCH_SIZE = Integer.getInteger("db.fetchSize", 500);
+    // Appended to an edge change; bumps the owner's friends_version only when a row actually changed.
+    private static final String BUMP_FRIENDS_VERSION = "UPDATE users SET friends_version=" +
+            "nextval('users_version_seq') WHERE id=? AND EXISTS (SELECT 1 FROM changed)";
+
+    private final DataSource dataSource;
+
+    public FriendsDbStorage() {
+        this(SqlConnection.getDataSource());
+    }
+
+    public FriendsDbStorage(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
 
     @Override
     public boolean addFriend(long userId, long friendId) {
-        try {
-            String sql = "INSERT INTO friends (user_id, friend_id) VALUES (?, ?)";
-
-            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+        String sql = "WITH changed AS (INSERT INTO friends (user_id, friend_id) VALUES (?, ?) RETURNING 1) " +
+                BUMP_FRIENDS_VERSION;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
 
             preparedStatement.setLong(1, userId);
             preparedStatement.setLong(2, friendId);
+            preparedStatement.setLong(3, userId);
 
             return preparedStatement.executeUpdate() > 0;
         } catch (SQLException e) {
@@ -30,11 +51,13 @@ public class FriendsDbStorage implements FriendsStorage {
 
     @Override
     public boolean removeFriend(long userId, long friendId) {
-        try {
-            String sql = "DELETE FROM friends WHERE user_id=? AND friend_id=?";
-            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+        String sql = "WITH changed AS (DELETE FROM friends WHERE user_id=? AND friend_id=? RETURNING 1) " +
+                BUMP_FRIENDS_VERSION;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
             preparedStatement.setLong(1, userId);
             preparedStatement.setLong(2, friendId);
+            preparedStatement.setLong(3, userId);
 
             return preparedStatement.executeUpdate() > 0;
         } catch (SQLException e) {
@@ -43,45 +66,210 @@ public class FriendsDbStorage implements FriendsStorage {
 
     }
 
+    @Override
+    public FriendsBatchResult addFriends(long userId, long[] friendIds) {
+        String sql = "WITH requested AS (SELECT DISTINCT unnest(?::bigint[]) AS id), " +
+                "known AS (SELECT u.id FROM users AS u JOIN requested AS r ON u.id=r.id WHERE u.id<>?), " +
+                "inserted AS (INSERT INTO friends (user_id, friend_id) SELECT ?, id FROM known " +
+                "ON CONFLICT DO NOTHING RETURNING friend_id), " +
+                "bumped AS (UPDATE users SET friends_version=nextval('users_version_seq') " +
+                "WHERE id=? AND EXISTS (SELECT 1 FROM inserted)) " +
+                "SELECT k.id, i.friend_id IS NOT NULL AS applied " +
+                "FROM known AS k LEFT JOIN inserted AS i ON i.friend_id=k.id";
+        return applyBatch(sql, userId, friendIds, "addFriends");
+    }
+
+    @Override
+    public FriendsBatchResult removeFriends(long userId, long[] friendIds) {
+        String sql = "WITH requested AS (SELECT DISTINCT unnest(?::bigint[]) AS id), " +
+                "known AS (SELECT u.id FROM users AS u JOIN requested AS r ON u.id=r.id WHERE u.id<>?), " +
+                "deleted AS (DELETE FROM friends AS f USING known AS k " +
+                "WHERE f.user_id=? AND f.friend_id=k.id RETURNING f.friend_id), " +
+                "bumped AS (UPDATE users SET friends_version=nextval('users_version_seq') " +
+                "WHERE id=? AND EXISTS (SELECT 1 FROM deleted)) " +
+                "SELECT k.id, d.friend_id IS NOT NULL AS applied " +
+                "FROM known AS k LEFT JOIN deleted AS d ON d.friend_id=k.id";
+        return applyBatch(sql, userId, friendIds, "removeFriends");
+    }
+
+    // One statement, hence one transaction and one round trip, whatever the number of ids.
+    private FriendsBatchResult applyBatch(String sql, long userId, long[] friendIds, String operation) {
+        LongHashSet requested = new LongHashSet(friendIds.length);
+        LongArrayBuilder duplicates = new LongArrayBuilder();
+        for (long friendId : friendIds) {
+            if (!requested.add(friendId)) {
+                duplicates.add(friendId);
+            }
+        }
+        LongArrayBuilder applied = new LongArrayBuilder(requested.size());
+        LongHashSet known = new LongHashSet(requested.size());
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+
+            preparedStatement.setObject(1, requested.toArray());
+            preparedStatement.setLong(2, userId);
+            preparedStatement.setLong(3, userId);
+            preparedStatement.setLong(4, userId);
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    long friendId = resultSet.getLong(1);
+                    known.add(friendId);
+                    if (resultSet.getBoolean(2)) {
+                        applied.add(friendId);
+                    } else {
+                        duplicates.add(friendId);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(String.format("FriendsDbStorage: %s sql exception.", operation));
+        }
+        LongArrayBuilder unknown = new LongArrayBuilder();
+        requested.forEach(friendId -> {
+            if (!known.contains(friendId)) {
+                unknown.add(friendId);
+            }
+        });
+        return new FriendsBatchResult(applied.toSortedArray(), duplicates.toSortedArray(), unknown.toSortedArray());
+    }
+
     @Override
     public List<User> getFriends(long userId) {
         List<User> friends = new ArrayList<>();
-        try {
-            String sql = "SELECT u.id, u.email, u.login, u.name, u.birthday " +
-                    "FROM users AS u " +
-                    "JOIN friends AS f ON u.id=f.friend_id " +
-                    "WHERE f.user_id=?";
-            PreparedStatement preparedStatement = connection.prepareStatement(sql);
-
-            preparedStatement.setLong(1, userId);
+        String sql = "SELECT u.id, u.email, u.login, u.name, u.birthday, u.version " +
+                "FROM users AS u " +
+                "JOIN friends AS f ON u.id=f.friend_id " +
+                "WHERE f.user_id=?";
+        try (Connection connection = dataSource.getConnection()) {
+            // Hub users have friend lists large enough to matter; fetch them through a cursor.
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                preparedStatement.setLong(1, userId);
+                preparedStatement.setFetchSize(STREAM_FETCH_SIZE);
 
-            ResultSet resultSet = preparedStatement.executeQuery();
-            while (resultSet.next()) {
-                friends.add(UserDbStorage.makeUser(resultSet));
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    RowMapper<User> mapper = UserDbStorage.USER_ROWS.forQuery(sql, resultSet);
+                    while (resultSet.next()) {
+                        friends.add(mapper.mapRow(resultSet));
+                    }
+                }
             }
+            connection.commit();
         } catch (SQLException e) {
             throw new RuntimeException("FriendsDbStorage: getFriends sql exception.");
         }
         return friends;
     }
 
+    @Override
+    public long[] getFriendIds(long userId) {
+        LongArrayBuilder friendIds = new LongArrayBuilder();
+        String sql = "SELECT friend_id FROM friends WHERE user_id=? ORDER BY friend_id";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+
+            preparedStatement.setLong(1, userId);
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    friendIds.add(resultSet.getLong(1));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("FriendsDbStorage: getFriendIds sql exception.");
+        }
+        return friendIds.toArray();
+    }
+
+    // Versions share one sequence, so a friend's edit or a list change always raises the maximum;
+    // removing a friend user bumps friends_version of every list it was on.
+    @Override
+    public OptionalLong getFriendsVersion(long userId) {
+        String sql = "SELECT GREATEST(u.friends_version, (SELECT MAX(fu.version) FROM friends AS f " +
+                "JOIN users AS fu ON fu.id=f.friend_id WHERE f.user_id=u.id)) " +
+                "FROM users AS u WHERE u.id=?";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+
+            preparedStatement.setLong(1, userId);
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                return resultSet.next() ? OptionalLong.of(resultSet.getLong(1)) : OptionalLong.empty();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("FriendsDbStorage: getFriendsVersion sql exception.");
+        }
+    }
+
     @Override
     public List<User> getCommonFriends(long userId, long otherId) {
         List<User> commonFriends = new ArrayList<>();
-        try {
-            String sql = "SELECT u.id, u.email, u.login, u.name, u.birthday " +
-                    "FROM users AS u " +
-                    "JOIN friends AS f1 ON u.id=f1.friend_id " +
-                    "JOIN friends AS f2 ON f1.friend_id=f2.friend_id " +
-                    "WHERE f1.user_id=? AND f2.user_id=?";
-            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+        String sql = "SELECT u.id, u.email, u.login, u.name, u.birthday, u.version " +
+                "FROM users AS u " +
+                "JOIN friends AS f1 ON u.id=f1.friend_id " +
+                "JOIN friends AS f2 ON f1.friend_id=f2.friend_id " +
+                "WHERE f1.user_id=? AND f2.user_id=?";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
 
             preparedStatement.setLong(1, userId);
             preparedStatement.setLong(2, otherId);
 
-            ResultSet resultSet = preparedStatement.executeQuery();
-            while (resultSet.next()) {
-                commonFriends.add(UserDbStorage.makeUser(resultSet));
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                RowMapper<User> mapper = UserDbStorage.USER_ROWS.forQuery(sql, resultSet);
+                while (resultSet.next()) {
+                    commonFriends.add(mapper.mapRow(resultSet));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("FriendsDbStorage: getCommonFriends sql exception.");
+        }
+        return commonFriends;
+    }
+
+    // Intersected in Java, smallest set first, so user rows are only read for the final ids.
+    @Override
+    public List<User> getCommonFriends(long[] userIds) {
+        List<User> commonFriends = new ArrayList<>();
+        String edgesSql = "SELECT user_id, friend_id FROM friends WHERE user_id = ANY(?) ORDER BY user_id, friend_id";
+        String usersSql = "SELECT id, email, login, name, birthday, version FROM users WHERE id = ANY(?) ORDER BY id";
+        try (Connection connection = dataSource.getConnection()) {
+            LongObjectHashMap<LongArrayBuilder> friendsByUser = new LongObjectHashMap<>(userIds.length);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(edgesSql)) {
+                preparedStatement.setObject(1, userIds);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        long userId = resultSet.getLong(1);
+                        LongArrayBuilder friendIds = friendsByUser.get(userId);
+                        if (friendIds == null) {
+                            friendIds = new LongArrayBuilder();
+                            friendsByUser.put(userId, friendIds);
+                        }
+                        friendIds.add(resultSet.getLong(2));
+                    }
+                }
+            }
+            long[][] friendSets = new long[userIds.length][];
+            for (int i = 0; i < userIds.length; i++) {
+                LongArrayBuilder friendIds = friendsByUser.get(userIds[i]);
+                if (friendIds == null) {
+                    return commonFriends;
+                }
+                friendSets[i] = friendIds.toArray();
+            }
+            long[] common = SortedLongs.intersectAll(friendSets);
+            if (common.length == 0) {
+                return commonFriends;
+            }
+            try (PreparedStatement preparedStatement = connection.prepareStatement(usersSql)) {
+                preparedStatement.setObject(1, common);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    RowMapper<User> mapper = UserDbStorage.USER_ROWS.forQuery(usersSql, resultSet);
+                    while (resultSet.next()) {
+                        commonFriends.add(mapper.mapRow(resultSet));
+                    }
+                }
             }
         } catch (SQLException e) {
             throw new RuntimeException("FriendsDbStorage: getCommonFriends sql exception.");
@@ -89,13 +277,36 @@ public class FriendsDbStorage implements FriendsStorage {
         return commonFriends;
     }
 
+    public void forEachEdge(EdgeConsumer consumer) {
+        String sql = "SELECT user_id, friend_id FROM friends ORDER BY user_id, friend_id";
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                preparedStatement.setFetchSize(STREAM_FETCH_SIZE);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        consumer.accept(resultSet.getLong(1), resultSet.getLong(2));
+                    }
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new RuntimeException("FriendsDbStorage: forEachEdge sql exception.");
+        }
+    }
+
     public void clearFriends() {
-        try {
-            String sql = "DELETE FROM friends";
-            Statement statement = connection.createStatement();
+        String sql = "DELETE FROM friends";
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
             statement.executeUpdate(sql);
         } catch (SQLException e) {
             throw new RuntimeException("UserDbStorage: clearUser sql exception.");
         }
     }
+
+    @FunctionalInterface
+    public interface EdgeConsumer {
+        void accept(long userId, long friendId);
+    }
 }
@@ -0,0 +1,193 @@
+package storage.db;
+
+import storage.LikesStorage;
+import storage.SqlConnection;
+import util.LongArrayBuilder;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class LikesDbStorage implements LikesStorage {
+
+    private static final int STREAM_FETCH_SIZE = Integer.getInteger("db.fetchSize", 500);
+
+    private final DataSource dataSource;
+    private final List<LikeListener> listeners = new CopyOnWriteArrayList<>();
+
+    public LikesDbStorage() {
+        this(SqlConnection.getDataSource());
+    }
+
+    public LikesDbStorage(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public boolean addLike(long filmId, long userId) {
+        String sql = "INSERT INTO likes (film_id, user_id) VALUES (?, ?) ON CONFLICT DO NOTHING";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setLong(1, filmId);
+            preparedStatement.setLong(2, userId);
+
+            boolean added = preparedStatement.executeUpdate() > 0;
+            if (added) {
+                notifyListeners(filmId, userId, true);
+            }
+            return added;
+        } catch (SQLException e) {
+            throw new RuntimeException("LikesDbStorage: addLike sql exception.");
+        }
+    }
+
+    @Override
+    public boolean removeLike(long filmId, long userId) {
+        String sql = "DELETE FROM likes WHERE film_id=? AND user_id=?";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setLong(1, filmId);
+            preparedStatement.setLong(2, userId);
+
+            boolean removed = preparedStatement.executeUpdate() > 0;
+            if (removed) {
+                notifyListeners(filmId, userId, false);
+            }
+            return removed;
+        } catch (SQLException e) {
+            throw new RuntimeException("LikesDbStorage: removeLike sql exception.");
+        }
+    }
+
+    @Override
+    public long getLikeCount(long filmId) {
+        String sql = "SELECT COUNT(*) FROM likes WHERE film_id=?";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setLong(1, filmId);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getLong(1);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("LikesDbStorage: getLikeCount sql exception.");
+        }
+    }
+
+    // Scans the whole table; only used when the in-memory ranking is switched off.
+    @Override
+    public long[] getPopularFilmIds(int count) {
+        String sql = "SELECT film_id FROM likes GROUP BY film_id ORDER BY COUNT(*) DESC, film_id LIMIT ?";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setInt(1, count);
+            LongArrayBuilder ids = new LongArrayBuilder(count);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    ids.add(resultSet.getLong(1));
+                }
+            }
+            return ids.toArray();
+        } catch (SQLException e) {
+            throw new RuntimeException("LikesDbStorage: getPopularFilmIds sql exception.");
+        }
+    }
+
+    @Override
+    public void removeFilm(long filmId) {
+        String sql = "DELETE FROM likes WHERE film_id=?";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setLong(1, filmId);
+            preparedStatement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("LikesDbStorage: removeFilm sql exception.");
+        }
+        for (LikeListener listener : listeners) {
+            listener.onFilmRemoved(filmId);
+        }
+    }
+
+    @Override
+    public void removeUser(long userId) {
+        String sql = "DELETE FROM likes WHERE user_id=?";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setLong(1, userId);
+            preparedStatement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("LikesDbStorage: removeUser sql exception.");
+        }
+        for (LikeListener listener : listeners) {
+            listener.onUserRemoved(userId);
+        }
+    }
+
+    /**
+     * Applies a batch of likes (or unlikes) in one statement. Pairs whose film or user has been
+     * deleted in the meantime are skipped rather than failing the batch. Listeners are not told.
+     */
+    public int applyLikes(long[] filmIds, long[] userIds, boolean liked) {
+        if (filmIds.length == 0) {
+            return 0;
+        }
+        String sql = liked
+                ? "INSERT INTO likes (film_id, user_id) " +
+                "SELECT t.film_id, t.user_id FROM unnest(?::bigint[], ?::bigint[]) AS t(film_id, user_id) " +
+                "WHERE EXISTS (SELECT 1 FROM film f WHERE f.id = t.film_id) " +
+                "AND EXISTS (SELECT 1 FROM users u WHERE u.id = t.user_id) " +
+                "ON CONFLICT DO NOTHING"
+                : "DELETE FROM likes l USING unnest(?::bigint[], ?::bigint[]) AS t(film_id, user_id) " +
+                "WHERE l.film_id = t.film_id AND l.user_id = t.user_id";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setObject(1, filmIds);
+            preparedStatement.setObject(2, userIds);
+
+            return preparedStatement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("LikesDbStorage: applyLikes sql exception.");
+        }
+    }
+
+    @Override
+    public void forEachLike(LikeConsumer consumer) {
+        String sql = "SELECT film_id, user_id FROM likes";
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                preparedStatement.setFetchSize(STREAM_FETCH_SIZE);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        consumer.accept(resultSet.getLong(1), resultSet.getLong(2));
+                    }
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new RuntimeException("LikesDbStorage: forEachLike sql exception.");
+        }
+    }
+
+    public void clearLikes() {
+        String sql = "DELETE FROM likes";
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate(sql);
+        } catch (SQLException e) {
+            throw new RuntimeException("LikesDbStorage: clearLikes sql exception.");
+        }
+    }
+
+    @Override
+    public void addLikeListener(LikeListener listener) {
+        listeners.add(listener);
+    }
+
+    private void notifyListeners(long filmId, long userId, boolean liked) {
+        for (LikeListener listener : listeners) {
+            listener.onLikeChanged(filmId, userId, liked);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package storage.db;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiles a {@link RowMapper} once per query shape: column positions are resolved from the first
+ * result set's metadata and captured, so rows are read by index instead of a label lookup per cell.
+ * Keyed by SQL text, which is constant per call site in this codebase.
+ */
+public final class RowMapperCache<T> {
+
+    private final Compiler<T> compiler;
+    private final ConcurrentHashMap<String, RowMapper<T>> mappers = new ConcurrentHashMap<>();
+
+    public RowMapperCache(Compiler<T> compiler) {
+        this.compiler = compiler;
+    }
+
+    public RowMapper<T> forQuery(String sql, ResultSet resultSet) throws SQLException {
+        RowMapper<T> mapper = mappers.get(sql);
+        if (mapper == null) {
+            mapper = compiler.compile(new Columns(resultSet.getMetaData()));
+            RowMapper<T> raced = mappers.putIfAbsent(sql, mapper);
+            if (raced != null) {
+                mapper = raced;
+            }
+        }
+        return mapper;
+    }
+
+    @FunctionalInterface
+    public interface Compiler<T> {
+        RowMapper<T> compile(Columns columns) throws SQLException;
+    }
+
+    public static final class Columns {
+
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        public Columns(ResultSetMetaData metaData) throws SQLException {
+            for (int i = metaData.getColumnCount(); i >= 1; i--) {
+                // Iterating backwards keeps the first occurrence of a duplicated label, as findColumn does.
+                indexes.put(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+            }
+        }
+
+        public int index(String label) throws SQLException {
+            Integer index = indexes.get(label.toLowerCase(Locale.ROOT));
+            if (index == null) {
+                throw new SQLException("RowMapperCache: column " + label + " is not in the result set.");
+            }
+            return index;
+        }
+    }
+}
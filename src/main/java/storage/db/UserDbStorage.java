@@ -1,47 +1,129 @@
 package storage.db;
 
+import exception.DbCreateEntityFaultException;
+import lombok.extern.slf4j.Slf4j;
+import model.BatchAddResult;
 import model.User;
 import storage.SqlConnection;
+import storage.UserConstraints;
 import storage.UserStorage;
 
+import javax.sql.DataSource;
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
+@Slf4j
 public class UserDbStorage implements UserStorage {
 
-    private static Connection connection = SqlConnection.createConnection();
+    static final int STREAM_FETCH_SIZE = Integer.getInteger("db.fetchSize", 500);
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    public static final RowMapperCache<User> USER_ROWS = new RowMapperCache<>(UserDbStorage::compileUserMapper);
+
+    private final DataSource dataSource;
+    private final List<LongConsumer> removalListeners = new CopyOnWriteArrayList<>();
+
+    public UserDbStorage() {
+        this(SqlConnection.getDataSource());
+    }
+
+    public UserDbStorage(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
 
     @Override
     public List<User> getUsers() {
         List<User> users = new ArrayList<>();
-        try {
-            String sql = "SELECT id, email, login, name, birthday FROM users";
-            Statement statement = connection.createStatement();
-            ResultSet resultSet = statement.executeQuery(sql);
-            while (resultSet.next()) {
-                users.add(makeUser(resultSet));
+        String sql = "SELECT id, email, login, name, birthday, version FROM users";
+        try (Connection connection = dataSource.getConnection()) {
+            // A cursor keeps the driver from buffering the whole table next to the list being built.
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                preparedStatement.setFetchSize(STREAM_FETCH_SIZE);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    RowMapper<User> mapper = USER_ROWS.forQuery(sql, resultSet);
+                    while (resultSet.next()) {
+                        users.add(mapper.mapRow(resultSet));
+                    }
+                }
             }
+            connection.commit();
         } catch (SQLException e) {
             throw new RuntimeException("UserDbStorage: getUsers sql exception.");
         }
         return users;
     }
 
+    @Override
+    public List<User> getUsers(long afterId, int limit) {
+        List<User> users = new ArrayList<>(limit);
+        String sql = "SELECT id, email, login, name, birthday, version FROM users WHERE id > ? ORDER BY id LIMIT ?";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+
+            preparedStatement.setLong(1, afterId);
+            preparedStatement.setInt(2, limit);
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                RowMapper<User> mapper = USER_ROWS.forQuery(sql, resultSet);
+                while (resultSet.next()) {
+                    users.add(mapper.mapRow(resultSet));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("UserDbStorage: getUsers sql exception.");
+        }
+        return users;
+    }
+
+    @Override
+    public void forEachUser(Consumer<User> consumer) {
+        String sql = "SELECT id, email, login, name, birthday, version FROM users ORDER BY id";
+        try (Connection connection = dataSource.getConnection()) {
+            // pgjdbc only honours the fetch size (a server-side cursor) inside a transaction.
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                preparedStatement.setFetchSize(STREAM_FETCH_SIZE);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    RowMapper<User> mapper = USER_ROWS.forQuery(sql, resultSet);
+                    while (resultSet.next()) {
+                        consumer.accept(mapper.mapRow(resultSet));
+                    }
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new RuntimeException("UserDbStorage: forEachUser sql exception.");
+        }
+    }
+
     @Override
     public Optional<User> getById(long id) {
         User user = null;
-        try {
-            String sql = "SELECT id, email, login, name, birthday FROM users WHERE id=?";
-            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+        String sql = "SELECT id, email, login, name, birthday, version FROM users WHERE id=?";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
 
             preparedStatement.setLong(1, id);
 
-            ResultSet resultSet = preparedStatement.executeQuery();
-            while (resultSet.next()) {
-                user = makeUser(resultSet);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                RowMapper<User> mapper = USER_ROWS.forQuery(sql, resultSet);
+                while (resultSet.next()) {
+                    user = mapper.mapRow(resultSet);
+                }
             }
         } catch (SQLException e) {
             throw new RuntimeException("UserDbStorage: getById sql exception.");
@@ -50,28 +132,231 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
-    public long add(User user) {
-        try {
-            String sql = "INSERT INTO users(email, login, name, birthday) VALUES(?, ?, ?, ?)";
-            PreparedStatement preparedStatement =
-                    connection.prepareStatement(sql);
+    public OptionalLong getVersion(long id) {
+        String sql = "SELECT version FROM users WHERE id=?";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+
+            preparedStatement.setLong(1, id);
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                return resultSet.next() ? OptionalLong.of(resultSet.getLong(1)) : OptionalLong.empty();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("UserDbStorage: getVersion sql exception.");
+        }
+    }
+
+    @Override
+    public List<User> getByIds(long[] ids) {
+        List<User> users = new ArrayList<>(ids.length);
+        if (ids.length == 0) {
+            return users;
+        }
+        String sql = "SELECT id, email, login, name, birthday, version FROM users WHERE id = ANY(?) ORDER BY id";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+
+            preparedStatement.setObject(1, ids);
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                RowMapper<User> mapper = USER_ROWS.forQuery(sql, resultSet);
+                while (resultSet.next()) {
+                    users.add(mapper.mapRow(resultSet));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("UserDbStorage: getByIds sql exception.");
+        }
+        return users;
+    }
+
+    @Override
+    public User add(User user) {
+        String sql = "INSERT INTO users(email, login, name, birthday) VALUES(?, ?, ?, ?) " +
+                "RETURNING id, email, login, name, birthday, version";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
 
             preparedStatement.setString(1, user.getEmail());
             preparedStatement.setString(2, user.getLogin());
             preparedStatement.setString(3, user.getName());
             preparedStatement.setDate(4, Date.valueOf(user.getBirthday()));
 
-            return preparedStatement.executeUpdate();
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                RowMapper<User> mapper = USER_ROWS.forQuery(sql, resultSet);
+                if (!resultSet.next()) {
+                    throw new DbCreateEntityFaultException(
+                            String.format("User (login=%s) hasn't been added to database", user.getLogin()));
+                }
+                return mapper.mapRow(resultSet);
+            }
         } catch (SQLException e) {
             throw new RuntimeException("UserDbStorage: add sql exception.");
         }
     }
 
     @Override
-    public boolean update(User user) {
-        try {
-            String sql = "UPDATE users SET email=?, login=?, name=?, birthday=? WHERE id=?";
-            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+    public BatchAddResult addBatch(List<User> users) {
+        BatchAddResult result = new BatchAddResult();
+        List<Integer> rows = new ArrayList<>(users.size());
+        Set<String> batchEmails = new HashSet<>();
+        Set<String> batchLogins = new HashSet<>();
+        for (int row = 0; row < users.size(); row++) {
+            String error = UserConstraints.checkBatchRow(users.get(row), batchEmails, batchLogins);
+            if (error == null) {
+                rows.add(row);
+            } else {
+                result.addFailure(row, error);
+            }
+        }
+        if (rows.isEmpty()) {
+            return result;
+        }
+
+        Map<String, Integer> conflicts = null;
+        try (Connection connection = dataSource.getConnection()) {
+            conflicts = insertBatch(connection, users, rows, result);
+            if (!conflicts.isEmpty()) {
+                reportConflicts(connection, users, conflicts, result);
+            }
+        } catch (SQLException e) {
+            if (conflicts != null) {
+                // The insert has already committed its rows; only the lookup naming the conflicts failed.
+                log.warn("UserDbStorage: conflict lookup for {} rows failed, SQLState {}",
+                        conflicts.size(), e.getSQLState());
+                for (int row : conflicts.values()) {
+                    result.addFailure(row, "conflicting row");
+                }
+            } else {
+                // Something other than a unique violation broke the multi-row insert; isolate it row by row.
+                log.warn("UserDbStorage: batch insert of {} rows failed, SQLState {}; inserting row by row",
+                        rows.size(), e.getSQLState(), e);
+                insertRowByRow(users, rows, result);
+            }
+        }
+        result.getFailures().sort(Comparator.comparingInt(BatchAddResult.Failure::getRow));
+        return result;
+    }
+
+    // Returns the rows skipped by ON CONFLICT, keyed by email.
+    private Map<String, Integer> insertBatch(Connection connection, List<User> users, List<Integer> rows,
+                                             BatchAddResult result) throws SQLException {
+        String sql = "INSERT INTO users(email, login, name, birthday) " +
+                "SELECT * FROM unnest(?::varchar[], ?::varchar[], ?::varchar[], ?::date[]) " +
+                "ON CONFLICT DO NOTHING " +
+                "RETURNING id, email, login, name, birthday, version";
+        String[] emails = new String[rows.size()];
+        String[] logins = new String[rows.size()];
+        String[] names = new String[rows.size()];
+        Date[] birthdays = new Date[rows.size()];
+        Map<String, Integer> rowByEmail = new HashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            User user = users.get(rows.get(i));
+            emails[i] = user.getEmail();
+            logins[i] = user.getLogin();
+            names[i] = user.getName();
+            birthdays[i] = Objects.isNull(user.getBirthday()) ? null : Date.valueOf(user.getBirthday());
+            rowByEmail.put(user.getEmail(), rows.get(i));
+        }
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setArray(1, connection.createArrayOf("varchar", emails));
+            preparedStatement.setArray(2, connection.createArrayOf("varchar", logins));
+            preparedStatement.setArray(3, connection.createArrayOf("varchar", names));
+            preparedStatement.setArray(4, connection.createArrayOf("date", birthdays));
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                RowMapper<User> mapper = USER_ROWS.forQuery(sql, resultSet);
+                while (resultSet.next()) {
+                    User user = mapper.mapRow(resultSet);
+                    rowByEmail.remove(user.getEmail());
+                    result.addUser(user);
+                }
+            }
+        }
+        return rowByEmail;
+    }
+
+    private void insertRowByRow(List<User> users, List<Integer> rows, BatchAddResult result) {
+        String sql = "INSERT INTO users(email, login, name, birthday) VALUES(?, ?, ?, ?) " +
+                "RETURNING id, email, login, name, birthday, version";
+        try (Connection connection = dataSource.getConnection()) {
+            for (int row : rows) {
+                User user = users.get(row);
+                try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                    preparedStatement.setString(1, user.getEmail());
+                    preparedStatement.setString(2, user.getLogin());
+                    preparedStatement.setString(3, user.getName());
+                    preparedStatement.setDate(4, Objects.isNull(user.getBirthday())
+                            ? null : Date.valueOf(user.getBirthday()));
+
+                    try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                        RowMapper<User> mapper = USER_ROWS.forQuery(sql, resultSet);
+                        if (resultSet.next()) {
+                            result.addUser(mapper.mapRow(resultSet));
+                        }
+                    }
+                } catch (SQLException e) {
+                    result.addFailure(row, describeRowFailure(e));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("UserDbStorage: addBatch sql exception.");
+        }
+    }
+
+    static String describeRowFailure(SQLException e) {
+        if (UNIQUE_VIOLATION.equals(e.getSQLState())) {
+            String message = String.valueOf(e.getMessage());
+            if (message.contains("users_email_index")) {
+                return UserConstraints.DUPLICATE_EMAIL;
+            }
+            if (message.contains("users_login_index")) {
+                return UserConstraints.DUPLICATE_LOGIN;
+            }
+        }
+        return "rejected by database (SQLState " + e.getSQLState() + ")";
+    }
+
+    private void reportConflicts(Connection connection, List<User> users, Map<String, Integer> rowByEmail,
+                                 BatchAddResult result) throws SQLException {
+        String sql = "SELECT email, login FROM users WHERE email = ANY(?) OR login = ANY(?)";
+        Set<String> takenEmails = new HashSet<>();
+        Set<String> takenLogins = new HashSet<>();
+        String[] emails = rowByEmail.keySet().toArray(new String[0]);
+        String[] logins = rowByEmail.values().stream().map(row -> users.get(row).getLogin()).toArray(String[]::new);
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setArray(1, connection.createArrayOf("varchar", emails));
+            preparedStatement.setArray(2, connection.createArrayOf("varchar", logins));
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    takenEmails.add(resultSet.getString("email"));
+                    takenLogins.add(resultSet.getString("login"));
+                }
+            }
+        }
+        for (Map.Entry<String, Integer> conflict : rowByEmail.entrySet()) {
+            User user = users.get(conflict.getValue());
+            if (takenEmails.contains(user.getEmail())) {
+                result.addFailure(conflict.getValue(), UserConstraints.DUPLICATE_EMAIL);
+            } else if (takenLogins.contains(user.getLogin())) {
+                result.addFailure(conflict.getValue(), UserConstraints.DUPLICATE_LOGIN);
+            } else {
+                result.addFailure(conflict.getValue(), "conflicting row");
+            }
+        }
+    }
+
+    @Override
+    public Optional<User> update(User user) {
+        User updated = null;
+        String sql = "UPDATE users SET email=?, login=?, name=?, birthday=?, version=nextval('users_version_seq') " +
+                "WHERE id=? " +
+                "RETURNING id, email, login, name, birthday, version";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
 
             preparedStatement.setString(1, user.getEmail());
             preparedStatement.setString(2, user.getLogin());
@@ -79,42 +364,71 @@ public class UserDbStorage implements UserStorage {
             preparedStatement.setDate(4, Date.valueOf(user.getBirthday()));
             preparedStatement.setLong(5, user.getId());
 
-            return preparedStatement.executeUpdate() > 0;
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                RowMapper<User> mapper = USER_ROWS.forQuery(sql, resultSet);
+                if (resultSet.next()) {
+                    updated = mapper.mapRow(resultSet);
+                }
+            }
         } catch (SQLException e) {
             throw new RuntimeException("UserDbStorage: update sql exception.");
         }
+        return Optional.ofNullable(updated);
     }
 
     @Override
     public boolean remove(long userId) {
-        try {
-            String sql = "DELETE FROM users WHERE id = ?";
-            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+        // The cascade drops this user from other friend lists, so those lists get a new version too.
+        String sql = "WITH listed_by AS (UPDATE users SET friends_version=nextval('users_version_seq') " +
+                "WHERE id IN (SELECT user_id FROM friends WHERE friend_id=?)) " +
+                "DELETE FROM users WHERE id = ?";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
 
             preparedStatement.setLong(1, userId);
+            preparedStatement.setLong(2, userId);
 
-            return preparedStatement.executeUpdate() > 0;
+            if (preparedStatement.executeUpdate() == 0) {
+                return false;
+            }
         } catch (SQLException e) {
             throw new RuntimeException("UserDbStorage: remove sql exception.");
         }
+        removalListeners.forEach(listener -> listener.accept(userId));
+        return true;
+    }
+
+    // Told after the row and everything it cascades to are deleted, outside the connection.
+    public void addRemovalListener(LongConsumer listener) {
+        removalListeners.add(listener);
     }
 
     public void clearUsers() {
-        try {
-            String sql = "DELETE FROM users";
-            Statement statement = connection.createStatement();
+        String sql = "DELETE FROM users";
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
             statement.executeUpdate(sql);
         } catch (SQLException e) {
             throw new RuntimeException("UserDbStorage: clearUser sql exception.");
         }
     }
 
-    public static User makeUser(ResultSet resultSet) throws SQLException {
-        Date birthday = resultSet.getDate("birthday");
-        return new User(resultSet.getLong("id"),
-                resultSet.getString("email"),
-                resultSet.getString("login"),
-                resultSet.getString("name"),
-                Objects.isNull(birthday) ? null : birthday.toLocalDate());
+    // getObject(LocalDate) decodes the column directly; getDate builds a java.sql.Date through a Calendar first.
+    static RowMapper<User> compileUserMapper(RowMapperCache.Columns columns) throws SQLException {
+        int id = columns.index("id");
+        int email = columns.index("email");
+        int login = columns.index("login");
+        int name = columns.index("name");
+        int birthday = columns.index("birthday");
+        int version = columns.index("version");
+        return resultSet -> {
+            User user = new User(resultSet.getLong(id),
+                    resultSet.getString(email),
+                    resultSet.getString(login),
+                    resultSet.getString(name),
+                    resultSet.getObject(birthday, LocalDate.class));
+            user.setVersion(resultSet.getLong(version));
+            return user;
+        };
     }
 }
@@ -0,0 +1,118 @@
+package storage.graph;
+
+import util.LongArrayBuilder;
+import util.LongHashSet;
+import util.LongObjectHashMap;
+
+// Edge changes not yet folded into a CsrAdjacency; the last add or remove of an edge wins.
+class AdjacencyDelta {
+
+    private final LongObjectHashMap<LongHashSet> added = new LongObjectHashMap<>();
+    private final LongObjectHashMap<LongHashSet> removed = new LongObjectHashMap<>();
+    // Tombstones: the older row of each node and every older edge to it are hidden on read and dropped on merge.
+    private final LongHashSet removedNodes = new LongHashSet();
+    private int size;
+
+    void add(long node, long neighbour) {
+        LongHashSet removedFrom = removed.get(node);
+        if (removedFrom != null) {
+            removedFrom.remove(neighbour);
+        }
+        if (setFor(added, node).add(neighbour)) {
+            size++;
+        }
+    }
+
+    void remove(long node, long neighbour) {
+        LongHashSet addedTo = added.get(node);
+        if (addedTo != null) {
+            addedTo.remove(neighbour);
+        }
+        if (setFor(removed, node).add(neighbour)) {
+            size++;
+        }
+    }
+
+    // Costs the size of this delta, not of the graph; edges added after the call stay visible.
+    void removeNode(long node) {
+        LongHashSet addedTo = added.get(node);
+        if (addedTo != null) {
+            addedTo.clear();
+        }
+        LongHashSet removedFrom = removed.get(node);
+        if (removedFrom != null) {
+            removedFrom.clear();
+        }
+        added.forEachValue(neighbours -> neighbours.remove(node));
+        removedNodes.add(node);
+        size++;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Any row may list a removed node, so a pending tombstone touches every row.
+    boolean touches(long node) {
+        if (!removedNodes.isEmpty()) {
+            return true;
+        }
+        LongHashSet addedTo = added.get(node);
+        LongHashSet removedFrom = removed.get(node);
+        return (addedTo != null && !addedTo.isEmpty()) || (removedFrom != null && !removedFrom.isEmpty());
+    }
+
+    long[] apply(long node, long[] sortedNeighbours) {
+        if (!touches(node)) {
+            return sortedNeighbours;
+        }
+        return merge(node, sortedNeighbours, 0, sortedNeighbours.length);
+    }
+
+    // Reads the base row in place; row is -1 when the base has no row for the node.
+    long[] apply(long node, CsrAdjacency base, int row) {
+        if (row < 0) {
+            return apply(node, CsrAdjacency.NO_NEIGHBOURS);
+        }
+        return merge(node, base.edges(), base.rowStart(row), base.rowEnd(row));
+    }
+
+    long[] sortedNodes() {
+        LongHashSet nodes = new LongHashSet(added.size() + removed.size());
+        added.forEach((node, neighbours) -> nodes.add(node));
+        removed.forEach((node, neighbours) -> nodes.add(node));
+        return nodes.toSortedArray();
+    }
+
+    private long[] merge(long node, long[] sortedNeighbours, int from, int to) {
+        LongHashSet addedTo = added.get(node);
+        LongHashSet removedFrom = removed.get(node);
+        LongArrayBuilder result = new LongArrayBuilder(to - from + (addedTo == null ? 0 : addedTo.size()));
+        int end = removedNodes.contains(node) ? from : to;
+        for (int i = from; i < end; i++) {
+            long neighbour = sortedNeighbours[i];
+            if (!removedNodes.contains(neighbour)
+                    && (removedFrom == null || !removedFrom.contains(neighbour))
+                    && (addedTo == null || !addedTo.contains(neighbour))) {
+                result.add(neighbour);
+            }
+        }
+        if (addedTo != null) {
+            addedTo.forEach(result::add);
+        }
+        return result.toSortedArray();
+    }
+
+    private static LongHashSet setFor(LongObjectHashMap<LongHashSet> sets, long node) {
+        LongHashSet set = sets.get(node);
+        if (set == null) {
+            set = new LongHashSet();
+            sets.put(node, set);
+        }
+        return set;
+    }
+}
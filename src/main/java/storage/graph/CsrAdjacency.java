@@ -0,0 +1,180 @@
+package storage.graph;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Immutable compressed-sparse-row adjacency: the neighbours of {@code nodes[i]} are
+ * {@code neighbours[offsets[i] .. offsets[i + 1])}, both arrays sorted ascending.
+ */
+public final class CsrAdjacency {
+
+    static final long[] NO_NEIGHBOURS = new long[0];
+
+    private static final CsrAdjacency EMPTY = new CsrAdjacency(new long[0], new int[]{0}, new long[0]);
+
+    private final long[] nodes;
+    private final int[] offsets;
+    private final long[] neighbours;
+
+    private CsrAdjacency(long[] nodes, int[] offsets, long[] neighbours) {
+        this.nodes = nodes;
+        this.offsets = offsets;
+        this.neighbours = neighbours;
+    }
+
+    public static CsrAdjacency empty() {
+        return EMPTY;
+    }
+
+    // A copy the caller owns; forEachNeighbour reads the row in place.
+    public long[] neighbours(long node) {
+        int index = Arrays.binarySearch(nodes, node);
+        if (index < 0) {
+            return NO_NEIGHBOURS;
+        }
+        return Arrays.copyOfRange(neighbours, offsets[index], offsets[index + 1]);
+    }
+
+    public void forEachNeighbour(long node, LongConsumer consumer) {
+        int index = Arrays.binarySearch(nodes, node);
+        if (index < 0) {
+            return;
+        }
+        for (int i = offsets[index]; i < offsets[index + 1]; i++) {
+            consumer.accept(neighbours[i]);
+        }
+    }
+
+
+    public int degree(long node) {
+        int index = Arrays.binarySearch(nodes, node);
+        return index < 0 ? 0 : offsets[index + 1] - offsets[index];
+    }
+
+    public int nodeCount() {
+        return nodes.length;
+    }
+
+    public long edgeCount() {
+        return neighbours.length;
+    }
+
+    // Index of the node's row, or -1; the row is edges()[rowStart(row) .. rowEnd(row)). Never written to.
+    int row(long node) {
+        int index = Arrays.binarySearch(nodes, node);
+        return index < 0 ? -1 : index;
+    }
+
+    int rowStart(int row) {
+        return offsets[row];
+    }
+
+    int rowEnd(int row) {
+        return offsets[row + 1];
+    }
+
+    long[] edges() {
+        return neighbours;
+    }
+
+    long nodeAt(int index) {
+        return nodes[index];
+    }
+
+    boolean hasEdge(int row, long neighbour) {
+        return Arrays.binarySearch(neighbours, offsets[row], offsets[row + 1], neighbour) >= 0;
+    }
+
+    /**
+     * Accepts edges in ascending (node, neighbour) order, which is how both the
+     * {@code friends} primary key scan and a compaction merge produce them.
+     */
+    public static final class Builder {
+
+        private long[] nodes;
+        private int[] offsets;
+        private long[] neighbours;
+        private int nodeCount;
+        private int edgeCount;
+
+        public Builder() {
+            this(16, 64);
+        }
+
+        public Builder(int expectedNodes, long expectedEdges) {
+            nodes = new long[Math.max(1, expectedNodes)];
+            offsets = new int[Math.max(2, expectedNodes + 1)];
+            neighbours = new long[(int) Math.max(1, Math.min(expectedEdges, Integer.MAX_VALUE - 8))];
+        }
+
+        public Builder add(long node, long neighbour) {
+            if (nodeCount == 0 || nodes[nodeCount - 1] != node) {
+                if (nodeCount > 0 && node < nodes[nodeCount - 1]) {
+                    throw new IllegalArgumentException("CsrAdjacency: nodes out of order: " + node);
+                }
+                if (nodeCount == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, nodes.length * 2);
+                    offsets = Arrays.copyOf(offsets, nodes.length + 1);
+                }
+                nodes[nodeCount] = node;
+                offsets[nodeCount] = edgeCount;
+                nodeCount++;
+            } else if (neighbour <= neighbours[edgeCount - 1]) {
+                throw new IllegalArgumentException("CsrAdjacency: neighbours out of order for node " + node);
+            }
+            if (edgeCount == neighbours.length) {
+                neighbours = Arrays.copyOf(neighbours, grow(neighbours.length));
+            }
+            neighbours[edgeCount++] = neighbour;
+            return this;
+        }
+
+        Builder copyNode(CsrAdjacency source, int index) {
+            long node = source.nodes[index];
+            if (nodeCount > 0 && node <= nodes[nodeCount - 1]) {
+                throw new IllegalArgumentException("CsrAdjacency: nodes out of order: " + node);
+            }
+            int from = source.offsets[index];
+            int length = source.offsets[index + 1] - from;
+            if (nodeCount == nodes.length) {
+                nodes = Arrays.copyOf(nodes, nodes.length * 2);
+                offsets = Arrays.copyOf(offsets, nodes.length + 1);
+            }
+            while (edgeCount + length > neighbours.length) {
+                neighbours = Arrays.copyOf(neighbours, grow(neighbours.length));
+            }
+            nodes[nodeCount] = node;
+            offsets[nodeCount] = edgeCount;
+            nodeCount++;
+            System.arraycopy(source.neighbours, from, neighbours, edgeCount, length);
+            edgeCount += length;
+            return this;
+        }
+
+        public Builder addAll(long node, long[] sortedNeighbours) {
+            for (long neighbour : sortedNeighbours) {
+                add(node, neighbour);
+            }
+            return this;
+        }
+
+        public CsrAdjacency build() {
+            int[] builtOffsets = Arrays.copyOf(offsets, nodeCount + 1);
+            builtOffsets[nodeCount] = edgeCount;
+            return new CsrAdjacency(Arrays.copyOf(nodes, nodeCount), builtOffsets,
+                    Arrays.copyOf(neighbours, edgeCount));
+        }
+
+        private static int grow(int length) {
+            int grown = length + (length >> 1) + 1;
+            if (grown < 0 || grown > Integer.MAX_VALUE - 8) {
+                if (length == Integer.MAX_VALUE - 8) {
+                    throw new IllegalStateException("CsrAdjacency: too many edges.");
+                }
+                return Integer.MAX_VALUE - 8;
+            }
+            return grown;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package storage.graph;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongConsumer;
+
+/**
+ * Directed friends graph: an immutable {@link CsrAdjacency} plus delta overlays. Writers only
+ * touch the active delta; {@link #compact()} folds the deltas into a new CSR off the lock.
+ */
+@Slf4j
+public class FriendsGraph {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object compactionLock = new Object();
+
+    private CsrAdjacency base;
+    // Deltas being folded by a running compaction; still visible to readers until the swap.
+    private AdjacencyDelta frozen;
+    private AdjacencyDelta active = new AdjacencyDelta();
+
+    public FriendsGraph(CsrAdjacency base) {
+        this.base = base;
+    }
+
+    public long[] neighbours(long node) {
+        lock.readLock().lock();
+        try {
+            return merged(node);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Visits the same ids as neighbours(node); a row no delta touches is read from the CSR without a copy.
+    public void forEachNeighbour(long node, LongConsumer consumer) {
+        lock.readLock().lock();
+        try {
+            if ((frozen == null || !frozen.touches(node)) && !active.touches(node)) {
+                base.forEachNeighbour(node, consumer);
+                return;
+            }
+            for (long neighbour : merged(node)) {
+                consumer.accept(neighbour);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void addEdge(long node, long neighbour) {
+        lock.writeLock().lock();
+        try {
+            active.add(node, neighbour);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeEdge(long node, long neighbour) {
+        lock.writeLock().lock();
+        try {
+            active.remove(node, neighbour);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Drops the node's own edges and every edge pointing at it, like the users ON DELETE CASCADE.
+    // Only a tombstone is recorded here; compact() removes the incoming edges off the lock.
+    public void removeNode(long node) {
+        lock.writeLock().lock();
+        try {
+            active.removeNode(node);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int pendingChanges() {
+        lock.readLock().lock();
+        try {
+            return active.size() + (frozen == null ? 0 : frozen.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long edgeCount() {
+        lock.readLock().lock();
+        try {
+            return base.edgeCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void compact() {
+        synchronized (compactionLock) {
+            CsrAdjacency snapshot;
+            AdjacencyDelta changes;
+            lock.writeLock().lock();
+            try {
+                if (active.isEmpty()) {
+                    return;
+                }
+                snapshot = base;
+                changes = active;
+                frozen = active;
+                active = new AdjacencyDelta();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            long started = System.nanoTime();
+            CsrAdjacency compacted = merge(snapshot, changes);
+
+            lock.writeLock().lock();
+            try {
+                base = compacted;
+                frozen = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.debug("Compacted {} friend edge changes into {} edges in {} ms", changes.size(),
+                    compacted.edgeCount(), (System.nanoTime() - started) / 1_000_000);
+        }
+    }
+
+    // At most one copy of the base row: the deltas read it in place and only an untouched row is copied.
+    private long[] merged(long node) {
+        boolean frozenChanged = frozen != null && frozen.touches(node);
+        if (!frozenChanged && !active.touches(node)) {
+            return base.neighbours(node);
+        }
+        int row = base.row(node);
+        if (!frozenChanged) {
+            return active.apply(node, base, row);
+        }
+        return active.apply(node, frozen.apply(node, base, row));
+    }
+
+    private static CsrAdjacency merge(CsrAdjacency base, AdjacencyDelta changes) {
+        long[] changedNodes = changes.sortedNodes();
+        CsrAdjacency.Builder builder = new CsrAdjacency.Builder(base.nodeCount() + changedNodes.length,
+                base.edgeCount() + changes.size());
+        int i = 0;
+        int j = 0;
+        while (i < base.nodeCount() || j < changedNodes.length) {
+            if (j == changedNodes.length || (i < base.nodeCount() && base.nodeAt(i) < changedNodes[j])) {
+                long node = base.nodeAt(i);
+                if (changes.touches(node)) {
+                    builder.addAll(node, changes.apply(node, base, i++));
+                } else {
+                    builder.copyNode(base, i++);
+                }
+            } else if (i == base.nodeCount() || changedNodes[j] < base.nodeAt(i)) {
+                long node = changedNodes[j++];
+                builder.addAll(node, changes.apply(node, CsrAdjacency.NO_NEIGHBOURS));
+            } else {
+                long node = changedNodes[j++];
+                builder.addAll(node, changes.apply(node, base, i++));
+            }
+        }
+        return builder.build();
+    }
+}
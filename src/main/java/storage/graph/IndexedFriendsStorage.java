@@ -0,0 +1,186 @@
+package storage.graph;
+
+import lombok.extern.slf4j.Slf4j;
+import model.FriendsBatchResult;
+import model.User;
+import storage.FriendsStorage;
+import storage.UserStorage;
+import util.SortedLongs;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongConsumer;
+
+/**
+ * Serves friend reads from an in-memory {@link FriendsGraph}; writes go to the delegate first and
+ * are mirrored into the graph only once they have been applied there.
+ */
+@Slf4j
+public class IndexedFriendsStorage implements FriendsStorage, AutoCloseable {
+
+    private static final int WRITE_STRIPES = 64;
+
+    private final FriendsStorage delegate;
+    private final UserStorage userStorage;
+    private final FriendsGraph graph;
+    private final int compactThreshold;
+    private final ScheduledExecutorService compactor;
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+    private final Object[] writeStripes = new Object[WRITE_STRIPES];
+
+    public IndexedFriendsStorage(FriendsStorage delegate, UserStorage userStorage, CsrAdjacency initial,
+                                 int compactThreshold, Duration compactInterval) {
+        this.delegate = delegate;
+        this.userStorage = userStorage;
+        this.graph = new FriendsGraph(initial);
+        this.compactThreshold = compactThreshold;
+        for (int i = 0; i < WRITE_STRIPES; i++) {
+            writeStripes[i] = new Object();
+        }
+        this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "friends-graph-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = compactInterval.toMillis();
+        compactor.scheduleWithFixedDelay(this::compact, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean addFriend(long userId, long friendId) {
+        // Per-user ordering keeps the graph applying writes in the same order the database did.
+        synchronized (writeStripe(userId)) {
+            boolean added = delegate.addFriend(userId, friendId);
+            if (added) {
+                graph.addEdge(userId, friendId);
+            }
+            afterWrite();
+            return added;
+        }
+    }
+
+    @Override
+    public boolean removeFriend(long userId, long friendId) {
+        synchronized (writeStripe(userId)) {
+            boolean removed = delegate.removeFriend(userId, friendId);
+            if (removed) {
+                graph.removeEdge(userId, friendId);
+            }
+            afterWrite();
+            return removed;
+        }
+    }
+
+    @Override
+    public FriendsBatchResult addFriends(long userId, long[] friendIds) {
+        synchronized (writeStripe(userId)) {
+            FriendsBatchResult result = delegate.addFriends(userId, friendIds);
+            for (long friendId : result.getApplied()) {
+                graph.addEdge(userId, friendId);
+            }
+            afterWrite();
+            return result;
+        }
+    }
+
+    @Override
+    public FriendsBatchResult removeFriends(long userId, long[] friendIds) {
+        synchronized (writeStripe(userId)) {
+            FriendsBatchResult result = delegate.removeFriends(userId, friendIds);
+            for (long friendId : result.getApplied()) {
+                graph.removeEdge(userId, friendId);
+            }
+            afterWrite();
+            return result;
+        }
+    }
+
+    @Override
+    public List<User> getFriends(long userId) {
+        return userStorage.getByIds(graph.neighbours(userId));
+    }
+
+    @Override
+    public long[] getFriendIds(long userId) {
+        return graph.neighbours(userId);
+    }
+
+    @Override
+    public void forEachFriendId(long userId, LongConsumer consumer) {
+        graph.forEachNeighbour(userId, consumer);
+    }
+
+    // Under the write stripe: a write bumps the version in the database before it reaches the graph,
+    // and a version read in between would tag the old list with the new version.
+    @Override
+    public boolean isInMemory() {
+        return true;
+    }
+
+    @Override
+    public OptionalLong getFriendsVersion(long userId) {
+        synchronized (writeStripe(userId)) {
+            return delegate.getFriendsVersion(userId);
+        }
+    }
+
+    @Override
+    public List<User> getCommonFriends(long userId, long otherId) {
+        return userStorage.getByIds(SortedLongs.intersect(graph.neighbours(userId), graph.neighbours(otherId)));
+    }
+
+    @Override
+    public List<User> getCommonFriends(long[] userIds) {
+        long[][] friendSets = new long[userIds.length][];
+        for (int i = 0; i < userIds.length; i++) {
+            friendSets[i] = graph.neighbours(userIds[i]);
+            if (friendSets[i].length == 0) {
+                return new ArrayList<>();
+            }
+        }
+        return userStorage.getByIds(SortedLongs.intersectAll(friendSets));
+    }
+
+    // Called once the user row is deleted; the database cascade already dropped the edges, the graph follows.
+    public void removeUser(long userId) {
+        synchronized (writeStripe(userId)) {
+            graph.removeNode(userId);
+        }
+        afterWrite();
+    }
+
+    public FriendsGraph getGraph() {
+        return graph;
+    }
+
+    @Override
+    public void close() {
+        compactor.shutdownNow();
+    }
+
+    private void afterWrite() {
+        if (graph.pendingChanges() >= compactThreshold && compactionScheduled.compareAndSet(false, true)) {
+            compactor.execute(this::compact);
+        }
+    }
+
+    private void compact() {
+        compactionScheduled.set(false);
+        try {
+            graph.compact();
+        } catch (RuntimeException e) {
+            log.error("Friends graph compaction failed", e);
+        }
+    }
+
+    private Object writeStripe(long userId) {
+        long hash = userId * 0x9E3779B97F4A7C15L;
+        return writeStripes[(int) (hash >>> 58)];
+    }
+}
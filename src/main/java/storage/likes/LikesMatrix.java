@@ -0,0 +1,153 @@
+package storage.likes;
+
+import lombok.extern.slf4j.Slf4j;
+import storage.LikesStorage;
+import storage.graph.CsrAdjacency;
+import storage.graph.FriendsGraph;
+import util.LongArrayBuilder;
+import util.LongObjectHashMap;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongConsumer;
+
+/**
+ * User-to-films and film-to-users views of the likes table as sorted CSR rows. Like changes land in
+ * delta overlays and a background thread folds them into fresh CSR snapshots.
+ */
+@Slf4j
+public class LikesMatrix implements LikesStorage.LikeListener, AutoCloseable {
+
+    // FriendsGraph is a plain directed adjacency; here the edges are user -> film and film -> user.
+    private final FriendsGraph userFilms;
+    private final FriendsGraph filmUsers;
+    private final int compactThreshold;
+    private final ScheduledExecutorService compactor;
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+
+    public LikesMatrix(CsrAdjacency userFilms, CsrAdjacency filmUsers, int compactThreshold,
+                       Duration compactInterval) {
+        this.userFilms = new FriendsGraph(userFilms);
+        this.filmUsers = new FriendsGraph(filmUsers);
+        this.compactThreshold = compactThreshold;
+        this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "likes-matrix-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = compactInterval.toMillis();
+        compactor.scheduleWithFixedDelay(this::compact, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Must run before the storage takes writes: changes between the scan and the listener are not seen.
+    public static LikesMatrix load(LikesStorage likesStorage, int compactThreshold, Duration compactInterval) {
+        LongObjectHashMap<LongArrayBuilder> filmsByUser = new LongObjectHashMap<>();
+        LongObjectHashMap<LongArrayBuilder> usersByFilm = new LongObjectHashMap<>();
+        likesStorage.forEachLike((filmId, userId) -> {
+            rowFor(filmsByUser, userId).add(filmId);
+            rowFor(usersByFilm, filmId).add(userId);
+        });
+        LikesMatrix matrix = new LikesMatrix(toCsr(filmsByUser), toCsr(usersByFilm), compactThreshold,
+                compactInterval);
+        likesStorage.addLikeListener(matrix);
+        return matrix;
+    }
+
+    public long[] filmsOf(long userId) {
+        return userFilms.neighbours(userId);
+    }
+
+    public long[] usersOf(long filmId) {
+        return filmUsers.neighbours(filmId);
+    }
+
+    public void forEachFilmOf(long userId, LongConsumer consumer) {
+        userFilms.forEachNeighbour(userId, consumer);
+    }
+
+    @Override
+    public void onLikeChanged(long filmId, long userId, boolean liked) {
+        if (liked) {
+            userFilms.addEdge(userId, filmId);
+            filmUsers.addEdge(filmId, userId);
+        } else {
+            userFilms.removeEdge(userId, filmId);
+            filmUsers.removeEdge(filmId, userId);
+        }
+        afterChange();
+    }
+
+    // The storage no longer knows who liked the film, so the matrix's own row says which edges to drop.
+    @Override
+    public void onFilmRemoved(long filmId) {
+        for (long userId : filmUsers.neighbours(filmId)) {
+            userFilms.removeEdge(userId, filmId);
+            filmUsers.removeEdge(filmId, userId);
+        }
+        afterChange();
+    }
+
+    @Override
+    public void onUserRemoved(long userId) {
+        for (long filmId : userFilms.neighbours(userId)) {
+            userFilms.removeEdge(userId, filmId);
+            filmUsers.removeEdge(filmId, userId);
+        }
+        afterChange();
+    }
+
+    public int pendingChanges() {
+        return userFilms.pendingChanges();
+    }
+
+    public long likeCount() {
+        return userFilms.edgeCount();
+    }
+
+    @Override
+    public void close() {
+        compactor.shutdownNow();
+    }
+
+    private void afterChange() {
+        if (userFilms.pendingChanges() >= compactThreshold && compactionScheduled.compareAndSet(false, true)) {
+            compactor.execute(this::compact);
+        }
+    }
+
+    private void compact() {
+        compactionScheduled.set(false);
+        try {
+            userFilms.compact();
+            filmUsers.compact();
+        } catch (RuntimeException e) {
+            log.error("Likes matrix compaction failed", e);
+        }
+    }
+
+    private static LongArrayBuilder rowFor(LongObjectHashMap<LongArrayBuilder> rows, long node) {
+        LongArrayBuilder row = rows.get(node);
+        if (row == null) {
+            row = new LongArrayBuilder();
+            rows.put(node, row);
+        }
+        return row;
+    }
+
+    private static CsrAdjacency toCsr(LongObjectHashMap<LongArrayBuilder> rows) {
+        LongArrayBuilder nodes = new LongArrayBuilder(rows.size());
+        long[] edges = new long[1];
+        rows.forEach((node, row) -> {
+            nodes.add(node);
+            edges[0] += row.size();
+        });
+        CsrAdjacency.Builder builder = new CsrAdjacency.Builder(rows.size(), edges[0]);
+        for (long node : nodes.toSortedArray()) {
+            builder.addAll(node, rows.get(node).toSortedArray());
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,199 @@
+package storage.likes;
+
+import lombok.extern.slf4j.Slf4j;
+import storage.LikesStorage;
+import storage.db.LikesDbStorage;
+import storage.memory.InMemoryLikesStorage;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves likes and the popular ranking from an {@link InMemoryLikesStorage} and writes changes to
+ * the database in batches. Only the latest change per (film, user) pair is flushed, and a failed
+ * batch is re-queued unless a newer change for the same pair has arrived since.
+ */
+@Slf4j
+public class WriteBehindLikesStorage implements LikesStorage, AutoCloseable {
+
+    private final InMemoryLikesStorage index;
+    private final LikesDbStorage delegate;
+    private final int batchSize;
+    private final ScheduledExecutorService flusher;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final Object pendingLock = new Object();
+    private LinkedHashMap<LikeKey, Boolean> pending = new LinkedHashMap<>();
+
+    public WriteBehindLikesStorage(InMemoryLikesStorage index, LikesDbStorage delegate, int batchSize,
+                                   Duration flushInterval) {
+        this.index = index;
+        this.delegate = delegate;
+        this.batchSize = batchSize;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "likes-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = flushInterval.toMillis();
+        flusher.scheduleWithFixedDelay(this::scheduledFlush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        index.addLikeListener(this::enqueue);
+    }
+
+    @Override
+    public boolean addLike(long filmId, long userId) {
+        return index.addLike(filmId, userId);
+    }
+
+    @Override
+    public boolean removeLike(long filmId, long userId) {
+        return index.removeLike(filmId, userId);
+    }
+
+    @Override
+    public long getLikeCount(long filmId) {
+        return index.getLikeCount(filmId);
+    }
+
+    @Override
+    public long[] getPopularFilmIds(int count) {
+        return index.getPopularFilmIds(count);
+    }
+
+    // The film row is already gone and its likes with it; queued likes for it are dropped at flush.
+    @Override
+    public void removeFilm(long filmId) {
+        index.removeFilm(filmId);
+    }
+
+    // Same as for films: the user row took its likes with it.
+    @Override
+    public void removeUser(long userId) {
+        index.removeUser(userId);
+    }
+
+    @Override
+    public void forEachLike(LikeConsumer consumer) {
+        index.forEachLike(consumer);
+    }
+
+    @Override
+    public void addLikeListener(LikeListener listener) {
+        index.addLikeListener(listener);
+    }
+
+    public int getPendingCount() {
+        synchronized (pendingLock) {
+            return pending.size();
+        }
+    }
+
+    public long getFailedFlushes() {
+        return failedFlushes.get();
+    }
+
+    public synchronized void flush() {
+        Map<LikeKey, Boolean> batch;
+        synchronized (pendingLock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new LinkedHashMap<>();
+        }
+        flushChanges(batch, true);
+        flushChanges(batch, false);
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdownNow();
+        flush();
+    }
+
+    private void enqueue(long filmId, long userId, boolean liked) {
+        int size;
+        synchronized (pendingLock) {
+            pending.put(new LikeKey(filmId, userId), liked);
+            size = pending.size();
+        }
+        if (size >= batchSize && flushScheduled.compareAndSet(false, true)) {
+            flusher.execute(this::scheduledFlush);
+        }
+    }
+
+    private void scheduledFlush() {
+        flushScheduled.set(false);
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Likes flush failed", e);
+        }
+    }
+
+    private void flushChanges(Map<LikeKey, Boolean> batch, boolean liked) {
+        long[] filmIds = new long[batch.size()];
+        long[] userIds = new long[batch.size()];
+        int size = 0;
+        for (Map.Entry<LikeKey, Boolean> entry : batch.entrySet()) {
+            if (entry.getValue() == liked) {
+                filmIds[size] = entry.getKey().filmId;
+                userIds[size] = entry.getKey().userId;
+                size++;
+            }
+        }
+        if (size == 0) {
+            return;
+        }
+        try {
+            delegate.applyLikes(trim(filmIds, size), trim(userIds, size), liked);
+        } catch (RuntimeException e) {
+            failedFlushes.incrementAndGet();
+            log.warn("Likes flush of {} changes failed, re-queued", size, e);
+            synchronized (pendingLock) {
+                for (int i = 0; i < size; i++) {
+                    pending.putIfAbsent(new LikeKey(filmIds[i], userIds[i]), liked);
+                }
+            }
+        }
+    }
+
+    private static long[] trim(long[] values, int size) {
+        if (values.length == size) {
+            return values;
+        }
+        long[] trimmed = new long[size];
+        System.arraycopy(values, 0, trimmed, 0, size);
+        return trimmed;
+    }
+
+    private static final class LikeKey {
+
+        private final long filmId;
+        private final long userId;
+
+        LikeKey(long filmId, long userId) {
+            this.filmId = filmId;
+            this.userId = userId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            LikeKey likeKey = (LikeKey) o;
+            return filmId == likeKey.filmId && userId == likeKey.userId;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(filmId) + Long.hashCode(userId);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package storage.memory;
+
+import model.Film;
+import model.Genre;
+import storage.FilmDictionary;
+import storage.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class InMemoryFilmStorage implements FilmStorage {
+
+    private final FilmDictionary dictionary;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<Long, Film> films = new TreeMap<>();
+    private final AtomicLong idSequence = new AtomicLong();
+
+    public InMemoryFilmStorage(FilmDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public List<Film> getFilms() {
+        lock.readLock().lock();
+        try {
+            List<Film> result = new ArrayList<>(films.size());
+            films.values().forEach(film -> result.add(copy(film)));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Film> getFilms(long afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Film> result = new ArrayList<>(limit);
+            for (Film film : films.tailMap(afterId, false).values()) {
+                if (result.size() == limit) {
+                    break;
+                }
+                result.add(copy(film));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Film> getById(long id) {
+        lock.readLock().lock();
+        try {
+            Film film = films.get(id);
+            return Optional.ofNullable(film == null ? null : copy(film));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Film> getByIds(long[] ids) {
+        lock.readLock().lock();
+        try {
+            TreeMap<Long, Film> found = new TreeMap<>();
+            for (long id : ids) {
+                Film film = films.get(id);
+                if (film != null) {
+                    found.put(id, copy(film));
+                }
+            }
+            return new ArrayList<>(found.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Film add(Film film) {
+        checkConstraints(film, "add");
+        Film stored = normalize(film);
+        stored.setId(idSequence.incrementAndGet());
+        lock.writeLock().lock();
+        try {
+            films.put(stored.getId(), stored);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return copy(stored);
+    }
+
+    @Override
+    public Optional<Film> update(Film film) {
+        checkConstraints(film, "update");
+        Film stored = normalize(film);
+        lock.writeLock().lock();
+        try {
+            if (!films.containsKey(film.getId())) {
+                return Optional.empty();
+            }
+            films.put(film.getId(), stored);
+            return Optional.of(copy(stored));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(long filmId) {
+        lock.writeLock().lock();
+        try {
+            return films.remove(filmId) != null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clearFilms() {
+        lock.writeLock().lock();
+        try {
+            films.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Same constraints as the film table: NOT NULL name, duration_check and the mpa/genre foreign keys.
+    private void checkConstraints(Film film, String operation) {
+        boolean valid = film.getName() != null
+                && film.getDuration() > 0
+                && film.getMpa() != null
+                && dictionary.getMpa(film.getMpa().getId()).isPresent()
+                && (film.getGenres() == null
+                || film.getGenres().stream().allMatch(genre -> dictionary.getGenre(genre.getId()).isPresent()));
+        if (!valid) {
+            throw new RuntimeException(String.format("InMemoryFilmStorage: %s constraint violation.", operation));
+        }
+    }
+
+    private Film normalize(Film film) {
+        List<Genre> genres = new ArrayList<>();
+        if (film.getGenres() != null) {
+            film.getGenres().stream()
+                    .map(Genre::getId)
+                    .distinct()
+                    .sorted()
+                    .forEach(id -> dictionary.getGenre(id).ifPresent(genres::add));
+        }
+        return new Film(film.getId(), film.getName(), film.getDescription(), film.getReleaseDate(),
+                film.getDuration(), dictionary.getMpa(film.getMpa().getId()).orElseThrow(), genres);
+    }
+
+    private static Film copy(Film film) {
+        return new Film(film.getId(), film.getName(), film.getDescription(), film.getReleaseDate(),
+                film.getDuration(), film.getMpa(), new ArrayList<>(film.getGenres()));
+    }
+}
@@ -0,0 +1,238 @@
+package storage.memory;
+
+import model.FriendsBatchResult;
+import model.User;
+import storage.FriendsStorage;
+import util.LongArrayBuilder;
+import util.LongHashSet;
+import util.LongObjectHashMap;
+import util.SortedLongs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class InMemoryFriendsStorage implements FriendsStorage {
+
+    private static final int STRIPES = 16;
+    private static final long[] NO_FRIENDS = new long[0];
+
+    private final InMemoryUserStorage userStorage;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public InMemoryFriendsStorage(InMemoryUserStorage userStorage) {
+        this.userStorage = userStorage;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        userStorage.addRemovalListener(this::removeUserEdges);
+    }
+
+    @Override
+    public boolean addFriend(long userId, long friendId) {
+        // Same constraints as the friends table: both ends exist, no self-friendship, no duplicate edge.
+        if (userId == friendId || !userStorage.contains(userId) || !userStorage.contains(friendId)) {
+            throw new RuntimeException("InMemoryFriendsStorage: addFriend constraint violation.");
+        }
+        Stripe stripe = stripe(userId);
+        stripe.lock.writeLock().lock();
+        try {
+            LongHashSet friends = stripe.friends.get(userId);
+            if (friends == null) {
+                friends = new LongHashSet();
+                stripe.friends.put(userId, friends);
+            }
+            if (!friends.add(friendId)) {
+                throw new RuntimeException("InMemoryFriendsStorage: addFriend duplicate friend.");
+            }
+            stripe.versions.put(userId, userStorage.nextVersion());
+            return true;
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean removeFriend(long userId, long friendId) {
+        Stripe stripe = stripe(userId);
+        stripe.lock.writeLock().lock();
+        try {
+            LongHashSet friends = stripe.friends.get(userId);
+            if (friends == null || !friends.remove(friendId)) {
+                return false;
+            }
+            if (friends.isEmpty()) {
+                stripe.friends.remove(userId);
+            }
+            stripe.versions.put(userId, userStorage.nextVersion());
+            return true;
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public FriendsBatchResult addFriends(long userId, long[] friendIds) {
+        if (!userStorage.contains(userId)) {
+            throw new RuntimeException("InMemoryFriendsStorage: addFriends constraint violation.");
+        }
+        return applyBatch(userId, friendIds, true);
+    }
+
+    @Override
+    public FriendsBatchResult removeFriends(long userId, long[] friendIds) {
+        return applyBatch(userId, friendIds, false);
+    }
+
+    private FriendsBatchResult applyBatch(long userId, long[] friendIds, boolean add) {
+        LongHashSet requested = new LongHashSet(friendIds.length);
+        LongArrayBuilder known = new LongArrayBuilder(friendIds.length);
+        LongArrayBuilder duplicates = new LongArrayBuilder();
+        LongArrayBuilder unknown = new LongArrayBuilder();
+        for (long friendId : friendIds) {
+            if (!requested.add(friendId)) {
+                duplicates.add(friendId);
+            } else if (friendId == userId || !userStorage.contains(friendId)) {
+                unknown.add(friendId);
+            } else {
+                known.add(friendId);
+            }
+        }
+        LongArrayBuilder applied = new LongArrayBuilder(known.size());
+        Stripe stripe = stripe(userId);
+        stripe.lock.writeLock().lock();
+        try {
+            LongHashSet friends = stripe.friends.get(userId);
+            if (friends == null && add) {
+                friends = new LongHashSet(known.size());
+                stripe.friends.put(userId, friends);
+            }
+            for (long friendId : known.toArray()) {
+                boolean changed = friends != null && (add ? friends.add(friendId) : friends.remove(friendId));
+                if (changed) {
+                    applied.add(friendId);
+                } else {
+                    duplicates.add(friendId);
+                }
+            }
+            if (friends != null && friends.isEmpty()) {
+                stripe.friends.remove(userId);
+            }
+            if (applied.size() > 0) {
+                stripe.versions.put(userId, userStorage.nextVersion());
+            }
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+        return new FriendsBatchResult(applied.toSortedArray(), duplicates.toSortedArray(), unknown.toSortedArray());
+    }
+
+    @Override
+    public List<User> getFriends(long userId) {
+        return toUsers(getFriendIds(userId));
+    }
+
+    @Override
+    public long[] getFriendIds(long userId) {
+        Stripe stripe = stripe(userId);
+        stripe.lock.readLock().lock();
+        try {
+            LongHashSet friends = stripe.friends.get(userId);
+            return friends == null ? NO_FRIENDS : friends.toSortedArray();
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+    }
+
+    // Same rule as friends_version in the database: the newest of the list's own version and its members'.
+    @Override
+    public boolean isInMemory() {
+        return true;
+    }
+
+    @Override
+    public OptionalLong getFriendsVersion(long userId) {
+        if (!userStorage.contains(userId)) {
+            return OptionalLong.empty();
+        }
+        long version;
+        long[] friendIds;
+        Stripe stripe = stripe(userId);
+        stripe.lock.readLock().lock();
+        try {
+            Long listVersion = stripe.versions.get(userId);
+            version = listVersion == null ? 0 : listVersion;
+            LongHashSet friends = stripe.friends.get(userId);
+            friendIds = friends == null ? NO_FRIENDS : friends.toArray();
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+        for (long friendId : friendIds) {
+            version = Math.max(version, userStorage.getVersion(friendId).orElse(0));
+        }
+        return OptionalLong.of(version);
+    }
+
+    @Override
+    public List<User> getCommonFriends(long userId, long otherId) {
+        return toUsers(SortedLongs.intersect(getFriendIds(userId), getFriendIds(otherId)));
+    }
+
+    @Override
+    public List<User> getCommonFriends(long[] userIds) {
+        long[][] friendSets = new long[userIds.length][];
+        for (int i = 0; i < userIds.length; i++) {
+            friendSets[i] = getFriendIds(userIds[i]);
+            if (friendSets[i].length == 0) {
+                return new ArrayList<>();
+            }
+        }
+        return toUsers(SortedLongs.intersectAll(friendSets));
+    }
+
+    public void clearFriends() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.writeLock().lock();
+            try {
+                stripe.friends.forEach((owner, friends) -> stripe.versions.put(owner, userStorage.nextVersion()));
+                stripe.friends.clear();
+            } finally {
+                stripe.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private List<User> toUsers(long[] ids) {
+        return userStorage.getByIds(ids);
+    }
+
+    // ON DELETE CASCADE: removing a user drops both its own list and every edge pointing at it.
+    private void removeUserEdges(long userId) {
+        for (Stripe stripe : stripes) {
+            stripe.lock.writeLock().lock();
+            try {
+                stripe.friends.remove(userId);
+                stripe.versions.remove(userId);
+                stripe.friends.forEach((owner, friends) -> {
+                    if (friends.remove(userId)) {
+                        stripe.versions.put(owner, userStorage.nextVersion());
+                    }
+                });
+            } finally {
+                stripe.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private Stripe stripe(long id) {
+        return stripes[(int) (id ^ (id >>> 32)) & (STRIPES - 1)];
+    }
+
+    private static class Stripe {
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final LongObjectHashMap<LongHashSet> friends = new LongObjectHashMap<>();
+        private final LongObjectHashMap<Long> versions = new LongObjectHashMap<>();
+    }
+}
@@ -0,0 +1,179 @@
+package storage.memory;
+
+import storage.LikesStorage;
+import util.LongArrayBuilder;
+import util.LongHashSet;
+import util.LongObjectHashMap;
+import util.RankedCounts;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Likes striped by film id. Every change moves the film inside a {@link RankedCounts}, so the
+ * popular list is read straight off the ranking instead of counting likes per request.
+ */
+public class InMemoryLikesStorage implements LikesStorage {
+
+    private static final int STRIPES = 16;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final RankedCounts ranking = new RankedCounts();
+    private final List<LikeListener> listeners = new CopyOnWriteArrayList<>();
+
+    public InMemoryLikesStorage() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @Override
+    public boolean addLike(long filmId, long userId) {
+        Stripe stripe = stripe(filmId);
+        stripe.lock.writeLock().lock();
+        try {
+            LongHashSet users = stripe.likes.get(filmId);
+            if (users == null) {
+                users = new LongHashSet();
+                stripe.likes.put(filmId, users);
+            }
+            if (!users.add(userId)) {
+                return false;
+            }
+            ranking.update(filmId, users.size() - 1, users.size());
+            notifyListeners(filmId, userId, true);
+            return true;
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean removeLike(long filmId, long userId) {
+        Stripe stripe = stripe(filmId);
+        stripe.lock.writeLock().lock();
+        try {
+            LongHashSet users = stripe.likes.get(filmId);
+            if (users == null || !users.remove(userId)) {
+                return false;
+            }
+            if (users.isEmpty()) {
+                stripe.likes.remove(filmId);
+            }
+            ranking.update(filmId, users.size() + 1, users.size());
+            notifyListeners(filmId, userId, false);
+            return true;
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public long getLikeCount(long filmId) {
+        Stripe stripe = stripe(filmId);
+        stripe.lock.readLock().lock();
+        try {
+            LongHashSet users = stripe.likes.get(filmId);
+            return users == null ? 0 : users.size();
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long[] getPopularFilmIds(int count) {
+        return ranking.top(count);
+    }
+
+    // ON DELETE CASCADE for the film.
+    @Override
+    public void removeFilm(long filmId) {
+        Stripe stripe = stripe(filmId);
+        stripe.lock.writeLock().lock();
+        try {
+            LongHashSet users = stripe.likes.remove(filmId);
+            if (users != null) {
+                ranking.update(filmId, users.size(), 0);
+            }
+            for (LikeListener listener : listeners) {
+                listener.onFilmRemoved(filmId);
+            }
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    // ON DELETE CASCADE for the user.
+    @Override
+    public void removeUser(long userId) {
+        for (Stripe stripe : stripes) {
+            stripe.lock.writeLock().lock();
+            try {
+                LongArrayBuilder emptied = new LongArrayBuilder();
+                stripe.likes.forEach((filmId, users) -> {
+                    if (users.remove(userId)) {
+                        ranking.update(filmId, users.size() + 1, users.size());
+                        if (users.isEmpty()) {
+                            emptied.add(filmId);
+                        }
+                    }
+                });
+                for (long filmId : emptied.toArray()) {
+                    stripe.likes.remove(filmId);
+                }
+            } finally {
+                stripe.lock.writeLock().unlock();
+            }
+        }
+        for (LikeListener listener : listeners) {
+            listener.onUserRemoved(userId);
+        }
+    }
+
+    @Override
+    public void forEachLike(LikeConsumer consumer) {
+        for (Stripe stripe : stripes) {
+            stripe.lock.readLock().lock();
+            try {
+                stripe.likes.forEach((filmId, users) -> users.forEach(userId -> consumer.accept(filmId, userId)));
+            } finally {
+                stripe.lock.readLock().unlock();
+            }
+        }
+    }
+
+    // Listeners run under the film's stripe lock, so changes to one film reach them in the order applied.
+    @Override
+    public void addLikeListener(LikeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void clearLikes() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.writeLock().lock();
+            try {
+                stripe.likes.forEach((filmId, users) -> ranking.update(filmId, users.size(), 0));
+                stripe.likes.clear();
+            } finally {
+                stripe.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void notifyListeners(long filmId, long userId, boolean liked) {
+        for (LikeListener listener : listeners) {
+            listener.onLikeChanged(filmId, userId, liked);
+        }
+    }
+
+    private Stripe stripe(long id) {
+        return stripes[(int) (id ^ (id >>> 32)) & (STRIPES - 1)];
+    }
+
+    private static class Stripe {
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final LongObjectHashMap<LongHashSet> likes = new LongObjectHashMap<>();
+    }
+}
@@ -0,0 +1,297 @@
+package storage.memory;
+
+import model.BatchAddResult;
+import model.User;
+import storage.UserConstraints;
+import storage.UserStorage;
+import util.LongObjectHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+public class InMemoryUserStorage implements UserStorage {
+
+    private static final int STRIPES = 16;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final AtomicLong idSequence = new AtomicLong();
+    // Mirrors users_version_seq: user and friends-list versions come from one clock.
+    private final AtomicLong versionClock = new AtomicLong();
+    // Mirror users_email_index / users_login_index.
+    private final ConcurrentHashMap<String, Long> emailIndex = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> loginIndex = new ConcurrentHashMap<>();
+    private final List<LongConsumer> removalListeners = new CopyOnWriteArrayList<>();
+    // Ids in key order, so a keyset page walks only the rows it returns.
+    private final ConcurrentSkipListSet<Long> ids = new ConcurrentSkipListSet<>();
+
+    public InMemoryUserStorage() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @Override
+    public List<User> getUsers() {
+        List<User> users = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            stripe.lock.readLock().lock();
+            try {
+                stripe.users.forEachValue(user -> users.add(copy(user)));
+            } finally {
+                stripe.lock.readLock().unlock();
+            }
+        }
+        users.sort(Comparator.comparingLong(User::getId));
+        return users;
+    }
+
+    @Override
+    public List<User> getUsers(long afterId, int limit) {
+        List<User> page = new ArrayList<>(Math.min(limit, 1024));
+        Iterator<Long> after = ids.tailSet(afterId, false).iterator();
+        while (page.size() < limit && after.hasNext()) {
+            // An id removed since the iterator passed it is skipped like a row deleted mid-scan.
+            getById(after.next()).ifPresent(page::add);
+        }
+        return page;
+    }
+
+    @Override
+    public void forEachUser(Consumer<User> consumer) {
+        getUsers().forEach(consumer);
+    }
+
+    @Override
+    public Optional<User> getById(long id) {
+        Stripe stripe = stripe(id);
+        stripe.lock.readLock().lock();
+        try {
+            User user = stripe.users.get(id);
+            return Optional.ofNullable(user == null ? null : copy(user));
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public OptionalLong getVersion(long id) {
+        Stripe stripe = stripe(id);
+        stripe.lock.readLock().lock();
+        try {
+            User user = stripe.users.get(id);
+            return user == null ? OptionalLong.empty() : OptionalLong.of(user.getVersion());
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<User> getByIds(long[] ids) {
+        long[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        List<User> users = new ArrayList<>(sorted.length);
+        for (int i = 0; i < sorted.length; i++) {
+            if (i > 0 && sorted[i] == sorted[i - 1]) {
+                continue;
+            }
+            getById(sorted[i]).ifPresent(users::add);
+        }
+        return users;
+    }
+
+    @Override
+    public User add(User user) {
+        String error = UserConstraints.check(user);
+        if (error != null) {
+            throw violation("add", error);
+        }
+        long id = idSequence.incrementAndGet();
+        error = reserveUniqueColumns(null, user, id);
+        if (error != null) {
+            throw violation("add", error);
+        }
+        return store(user, id);
+    }
+
+    @Override
+    public BatchAddResult addBatch(List<User> users) {
+        BatchAddResult result = new BatchAddResult();
+        Set<String> batchEmails = new HashSet<>();
+        Set<String> batchLogins = new HashSet<>();
+        for (int row = 0; row < users.size(); row++) {
+            User user = users.get(row);
+            String error = UserConstraints.checkBatchRow(user, batchEmails, batchLogins);
+            if (error == null) {
+                long id = idSequence.incrementAndGet();
+                error = reserveUniqueColumns(null, user, id);
+                if (error == null) {
+                    result.addUser(store(user, id));
+                    continue;
+                }
+            }
+            result.addFailure(row, error);
+        }
+        return result;
+    }
+
+    @Override
+    public Optional<User> update(User user) {
+        String error = UserConstraints.check(user);
+        if (error != null) {
+            throw violation("update", error);
+        }
+        long id = user.getId();
+        Stripe stripe = stripe(id);
+        stripe.lock.writeLock().lock();
+        try {
+            User existing = stripe.users.get(id);
+            if (existing == null) {
+                return Optional.empty();
+            }
+            error = reserveUniqueColumns(existing, user, id);
+            if (error != null) {
+                throw violation("update", error);
+            }
+            User stored = copy(user);
+            stored.setVersion(nextVersion());
+            stripe.users.put(id, stored);
+            return Optional.of(copy(stored));
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(long userId) {
+        Stripe stripe = stripe(userId);
+        User removed;
+        stripe.lock.writeLock().lock();
+        try {
+            removed = stripe.users.remove(userId);
+            if (removed != null) {
+                emailIndex.remove(removed.getEmail(), userId);
+                loginIndex.remove(removed.getLogin(), userId);
+            }
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+        if (removed == null) {
+            return false;
+        }
+        ids.remove(userId);
+        removalListeners.forEach(listener -> listener.accept(userId));
+        return true;
+    }
+
+    public boolean contains(long id) {
+        Stripe stripe = stripe(id);
+        stripe.lock.readLock().lock();
+        try {
+            return stripe.users.containsKey(id);
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+    }
+
+    long nextVersion() {
+        return versionClock.incrementAndGet();
+    }
+
+    public void addRemovalListener(LongConsumer listener) {
+        removalListeners.add(listener);
+    }
+
+    public void clearUsers() {
+        for (Stripe stripe : stripes) {
+            long[] ids;
+            stripe.lock.readLock().lock();
+            try {
+                ids = new long[stripe.users.size()];
+                int[] index = {0};
+                stripe.users.forEach((id, user) -> ids[index[0]++] = id);
+            } finally {
+                stripe.lock.readLock().unlock();
+            }
+            for (long id : ids) {
+                remove(id);
+            }
+        }
+    }
+
+    private User store(User user, long id) {
+        User stored = copy(user);
+        stored.setId(id);
+        stored.setVersion(nextVersion());
+        Stripe stripe = stripe(id);
+        stripe.lock.writeLock().lock();
+        try {
+            stripe.users.put(id, stored);
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+        ids.add(id);
+        return copy(stored);
+    }
+
+    private static RuntimeException violation(String operation, String error) {
+        return new RuntimeException(String.format("InMemoryUserStorage: %s %s.", operation, error));
+    }
+
+    // Null when both columns are reserved for the id; otherwise nothing is reserved.
+    private String reserveUniqueColumns(User existing, User user, long id) {
+        String oldEmail = existing == null ? null : existing.getEmail();
+        String oldLogin = existing == null ? null : existing.getLogin();
+        boolean emailReserved = false;
+        if (!user.getEmail().equals(oldEmail)) {
+            if (emailIndex.putIfAbsent(user.getEmail(), id) != null) {
+                return UserConstraints.DUPLICATE_EMAIL;
+            }
+            emailReserved = true;
+        }
+        if (!user.getLogin().equals(oldLogin)) {
+            if (loginIndex.putIfAbsent(user.getLogin(), id) != null) {
+                if (emailReserved) {
+                    emailIndex.remove(user.getEmail(), id);
+                }
+                return UserConstraints.DUPLICATE_LOGIN;
+            }
+            if (oldLogin != null) {
+                loginIndex.remove(oldLogin, id);
+            }
+        }
+        if (emailReserved && oldEmail != null) {
+            emailIndex.remove(oldEmail, id);
+        }
+        return null;
+    }
+
+    private Stripe stripe(long id) {
+        return stripes[(int) (id ^ (id >>> 32)) & (STRIPES - 1)];
+    }
+
+    static User copy(User user) {
+        User copy = new User(user.getId(), user.getEmail(), user.getLogin(), user.getName(), user.getBirthday());
+        copy.setVersion(user.getVersion());
+        return copy;
+    }
+
+    private static class Stripe {
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final LongObjectHashMap<User> users = new LongObjectHashMap<>();
+    }
+}
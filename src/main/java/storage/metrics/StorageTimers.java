@@ -0,0 +1,15 @@
+package storage.metrics;
+
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+
+final class StorageTimers {
+
+    private StorageTimers() {
+    }
+
+    static LatencyHistogram timer(MetricsRegistry registry, String storage, String layer, String method) {
+        return registry.timer("storage_call_duration_seconds", "Latency of storage calls by storage, layer and method.",
+                "storage", storage, "layer", layer, "method", method);
+    }
+}
@@ -0,0 +1,143 @@
+package storage.metrics;
+
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+import model.FriendsBatchResult;
+import model.User;
+import storage.FriendsStorage;
+
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.function.LongConsumer;
+
+public class TimedFriendsStorage implements FriendsStorage {
+
+    private final FriendsStorage delegate;
+    private final LatencyHistogram addFriend;
+    private final LatencyHistogram removeFriend;
+    private final LatencyHistogram addFriends;
+    private final LatencyHistogram removeFriends;
+    private final LatencyHistogram getFriends;
+    private final LatencyHistogram getFriendIds;
+    private final LatencyHistogram getFriendsVersion;
+    private final LatencyHistogram getCommonFriends;
+    private final LatencyHistogram getGroupCommonFriends;
+
+    public TimedFriendsStorage(FriendsStorage delegate, MetricsRegistry registry, String layer) {
+        this.delegate = delegate;
+        this.addFriend = StorageTimers.timer(registry, "friends", layer, "addFriend");
+        this.removeFriend = StorageTimers.timer(registry, "friends", layer, "removeFriend");
+        this.addFriends = StorageTimers.timer(registry, "friends", layer, "addFriends");
+        this.removeFriends = StorageTimers.timer(registry, "friends", layer, "removeFriends");
+        this.getFriends = StorageTimers.timer(registry, "friends", layer, "getFriends");
+        this.getFriendIds = StorageTimers.timer(registry, "friends", layer, "getFriendIds");
+        this.getFriendsVersion = StorageTimers.timer(registry, "friends", layer, "getFriendsVersion");
+        this.getCommonFriends = StorageTimers.timer(registry, "friends", layer, "getCommonFriends");
+        this.getGroupCommonFriends = StorageTimers.timer(registry, "friends", layer, "getGroupCommonFriends");
+    }
+
+    @Override
+    public boolean addFriend(long userId, long friendId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.addFriend(userId, friendId);
+        } finally {
+            addFriend.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean removeFriend(long userId, long friendId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.removeFriend(userId, friendId);
+        } finally {
+            removeFriend.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public FriendsBatchResult addFriends(long userId, long[] friendIds) {
+        long start = System.nanoTime();
+        try {
+            return delegate.addFriends(userId, friendIds);
+        } finally {
+            addFriends.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public FriendsBatchResult removeFriends(long userId, long[] friendIds) {
+        long start = System.nanoTime();
+        try {
+            return delegate.removeFriends(userId, friendIds);
+        } finally {
+            removeFriends.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<User> getFriends(long userId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getFriends(userId);
+        } finally {
+            getFriends.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public long[] getFriendIds(long userId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getFriendIds(userId);
+        } finally {
+            getFriendIds.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void forEachFriendId(long userId, LongConsumer consumer) {
+        long start = System.nanoTime();
+        try {
+            delegate.forEachFriendId(userId, consumer);
+        } finally {
+            getFriendIds.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean isInMemory() {
+        return delegate.isInMemory();
+    }
+
+    @Override
+    public OptionalLong getFriendsVersion(long userId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getFriendsVersion(userId);
+        } finally {
+            getFriendsVersion.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<User> getCommonFriends(long userId, long otherId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getCommonFriends(userId, otherId);
+        } finally {
+            getCommonFriends.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<User> getCommonFriends(long[] userIds) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getCommonFriends(userIds);
+        } finally {
+            getGroupCommonFriends.record(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package storage.metrics;
+
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+import model.BatchAddResult;
+import model.User;
+import storage.UserStorage;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
+
+/**
+ * Records the latency of every call into the wrapped storage, labelled with its layer
+ * (db, cache, memory) so a slow endpoint can be traced to the tier that spent the time.
+ */
+public class TimedUserStorage implements UserStorage {
+
+    private final UserStorage delegate;
+    private final LatencyHistogram getUsers;
+    private final LatencyHistogram getUsersPage;
+    private final LatencyHistogram forEachUser;
+    private final LatencyHistogram getById;
+    private final LatencyHistogram getVersion;
+    private final LatencyHistogram getByIds;
+    private final LatencyHistogram add;
+    private final LatencyHistogram addBatch;
+    private final LatencyHistogram update;
+    private final LatencyHistogram remove;
+
+    public TimedUserStorage(UserStorage delegate, MetricsRegistry registry, String layer) {
+        this.delegate = delegate;
+        this.getUsers = StorageTimers.timer(registry, "user", layer, "getUsers");
+        this.getUsersPage = StorageTimers.timer(registry, "user", layer, "getUsersPage");
+        this.forEachUser = StorageTimers.timer(registry, "user", layer, "forEachUser");
+        this.getById = StorageTimers.timer(registry, "user", layer, "getById");
+        this.getVersion = StorageTimers.timer(registry, "user", layer, "getVersion");
+        this.getByIds = StorageTimers.timer(registry, "user", layer, "getByIds");
+        this.add = StorageTimers.timer(registry, "user", layer, "add");
+        this.addBatch = StorageTimers.timer(registry, "user", layer, "addBatch");
+        this.update = StorageTimers.timer(registry, "user", layer, "update");
+        this.remove = StorageTimers.timer(registry, "user", layer, "remove");
+    }
+
+    @Override
+    public List<User> getUsers() {
+        long start = System.nanoTime();
+        try {
+            return delegate.getUsers();
+        } finally {
+            getUsers.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<User> getUsers(long afterId, int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getUsers(afterId, limit);
+        } finally {
+            getUsersPage.record(System.nanoTime() - start);
+        }
+    }
+
+    // Includes the consumer's time: rows are streamed to it while the cursor is open.
+    @Override
+    public void forEachUser(Consumer<User> consumer) {
+        long start = System.nanoTime();
+        try {
+            delegate.forEachUser(consumer);
+        } finally {
+            forEachUser.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Optional<User> getById(long id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getById(id);
+        } finally {
+            getById.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public OptionalLong getVersion(long id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getVersion(id);
+        } finally {
+            getVersion.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<User> getByIds(long[] ids) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getByIds(ids);
+        } finally {
+            getByIds.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public User add(User user) {
+        long start = System.nanoTime();
+        try {
+            return delegate.add(user);
+        } finally {
+            add.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public BatchAddResult addBatch(List<User> users) {
+        long start = System.nanoTime();
+        try {
+            return delegate.addBatch(users);
+        } finally {
+            addBatch.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Optional<User> update(User user) {
+        long start = System.nanoTime();
+        try {
+            return delegate.update(user);
+        } finally {
+            update.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean remove(long userId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.remove(userId);
+        } finally {
+            remove.record(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package storage.pool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+@FunctionalInterface
+public interface ConnectionFactory {
+
+    Connection create() throws SQLException;
+}
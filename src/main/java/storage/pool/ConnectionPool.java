@@ -0,0 +1,246 @@
+package storage.pool;
+
+import lombok.extern.slf4j.Slf4j;
+import metrics.LatencyHistogram;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+@Slf4j
+public class ConnectionPool implements DataSource, AutoCloseable {
+
+    // A connection returned this recently was healthy a moment ago; skip the validation round trip.
+    private static final long VALIDATION_BYPASS_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final long WAIT_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final ConnectionFactory factory;
+    private final PoolConfig config;
+
+    // LIFO: the most recently returned connection is borrowed first, so cold ones age out at the tail.
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final LatencyHistogram acquireLatency = new LatencyHistogram();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder destroyed = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final StatementCache.Counters statementCounters = new StatementCache.Counters();
+
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    public ConnectionPool(ConnectionFactory factory, PoolConfig config) {
+        config.validate();
+        this.factory = factory;
+        this.config = config;
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0, config.getEvictionIntervalMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("ConnectionPool: pool is closed.");
+        }
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(config.getAcquireTimeoutMillis());
+        while (true) {
+            PooledConnection pooled = idle.pollFirst();
+            if (pooled == null) {
+                if (reserveSlot()) {
+                    pooled = createConnection();
+                } else {
+                    pooled = awaitIdle(deadline);
+                }
+            } else if (!validate(pooled)) {
+                destroy(pooled);
+                continue;
+            }
+            active.incrementAndGet();
+            acquireLatency.record(System.nanoTime() - start);
+            return pooled.borrow();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("ConnectionPool: per-call credentials are not supported.");
+    }
+
+    public PoolStats getStats() {
+        return new PoolStats(total.get(), active.get(), idle.size(), waiting.get(),
+                created.sum(), destroyed.sum(), timeouts.sum(), acquireLatency.getCount(),
+                acquireLatency.valueAtPercentile(50, TimeUnit.MILLISECONDS),
+                acquireLatency.valueAtPercentile(99, TimeUnit.MILLISECONDS),
+                (double) acquireLatency.getMaxNanos() / TimeUnit.MILLISECONDS.toNanos(1),
+                statementCounters.hits.sum(), statementCounters.misses.sum(), statementCounters.evictions.sum());
+    }
+
+    public LatencyHistogram getAcquireLatency() {
+        return acquireLatency;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    void release(PooledConnection pooled) {
+        active.decrementAndGet();
+        if (closed || !pooled.reset()) {
+            destroy(pooled);
+            return;
+        }
+        pooled.touch();
+        idle.offerFirst(pooled);
+    }
+
+    private PooledConnection awaitIdle(long deadline) throws SQLException {
+        waiting.incrementAndGet();
+        try {
+            while (true) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    timeouts.increment();
+                    throw new SQLTimeoutException(String.format(
+                            "ConnectionPool: no connection available within %s ms (active=%s, max=%s).",
+                            config.getAcquireTimeoutMillis(), active.get(), config.getMaxSize()));
+                }
+                // A connection destroyed on return or evicted frees a slot without waking the deque.
+                if (reserveSlot()) {
+                    return createConnection();
+                }
+                PooledConnection pooled = idle.pollFirst(Math.min(remaining, WAIT_SLICE_NANOS),
+                        TimeUnit.NANOSECONDS);
+                if (pooled == null) {
+                    continue;
+                }
+                if (validate(pooled)) {
+                    return pooled;
+                }
+                destroy(pooled);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("ConnectionPool: interrupted while waiting for a connection.", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    private boolean reserveSlot() {
+        int current;
+        do {
+            current = total.get();
+            if (current >= config.getMaxSize()) {
+                return false;
+            }
+        } while (!total.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private PooledConnection createConnection() throws SQLException {
+        try {
+            Connection connection = factory.create();
+            if (connection == null) {
+                throw new SQLException("ConnectionPool: connection factory returned null.");
+            }
+            created.increment();
+            return new PooledConnection(this, connection,
+                    new StatementCache(config.getStatementCacheSize(), statementCounters));
+        } catch (SQLException | RuntimeException e) {
+            total.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private boolean validate(PooledConnection pooled) {
+        return !config.isValidateOnBorrow()
+                || pooled.idleNanos() < VALIDATION_BYPASS_NANOS
+                || pooled.isValid(config.getValidationTimeoutSeconds());
+    }
+
+    private void destroy(PooledConnection pooled) {
+        total.decrementAndGet();
+        destroyed.increment();
+        pooled.closePhysical();
+    }
+
+    private void housekeep() {
+        try {
+            long idleTimeout = TimeUnit.MILLISECONDS.toNanos(config.getIdleTimeoutMillis());
+            Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+            while (oldestFirst.hasNext() && total.get() > config.getMinIdle()) {
+                PooledConnection pooled = oldestFirst.next();
+                if (pooled.idleNanos() > idleTimeout && idle.remove(pooled)) {
+                    destroy(pooled);
+                }
+            }
+            while (!closed && idle.size() < config.getMinIdle() && reserveSlot()) {
+                idle.offerLast(createConnection());
+            }
+        } catch (SQLException | RuntimeException e) {
+            log.warn("ConnectionPool: housekeeping failed: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> type) throws SQLException {
+        if (type.isInstance(this)) {
+            return type.cast(this);
+        }
+        throw new SQLException("ConnectionPool: not a wrapper for " + type.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> type) {
+        return type.isInstance(this);
+    }
+}
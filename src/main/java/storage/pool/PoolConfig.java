@@ -0,0 +1,107 @@
+package storage.pool;
+
+public class PoolConfig {
+
+    private static final String PREFIX = "db.pool.";
+
+    private int minIdle = 2;
+    private int maxSize = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private long acquireTimeoutMillis = 5_000;
+    private long idleTimeoutMillis = 600_000;
+    private long evictionIntervalMillis = 30_000;
+    private boolean validateOnBorrow = true;
+    private int validationTimeoutSeconds = 2;
+    private int statementCacheSize = 64;
+
+    public static PoolConfig fromSystemProperties() {
+        PoolConfig config = new PoolConfig();
+        config.setMinIdle(Integer.getInteger(PREFIX + "minIdle", config.getMinIdle()));
+        config.setMaxSize(Integer.getInteger(PREFIX + "maxSize", config.getMaxSize()));
+        config.setAcquireTimeoutMillis(Long.getLong(PREFIX + "acquireTimeoutMillis",
+                config.getAcquireTimeoutMillis()));
+        config.setIdleTimeoutMillis(Long.getLong(PREFIX + "idleTimeoutMillis", config.getIdleTimeoutMillis()));
+        config.setEvictionIntervalMillis(Long.getLong(PREFIX + "evictionIntervalMillis",
+                config.getEvictionIntervalMillis()));
+        config.setValidateOnBorrow(Boolean.parseBoolean(System.getProperty(PREFIX + "validateOnBorrow",
+                String.valueOf(config.isValidateOnBorrow()))));
+        config.setValidationTimeoutSeconds(Integer.getInteger(PREFIX + "validationTimeoutSeconds",
+                config.getValidationTimeoutSeconds()));
+        config.setStatementCacheSize(Integer.getInteger(PREFIX + "statementCacheSize",
+                config.getStatementCacheSize()));
+        return config;
+    }
+
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    public void setMinIdle(int minIdle) {
+        this.minIdle = minIdle;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public long getAcquireTimeoutMillis() {
+        return acquireTimeoutMillis;
+    }
+
+    public void setAcquireTimeoutMillis(long acquireTimeoutMillis) {
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public long getEvictionIntervalMillis() {
+        return evictionIntervalMillis;
+    }
+
+    public void setEvictionIntervalMillis(long evictionIntervalMillis) {
+        this.evictionIntervalMillis = evictionIntervalMillis;
+    }
+
+    public boolean isValidateOnBorrow() {
+        return validateOnBorrow;
+    }
+
+    public void setValidateOnBorrow(boolean validateOnBorrow) {
+        this.validateOnBorrow = validateOnBorrow;
+    }
+
+    public int getValidationTimeoutSeconds() {
+        return validationTimeoutSeconds;
+    }
+
+    public void setValidationTimeoutSeconds(int validationTimeoutSeconds) {
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    void validate() {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool maxSize must be positive: " + maxSize);
+        }
+        if (minIdle < 0 || minIdle > maxSize) {
+            throw new IllegalArgumentException(
+                    String.format("Pool minIdle must be between 0 and maxSize=%s: %s", maxSize, minIdle));
+        }
+    }
+}
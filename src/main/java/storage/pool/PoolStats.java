@@ -0,0 +1,119 @@
+package storage.pool;
+
+public class PoolStats {
+
+    private final int total;
+    private final int active;
+    private final int idle;
+    private final int waiting;
+    private final long created;
+    private final long destroyed;
+    private final long timeouts;
+    private final long acquired;
+    private final double acquireP50Millis;
+    private final double acquireP99Millis;
+    private final double acquireMaxMillis;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+    private final long statementCacheEvictions;
+
+    public PoolStats(int total, int active, int idle, int waiting, long created, long destroyed, long timeouts,
+                     long acquired, double acquireP50Millis, double acquireP99Millis, double acquireMaxMillis,
+                     long statementCacheHits, long statementCacheMisses, long statementCacheEvictions) {
+        this.total = total;
+        this.active = active;
+        this.idle = idle;
+        this.waiting = waiting;
+        this.created = created;
+        this.destroyed = destroyed;
+        this.timeouts = timeouts;
+        this.acquired = acquired;
+        this.acquireP50Millis = acquireP50Millis;
+        this.acquireP99Millis = acquireP99Millis;
+        this.acquireMaxMillis = acquireMaxMillis;
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+        this.statementCacheEvictions = statementCacheEvictions;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    public int getWaiting() {
+        return waiting;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public long getDestroyed() {
+        return destroyed;
+    }
+
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    public long getAcquired() {
+        return acquired;
+    }
+
+    public double getAcquireP50Millis() {
+        return acquireP50Millis;
+    }
+
+    public double getAcquireP99Millis() {
+        return acquireP99Millis;
+    }
+
+    public double getAcquireMaxMillis() {
+        return acquireMaxMillis;
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits;
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses;
+    }
+
+    public long getStatementCacheEvictions() {
+        return statementCacheEvictions;
+    }
+
+    public double getStatementCacheHitRate() {
+        long lookups = statementCacheHits + statementCacheMisses;
+        return lookups == 0 ? 0.0 : (double) statementCacheHits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolStats{" +
+                "total=" + total +
+                ", active=" + active +
+                ", idle=" + idle +
+                ", waiting=" + waiting +
+                ", created=" + created +
+                ", destroyed=" + destroyed +
+                ", timeouts=" + timeouts +
+                ", acquired=" + acquired +
+                ", acquireP50Millis=" + acquireP50Millis +
+                ", acquireP99Millis=" + acquireP99Millis +
+                ", acquireMaxMillis=" + acquireMaxMillis +
+                ", statementCacheHits=" + statementCacheHits +
+                ", statementCacheMisses=" + statementCacheMisses +
+                ", statementCacheEvictions=" + statementCacheEvictions +
+                '}';
+    }
+}
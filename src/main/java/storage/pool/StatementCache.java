@@ -0,0 +1,177 @@
+package storage.pool;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Owned by one physical connection, which is only ever used by the thread that borrowed it.
+class StatementCache {
+
+    private final int maxSize;
+    private final Counters counters;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(int maxSize, Counters counters) {
+        this.maxSize = maxSize;
+        this.counters = counters;
+    }
+
+    PreparedStatement prepare(Connection physical, String sql) throws SQLException {
+        Entry entry = entries.get(sql);
+        if (entry != null && !entry.leased) {
+            counters.hits.increment();
+            return entry.lease();
+        }
+        counters.misses.increment();
+        PreparedStatement statement = physical.prepareStatement(sql);
+        if (entry != null || maxSize <= 0 || (entries.size() >= maxSize && !evictLeastRecentlyUsed())) {
+            return statement;
+        }
+        entry = new Entry(sql, statement);
+        entries.put(sql, entry);
+        return entry.lease();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    void closeAll() {
+        for (Entry entry : entries.values()) {
+            closeQuietly(entry.statement);
+        }
+        entries.clear();
+    }
+
+    private boolean evictLeastRecentlyUsed() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (!entry.leased) {
+                iterator.remove();
+                closeQuietly(entry.statement);
+                counters.evictions.increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void discard(Entry entry) {
+        entries.remove(entry.sql, entry);
+        closeQuietly(entry.statement);
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+        }
+    }
+
+    static class Counters {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder evictions = new LongAdder();
+    }
+
+    private class Entry {
+
+        private final String sql;
+        private final PreparedStatement statement;
+        private boolean leased;
+
+        Entry(String sql, PreparedStatement statement) {
+            this.sql = sql;
+            this.statement = statement;
+        }
+
+        PreparedStatement lease() {
+            leased = true;
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, new Lease());
+        }
+
+        // Closing a lease closes its result set and hands the physical statement back to the cache.
+        private class Lease implements InvocationHandler {
+
+            private ResultSet resultSet;
+            private boolean closed;
+            // Set once the borrower changes a statement property that would leak into the next lease.
+            private boolean tuned;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        close();
+                        return null;
+                    case "isClosed":
+                        return closed;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "Cached" + statement;
+                    case "setFetchSize":
+                    case "setMaxRows":
+                    case "setQueryTimeout":
+                        tuned = true;
+                        break;
+                    default:
+                        break;
+                }
+                if (closed) {
+                    throw new SQLException("StatementCache: statement is closed.");
+                }
+                Object result;
+                try {
+                    result = method.invoke(statement, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if (result instanceof ResultSet) {
+                    if (resultSet != null && resultSet != result) {
+                        closeQuietly(resultSet);
+                    }
+                    resultSet = (ResultSet) result;
+                }
+                return result;
+            }
+
+            private void close() {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    if (resultSet != null) {
+                        resultSet.close();
+                        resultSet = null;
+                    }
+                    statement.clearParameters();
+                    statement.clearBatch();
+                    if (tuned) {
+                        // JDBC defaults: driver-chosen fetch size, no row limit, no timeout.
+                        statement.setFetchSize(0);
+                        statement.setMaxRows(0);
+                        statement.setQueryTimeout(0);
+                    }
+                    leased = false;
+                } catch (SQLException e) {
+                    discard(Entry.this);
+                }
+            }
+        }
+    }
+}
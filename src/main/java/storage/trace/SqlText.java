@@ -0,0 +1,77 @@
+package storage.trace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// SQL text helpers for the tracer; both run once per distinct statement, not per execution.
+final class SqlText {
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w$.])-?\\d+(?:\\.\\d+)?(?![\\w$])");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    // "email = ?", "login<>?", "email = ANY(?)" - the column a placeholder is compared against.
+    private static final Pattern COMPARED_COLUMN = Pattern.compile(
+            "(?i)(?:\\w+\\.)?(\\w+)\\s*(?:=|<>|!=|<=|>=|<|>|\\bLIKE\\b|\\bILIKE\\b)\\s*(?:ANY\\s*\\(\\s*)?$");
+    private static final Pattern INSERT_COLUMNS = Pattern.compile(
+            "(?is)^\\s*INSERT\\s+INTO\\s+[\\w.]+\\s*\\(([^)]*)\\)");
+
+    private SqlText() {
+    }
+
+    // Literals become placeholders and IN lists collapse, so statements differing only in values share stats.
+    static String normalize(String sql) {
+        String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = IN_LIST.matcher(normalized).replaceAll("IN (?)");
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    }
+
+    // Marks, by 1-based parameter index, the placeholders bound to one of the redacted columns.
+    static boolean[] redactionMask(String sql, Set<String> redactedColumns) {
+        List<Integer> placeholders = placeholderOffsets(sql);
+        boolean[] mask = new boolean[placeholders.size() + 1];
+        if (redactedColumns.isEmpty()) {
+            return mask;
+        }
+        for (int i = 0; i < placeholders.size(); i++) {
+            Matcher matcher = COMPARED_COLUMN.matcher(sql.substring(0, placeholders.get(i)));
+            if (matcher.find() && redactedColumns.contains(matcher.group(1).toLowerCase(Locale.ROOT))) {
+                mask[i + 1] = true;
+            }
+        }
+        // INSERT INTO t (a, b) VALUES (?, ?) or SELECT FROM unnest(?, ?): placeholders follow the column list.
+        Matcher insert = INSERT_COLUMNS.matcher(sql);
+        if (insert.find()) {
+            String[] columns = insert.group(1).split(",");
+            int first = 0;
+            while (first < placeholders.size() && placeholders.get(first) < insert.end()) {
+                first++;
+            }
+            for (int i = 0; i < columns.length && first + i < placeholders.size(); i++) {
+                if (redactedColumns.contains(columns[i].trim().toLowerCase(Locale.ROOT))) {
+                    mask[first + i + 1] = true;
+                }
+            }
+        }
+        return mask;
+    }
+
+    private static List<Integer> placeholderOffsets(String sql) {
+        List<Integer> offsets = new ArrayList<>();
+        boolean quoted = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (c == '?' && !quoted) {
+                offsets.add(i);
+            }
+        }
+        return offsets;
+    }
+}
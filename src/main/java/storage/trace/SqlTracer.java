@@ -0,0 +1,215 @@
+package storage.trace;
+
+import lombok.extern.slf4j.Slf4j;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+
+import java.lang.reflect.Array;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects per-statement execution stats from {@link TracingDataSource} and logs statements
+ * slower than the threshold with their bind parameters. Parameters bound to a redacted column
+ * are never logged; other values are truncated.
+ */
+@Slf4j
+public class SqlTracer {
+
+    private static final String PREFIX = "db.trace.";
+    private static final int MAX_LOGGED_VALUE_LENGTH = 64;
+    private static final int MAX_LOGGED_ARRAY_ELEMENTS = 8;
+
+    private final long slowQueryNanos;
+    private final int maxStatements;
+    private final Set<String> redactedColumns;
+    private final boolean logParameters;
+
+    private final ConcurrentHashMap<String, StatementStats> statements = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, TracedSql> bySql = new ConcurrentHashMap<>();
+    // Dynamic SQL past the statement limit is still counted, just not per statement.
+    private volatile StatementStats overflow = new StatementStats("(other statements)");
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder slowQueries = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    public SqlTracer(Duration slowQueryThreshold, int maxStatements, Set<String> redactedColumns,
+                     boolean logParameters) {
+        if (maxStatements < 1) {
+            throw new IllegalArgumentException("maxStatements must be positive: " + maxStatements);
+        }
+        this.slowQueryNanos = slowQueryThreshold.toNanos();
+        this.maxStatements = maxStatements;
+        this.redactedColumns = new HashSet<>();
+        for (String column : redactedColumns) {
+            this.redactedColumns.add(column.trim().toLowerCase(Locale.ROOT));
+        }
+        this.logParameters = logParameters;
+    }
+
+    public static SqlTracer fromSystemProperties() {
+        String redact = System.getProperty(PREFIX + "redactColumns", "email,password");
+        return new SqlTracer(Duration.ofMillis(Long.getLong(PREFIX + "slowQueryMillis", 200)),
+                Integer.getInteger(PREFIX + "maxStatements", 500),
+                redact.isBlank() ? Collections.emptySet() : new HashSet<>(Arrays.asList(redact.split(","))),
+                Boolean.parseBoolean(System.getProperty(PREFIX + "logParameters", "true")));
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty(PREFIX + "enabled", "true"));
+    }
+
+    public enum Order {
+        TOTAL(Comparator.comparingDouble(StatementStats::getTotalMillis)),
+        MEAN(Comparator.comparingDouble(StatementStats::getMeanMillis)),
+        P99(Comparator.comparingDouble(StatementStats::getP99Millis)),
+        MAX(Comparator.comparingDouble(StatementStats::getMaxMillis)),
+        COUNT(Comparator.comparingLong(StatementStats::getCount));
+
+        private final Comparator<StatementStats> slowestFirst;
+
+        Order(Comparator<StatementStats> ascending) {
+            this.slowestFirst = ascending.reversed().thenComparing(StatementStats::getSql);
+        }
+    }
+
+    public List<StatementStats> top(int limit, Order order) {
+        List<StatementStats> all = new ArrayList<>(statements.values());
+        StatementStats other = overflow;
+        if (other.getCount() > 0) {
+            all.add(other);
+        }
+        all.sort(order.slowestFirst);
+        return all.subList(0, Math.min(limit, all.size()));
+    }
+
+    public void reset() {
+        bySql.clear();
+        statements.clear();
+        overflow = new StatementStats("(other statements)");
+    }
+
+    public Duration getSlowQueryThreshold() {
+        return Duration.ofNanos(slowQueryNanos);
+    }
+
+    public void registerMetrics(MetricsRegistry registry) {
+        registry.timer("db_statement_duration_seconds", "Statement execute plus fetch time.", latency);
+        registry.counterFunction("db_slow_statements_total", "Statements over the slow query threshold.",
+                slowQueries::sum);
+        registry.counterFunction("db_statement_errors_total", "Statements that failed with an SQLException.",
+                errors::sum);
+        registry.gauge("db_traced_statements", "Distinct normalized statements being tracked.", statements::size);
+    }
+
+    TracedSql lookup(String sql) {
+        TracedSql traced = bySql.get(sql);
+        if (traced != null) {
+            return traced;
+        }
+        traced = new TracedSql(sql, statsFor(SqlText.normalize(sql)), SqlText.redactionMask(sql, redactedColumns));
+        if (bySql.size() < maxStatements * 2) {
+            bySql.putIfAbsent(sql, traced);
+        }
+        return traced;
+    }
+
+    // Parameters are 1-based: parameters[1..parameterCount] as bound on the statement.
+    void record(TracedSql traced, long executeNanos, long fetchNanos, long rows, Object[] parameters,
+                int parameterCount, SQLException failure) {
+        long totalNanos = executeNanos + fetchNanos;
+        boolean slow = totalNanos >= slowQueryNanos;
+        traced.stats.record(executeNanos, fetchNanos, rows, failure != null, slow);
+        latency.record(totalNanos);
+        if (failure != null) {
+            errors.increment();
+        }
+        if (slow) {
+            slowQueries.increment();
+            log.warn("Slow query: {} ms (execute {} ms, fetch {} ms), {} rows{}: {} parameters: {}",
+                    toMillis(totalNanos), toMillis(executeNanos), toMillis(fetchNanos), rows,
+                    failure == null ? "" : ", failed with " + failure.getSQLState(),
+                    traced.stats.getSql(), describeParameters(traced, parameters, parameterCount));
+        }
+    }
+
+    String describeParameters(TracedSql traced, Object[] parameters, int parameterCount) {
+        if (!logParameters) {
+            return "(not logged)";
+        }
+        StringBuilder described = new StringBuilder("[");
+        for (int i = 1; i <= parameterCount; i++) {
+            if (described.length() > 1) {
+                described.append(", ");
+            }
+            described.append(i).append('=');
+            if (traced.isRedacted(i)) {
+                described.append("<redacted>");
+            } else {
+                appendValue(described, parameters[i]);
+            }
+        }
+        return described.append(']').toString();
+    }
+
+    private StatementStats statsFor(String normalized) {
+        StatementStats stats = statements.get(normalized);
+        if (stats != null) {
+            return stats;
+        }
+        if (statements.size() >= maxStatements) {
+            return overflow;
+        }
+        return statements.computeIfAbsent(normalized, StatementStats::new);
+    }
+
+    private static void appendValue(StringBuilder out, Object value) {
+        if (value == null) {
+            out.append("null");
+        } else if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            out.append(value.getClass().getComponentType().getSimpleName()).append('[').append(length).append("]{");
+            for (int i = 0; i < Math.min(length, MAX_LOGGED_ARRAY_ELEMENTS); i++) {
+                if (i > 0) {
+                    out.append(", ");
+                }
+                appendValue(out, Array.get(value, i));
+            }
+            out.append(length > MAX_LOGGED_ARRAY_ELEMENTS ? ", ...}" : "}");
+        } else if (value instanceof java.sql.Array) {
+            // Driver arrays render their full contents; the element type is enough to identify the call.
+            try {
+                out.append("array<").append(((java.sql.Array) value).getBaseTypeName()).append('>');
+            } catch (SQLException e) {
+                out.append("array");
+            }
+        } else if (value instanceof CharSequence) {
+            String text = value.toString();
+            out.append('\'');
+            if (text.length() > MAX_LOGGED_VALUE_LENGTH) {
+                out.append(text, 0, MAX_LOGGED_VALUE_LENGTH).append("...");
+            } else {
+                out.append(text);
+            }
+            out.append('\'');
+        } else {
+            out.append(value);
+        }
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round((double) nanos / TimeUnit.MILLISECONDS.toNanos(1) * 100) / 100.0;
+    }
+}
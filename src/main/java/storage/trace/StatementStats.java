@@ -0,0 +1,89 @@
+package storage.trace;
+
+import metrics.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals for one normalized statement. Updated lock-free by every execution and
+ * read without coordination by the admin endpoint, so a snapshot may be a few executions behind.
+ */
+public class StatementStats {
+
+    private final String sql;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder executeNanos = new LongAdder();
+    private final LongAdder fetchNanos = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder slow = new LongAdder();
+
+    StatementStats(String sql) {
+        this.sql = sql;
+    }
+
+    void record(long executeNanos, long fetchNanos, long rows, boolean failed, boolean slow) {
+        latency.record(executeNanos + fetchNanos);
+        this.executeNanos.add(executeNanos);
+        this.fetchNanos.add(fetchNanos);
+        if (rows > 0) {
+            this.rows.add(rows);
+        }
+        if (failed) {
+            errors.increment();
+        }
+        if (slow) {
+            this.slow.increment();
+        }
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getSlowCount() {
+        return slow.sum();
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    public double getTotalMillis() {
+        return toMillis(latency.getTotalNanos());
+    }
+
+    public double getExecuteMillis() {
+        return toMillis(executeNanos.sum());
+    }
+
+    public double getFetchMillis() {
+        return toMillis(fetchNanos.sum());
+    }
+
+    public double getMeanMillis() {
+        long count = latency.getCount();
+        return count == 0 ? 0 : toMillis(latency.getTotalNanos()) / count;
+    }
+
+    public double getP99Millis() {
+        return latency.valueAtPercentile(99, TimeUnit.MILLISECONDS);
+    }
+
+    public double getMaxMillis() {
+        return toMillis(latency.getMaxNanos());
+    }
+
+    private static double toMillis(long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,19 @@
+package storage.trace;
+
+// A distinct SQL string as prepared by the caller, resolved once to its normalized stats.
+final class TracedSql {
+
+    final String sql;
+    final StatementStats stats;
+    private final boolean[] redactionMask;
+
+    TracedSql(String sql, StatementStats stats, boolean[] redactionMask) {
+        this.sql = sql;
+        this.stats = stats;
+        this.redactionMask = redactionMask;
+    }
+
+    boolean isRedacted(int parameterIndex) {
+        return parameterIndex < redactionMask.length && redactionMask[parameterIndex];
+    }
+}
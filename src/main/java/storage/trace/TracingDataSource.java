@@ -0,0 +1,294 @@
+package storage.trace;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * Wraps connections so every statement reports execute time, fetch time (spent in
+ * {@code ResultSet.next}) and rows read or affected to the {@link SqlTracer}. A query is
+ * recorded when its result set or statement is closed, an update when it returns. Connections and
+ * statements are proxies; result sets, read once per column and row, are a {@link TracedResultSet}.
+ */
+public class TracingDataSource implements DataSource {
+
+    private final DataSource delegate;
+    private final SqlTracer tracer;
+
+    public TracingDataSource(DataSource delegate, SqlTracer tracer) {
+        this.delegate = delegate;
+        this.tracer = tracer;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(delegate.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(delegate.getConnection(username, password));
+    }
+
+    public SqlTracer getTracer() {
+        return tracer;
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection));
+    }
+
+    private static Object forward(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+
+        private final Connection connection;
+
+        ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Traced" + connection;
+                default:
+                    break;
+            }
+            Object result = forward(connection, method, args);
+            // prepareCall returns a CallableStatement, which a PreparedStatement proxy could not stand in for.
+            Class<?> returnType = method.getReturnType();
+            if (returnType == PreparedStatement.class) {
+                TracedSql traced = tracer.lookup((String) args[0]);
+                return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                        new Class<?>[]{PreparedStatement.class}, new StatementHandler((Statement) result, traced));
+            }
+            if (returnType == Statement.class) {
+                return Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                        new Class<?>[]{Statement.class}, new StatementHandler((Statement) result, null));
+            }
+            return result;
+        }
+    }
+
+    // A statement is used by one thread at a time, like the connection it came from.
+    private class StatementHandler implements InvocationHandler, TracedResultSet.Listener {
+
+        private final Statement statement;
+        private final TracedSql prepared;
+        private Object[] parameters = new Object[8];
+        private int parameterCount;
+
+        private TracedSql pending;
+        private long pendingExecuteNanos;
+        private long fetchNanos;
+        private long rows;
+
+        StatementHandler(Statement statement, TracedSql prepared) {
+            this.statement = statement;
+            this.prepared = prepared;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Traced" + statement;
+                case "close":
+                    finish(null);
+                    return forward(statement, method, args);
+                case "clearParameters":
+                    Arrays.fill(parameters, null);
+                    parameterCount = 0;
+                    return forward(statement, method, args);
+                case "executeQuery":
+                    return executeQuery(proxy, method, args);
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                case "execute":
+                case "executeBatch":
+                case "executeLargeBatch":
+                    return executeUpdate(method, args);
+                default:
+                    break;
+            }
+            if (isParameterSetter(method, args)) {
+                // setNull(index, sqlType) carries a type code, not a value.
+                bind((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            }
+            return forward(statement, method, args);
+        }
+
+        private Object executeQuery(Object proxy, Method method, Object[] args) throws Throwable {
+            finish(null);
+            TracedSql traced = tracedFor(args);
+            long start = System.nanoTime();
+            ResultSet resultSet;
+            try {
+                resultSet = (ResultSet) forward(statement, method, args);
+            } catch (SQLException e) {
+                tracer.record(traced, System.nanoTime() - start, 0, 0, parameters, parameterCount, e);
+                throw e;
+            }
+            pending = traced;
+            pendingExecuteNanos = System.nanoTime() - start;
+            fetchNanos = 0;
+            rows = 0;
+            return new TracedResultSet(resultSet, (Statement) proxy, this);
+        }
+
+        private Object executeUpdate(Method method, Object[] args) throws Throwable {
+            finish(null);
+            TracedSql traced = tracedFor(args);
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = forward(statement, method, args);
+            } catch (SQLException e) {
+                tracer.record(traced, System.nanoTime() - start, 0, 0, parameters, parameterCount, e);
+                throw e;
+            }
+            tracer.record(traced, System.nanoTime() - start, 0, affectedRows(result), parameters, parameterCount,
+                    null);
+            return result;
+        }
+
+        private TracedSql tracedFor(Object[] args) {
+            if (args != null && args.length > 0 && args[0] instanceof String) {
+                return tracer.lookup((String) args[0]);
+            }
+            return prepared;
+        }
+
+        private void finish(SQLException failure) {
+            if (pending != null) {
+                TracedSql traced = pending;
+                pending = null;
+                tracer.record(traced, pendingExecuteNanos, fetchNanos, rows, parameters, parameterCount, failure);
+            }
+        }
+
+        private void bind(int index, Object value) {
+            if (index < 1 || index > 1024) {
+                return;
+            }
+            if (index >= parameters.length) {
+                parameters = Arrays.copyOf(parameters, Math.max(index + 1, parameters.length * 2));
+            }
+            parameters[index] = value;
+            parameterCount = Math.max(parameterCount, index);
+        }
+
+        @Override
+        public void fetched(long nanos, boolean hasRow) {
+            fetchNanos += nanos;
+            if (hasRow) {
+                rows++;
+            }
+        }
+
+        @Override
+        public void fetchFailed(long nanos, SQLException failure) {
+            fetchNanos += nanos;
+            finish(failure);
+        }
+
+        @Override
+        public void closed() {
+            finish(null);
+        }
+    }
+
+    // Setters for bind parameters take the 1-based index first; setFetchSize and friends take one argument.
+    private static boolean isParameterSetter(Method method, Object[] args) {
+        return args != null && args.length >= 2 && method.getName().startsWith("set")
+                && method.getParameterTypes()[0] == int.class;
+    }
+
+    private static long affectedRows(Object result) {
+        if (result instanceof Number) {
+            return ((Number) result).longValue();
+        }
+        if (result instanceof int[]) {
+            long sum = 0;
+            for (int count : (int[]) result) {
+                sum += Math.max(count, 0);
+            }
+            return sum;
+        }
+        if (result instanceof long[]) {
+            long sum = 0;
+            for (long count : (long[]) result) {
+                sum += Math.max(count, 0);
+            }
+            return sum;
+        }
+        return 0;
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return delegate.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || delegate.isWrapperFor(iface);
+    }
+}
@@ -0,0 +1,38 @@
+package util;
+
+import java.util.Arrays;
+
+public class LongArrayBuilder {
+
+    private long[] values;
+    private int size;
+
+    public LongArrayBuilder() {
+        this(8);
+    }
+
+    public LongArrayBuilder(int initialCapacity) {
+        values = new long[Math.max(1, initialCapacity)];
+    }
+
+    public void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size << 1);
+        }
+        values[size++] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    public long[] toSortedArray() {
+        long[] result = toArray();
+        Arrays.sort(result);
+        return result;
+    }
+}
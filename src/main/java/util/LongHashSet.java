@@ -0,0 +1,154 @@
+package util;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Open-addressing set of primitive longs. Not thread-safe.
+ */
+public class LongHashSet {
+
+    private long[] keys;
+    private int mask;
+    private int size;
+    private boolean containsEmptyKey;
+
+    public LongHashSet() {
+        this(8);
+    }
+
+    public LongHashSet(int expectedSize) {
+        keys = new long[LongHashing.capacityFor(expectedSize)];
+        mask = keys.length - 1;
+    }
+
+    public boolean add(long key) {
+        if (key == LongHashing.EMPTY) {
+            boolean added = !containsEmptyKey;
+            containsEmptyKey = true;
+            size += added ? 1 : 0;
+            return added;
+        }
+        int slot = LongHashing.slot(key, mask);
+        while (keys[slot] != LongHashing.EMPTY) {
+            if (keys[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        if (++size > keys.length * LongHashing.LOAD_FACTOR) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    public boolean contains(long key) {
+        if (key == LongHashing.EMPTY) {
+            return containsEmptyKey;
+        }
+        int slot = LongHashing.slot(key, mask);
+        while (keys[slot] != LongHashing.EMPTY) {
+            if (keys[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public boolean remove(long key) {
+        if (key == LongHashing.EMPTY) {
+            boolean removed = containsEmptyKey;
+            containsEmptyKey = false;
+            size -= removed ? 1 : 0;
+            return removed;
+        }
+        int slot = LongHashing.slot(key, mask);
+        while (keys[slot] != LongHashing.EMPTY) {
+            if (keys[slot] == key) {
+                shiftKeysBack(slot);
+                size--;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, LongHashing.EMPTY);
+        containsEmptyKey = false;
+        size = 0;
+    }
+
+    public void forEach(LongConsumer consumer) {
+        if (containsEmptyKey) {
+            consumer.accept(LongHashing.EMPTY);
+        }
+        for (long key : keys) {
+            if (key != LongHashing.EMPTY) {
+                consumer.accept(key);
+            }
+        }
+    }
+
+    public long[] toArray() {
+        long[] result = new long[size];
+        int index = 0;
+        if (containsEmptyKey) {
+            result[index++] = LongHashing.EMPTY;
+        }
+        for (long key : keys) {
+            if (key != LongHashing.EMPTY) {
+                result[index++] = key;
+            }
+        }
+        return result;
+    }
+
+    public long[] toSortedArray() {
+        long[] result = toArray();
+        Arrays.sort(result);
+        return result;
+    }
+
+    private void shiftKeysBack(int hole) {
+        int current = hole;
+        while (true) {
+            current = (current + 1) & mask;
+            long key = keys[current];
+            if (key == LongHashing.EMPTY) {
+                break;
+            }
+            if (LongHashing.shouldShift(hole, current, LongHashing.slot(key, mask))) {
+                keys[hole] = key;
+                hole = current;
+            }
+        }
+        keys[hole] = LongHashing.EMPTY;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        keys = new long[capacity];
+        mask = capacity - 1;
+        for (long key : oldKeys) {
+            if (key != LongHashing.EMPTY) {
+                int slot = LongHashing.slot(key, mask);
+                while (keys[slot] != LongHashing.EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+            }
+        }
+    }
+}
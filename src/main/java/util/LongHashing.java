@@ -0,0 +1,31 @@
+package util;
+
+final class LongHashing {
+
+    static final long EMPTY = 0L;
+    static final float LOAD_FACTOR = 0.6f;
+
+    private LongHashing() {
+    }
+
+    static int capacityFor(int expectedSize) {
+        int capacity = 8;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    // Backward-shift deletion keeps linear probe chains intact without tombstones.
+    static boolean shouldShift(int hole, int current, int ideal) {
+        if (current > hole) {
+            return ideal <= hole || ideal > current;
+        }
+        return ideal <= hole && ideal > current;
+    }
+}
@@ -0,0 +1,190 @@
+package util;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Open-addressing map from primitive long keys to objects. Not thread-safe.
+ */
+public class LongObjectHashMap<V> {
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private boolean containsEmptyKey;
+    private V emptyKeyValue;
+
+    public LongObjectHashMap() {
+        this(8);
+    }
+
+    public LongObjectHashMap(int expectedSize) {
+        int capacity = LongHashing.capacityFor(expectedSize);
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == LongHashing.EMPTY) {
+            return emptyKeyValue;
+        }
+        int slot = LongHashing.slot(key, mask);
+        while (keys[slot] != LongHashing.EMPTY) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    public boolean containsKey(long key) {
+        if (key == LongHashing.EMPTY) {
+            return containsEmptyKey;
+        }
+        int slot = LongHashing.slot(key, mask);
+        while (keys[slot] != LongHashing.EMPTY) {
+            if (keys[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (key == LongHashing.EMPTY) {
+            V previous = emptyKeyValue;
+            if (!containsEmptyKey) {
+                containsEmptyKey = true;
+                size++;
+            }
+            emptyKeyValue = value;
+            return previous;
+        }
+        int slot = LongHashing.slot(key, mask);
+        while (keys[slot] != LongHashing.EMPTY) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > keys.length * LongHashing.LOAD_FACTOR) {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == LongHashing.EMPTY) {
+            V previous = emptyKeyValue;
+            if (containsEmptyKey) {
+                containsEmptyKey = false;
+                emptyKeyValue = null;
+                size--;
+            }
+            return previous;
+        }
+        int slot = LongHashing.slot(key, mask);
+        while (keys[slot] != LongHashing.EMPTY) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                shiftEntriesBack(slot);
+                size--;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, LongHashing.EMPTY);
+        Arrays.fill(values, null);
+        containsEmptyKey = false;
+        emptyKeyValue = null;
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<? super V> consumer) {
+        if (containsEmptyKey) {
+            consumer.accept(emptyKeyValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != LongHashing.EMPTY) {
+                consumer.accept((V) values[i]);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> consumer) {
+        if (containsEmptyKey) {
+            consumer.accept(LongHashing.EMPTY, emptyKeyValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != LongHashing.EMPTY) {
+                consumer.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    private void shiftEntriesBack(int hole) {
+        int current = hole;
+        while (true) {
+            current = (current + 1) & mask;
+            long key = keys[current];
+            if (key == LongHashing.EMPTY) {
+                break;
+            }
+            if (LongHashing.shouldShift(hole, current, LongHashing.slot(key, mask))) {
+                keys[hole] = key;
+                values[hole] = values[current];
+                hole = current;
+            }
+        }
+        keys[hole] = LongHashing.EMPTY;
+        values[hole] = null;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != LongHashing.EMPTY) {
+                int slot = LongHashing.slot(oldKeys[i], mask);
+                while (keys[slot] != LongHashing.EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+}
@@ -0,0 +1,67 @@
+package util;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Ids ordered by count (highest first, then lowest id), updated in O(log n) per change so
+ * that reading the top n costs O(n). Callers must serialize updates of the same id.
+ */
+public class RankedCounts {
+
+    private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>();
+
+    public void update(long id, long oldCount, long newCount) {
+        if (oldCount > 0) {
+            ranking.remove(new Entry(id, oldCount));
+        }
+        if (newCount > 0) {
+            ranking.add(new Entry(id, newCount));
+        }
+    }
+
+    public long[] top(int n) {
+        LongArrayBuilder ids = new LongArrayBuilder(n);
+        Iterator<Entry> iterator = ranking.iterator();
+        while (ids.size() < n && iterator.hasNext()) {
+            ids.add(iterator.next().id);
+        }
+        return ids.toArray();
+    }
+
+    public int size() {
+        return ranking.size();
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+
+        private final long id;
+        private final long count;
+
+        Entry(long id, long count) {
+            this.id = id;
+            this.count = count;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            if (count != other.count) {
+                return Long.compare(other.count, count);
+            }
+            return Long.compare(id, other.id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Entry entry = (Entry) o;
+            return id == entry.id && count == entry.count;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(id) * 31 + Long.hashCode(count);
+        }
+    }
+}
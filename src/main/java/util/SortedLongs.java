@@ -0,0 +1,84 @@
+package util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+public final class SortedLongs {
+
+    private static final long[] EMPTY = new long[0];
+
+    // Above this size ratio, galloping through the larger array beats a linear merge.
+    private static final int GALLOP_RATIO = 32;
+
+    private SortedLongs() {
+    }
+
+    public static long[] intersect(long[] first, long[] second) {
+        long[] small = first.length <= second.length ? first : second;
+        long[] large = small == first ? second : first;
+        if (small.length == 0) {
+            return EMPTY;
+        }
+        long[] result = new long[small.length];
+        int size = large.length / small.length >= GALLOP_RATIO
+                ? gallop(small, large, result)
+                : merge(small, large, result);
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    public static long[] intersectAll(long[][] sets) {
+        if (sets.length == 0) {
+            return EMPTY;
+        }
+        long[][] bySize = sets.clone();
+        Arrays.sort(bySize, Comparator.comparingInt(set -> set.length));
+        long[] result = bySize[0];
+        for (int i = 1; i < bySize.length && result.length > 0; i++) {
+            result = intersect(result, bySize[i]);
+        }
+        return result.length == 0 ? EMPTY : result;
+    }
+
+    private static int merge(long[] small, long[] large, long[] result) {
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < small.length && j < large.length) {
+            if (small[i] < large[j]) {
+                i++;
+            } else if (small[i] > large[j]) {
+                j++;
+            } else {
+                result[size++] = small[i];
+                i++;
+                j++;
+            }
+        }
+        return size;
+    }
+
+    private static int gallop(long[] small, long[] large, long[] result) {
+        int size = 0;
+        int low = 0;
+        for (long value : small) {
+            int step = 1;
+            int high = low;
+            while (high < large.length && large[high] < value) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            int index = Arrays.binarySearch(large, low, Math.min(high + 1, large.length), value);
+            if (index >= 0) {
+                result[size++] = value;
+                low = index + 1;
+            } else {
+                low = -index - 1;
+            }
+            if (low >= large.length) {
+                break;
+            }
+        }
+        return size;
+    }
+}
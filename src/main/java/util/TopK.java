@@ -0,0 +1,88 @@
+package util;
+
+/**
+ * Min-heap of the best K (id, count) pairs offered so far: higher count first, then lower id.
+ * Not thread-safe.
+ */
+public class TopK {
+
+    private final long[] ids;
+    private final int[] counts;
+    private int size;
+
+    public TopK(int capacity) {
+        ids = new long[capacity];
+        counts = new int[capacity];
+    }
+
+    public void offer(long id, int count) {
+        if (size < ids.length) {
+            ids[size] = id;
+            counts[size] = count;
+            siftUp(size++);
+        } else if (size > 0 && better(id, count, 0)) {
+            ids[0] = id;
+            counts[0] = count;
+            siftDown(0);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Empties the heap into the arrays, best first; both must hold at least size() elements.
+    public void drainTo(long[] rankedIds, int[] rankedCounts) {
+        for (int i = size - 1; i >= 0; i--) {
+            rankedIds[i] = ids[0];
+            rankedCounts[i] = counts[0];
+            size--;
+            ids[0] = ids[size];
+            counts[0] = counts[size];
+            siftDown(0);
+        }
+    }
+
+    private boolean better(long id, int count, int slot) {
+        return count > counts[slot] || (count == counts[slot] && id < ids[slot]);
+    }
+
+    private void siftUp(int slot) {
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (!better(ids[parent], counts[parent], slot)) {
+                break;
+            }
+            swap(slot, parent);
+            slot = parent;
+        }
+    }
+
+    private void siftDown(int slot) {
+        while (true) {
+            int worst = slot;
+            int left = 2 * slot + 1;
+            int right = left + 1;
+            if (left < size && better(ids[worst], counts[worst], left)) {
+                worst = left;
+            }
+            if (right < size && better(ids[worst], counts[worst], right)) {
+                worst = right;
+            }
+            if (worst == slot) {
+                return;
+            }
+            swap(slot, worst);
+            slot = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        int count = counts[a];
+        counts[a] = counts[b];
+        counts[b] = count;
+    }
+}
@@ -1,4 +1,8 @@
 DROP TABLE IF EXISTS film, users, film_genre, genre, mpa, likes, friends;
+DROP SEQUENCE IF EXISTS users_version_seq;
+
+-- One clock for every users.version and friends_version, so a newer write always has a larger number.
+CREATE SEQUENCE IF NOT EXISTS users_version_seq;
 
 CREATE TABLE IF NOT EXISTS mpa
 (
@@ -32,11 +36,13 @@ CREATE TABLE IF NOT EXISTS film_genre
 
 CREATE TABLE IF NOT EXISTS users
 (
-    id       BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-    email    VARCHAR(64) NOT NULL,
-    login    VARCHAR(64) NOT NULL,
-    name     VARCHAR(64) NOT NULL,
-    birthday DATE
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email           VARCHAR(64) NOT NULL,
+    login           VARCHAR(64) NOT NULL,
+    name            VARCHAR(64) NOT NULL,
+    birthday        DATE,
+    version         BIGINT      NOT NULL DEFAULT nextval('users_version_seq'),
+    friends_version BIGINT      NOT NULL DEFAULT nextval('users_version_seq')
     );
 CREATE UNIQUE INDEX IF NOT EXISTS users_email_index ON users (email);
 CREATE UNIQUE INDEX IF NOT EXISTS users_login_index ON users (login);
@@ -0,0 +1,164 @@
+package benchmark;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+// Proxy stand-ins for servlet and JDBC types; unstubbed methods return null, zero or false.
+final class BenchmarkFakes {
+
+    private BenchmarkFakes() {
+    }
+
+    static HttpServletRequest getRequest(String pathInfo, Map<String, String> parameters) {
+        return proxy(HttpServletRequest.class, (method, args) -> {
+            switch (method) {
+                case "getMethod":
+                    return "GET";
+                case "getPathInfo":
+                    return pathInfo;
+                case "getRequestURI":
+                    return "/users" + pathInfo;
+                case "getParameter":
+                    return parameters.get((String) args[0]);
+                default:
+                    return null;
+            }
+        });
+    }
+
+    static HttpServletResponse response(OutputStream sink) {
+        ServletOutputStream outputStream = new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                sink.write(b, off, len);
+            }
+        };
+        return proxy(HttpServletResponse.class, (method, args) ->
+                method.equals("getOutputStream") ? outputStream : null);
+    }
+
+    // Columns are read by label or by 1-based index. Like pgjdbc in text mode, getDate and
+    // getObject(i, LocalDate.class) both decode the date's text into a new object per call; next() is
+    // false once per pass over the rows, then the scan starts over.
+    static ResultSet userRows(String[] labels, Object[][] rows) {
+        Map<String, Integer> byLabel = new HashMap<>();
+        for (int i = 0; i < labels.length; i++) {
+            byLabel.put(labels[i], i);
+        }
+        ResultSetMetaData metaData = proxy(ResultSetMetaData.class, (method, args) -> {
+            switch (method) {
+                case "getColumnCount":
+                    return labels.length;
+                case "getColumnLabel":
+                case "getColumnName":
+                    return labels[(Integer) args[0] - 1];
+                default:
+                    return null;
+            }
+        });
+        int[] cursor = {-1};
+        return proxy(ResultSet.class, (method, args) -> {
+            switch (method) {
+                case "next":
+                    cursor[0]++;
+                    if (cursor[0] == rows.length) {
+                        cursor[0] = -1;
+                        return false;
+                    }
+                    return true;
+                case "getMetaData":
+                    return metaData;
+                case "getLong":
+                case "getString":
+                    return column(rows[cursor[0]], byLabel, args[0]);
+                case "getObject":
+                    Object value = column(rows[cursor[0]], byLabel, args[0]);
+                    return value instanceof LocalDate ? decodeDate((LocalDate) value) : value;
+                case "getDate":
+                    LocalDate date = (LocalDate) column(rows[cursor[0]], byLabel, args[0]);
+                    return date == null ? null : Date.valueOf(decodeDate(date));
+                default:
+                    return null;
+            }
+        });
+    }
+
+    // Stands in for the driver's text decoding: the cell's text is parsed field by field, not by a formatter.
+    private static LocalDate decodeDate(LocalDate stored) {
+        String text = stored.toString();
+        return LocalDate.of(Integer.parseInt(text, 0, 4, 10), Integer.parseInt(text, 5, 7, 10),
+                Integer.parseInt(text, 8, 10, 10));
+    }
+
+    private static Object column(Object[] row, Map<String, Integer> byLabel, Object column) {
+        return column instanceof Integer ? row[(Integer) column - 1] : row[byLabel.get((String) column)];
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(BenchmarkFakes.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    Object result = handler.invoke(method.getName(), args);
+                    if (result == null && method.getReturnType().isPrimitive()) {
+                        return defaultValue(method.getReturnType());
+                    }
+                    return result;
+                }));
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == void.class) {
+            return null;
+        }
+        if (type == double.class) {
+            return 0.0;
+        }
+        if (type == float.class) {
+            return 0.0f;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        return (char) 0;
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object invoke(String method, Object[] args) throws Exception;
+    }
+}
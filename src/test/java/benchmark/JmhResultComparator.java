@@ -0,0 +1,160 @@
+package benchmark;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files (-rf json). A benchmark regresses when its score moves the
+ * wrong way, or its normalized allocation (-prof gc) grows, by more than the threshold percent.
+ * Usage: JmhResultComparator baseline.json current.json [thresholdPercent]
+ */
+public class JmhResultComparator {
+
+    private static final String ALLOC_METRIC = "gc.alloc.rate.norm";
+    // Allocation noise below this many bytes per operation is not reported.
+    private static final double MIN_ALLOC_DELTA = 16;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: JmhResultComparator baseline.json current.json [thresholdPercent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        List<Comparison> comparisons;
+        try (Reader baseline = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8);
+             Reader current = Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.UTF_8)) {
+            comparisons = compare(baseline, current, threshold);
+        }
+        int regressions = 0;
+        System.out.printf(Locale.ROOT, "%-70s %14s %14s %9s %12s %12s%n",
+                "benchmark", "baseline", "current", "change", "alloc base", "alloc now");
+        for (Comparison comparison : comparisons) {
+            System.out.println(comparison);
+            if (comparison.isRegression()) {
+                regressions++;
+            }
+        }
+        if (regressions > 0) {
+            System.out.printf(Locale.ROOT, "%s regression(s) above %.1f%%%n", regressions, threshold);
+            System.exit(1);
+        }
+    }
+
+    public static List<Comparison> compare(Reader baseline, Reader current, double thresholdPercent) {
+        Map<String, Result> before = parse(baseline);
+        Map<String, Result> after = parse(current);
+        List<Comparison> comparisons = new ArrayList<>();
+        for (Map.Entry<String, Result> entry : after.entrySet()) {
+            Result previous = before.get(entry.getKey());
+            if (previous != null) {
+                comparisons.add(new Comparison(entry.getKey(), previous, entry.getValue(), thresholdPercent));
+            }
+        }
+        return comparisons;
+    }
+
+    private static Map<String, Result> parse(Reader reader) {
+        Map<String, Result> results = new TreeMap<>();
+        for (JsonElement element : JsonParser.parseReader(reader).getAsJsonArray()) {
+            JsonObject run = element.getAsJsonObject();
+            JsonObject primary = run.getAsJsonObject("primaryMetric");
+            Result result = new Result(run.get("mode").getAsString(), primary.get("score").getAsDouble(),
+                    primary.get("scoreUnit").getAsString(), allocation(run));
+            results.put(key(run), result);
+        }
+        return results;
+    }
+
+    private static String key(JsonObject run) {
+        StringBuilder key = new StringBuilder(run.get("benchmark").getAsString());
+        JsonObject params = run.getAsJsonObject("params");
+        if (params != null) {
+            Map<String, String> sorted = new TreeMap<>();
+            params.entrySet().forEach(param -> sorted.put(param.getKey(), param.getValue().getAsString()));
+            key.append(sorted);
+        }
+        return key.toString();
+    }
+
+    // Older JMH versions prefix profiler metrics with a middle dot.
+    private static double allocation(JsonObject run) {
+        JsonObject secondary = run.getAsJsonObject("secondaryMetrics");
+        if (secondary == null) {
+            return Double.NaN;
+        }
+        Map<String, JsonElement> metrics = new LinkedHashMap<>();
+        secondary.entrySet().forEach(metric -> metrics.put(metric.getKey().replace("·", ""), metric.getValue()));
+        JsonElement allocation = metrics.get(ALLOC_METRIC);
+        return allocation == null ? Double.NaN : allocation.getAsJsonObject().get("score").getAsDouble();
+    }
+
+    private static class Result {
+
+        private final String mode;
+        private final double score;
+        private final String unit;
+        private final double allocation;
+
+        Result(String mode, double score, String unit, double allocation) {
+            this.mode = mode;
+            this.score = score;
+            this.unit = unit;
+            this.allocation = allocation;
+        }
+    }
+
+    public static class Comparison {
+
+        private final String benchmark;
+        private final Result baseline;
+        private final Result current;
+        private final double changePercent;
+        private final boolean regression;
+
+        Comparison(String benchmark, Result baseline, Result current, double thresholdPercent) {
+            this.benchmark = benchmark;
+            this.baseline = baseline;
+            this.current = current;
+            this.changePercent = baseline.score == 0 ? 0 : (current.score - baseline.score) * 100 / baseline.score;
+            // Throughput is better when higher; time-based modes are better when lower.
+            double worsening = current.mode.equals("thrpt") ? -changePercent : changePercent;
+            boolean allocationGrew = !Double.isNaN(baseline.allocation) && !Double.isNaN(current.allocation)
+                    && current.allocation - baseline.allocation > MIN_ALLOC_DELTA
+                    && (baseline.allocation == 0
+                    || (current.allocation - baseline.allocation) * 100 / baseline.allocation > thresholdPercent);
+            this.regression = worsening > thresholdPercent || allocationGrew;
+        }
+
+        public String getBenchmark() {
+            return benchmark;
+        }
+
+        public double getChangePercent() {
+            return changePercent;
+        }
+
+        public boolean isRegression() {
+            return regression;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-70s %14.3f %14.3f %+8.1f%% %12.1f %12.1f %s%s",
+                    benchmark, baseline.score, current.score, changePercent, baseline.allocation,
+                    current.allocation, current.unit, regression ? "  REGRESSION" : "");
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package benchmark;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JmhResultComparatorTest {
+
+    @Test
+    void givenSlowerAverageTime_whenCompared_thenRegression() {
+        List<JmhResultComparator.Comparison> comparisons = JmhResultComparator.compare(
+                new StringReader(results(run("a.B.get", "avgt", 100, 48))),
+                new StringReader(results(run("a.B.get", "avgt", 120, 48))), 10);
+
+        assertEquals(1, comparisons.size());
+        assertEquals(20.0, comparisons.get(0).getChangePercent(), 1e-9);
+        assertTrue(comparisons.get(0).isRegression());
+    }
+
+    @Test
+    void givenFasterThroughputButMoreAllocation_whenCompared_thenRegression() {
+        List<JmhResultComparator.Comparison> comparisons = JmhResultComparator.compare(
+                new StringReader(results(run("a.B.get", "thrpt", 100, 48))),
+                new StringReader(results(run("a.B.get", "thrpt", 150, 96))), 10);
+
+        assertTrue(comparisons.get(0).isRegression());
+    }
+
+    @Test
+    void givenChangesWithinThreshold_whenCompared_thenNoRegressionAndUnmatchedSkipped() {
+        List<JmhResultComparator.Comparison> comparisons = JmhResultComparator.compare(
+                new StringReader(results(run("a.B.get", "thrpt", 100, 48))),
+                new StringReader(results(run("a.B.get", "thrpt", 95, 56), run("a.B.put", "thrpt", 1, 0))), 10);
+
+        assertEquals(1, comparisons.size());
+        assertFalse(comparisons.get(0).isRegression());
+    }
+
+    private static String results(String... runs) {
+        return "[" + String.join(",", runs) + "]";
+    }
+
+    private static String run(String benchmark, String mode, double score, double allocation) {
+        return "{\"benchmark\":\"" + benchmark + "\",\"mode\":\"" + mode + "\",\"params\":{\"size\":\"100\"},"
+                + "\"primaryMetric\":{\"score\":" + score + ",\"scoreUnit\":\"ops/ms\"},"
+                + "\"secondaryMetrics\":{\"gc.alloc.rate.norm\":{\"score\":" + allocation + "}}}";
+    }
+}
@@ -0,0 +1,84 @@
+package benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import controller.binary.BinaryCodec;
+import controller.json.JsonCodec;
+import model.User;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// A friends-list sized payload encoded and decoded by each codec the user endpoints negotiate.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserBinaryCodecBenchmark {
+
+    @Param({"json", "smile", "cbor"})
+    private String codec;
+
+    private BinaryCodec binary;
+    private List<User> users;
+    private ByteArrayOutputStream out;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        binary = codec.equals("smile") ? BinaryCodec.SMILE : codec.equals("cbor") ? BinaryCodec.CBOR : null;
+        users = new ArrayList<>(100);
+        for (int i = 1; i <= 100; i++) {
+            users.add(new User(i, "user" + i + "@mail.ru", "login" + i, "Name " + i,
+                    LocalDate.of(1990, 1, 1).plusDays(i)));
+        }
+        out = new ByteArrayOutputStream(16 * 1024);
+        write();
+        encoded = out.toByteArray();
+    }
+
+    @Benchmark
+    public int write() throws IOException {
+        out.reset();
+        if (binary != null) {
+            try (JsonGenerator generator = binary.newGenerator(out)) {
+                binary.writeUsers(generator, users);
+            }
+        } else {
+            try (JsonWriter writer = JsonCodec.newWriter(out)) {
+                JsonCodec.writeUsers(writer, users);
+            }
+        }
+        return out.size();
+    }
+
+    @Benchmark
+    public void read(Blackhole blackhole) throws IOException {
+        if (binary != null) {
+            try (JsonParser parser = binary.newParser(new ByteArrayInputStream(encoded))) {
+                binary.beginArray(parser);
+                while (binary.hasNext(parser)) {
+                    blackhole.consume(binary.readUser(parser));
+                }
+            }
+        } else {
+            try (JsonReader reader = JsonCodec.newReader(new ByteArrayInputStream(encoded))) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    blackhole.consume(JsonCodec.readUser(reader));
+                }
+            }
+        }
+    }
+}
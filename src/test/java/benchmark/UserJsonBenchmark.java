@@ -0,0 +1,94 @@
+package benchmark;
+
+import com.google.gson.*;
+import com.google.gson.stream.JsonWriter;
+import controller.json.JsonCodec;
+import model.User;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// Serialization of a friends-list sized payload: the pre-codec controller path against JsonCodec.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserJsonBenchmark {
+
+    @Param({"1", "100"})
+    private int size;
+
+    private List<User> users;
+    private OutputStream sink;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        users = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            users.add(new User(i, "user" + i + "@mail.ru", "login" + i, "Name " + i,
+                    LocalDate.of(1990, 1, 1).plusDays(i)));
+        }
+        sink = new OutputStream() {
+            @Override
+            public void write(int b) {
+                blackhole.consume(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                blackhole.consume(b);
+            }
+        };
+    }
+
+    @Benchmark
+    public void legacyGsonPerRequest() {
+        GsonBuilder gsonBuilder = new GsonBuilder();
+        gsonBuilder.registerTypeAdapter(LocalDate.class, new LocalDateSerializer());
+        gsonBuilder.registerTypeAdapter(LocalDate.class, new LocalDateDeserializer());
+        String json = gsonBuilder.setPrettyPrinting().create().toJson(users);
+
+        PrintWriter printWriter = new PrintWriter(new OutputStreamWriter(sink, StandardCharsets.UTF_8));
+        printWriter.write(json);
+        printWriter.flush();
+    }
+
+    @Benchmark
+    public void sharedStreamingCodec() throws IOException {
+        JsonWriter jsonWriter = JsonCodec.newWriter(sink);
+        JsonCodec.writeUsers(jsonWriter, users);
+        jsonWriter.flush();
+    }
+
+    static class LocalDateSerializer implements JsonSerializer<LocalDate> {
+        private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+        @Override
+        public JsonElement serialize(LocalDate localDate, Type srcType, JsonSerializationContext context) {
+            return new JsonPrimitive(formatter.format(localDate));
+        }
+    }
+
+    static class LocalDateDeserializer implements JsonDeserializer<LocalDate> {
+        @Override
+        public LocalDate deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context)
+                throws JsonParseException {
+            return LocalDate.parse(json.getAsString(),
+                    DateTimeFormatter.ofPattern("yyyy-MM-dd").withLocale(Locale.ENGLISH));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package benchmark;
+
+import controller.UserController;
+import model.User;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import storage.StorageFactory;
+import storage.StorageMode;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// GET /users/* through HttpServlet.service against in-memory storage, dispatched on the calling thread.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserRoutingBenchmark {
+
+    @Param({"/1", "/1/friends", "/1/friends/common/2"})
+    private String pathInfo;
+
+    private UserController controller;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        System.setProperty(StorageMode.PROPERTY, StorageMode.MEMORY.name());
+        System.setProperty("http.async.enabled", "false");
+        StorageFactory storageFactory = StorageFactory.getInstance();
+        if (storageFactory.getUserStorage().getById(2).isEmpty()) {
+            for (int i = 1; i <= 2; i++) {
+                storageFactory.getUserStorage().add(new User("user" + i + "@mail.ru", "login" + i, "Name " + i,
+                        LocalDate.of(1990, 1, i)));
+            }
+        }
+        controller = new UserController();
+        request = BenchmarkFakes.getRequest(pathInfo, Map.of());
+        response = BenchmarkFakes.response(new OutputStream() {
+            @Override
+            public void write(int b) {
+                blackhole.consume(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                blackhole.consume(b);
+            }
+        });
+    }
+
+    @Benchmark
+    public void doGet() throws ServletException, IOException {
+        controller.service(request, response);
+    }
+}
@@ -0,0 +1,67 @@
+package benchmark;
+
+import model.User;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import storage.db.RowMapper;
+import storage.db.UserDbStorage;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One op is one row of a 100k-row users scan, so gc.alloc.rate.norm reads as bytes per row. byLabel
+ * is the mapping UserDbStorage used before compiled mappers; the proxy result set costs the same in
+ * both, so compare the two, not the absolutes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserRowMappingBenchmark {
+
+    private static final int ROWS = 100_000;
+    private static final String SQL = "SELECT id, email, login, name, birthday, version FROM users";
+
+    private ResultSet resultSet;
+
+    @Setup
+    public void setUp() {
+        Object[][] rows = new Object[ROWS][];
+        for (int i = 0; i < ROWS; i++) {
+            rows[i] = new Object[]{(long) i + 1, "user" + i + "@mail.ru", "login" + i, "Name " + i,
+                    i % 10 == 0 ? null : LocalDate.of(1990, 1, 1).plusDays(i % 10_000), (long) i + 1};
+        }
+        resultSet = BenchmarkFakes.userRows(new String[]{"id", "email", "login", "name", "birthday", "version"},
+                rows);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void byLabel(Blackhole blackhole) throws SQLException {
+        while (resultSet.next()) {
+            Date birthday = resultSet.getDate("birthday");
+            User user = new User(resultSet.getLong("id"),
+                    resultSet.getString("email"),
+                    resultSet.getString("login"),
+                    resultSet.getString("name"),
+                    birthday == null ? null : birthday.toLocalDate());
+            user.setVersion(resultSet.getLong("version"));
+            blackhole.consume(user);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void compiled(Blackhole blackhole) throws SQLException {
+        RowMapper<User> mapper = UserDbStorage.USER_ROWS.forQuery(SQL, resultSet);
+        while (resultSet.next()) {
+            blackhole.consume(mapper.mapRow(resultSet));
+        }
+    }
+}
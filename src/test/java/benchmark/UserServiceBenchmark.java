@@ -0,0 +1,95 @@
+package benchmark;
+
+import model.Recommendation;
+import model.User;
+import org.openjdk.jmh.annotations.*;
+import service.UserService;
+import storage.memory.InMemoryFriendsStorage;
+import storage.memory.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// UserService over in-memory storage, so the numbers cover service and storage code without a database.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserServiceBenchmark {
+
+    private static final int FRIENDS_PER_USER = 50;
+
+    @Param({"10000"})
+    private int users;
+
+    private UserService userService;
+    private long[] ids;
+
+    @Setup
+    public void setUp() {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        InMemoryFriendsStorage friendsStorage = new InMemoryFriendsStorage(userStorage);
+        userService = new UserService(userStorage, friendsStorage);
+        ids = new long[users];
+        for (int i = 0; i < users; i++) {
+            ids[i] = userStorage.add(new User("user" + i + "@mail.ru", "login" + i, "Name " + i,
+                    LocalDate.of(1990, 1, 1).plusDays(i % 10_000))).getId();
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        for (long id : ids) {
+            long[] friends = new long[FRIENDS_PER_USER];
+            for (int i = 0; i < friends.length; i++) {
+                friends[i] = ids[random.nextInt(users)];
+            }
+            friendsStorage.addFriends(id, friends);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private final SplittableRandom random = new SplittableRandom();
+
+        long next(long[] ids) {
+            return ids[random.nextInt(ids.length)];
+        }
+    }
+
+    @Benchmark
+    public User getById(Cursor cursor) {
+        return userService.getById(cursor.next(ids));
+    }
+
+    @Benchmark
+    public List<User> getFriends(Cursor cursor) {
+        return userService.getFriends(cursor.next(ids));
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends(Cursor cursor) {
+        return userService.getCommonFriends(cursor.next(ids), cursor.next(ids));
+    }
+
+    @Benchmark
+    public List<Recommendation> getRecommendations(Cursor cursor) {
+        return userService.getRecommendations(cursor.next(ids), 10);
+    }
+
+    @Benchmark
+    public void addAndRemoveFriend(Cursor cursor) {
+        long userId = cursor.next(ids);
+        long friendId = cursor.next(ids);
+        if (userId == friendId) {
+            return;
+        }
+        try {
+            userService.addToFriends(userId, friendId);
+        } catch (RuntimeException e) {
+            return;
+        }
+        userService.removeFromFriends(userId, friendId);
+    }
+}
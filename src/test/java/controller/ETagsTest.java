@@ -0,0 +1,32 @@
+package controller;
+
+import controller.binary.BinaryCodec;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ETagsTest {
+
+    @Test
+    void givenIfNoneMatchList_whenMatched_thenWeakComparisonOverEveryEntry() {
+        String etag = ETags.of(42);
+
+        assertTrue(ETags.matches("\"42\"", etag));
+        assertTrue(ETags.matches("\"7\", W/\"42\"", etag));
+        assertTrue(ETags.matches("*", etag));
+        assertFalse(ETags.matches(null, etag));
+        assertFalse(ETags.matches("\"4\", \"420\"", etag));
+        assertFalse(ETags.matches("\"42", etag));
+    }
+
+    @Test
+    void givenBinaryCodec_whenTagged_thenDoesNotMatchJsonTag() {
+        String smile = ETags.of(42, BinaryCodec.SMILE);
+
+        assertEquals("\"42-smile\"", smile);
+        assertFalse(ETags.matches(ETags.of(42), smile));
+        assertTrue(ETags.matches("W/" + smile, smile));
+    }
+}
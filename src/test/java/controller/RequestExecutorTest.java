@@ -0,0 +1,191 @@
+package controller;
+
+import exception.NotFoundException;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestExecutorTest {
+
+    @Test
+    void givenSyncMode_whenHandlerThrowsNotFound_then404() throws Exception {
+        RequestExecutor executor = new RequestExecutor(false, 1, 1, 1000);
+        FakeExchange exchange = new FakeExchange();
+
+        executor.dispatch(exchange.request, exchange.response, (request, response) -> {
+            throw new NotFoundException("missing");
+        });
+
+        assertEquals(404, exchange.status.get());
+    }
+
+    @Test
+    void givenAsyncMode_whenHandled_thenRunsOnWorkerAndCompletes() throws Exception {
+        RequestExecutor executor = new RequestExecutor(true, 1, 1, 1000);
+        FakeExchange exchange = new FakeExchange();
+        Map<String, String> thread = new ConcurrentHashMap<>();
+
+        executor.dispatch(exchange.request, exchange.response,
+                (request, response) -> thread.put("name", Thread.currentThread().getName()));
+
+        assertTrue(exchange.completed.await(1, TimeUnit.SECONDS));
+        assertTrue(thread.get("name").startsWith("db-request-"));
+        assertEquals(1, executor.getQueueWait().getCount());
+    }
+
+    @Test
+    void givenIdleWorker_whenDispatched_thenCompletionListenerRegisteredBeforeHandlerRuns() throws Exception {
+        RequestExecutor executor = new RequestExecutor(true, 1, 1, 1000);
+        FakeExchange exchange = new FakeExchange();
+        Map<String, Boolean> seen = new ConcurrentHashMap<>();
+
+        executor.dispatch(exchange.request, exchange.response,
+                (request, response) -> seen.put("listener", exchange.listeners.containsKey("listener")));
+
+        assertTrue(exchange.completed.await(1, TimeUnit.SECONDS));
+        assertEquals(Boolean.TRUE, seen.get("listener"));
+    }
+
+    @Test
+    void givenContainerResetsPathAfterService_whenHandledAsync_thenHandlerSeesOriginalPath() throws Exception {
+        RequestExecutor executor = new RequestExecutor(true, 1, 1, 1000);
+        CountDownLatch serviceReturned = new CountDownLatch(1);
+        FakeExchange exchange = new FakeExchange();
+        exchange.pathInfo = "/1/friends";
+        Map<String, String> seen = new ConcurrentHashMap<>();
+
+        executor.dispatch(exchange.request, exchange.response, (request, response) -> {
+            await(serviceReturned);
+            seen.put("pathInfo", request.getPathInfo());
+        });
+        exchange.pathInfo = "/users/1/friends";
+        serviceReturned.countDown();
+
+        assertTrue(exchange.completed.await(1, TimeUnit.SECONDS));
+        assertEquals("/1/friends", seen.get("pathInfo"));
+    }
+
+    @Test
+    void givenFullQueue_whenDispatch_then503() throws Exception {
+        RequestExecutor executor = new RequestExecutor(true, 1, 1, 5000);
+        CountDownLatch release = new CountDownLatch(1);
+        RequestHandler blocking = (request, response) -> await(release);
+        FakeExchange running = new FakeExchange();
+        FakeExchange queued = new FakeExchange();
+        FakeExchange rejected = new FakeExchange();
+
+        executor.dispatch(running.request, running.response, blocking);
+        executor.dispatch(queued.request, queued.response, blocking);
+        executor.dispatch(rejected.request, rejected.response, blocking);
+
+        assertEquals(503, rejected.status.get());
+        assertEquals(1, executor.getRejected());
+        release.countDown();
+        assertTrue(queued.completed.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void givenQueuedPastTimeout_whenWorkerBusy_then503AndHandlerSkipped() throws Exception {
+        RequestExecutor executor = new RequestExecutor(true, 1, 4, 100);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        FakeExchange running = new FakeExchange();
+        FakeExchange queued = new FakeExchange();
+
+        executor.dispatch(running.request, running.response, (request, response) -> await(release));
+        executor.dispatch(queued.request, queued.response, (request, response) -> calls.incrementAndGet());
+
+        assertTrue(queued.completed.await(1, TimeUnit.SECONDS));
+        assertEquals(503, queued.status.get());
+        assertEquals(1, executor.getTimedOut());
+        release.countDown();
+        assertTrue(running.completed.await(1, TimeUnit.SECONDS));
+        assertEquals(0, calls.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class FakeExchange {
+
+        final AtomicInteger status = new AtomicInteger(200);
+        final CountDownLatch completed = new CountDownLatch(1);
+        final Map<String, AsyncListener> listeners = new ConcurrentHashMap<>();
+        HttpServletResponse response;
+        HttpServletRequest request;
+        AsyncContext asyncContext;
+        volatile String pathInfo;
+
+        FakeExchange() {
+            response = (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{HttpServletResponse.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "sendError":
+                                status.set((Integer) args[0]);
+                                return null;
+                            case "isCommitted":
+                                return false;
+                            case "getStatus":
+                                return status.get();
+                            default:
+                                return null;
+                        }
+                    });
+            asyncContext = (AsyncContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{AsyncContext.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "getRequest":
+                                return request;
+                            case "getResponse":
+                                return response;
+                            case "addListener":
+                                listeners.put("listener", (AsyncListener) args[0]);
+                                return null;
+                            case "complete":
+                                AsyncListener listener = listeners.get("listener");
+                                if (listener != null) {
+                                    listener.onComplete(new AsyncEvent((AsyncContext) proxy));
+                                }
+                                completed.countDown();
+                                return null;
+                            default:
+                                return null;
+                        }
+                    });
+            request = (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "isAsyncSupported":
+                                return true;
+                            case "startAsync":
+                                return asyncContext;
+                            case "getMethod":
+                                return "GET";
+                            case "getRequestURI":
+                                return "/users";
+                            case "getPathInfo":
+                                return pathInfo;
+                            default:
+                                return null;
+                        }
+                    });
+        }
+    }
+}
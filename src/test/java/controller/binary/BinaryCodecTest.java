@@ -0,0 +1,110 @@
+package controller.binary;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import model.User;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BinaryCodecTest {
+
+    private static final User user = new User(7, "frest@mail.ru", "Oleg",
+            "Терентьев 😀", LocalDate.of(1993, 12, 3));
+
+    @Test
+    void givenUsers_whenWrittenAndReadWithEachCodec_thenSameUsers() throws Exception {
+        User noBirthday = new User(8, "a@mail.ru", "a", null, null);
+        for (BinaryCodec codec : new BinaryCodec[]{BinaryCodec.SMILE, BinaryCodec.CBOR}) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (JsonGenerator generator = codec.newGenerator(out)) {
+                codec.writeUsers(generator, List.of(user, noBirthday));
+            }
+
+            List<User> read = new ArrayList<>();
+            try (JsonParser parser = codec.newParser(new ByteArrayInputStream(out.toByteArray()))) {
+                codec.beginArray(parser);
+                while (codec.hasNext(parser)) {
+                    read.add(codec.readUser(parser));
+                }
+            }
+
+            assertThat(read).as(codec.getName()).containsExactly(user, noBirthday);
+            assertThat(read.get(0).getName()).isEqualTo("Терентьев 😀");
+        }
+    }
+
+    @Test
+    void givenFieldOfWrongType_whenRead_thenRowFailsAndParserMovesToNextUser() throws Exception {
+        BinaryCodec codec = BinaryCodec.CBOR;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = codec.newGenerator(out)) {
+            generator.writeStartArray();
+            generator.writeStartObject();
+            generator.writeStringField("id", "seven");
+            generator.writeObjectFieldStart("email");
+            generator.writeStringField("nested", "value");
+            generator.writeEndObject();
+            generator.writeEndObject();
+            codec.writeUser(generator, user);
+            generator.writeEndArray();
+        }
+
+        try (JsonParser parser = codec.newParser(new ByteArrayInputStream(out.toByteArray()))) {
+            codec.beginArray(parser);
+            codec.hasNext(parser);
+            assertThatThrownBy(() -> codec.readUser(parser))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("id");
+            codec.hasNext(parser);
+            assertThat(codec.readUser(parser)).isEqualTo(user);
+        }
+    }
+
+    @Test
+    void givenIdOutOfLongRange_whenRead_thenOnlyThatRowFails() throws Exception {
+        BinaryCodec codec = BinaryCodec.SMILE;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = codec.newGenerator(out)) {
+            generator.writeStartArray();
+            generator.writeStartObject();
+            generator.writeFieldName("id");
+            generator.writeNumber(BigInteger.ONE.shiftLeft(64));
+            generator.writeStringField("email", "big@mail.ru");
+            generator.writeEndObject();
+            codec.writeUser(generator, user);
+            generator.writeEndArray();
+        }
+
+        try (JsonParser parser = codec.newParser(new ByteArrayInputStream(out.toByteArray()))) {
+            codec.beginArray(parser);
+            codec.hasNext(parser);
+            assertThatThrownBy(() -> codec.readUser(parser))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("out of range");
+            codec.hasNext(parser);
+            assertThat(codec.readUser(parser)).isEqualTo(user);
+            assertThat(codec.hasNext(parser)).isFalse();
+        }
+    }
+
+    @Test
+    void givenAcceptHeaders_whenNegotiated_thenBinaryOnlyWhenPreferredOverJson() {
+        assertThat(BinaryCodec.forAccept("application/x-jackson-smile")).isSameAs(BinaryCodec.SMILE);
+        assertThat(BinaryCodec.forAccept("application/cbor, application/json;q=0.5")).isSameAs(BinaryCodec.CBOR);
+        assertThat(BinaryCodec.forAccept("application/json, application/cbor")).isNull();
+        assertThat(BinaryCodec.forAccept("application/cbor;q=0.2, */*")).isNull();
+        assertThat(BinaryCodec.forAccept("*/*")).isNull();
+        assertThat(BinaryCodec.forAccept(null)).isNull();
+        assertThat(BinaryCodec.forContentType("application/cbor")).isSameAs(BinaryCodec.CBOR);
+        assertThat(BinaryCodec.forContentType("application/json; charset=utf-8")).isNull();
+    }
+}
@@ -0,0 +1,86 @@
+package controller.compression;
+
+import loadtest.EmbeddedServer;
+import model.User;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import storage.StorageFactory;
+import storage.StorageMode;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// GET /users goes through RequestExecutor's async dispatch, so the body is compressed on a worker thread.
+@Tag("loadtest")
+class CompressionFilterEmbeddedTest {
+
+    private static String storageMode;
+    private static EmbeddedServer server;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        storageMode = System.getProperty(StorageMode.PROPERTY);
+        System.setProperty(StorageMode.PROPERTY, StorageMode.MEMORY.name());
+        server = EmbeddedServer.start(0);
+    }
+
+    @AfterAll
+    static void stopServer() {
+        if (server != null) {
+            server.close();
+        }
+        if (storageMode == null) {
+            System.clearProperty(StorageMode.PROPERTY);
+        } else {
+            System.setProperty(StorageMode.PROPERTY, storageMode);
+        }
+    }
+
+    @Test
+    void givenGzipAccepted_whenGetUsersAsync_thenBodyInflatesToEveryUser() throws Exception {
+        String run = Long.toString(System.nanoTime());
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            String login = "gzip-" + run + "-" + i;
+            users.add(new User(login + "@mail.ru", login, "Name " + i, LocalDate.of(1990, 1, 1)));
+        }
+        StorageFactory.getInstance().getUserStorage().addBatch(users);
+        HttpRequest request = HttpRequest.newBuilder(server.getBaseUri().resolve("users"))
+                .header("Accept-Encoding", "gzip")
+                .GET()
+                .build();
+
+        HttpResponse<byte[]> response = HttpClient.newHttpClient().send(request,
+                HttpResponse.BodyHandlers.ofByteArray());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Encoding")).hasValue("gzip");
+        // Jetty may still set Content-Length once the handler completes; it must then count the gzip bytes.
+        response.headers().firstValue("Content-Length")
+                .ifPresent(length -> assertThat(Integer.parseInt(length)).isEqualTo(response.body().length));
+        String body = inflate(response.body());
+        assertThat(body.length()).isGreaterThan(response.body().length);
+        for (User user : users) {
+            assertThat(body).contains("\"" + user.getEmail() + "\"");
+        }
+    }
+
+    private static String inflate(byte[] gzipped) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
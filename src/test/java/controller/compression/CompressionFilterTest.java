@@ -0,0 +1,200 @@
+package controller.compression;
+
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class CompressionFilterTest {
+
+    private static final String JSON = "application/json";
+
+    private final CompressionFilter filter = new CompressionFilter(true, 256, Deflater.DEFAULT_COMPRESSION, 2);
+
+    @Test
+    void givenLargeBodyAndGzipAccepted_whenWritten_thenCompressedWhileWriting() throws Exception {
+        FakeExchange exchange = new FakeExchange("gzip, deflate");
+        byte[] body = friendsJson(500);
+        int[] sentBeforeClose = new int[1];
+
+        filter.doFilter(exchange.request, exchange.response, (request, response) -> {
+            response.setContentType(JSON);
+            OutputStream out = response.getOutputStream();
+            out.write(body, 0, body.length / 2);
+            sentBeforeClose[0] = exchange.sink.size();
+            out.write(body, body.length / 2, body.length - body.length / 2);
+            out.close();
+        });
+
+        assertThat(sentBeforeClose[0]).isPositive();
+        assertThat(exchange.headers).containsEntry("Content-Encoding", "gzip").containsEntry("Vary", "Accept-Encoding");
+        assertThat(exchange.sink.size()).isLessThan(body.length / 4);
+        assertThat(readAll(new GZIPInputStream(new ByteArrayInputStream(exchange.sink.toByteArray())))).isEqualTo(body);
+        assertThat(filter.idleDeflaters(ContentEncoding.GZIP)).isEqualTo(1);
+    }
+
+    @Test
+    void givenDeflatePreferred_whenNotClosedByHandler_thenFilterFinishesZlibBodyAndWeakensETag() throws Exception {
+        FakeExchange exchange = new FakeExchange("gzip;q=0.5, deflate");
+        byte[] body = friendsJson(100);
+
+        filter.doFilter(exchange.request, exchange.response, (request, response) -> {
+            ((HttpServletResponse) response).setHeader("ETag", "\"7\"");
+            response.setContentType(JSON);
+            response.getOutputStream().write(body);
+        });
+
+        assertThat(exchange.headers).containsEntry("Content-Encoding", "deflate").containsEntry("ETag", "W/\"7\"");
+        assertThat(readAll(new InflaterInputStream(new ByteArrayInputStream(exchange.sink.toByteArray()))))
+                .isEqualTo(body);
+    }
+
+    @Test
+    void givenBodyUnderThreshold_whenWritten_thenSentAsIs() throws Exception {
+        FakeExchange exchange = new FakeExchange("gzip");
+        byte[] body = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+
+        filter.doFilter(exchange.request, exchange.response, (request, response) -> {
+            response.setContentType(JSON);
+            response.getOutputStream().write(body);
+        });
+
+        assertThat(exchange.headers).doesNotContainKey("Content-Encoding");
+        assertThat(exchange.sink.toByteArray()).isEqualTo(body);
+    }
+
+    @Test
+    void givenRouteOptedOut_whenLargeBodyWritten_thenSentAsIs() throws Exception {
+        FakeExchange exchange = new FakeExchange("gzip");
+        byte[] body = friendsJson(100);
+
+        filter.doFilter(exchange.request, exchange.response, (request, response) -> {
+            response.setContentType(JSON);
+            CompressionFilter.disable(response);
+            response.getOutputStream().write(body);
+        });
+
+        assertThat(exchange.headers).doesNotContainKey("Content-Encoding");
+        assertThat(exchange.sink.toByteArray()).isEqualTo(body);
+    }
+
+    @Test
+    void givenNothingCompressedYet_whenRatioRead_thenOneInsteadOfNaN() {
+        assertThat(CompressionFilter.ratio(0, 0)).isEqualTo(1.0);
+        assertThat(CompressionFilter.ratio(4_652, 526)).isCloseTo(8.84, within(0.01));
+    }
+
+    @Test
+    void givenAcceptEncodingWithQValues_whenNegotiated_thenPicksHighestAcceptable() {
+        assertThat(ContentEncoding.negotiate("deflate, gzip")).isEqualTo(ContentEncoding.GZIP);
+        assertThat(ContentEncoding.negotiate("gzip;q=0, deflate;q=0.1")).isEqualTo(ContentEncoding.DEFLATE);
+        assertThat(ContentEncoding.negotiate("br, *;q=0.2")).isEqualTo(ContentEncoding.GZIP);
+        assertThat(ContentEncoding.negotiate("*;q=0, identity")).isNull();
+        assertThat(ContentEncoding.negotiate("br")).isNull();
+        assertThat(ContentEncoding.negotiate(null)).isNull();
+    }
+
+    private static byte[] friendsJson(int count) {
+        StringBuilder json = new StringBuilder("[\n");
+        for (int i = 1; i <= count; i++) {
+            json.append(String.format("  {\n    \"id\": %d,\n    \"email\": \"user%d@mail.ru\",\n"
+                    + "    \"login\": \"user%d\",\n    \"name\": \"User %d\"\n  }%s\n", i, i, i, i,
+                    i == count ? "" : ","));
+        }
+        return json.append("]").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (InputStream input = in) {
+            return input.readAllBytes();
+        }
+    }
+
+    private static class FakeExchange {
+
+        final Map<String, String> headers = new HashMap<>();
+        final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        final HttpServletRequest request;
+        final HttpServletResponse response;
+        String contentType;
+
+        FakeExchange(String acceptEncoding) {
+            ServletOutputStream out = new ServletOutputStream() {
+                @Override
+                public void write(int b) {
+                    sink.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    sink.write(b, off, len);
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                }
+            };
+            request = (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "getMethod":
+                                return "GET";
+                            case "getHeader":
+                                return "Accept-Encoding".equals(args[0]) ? acceptEncoding : null;
+                            case "isAsyncStarted":
+                                return false;
+                            default:
+                                return null;
+                        }
+                    });
+            response = (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{HttpServletResponse.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "getOutputStream":
+                                return out;
+                            case "setHeader":
+                            case "addHeader":
+                                headers.put((String) args[0], (String) args[1]);
+                                return null;
+                            case "getHeader":
+                                return headers.get(args[0]);
+                            case "containsHeader":
+                                return headers.containsKey(args[0]);
+                            case "setContentType":
+                                contentType = (String) args[0];
+                                return null;
+                            case "getContentType":
+                                return contentType;
+                            case "getStatus":
+                                return 200;
+                            case "isCommitted":
+                                return false;
+                            default:
+                                return null;
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package controller.json;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonWriter;
+import model.Film;
+import model.Genre;
+import model.Mpa;
+import model.User;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonCodecTest {
+
+    private static final User user = new User(7, "frest@mail.ru", "Oleg",
+            "Терентьев 😀", LocalDate.of(1993, 12, 3));
+
+    @Test
+    void givenUser_whenWritten_thenCompactJson() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonWriter writer = JsonCodec.newWriter(out)) {
+            JsonCodec.writeUsers(writer, List.of(user));
+        }
+
+        assertEquals("[{\"id\":7,\"email\":\"frest@mail.ru\",\"login\":\"Oleg\"," +
+                        "\"name\":\"Терентьев 😀\",\"birthday\":\"1993-12-03\"}]",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void givenHtmlCharacters_whenUserWritten_thenNotEscaped() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonWriter writer = JsonCodec.newWriter(out)) {
+            JsonCodec.writeUser(writer, new User(8, "a&b@mail.ru", "o'neil", "<b>=</b>", null));
+        }
+
+        assertEquals("{\"id\":8,\"email\":\"a&b@mail.ru\",\"login\":\"o'neil\",\"name\":\"<b>=</b>\"}",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void givenWrittenUser_whenRead_thenSameUser() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonWriter writer = JsonCodec.newWriter(out)) {
+            JsonCodec.writeUser(writer, user);
+        }
+
+        User read = JsonCodec.readUser(JsonCodec.newReader(new ByteArrayInputStream(out.toByteArray())));
+
+        assertEquals(user, read);
+    }
+
+    @Test
+    void givenUnknownAndNullFields_whenRead_thenIgnored() throws Exception {
+        String json = "{\"email\":\"frest@mail.ru\",\"login\":\"Oleg\",\"name\":null,\"extra\":[1,2]," +
+                "\"birthday\":\"1993-12-03\"}";
+
+        User read = JsonCodec.readUser(JsonCodec.newReader(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))));
+
+        assertEquals(new User(0, "frest@mail.ru", "Oleg", null, LocalDate.of(1993, 12, 3)), read);
+    }
+
+    @Test
+    void givenMalformedBirthday_whenRead_thenThrown() {
+        String json = "{\"email\":\"frest@mail.ru\",\"birthday\":\"03.12.1993\"}";
+
+        assertThatThrownBy(() -> JsonCodec.readUser(JsonCodec.newReader(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)))))
+                .isInstanceOf(JsonParseException.class);
+    }
+
+    @Test
+    void givenFilm_whenWrittenAndRead_thenIdsRoundTrip() throws Exception {
+        Film film = new Film(3, "Film", "Description", LocalDate.of(2000, 1, 1), 120, new Mpa(1, "G"),
+                List.of(new Genre(2, "Драма")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonWriter writer = JsonCodec.newWriter(out)) {
+            JsonCodec.writeFilm(writer, film);
+        }
+
+        assertEquals("{\"id\":3,\"name\":\"Film\",\"description\":\"Description\"," +
+                        "\"releaseDate\":\"2000-01-01\",\"duration\":120,\"mpa\":{\"id\":1,\"name\":\"G\"}," +
+                        "\"genres\":[{\"id\":2,\"name\":\"Драма\"}]}",
+                out.toString(StandardCharsets.UTF_8));
+        Film read = JsonCodec.readFilm(JsonCodec.newReader(new ByteArrayInputStream(out.toByteArray())));
+        assertEquals(1, read.getMpa().getId());
+        assertEquals(List.of(new Genre(2, null)), read.getGenres());
+        assertEquals(film.getReleaseDate(), read.getReleaseDate());
+    }
+}
@@ -0,0 +1,114 @@
+package controller.routing;
+
+import metrics.LatencyHistogram;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RouterTest {
+
+    private final List<String> handled = new ArrayList<>();
+    private final Router router = new Router("/users", route -> new LatencyHistogram());
+
+    RouterTest() {
+        router.add("GET", "", (request, response, variables) -> handled.add("all"));
+        router.add("GET", "/common-friends", (request, response, variables) -> handled.add("group"));
+        router.add("GET", "/{id}", (request, response, variables) -> handled.add("user " + variables.getLong("id")));
+        router.add("GET", "/{id}/friends/common/{otherId}", (request, response, variables) ->
+                handled.add("common " + variables.getLong("id") + " " + variables.getLong("otherId")));
+        router.add("PUT", "/{id}/friends/{friendId}", (request, response, variables) ->
+                handled.add("befriend " + variables.getLong("id") + " " + variables.getLong("friendId")));
+        router.add("DELETE", "/{id}", (request, response, variables) ->
+                handled.add("remove " + variables.getLong("id")));
+    }
+
+    @Test
+    public void givenTemplates_whenRouted_thenLiteralsWinAndVariablesParsed() throws IOException {
+        route("GET", null);
+        route("GET", "/");
+        route("GET", "/common-friends");
+        route("GET", "/42/");
+        route("GET", "/7/friends/common/-9");
+        route("PUT", "/7/friends/8");
+        route("HEAD", "/3");
+        route("DELETE", "/5");
+
+        assertThat(handled).containsExactly("all", "all", "group", "user 42", "common 7 -9", "befriend 7 8",
+                "user 3", "remove 5");
+    }
+
+    @Test
+    public void givenUnknownPathOrMethod_whenRouted_then404Or405WithAllow() throws IOException {
+        assertThat(route("GET", "/1/unknown").status).isEqualTo(404);
+        assertThat(route("GET", "/1//friends").status).isEqualTo(404);
+        assertThat(route("DELETE", "/1/friends/common/2").status).isEqualTo(405);
+        FakeResponse response = route("POST", "/1");
+        assertThat(response.status).isEqualTo(405);
+        assertThat(response.headers).containsEntry("Allow", "GET, DELETE");
+        assertThat(handled).isEmpty();
+    }
+
+    @Test
+    public void givenMalformedVariable_whenRead_thenNumberFormatException() {
+        assertThatThrownBy(() -> route("GET", "/abc")).isInstanceOf(NumberFormatException.class)
+                .hasMessage("id must be a number");
+        assertThatThrownBy(() -> route("GET", "/9223372036854775808")).isInstanceOf(NumberFormatException.class);
+        assertThatThrownBy(() -> route("GET", "/-")).isInstanceOf(NumberFormatException.class);
+        assertThat(PathVariables.parseLong("/9223372036854775807", 1, 20, "id")).isEqualTo(Long.MAX_VALUE);
+        assertThat(PathVariables.parseLong("/-9223372036854775808/", 1, 21, "id")).isEqualTo(Long.MIN_VALUE);
+    }
+
+    @Test
+    public void givenDuplicateOrMalformedTemplate_whenAdded_thenRejected() {
+        assertThatThrownBy(() -> router.add("GET", "/{other}", (request, response, variables) -> { }))
+                .isInstanceOf(IllegalArgumentException.class).hasMessage("Duplicate route: GET /users/{other}");
+        assertThatThrownBy(() -> router.add("GET", "/friends/", (request, response, variables) -> { }))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private FakeResponse route(String method, String pathInfo) throws IOException {
+        FakeResponse response = new FakeResponse();
+        HttpServletRequest request = (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{HttpServletRequest.class}, (proxy, invoked, args) -> {
+                    switch (invoked.getName()) {
+                        case "getMethod":
+                            return method;
+                        case "getPathInfo":
+                            return pathInfo;
+                        default:
+                            return null;
+                    }
+                });
+        router.handle(request, response.proxy);
+        return response;
+    }
+
+    private static class FakeResponse {
+
+        final Map<String, String> headers = new HashMap<>();
+        int status = 200;
+        final HttpServletResponse proxy = (HttpServletResponse) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[]{HttpServletResponse.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "sendError":
+                            status = (Integer) args[0];
+                            return null;
+                        case "setHeader":
+                            headers.put((String) args[0], (String) args[1]);
+                            return null;
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
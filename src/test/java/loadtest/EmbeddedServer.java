@@ -0,0 +1,72 @@
+package loadtest;
+
+import controller.FilmController;
+import controller.MetricsController;
+import controller.UserController;
+import controller.compression.CompressionFilter;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.FilterHolder;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServlet;
+import java.net.URI;
+import java.util.EnumSet;
+
+// The webapp's servlets in an embedded Jetty on localhost; port 0 picks a free port.
+public class EmbeddedServer implements AutoCloseable {
+
+    private final Server server;
+    private final URI baseUri;
+
+    private EmbeddedServer(Server server, URI baseUri) {
+        this.server = server;
+        this.baseUri = baseUri;
+    }
+
+    public static EmbeddedServer start(int port) throws Exception {
+        Server server = new Server();
+        ServerConnector connector = new ServerConnector(server);
+        connector.setHost("127.0.0.1");
+        connector.setPort(port);
+        server.addConnector(connector);
+
+        ServletContextHandler context = new ServletContextHandler();
+        context.setContextPath("/");
+        addServlet(context, new UserController(), "/users/*");
+        addServlet(context, new FilmController(), "/films/*");
+        addServlet(context, new MetricsController(), "/metrics");
+        FilterHolder compression = new FilterHolder(new CompressionFilter());
+        compression.setAsyncSupported(true);
+        context.addFilter(compression, "/users/*", EnumSet.of(DispatcherType.REQUEST));
+        context.addFilter(compression, "/films/*", EnumSet.of(DispatcherType.REQUEST));
+        server.setHandler(context);
+        server.start();
+        return new EmbeddedServer(server, URI.create("http://127.0.0.1:" + connector.getLocalPort() + "/"));
+    }
+
+    public URI getBaseUri() {
+        return baseUri;
+    }
+
+    // Narrower than AutoCloseable: a close that can throw InterruptedException trips -Xlint:try.
+    @Override
+    public void close() {
+        try {
+            server.stop();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("EmbeddedServer: interrupted while stopping.", e);
+        } catch (Exception e) {
+            throw new IllegalStateException("EmbeddedServer: stop failed.", e);
+        }
+    }
+
+    private static void addServlet(ServletContextHandler context, HttpServlet servlet, String pathSpec) {
+        ServletHolder holder = new ServletHolder(servlet);
+        holder.setAsyncSupported(true);
+        context.addServlet(holder, pathSpec);
+    }
+}
@@ -0,0 +1,122 @@
+package loadtest;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Load test settings, read from load.* system properties.
+public class LoadConfig {
+
+    private static final String PREFIX = "load.";
+    private static final String DEFAULT_MIX = "getUser=50,getFriends=20,commonFriends=10,addUser=10,updateUser=10";
+
+    private final int ratePerSecond;
+    private final Duration warmup;
+    private final Duration duration;
+    private final int users;
+    private final int friendsPerUser;
+    private final int maxInFlight;
+    private final Map<Operation, Integer> mix;
+    private final long seed;
+    private final Path reportDir;
+
+    public LoadConfig(int ratePerSecond, Duration warmup, Duration duration, int users, int friendsPerUser,
+                      int maxInFlight, Map<Operation, Integer> mix, long seed, Path reportDir) {
+        if (ratePerSecond < 1) {
+            throw new IllegalArgumentException("Load rate must be positive");
+        }
+        this.ratePerSecond = ratePerSecond;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.users = users;
+        this.friendsPerUser = friendsPerUser;
+        this.maxInFlight = maxInFlight;
+        this.mix = mix;
+        this.seed = seed;
+        this.reportDir = reportDir;
+    }
+
+    public static LoadConfig fromSystemProperties() {
+        return new LoadConfig(
+                Integer.getInteger(PREFIX + "rate", 500),
+                Duration.ofSeconds(Long.getLong(PREFIX + "warmupSeconds", 5)),
+                Duration.ofSeconds(Long.getLong(PREFIX + "durationSeconds", 30)),
+                Integer.getInteger(PREFIX + "users", 10_000),
+                Integer.getInteger(PREFIX + "friendsPerUser", 20),
+                Integer.getInteger(PREFIX + "maxInFlight", 10_000),
+                parseMix(System.getProperty(PREFIX + "mix", DEFAULT_MIX)),
+                Long.getLong(PREFIX + "seed", 42),
+                Paths.get(System.getProperty(PREFIX + "reportDir", "target/loadtest")));
+    }
+
+    // "getUser=50,addUser=10": weights, not percentages.
+    public static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException(String.format("Bad load mix entry: %s", entry));
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException(String.format("Negative load mix weight: %s", entry));
+            }
+            if (weight > 0) {
+                weights.put(Operation.fromName(parts[0].trim()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Load mix is empty");
+        }
+        return weights;
+    }
+
+    public int getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    public Duration getWarmup() {
+        return warmup;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    public int getFriendsPerUser() {
+        return friendsPerUser;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public Map<Operation, Integer> getMix() {
+        return mix;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public Path getReportDir() {
+        return reportDir;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder mixText = new StringBuilder();
+        mix.forEach((operation, weight) -> mixText.append(mixText.length() == 0 ? "" : ",")
+                .append(operation.getName()).append('=').append(weight));
+        return String.format(Locale.ROOT, "rate=%s/s warmup=%ss duration=%ss users=%s friendsPerUser=%s "
+                        + "maxInFlight=%s seed=%s mix=%s", ratePerSecond, warmup.getSeconds(),
+                duration.getSeconds(), users, friendsPerUser, maxInFlight, seed, mixText);
+    }
+}
@@ -0,0 +1,159 @@
+package loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load: requests start on a fixed schedule whether or not earlier ones have completed,
+ * and latency is measured from the scheduled start rather than the actual send. A stalled server
+ * therefore shows up as queueing delay in the histograms instead of as fewer, faster samples
+ * (the coordinated-omission correction). A request dropped at {@code maxInFlight} is recorded
+ * when the next slot frees up, so its latency is a lower bound rather than a missing sample.
+ */
+@Slf4j
+public class LoadGenerator {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final LoadConfig config;
+    private final URI baseUri;
+    private final long[] userIds;
+
+    public LoadGenerator(LoadConfig config, URI baseUri, long[] userIds) {
+        this.config = config;
+        this.baseUri = baseUri;
+        this.userIds = userIds;
+    }
+
+    public LoadReport run() throws InterruptedException {
+        Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+        config.getMix().keySet().forEach(operation -> stats.put(operation, new Stats()));
+        Operation[] schedule = weightedSchedule(config.getMix());
+        SplittableRandom random = new SplittableRandom(config.getSeed());
+
+        ExecutorService callbacks = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(callbacks)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        AtomicInteger inFlight = new AtomicInteger();
+        Queue<Dropped> dropped = new ConcurrentLinkedQueue<>();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / config.getRatePerSecond();
+        long start = System.nanoTime();
+        long measureFrom = start + config.getWarmup().toNanos();
+        long end = measureFrom + config.getDuration().toNanos();
+
+        try {
+            for (long i = 0; ; i++) {
+                long intended = start + i * intervalNanos;
+                if (intended - end >= 0) {
+                    break;
+                }
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                Operation operation = schedule[random.nextInt(schedule.length)];
+                boolean measured = intended - measureFrom >= 0;
+                Stats operationStats = stats.get(operation);
+                if (inFlight.get() >= config.getMaxInFlight()) {
+                    if (measured) {
+                        operationStats.dropped.incrementAndGet();
+                        dropped.add(new Dropped(operationStats, intended));
+                    }
+                    continue;
+                }
+                HttpRequest request = operation.request(baseUri, userIds, random);
+                inFlight.incrementAndGet();
+                client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                        .whenComplete((response, error) -> {
+                            inFlight.decrementAndGet();
+                            Dropped waiting = dropped.poll();
+                            if (waiting != null) {
+                                record(waiting.stats, waiting.intended);
+                            }
+                            if (!measured) {
+                                return;
+                            }
+                            record(operationStats, intended);
+                            if (error != null || response.statusCode() >= 400) {
+                                operationStats.errors.incrementAndGet();
+                            }
+                        });
+            }
+            long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+            while (inFlight.get() > 0 && System.nanoTime() - drainDeadline < 0) {
+                Thread.sleep(10);
+            }
+            if (inFlight.get() > 0) {
+                log.warn("{} requests still in flight after {} s", inFlight.get(), DRAIN_TIMEOUT.getSeconds());
+            }
+            // No slot freed up for these before the run ended; charge them until now.
+            Dropped waiting;
+            while ((waiting = dropped.poll()) != null) {
+                record(waiting.stats, waiting.intended);
+            }
+        } finally {
+            callbacks.shutdownNow();
+        }
+
+        Map<Operation, LoadReport.Result> results = new EnumMap<>(Operation.class);
+        stats.forEach((operation, operationStats) -> results.put(operation, new LoadReport.Result(
+                operationStats.latency.copy(), operationStats.errors.get(), operationStats.dropped.get())));
+        return new LoadReport(config, results);
+    }
+
+    private static void record(Stats stats, long intended) {
+        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended);
+        stats.latency.recordValue(Math.min(latencyMicros, HIGHEST_TRACKABLE_MICROS));
+    }
+
+    // Each operation appears as many times as its weight, so a uniform pick follows the mix.
+    private static Operation[] weightedSchedule(Map<Operation, Integer> mix) {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        Operation[] schedule = new Operation[total];
+        int next = 0;
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                schedule[next++] = entry.getKey();
+            }
+        }
+        return schedule;
+    }
+
+    private static class Stats {
+        private final Histogram latency = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+    }
+
+    private static class Dropped {
+        private final Stats stats;
+        private final long intended;
+
+        Dropped(Stats stats, long intended) {
+            this.stats = stats;
+            this.intended = intended;
+        }
+    }
+}
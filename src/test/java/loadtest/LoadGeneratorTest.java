@@ -0,0 +1,83 @@
+package loadtest;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import storage.StorageMode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadGeneratorTest {
+
+    // StorageFactory is a singleton, so the mode only takes effect if nothing in this JVM created it before.
+    @Test
+    @Tag("loadtest")
+    void givenMixedLoad_whenRunAgainstEmbeddedServer_thenEveryOperationMeasuredWithoutErrors() throws Exception {
+        String storageMode = System.getProperty(StorageMode.PROPERTY);
+        System.setProperty(StorageMode.PROPERTY, StorageMode.MEMORY.name());
+        LoadReport report;
+        LoadConfig config = new LoadConfig(200, Duration.ZERO, Duration.ofSeconds(1), 50, 5, 1_000,
+                LoadConfig.parseMix("getUser=2,getFriends=2,commonFriends=2,addUser=1,updateUser=1"), 7,
+                Paths.get("target/loadtest"));
+        try {
+            report = LoadTest.run(config);
+        } finally {
+            if (storageMode == null) {
+                System.clearProperty(StorageMode.PROPERTY);
+            } else {
+                System.setProperty(StorageMode.PROPERTY, storageMode);
+            }
+        }
+
+        assertEquals(config.getMix().keySet(), report.getResults().keySet());
+        report.getResults().forEach((operation, result) -> {
+            assertThat(result.getLatency().getTotalCount()).as(operation.getName()).isPositive();
+            assertEquals(0, result.getErrors(), operation.getName());
+        });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        report.print(new PrintStream(out, true, StandardCharsets.UTF_8));
+        assertThat(out.toString(StandardCharsets.UTF_8)).contains("p999_us").contains("commonFriends");
+    }
+
+    @Test
+    void givenStalledServer_whenRequestsDropped_thenDroppedRequestsStillRecorded() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+        LoadConfig config = new LoadConfig(100, Duration.ZERO, Duration.ofMillis(500), 1, 0, 1,
+                LoadConfig.parseMix("getUser=1"), 7, Paths.get("target/loadtest"));
+        LoadReport.Result result;
+        try {
+            URI base = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+            result = new LoadGenerator(config, base, new long[]{1}).run().getResults().get(Operation.GET_USER);
+        } finally {
+            server.stop(0);
+        }
+
+        assertThat(result.getDropped()).isPositive();
+        assertEquals(50, result.getLatency().getTotalCount());
+        assertThat(result.getLatency().getValueAtPercentile(50)).isGreaterThan(50_000);
+    }
+
+    @Test
+    void givenUnknownOperation_whenMixParsed_thenRejected() {
+        assertThrows(IllegalArgumentException.class, () -> LoadConfig.parseMix("getUser=1,deleteAll=1"));
+    }
+}
@@ -0,0 +1,88 @@
+package loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * One line per operation with fixed columns so two runs can be diffed, plus a full percentile
+ * distribution per operation (.hgrm, milliseconds) for plotting.
+ */
+public class LoadReport {
+
+    private static final String HEADER_FORMAT = "%-14s %9s %7s %8s %10s %10s %10s %10s %10s%n";
+    private static final String ROW_FORMAT = "%-14s %9d %7d %8d %10d %10d %10d %10d %10d%n";
+
+    private final LoadConfig config;
+    private final Map<Operation, Result> results;
+
+    public LoadReport(LoadConfig config, Map<Operation, Result> results) {
+        this.config = config;
+        this.results = results;
+    }
+
+    public Map<Operation, Result> getResults() {
+        return results;
+    }
+
+    public void print(PrintStream out) {
+        out.println("# " + config);
+        if (results.values().stream().anyMatch(result -> result.getDropped() > 0)) {
+            out.println("# dropped requests are counted until a slot freed up: percentiles are lower bounds");
+        }
+        out.printf(Locale.ROOT, HEADER_FORMAT, "operation", "count", "errors", "dropped", "p50_us", "p90_us",
+                "p99_us", "p999_us", "max_us");
+        results.forEach((operation, result) -> {
+            Histogram latency = result.getLatency();
+            out.printf(Locale.ROOT, ROW_FORMAT, operation.getName(), latency.getTotalCount(), result.getErrors(),
+                    result.getDropped(), latency.getValueAtPercentile(50), latency.getValueAtPercentile(90),
+                    latency.getValueAtPercentile(99), latency.getValueAtPercentile(99.9), latency.getMaxValue());
+        });
+    }
+
+    public void write(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        try (PrintStream out = new PrintStream(Files.newOutputStream(dir.resolve("report.txt")), false,
+                StandardCharsets.UTF_8.name())) {
+            print(out);
+        }
+        for (Map.Entry<Operation, Result> entry : results.entrySet()) {
+            try (PrintStream out = new PrintStream(Files.newOutputStream(
+                    dir.resolve(entry.getKey().getName() + ".hgrm")), false, StandardCharsets.UTF_8.name())) {
+                entry.getValue().getLatency().outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+
+    public static class Result {
+
+        private final Histogram latency;
+        private final long errors;
+        private final long dropped;
+
+        public Result(Histogram latency, long errors, long dropped) {
+            this.latency = latency;
+            this.errors = errors;
+            this.dropped = dropped;
+        }
+
+        // Microseconds from the scheduled start to the response, or to a free slot for a dropped request.
+        public Histogram getLatency() {
+            return latency;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getDropped() {
+            return dropped;
+        }
+    }
+}
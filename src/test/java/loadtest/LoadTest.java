@@ -0,0 +1,72 @@
+package loadtest;
+
+import model.BatchAddResult;
+import model.User;
+import storage.FriendsStorage;
+import storage.StorageFactory;
+import storage.StorageMode;
+import storage.UserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Starts the servlets in an embedded Jetty, seeds users and friendships, drives the configured
+ * request mix and writes the report to load.reportDir. Uses in-memory storage unless
+ * storage.mode says otherwise.
+ */
+public class LoadTest {
+
+    private static final int SEED_CHUNK = 1_000;
+
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty(StorageMode.PROPERTY) == null) {
+            System.setProperty(StorageMode.PROPERTY, StorageMode.MEMORY.name());
+        }
+        LoadConfig config = LoadConfig.fromSystemProperties();
+        LoadReport report = run(config);
+        report.print(System.out);
+        report.write(config.getReportDir());
+        System.out.println("Report written to " + config.getReportDir().toAbsolutePath());
+    }
+
+    public static LoadReport run(LoadConfig config) throws Exception {
+        StorageFactory storageFactory = StorageFactory.getInstance();
+        long[] userIds = seed(storageFactory.getUserStorage(), storageFactory.getFriendsStorage(), config);
+        try (EmbeddedServer server = EmbeddedServer.start(0)) {
+            return new LoadGenerator(config, server.getBaseUri(), userIds).run();
+        }
+    }
+
+    private static long[] seed(UserStorage userStorage, FriendsStorage friendsStorage, LoadConfig config) {
+        String run = Long.toString(System.currentTimeMillis());
+        long[] userIds = new long[config.getUsers()];
+        int seeded = 0;
+        while (seeded < userIds.length) {
+            List<User> chunk = new ArrayList<>(SEED_CHUNK);
+            for (int i = seeded; i < Math.min(seeded + SEED_CHUNK, userIds.length); i++) {
+                String login = "seed-" + run + "-" + i;
+                chunk.add(new User(login + "@load.test", login, "Seed " + i, LocalDate.of(1990, 1, 1)));
+            }
+            BatchAddResult result = userStorage.addBatch(chunk);
+            for (User user : result.getAdded()) {
+                userIds[seeded++] = user.getId();
+            }
+            if (!result.getFailures().isEmpty()) {
+                throw new IllegalStateException("Seeding failed: " + result.getFailures().get(0));
+            }
+        }
+        SplittableRandom random = new SplittableRandom(config.getSeed());
+        for (long userId : userIds) {
+            long[] friends = new long[config.getFriendsPerUser()];
+            for (int i = 0; i < friends.length; i++) {
+                friends[i] = userIds[random.nextInt(userIds.length)];
+            }
+            // Self-edges and repeats come back as unknown or duplicate and are skipped.
+            friendsStorage.addFriends(userId, friends);
+        }
+        return userIds;
+    }
+}
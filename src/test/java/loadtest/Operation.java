@@ -0,0 +1,85 @@
+package loadtest;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// The request kinds the load generator mixes; ids are drawn from the seeded users.
+public enum Operation {
+    GET_USER("getUser") {
+        @Override
+        HttpRequest request(URI base, long[] userIds, SplittableRandom random) {
+            return HttpRequest.newBuilder(base.resolve("users/" + pick(userIds, random))).GET().build();
+        }
+    },
+    GET_FRIENDS("getFriends") {
+        @Override
+        HttpRequest request(URI base, long[] userIds, SplittableRandom random) {
+            return HttpRequest.newBuilder(base.resolve("users/" + pick(userIds, random) + "/friends")).GET().build();
+        }
+    },
+    COMMON_FRIENDS("commonFriends") {
+        @Override
+        HttpRequest request(URI base, long[] userIds, SplittableRandom random) {
+            return HttpRequest.newBuilder(base.resolve("users/" + pick(userIds, random) + "/friends/common/"
+                    + pick(userIds, random))).GET().build();
+        }
+    },
+    ADD_USER("addUser") {
+        @Override
+        HttpRequest request(URI base, long[] userIds, SplittableRandom random) {
+            long n = CREATED.incrementAndGet();
+            return json(base.resolve("users"), "POST", userJson(0, "load-" + RUN + "-" + n, "Load " + n));
+        }
+    },
+    UPDATE_USER("updateUser") {
+        @Override
+        HttpRequest request(URI base, long[] userIds, SplittableRandom random) {
+            long id = pick(userIds, random);
+            return json(base.resolve("users"), "PUT", userJson(id, "load-" + RUN + "-user" + id,
+                    "Updated " + random.nextInt(1000)));
+        }
+    };
+
+    // Keeps logins and emails unique across runs against the same database.
+    private static final long RUN = System.currentTimeMillis();
+    private static final AtomicLong CREATED = new AtomicLong();
+
+    private final String name;
+
+    Operation(String name) {
+        this.name = name;
+    }
+
+    abstract HttpRequest request(URI base, long[] userIds, SplittableRandom random);
+
+    public String getName() {
+        return name;
+    }
+
+    public static Operation fromName(String name) {
+        for (Operation operation : values()) {
+            if (operation.name.equals(name)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unknown load operation: %s", name));
+    }
+
+    static String userJson(long id, String login, String name) {
+        return String.format("{\"id\":%s,\"email\":\"%s@load.test\",\"login\":\"%s\",\"name\":\"%s\","
+                + "\"birthday\":\"1990-01-01\"}", id, login, login, name);
+    }
+
+    private static long pick(long[] userIds, SplittableRandom random) {
+        return userIds[random.nextInt(userIds.length)];
+    }
+
+    private static HttpRequest json(URI uri, String method, String body) {
+        return HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+}
@@ -0,0 +1,77 @@
+package metrics;
+
+import model.User;
+import org.junit.jupiter.api.Test;
+import storage.memory.InMemoryUserStorage;
+import storage.metrics.TimedUserStorage;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MetricsRegistryTest {
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+
+    @Test
+    public void givenCounterGaugeAndTimer_whenWrite_thenPrometheusTextFormat() throws IOException {
+        registry.counter("requests_total", "Requests.", "code", "2xx").add(3);
+        registry.gauge("queue_depth", "Queued requests.", () -> 7);
+        LatencyHistogram timer = registry.timer("request_seconds", "Request latency.", "route", "GET /users");
+        timer.record(2_000_000);
+        timer.record(2_000_000);
+
+        String text = write();
+
+        assertThat(text).contains(
+                "# HELP requests_total Requests.\n# TYPE requests_total counter\nrequests_total{code=\"2xx\"} 3\n",
+                "# TYPE queue_depth gauge\nqueue_depth 7\n",
+                "# TYPE request_seconds summary\n",
+                "request_seconds_sum{route=\"GET /users\"} 0.004\n",
+                "request_seconds_count{route=\"GET /users\"} 2\n");
+        assertThat(text).containsPattern("request_seconds\\{route=\"GET /users\",quantile=\"0.99\"} 0\\.00[12]\\d*\n");
+    }
+
+    @Test
+    public void givenRegisteredMetric_whenRegisteredAgain_thenSameInstanceOrTypeConflict() {
+        LongAdder first = registry.counter("hits_total", "Hits.", "cache", "user");
+
+        assertThat(registry.counter("hits_total", "Hits.", "cache", "user")).isSameAs(first);
+        assertThat(registry.counter("hits_total", "Hits.", "cache", "film")).isNotSameAs(first);
+        assertThatThrownBy(() -> registry.timer("hits_total", "Hits."))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> registry.counter("bad-name", "Bad."))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void givenLabelValueWithQuotes_whenWrite_thenEscaped() throws IOException {
+        registry.counter("errors_total", "Errors.", "message", "say \"hi\"\\now").increment();
+
+        assertThat(write()).contains("errors_total{message=\"say \\\"hi\\\"\\\\now\"} 1\n");
+    }
+
+    @Test
+    public void givenTimedUserStorage_whenCalled_thenEachMethodRecordedUnderItsLayer() throws IOException {
+        TimedUserStorage userStorage = new TimedUserStorage(new InMemoryUserStorage(), registry, "memory");
+
+        User added = userStorage.add(new User("frest@mail.ru", "Oleg", "TerentevO", LocalDate.of(1994, 12, 3)));
+        userStorage.getById(added.getId());
+        userStorage.getById(added.getId() + 1);
+
+        assertThat(write()).contains(
+                "storage_call_duration_seconds_count{storage=\"user\",layer=\"memory\",method=\"add\"} 1\n",
+                "storage_call_duration_seconds_count{storage=\"user\",layer=\"memory\",method=\"getById\"} 2\n",
+                "storage_call_duration_seconds_count{storage=\"user\",layer=\"memory\",method=\"remove\"} 0\n");
+    }
+
+    private String write() throws IOException {
+        StringWriter writer = new StringWriter();
+        registry.writeTo(writer);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,150 @@
+package service;
+
+import model.Film;
+import model.Mpa;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import storage.FilmDictionary;
+import storage.likes.LikesMatrix;
+import storage.memory.InMemoryFilmStorage;
+import storage.memory.InMemoryLikesStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilmRecommenderTest {
+
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage(FilmDictionary.defaults());
+    private final InMemoryLikesStorage likesStorage = new InMemoryLikesStorage();
+    private LikesMatrix likesMatrix;
+
+    @AfterEach
+    void tearDown() {
+        if (likesMatrix != null) {
+            likesMatrix.close();
+        }
+    }
+
+    @Test
+    void givenOverlappingUsers_whenRecommend_thenUnseenFilmsRankedByOverlap() {
+        List<Film> films = addFilms(5);
+        like(1, films, 0, 1);
+        like(2, films, 0, 1, 2);
+        like(3, films, 0, 3);
+        like(4, films, 4);
+        FilmRecommender recommender = recommender();
+
+        assertEquals(ids(films.get(2), films.get(3)), ids(recommender.recommend(1, 10)));
+        assertEquals(ids(films.get(2)), ids(recommender.recommend(1, 1)));
+        assertTrue(recommender.recommend(99, 10).isEmpty());
+    }
+
+    @Test
+    void givenLikesAfterLoad_whenRecommend_thenMatrixUpdatedIncrementally() {
+        List<Film> films = addFilms(3);
+        like(1, films, 0);
+        like(2, films, 0, 1);
+        FilmRecommender recommender = recommender();
+
+        likesStorage.addLike(films.get(1).getId(), 1);
+        likesStorage.addLike(films.get(2).getId(), 2);
+
+        assertEquals(ids(films.get(2)), ids(recommender.recommend(1, 10)));
+        assertArrayEquals(new long[]{films.get(0).getId(), films.get(1).getId()}, likesMatrix.filmsOf(1));
+    }
+
+    @Test
+    void givenFilmAndUserRemoved_whenRecommend_thenCascadedLikesLeaveMatrix() {
+        List<Film> films = addFilms(3);
+        like(1, films, 0);
+        like(2, films, 0, 1);
+        like(3, films, 0, 2);
+        FilmRecommender recommender = recommender();
+
+        likesStorage.removeFilm(films.get(1).getId());
+        likesStorage.removeUser(3);
+
+        assertTrue(recommender.recommend(1, 10).isEmpty());
+        assertArrayEquals(new long[]{1, 2}, likesMatrix.usersOf(films.get(0).getId()));
+        assertEquals(0, likesMatrix.filmsOf(3).length);
+        assertEquals(0, likesMatrix.usersOf(films.get(1).getId()).length);
+    }
+
+    @Test
+    void givenManyLikers_whenRecommend_thenParallelScoringMatchesBruteForce() {
+        List<Film> films = addFilms(40);
+        Map<Long, Set<Long>> likes = new HashMap<>();
+        for (long userId = 1; userId < 2_000; userId++) {
+            for (int i = 0; i < films.size(); i++) {
+                if (userId == 1 ? i < 20 : (userId * 31 + i * 17) % 7 < 3) {
+                    likesStorage.addLike(films.get(i).getId(), userId);
+                    likes.computeIfAbsent(userId, id -> new HashSet<>()).add(films.get(i).getId());
+                }
+            }
+        }
+
+        assertEquals(bruteForce(likes, 1, 50, 10), ids(recommender().recommend(1, 10)));
+    }
+
+    private static List<Long> bruteForce(Map<Long, Set<Long>> likes, long userId, int neighbours, int limit) {
+        Set<Long> liked = likes.get(userId);
+        Map<Long, Integer> overlaps = new HashMap<>();
+        likes.forEach((other, films) -> {
+            int overlap = (int) films.stream().filter(liked::contains).count();
+            if (other != userId && overlap > 0) {
+                overlaps.put(other, overlap);
+            }
+        });
+        Map<Long, Integer> scores = new HashMap<>();
+        ranked(overlaps, neighbours).forEach(other -> likes.get(other).stream()
+                .filter(film -> !liked.contains(film))
+                .forEach(film -> scores.merge(film, overlaps.get(other), Integer::sum)));
+        return ranked(scores, limit);
+    }
+
+    private static List<Long> ranked(Map<Long, Integer> counts, int limit) {
+        return counts.keySet().stream()
+                .sorted(Comparator.comparing((Long id) -> counts.get(id)).reversed()
+                        .thenComparing(Comparator.naturalOrder()))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    private FilmRecommender recommender() {
+        likesMatrix = LikesMatrix.load(likesStorage, 10_000, Duration.ofHours(1));
+        return new FilmRecommender(likesMatrix, filmStorage, 50);
+    }
+
+    private void like(long userId, List<Film> films, int... indexes) {
+        for (int index : indexes) {
+            likesStorage.addLike(films.get(index).getId(), userId);
+        }
+    }
+
+    private List<Film> addFilms(int count) {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            films.add(filmStorage.add(new Film("Film " + i, "description", LocalDate.of(2000, 1, 1), 90,
+                    new Mpa(1, null), List.of())));
+        }
+        return films;
+    }
+
+    private static List<Long> ids(Film... films) {
+        return ids(List.of(films));
+    }
+
+    private static List<Long> ids(List<Film> films) {
+        return films.stream().map(Film::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,142 @@
+package service;
+
+import model.Recommendation;
+import model.User;
+import org.junit.jupiter.api.Test;
+import storage.FriendsStorage;
+import storage.memory.InMemoryFriendsStorage;
+import storage.memory.InMemoryUserStorage;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FriendRecommenderTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final InMemoryUserStorage userStorage = new InMemoryUserStorage();
+    private final InMemoryFriendsStorage friendsStorage = new InMemoryFriendsStorage(userStorage);
+    private final FriendRecommender recommender = new FriendRecommender(friendsStorage, userStorage,
+            Duration.ofSeconds(60), 100, now::get);
+
+    @Test
+    void givenTwoHopGraph_whenRecommend_thenRankedByMutualFriends() {
+        User a = addUser(1);
+        User b = addUser(2);
+        User c = addUser(3);
+        User d = addUser(4);
+        User e = addUser(5);
+        friendsStorage.addFriends(a.getId(), new long[]{b.getId(), c.getId()});
+        friendsStorage.addFriends(b.getId(), new long[]{d.getId(), e.getId(), c.getId()});
+        friendsStorage.addFriends(c.getId(), new long[]{d.getId(), a.getId()});
+
+        assertEquals(List.of(new Recommendation(d, 2), new Recommendation(e, 1)),
+                recommender.recommend(a.getId(), 10));
+        assertEquals(List.of(new Recommendation(d, 2)), recommender.recommend(a.getId(), 1));
+    }
+
+    @Test
+    void givenHighDegreeUser_whenRecommend_thenParallelCountsMatch() {
+        User user = addUser(0);
+        User popular = addUser(1);
+        User rare = addUser(2);
+        long[] friends = new long[600];
+        for (int i = 0; i < friends.length; i++) {
+            User friend = addUser(10 + i);
+            friends[i] = friend.getId();
+            friendsStorage.addFriend(friend.getId(), popular.getId());
+            if (i % 3 == 0) {
+                friendsStorage.addFriend(friend.getId(), rare.getId());
+            }
+        }
+        friendsStorage.addFriends(user.getId(), friends);
+
+        List<Recommendation> recommendations = recommender.recommend(user.getId(), 5);
+
+        assertEquals(List.of(new Recommendation(popular, 600), new Recommendation(rare, 200)), recommendations);
+    }
+
+    @Test
+    void givenQueryBackedStorage_whenHighDegreeUserRecommended_thenScoredOnCallingThread() {
+        User user = addUser(0);
+        User popular = addUser(1);
+        long[] friends = new long[300];
+        for (int i = 0; i < friends.length; i++) {
+            friends[i] = addUser(10 + i).getId();
+            friendsStorage.addFriend(friends[i], popular.getId());
+        }
+        friendsStorage.addFriends(user.getId(), friends);
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        FriendsStorage queryBacked = (FriendsStorage) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{FriendsStorage.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("isInMemory")) {
+                        return false;
+                    }
+                    threads.add(Thread.currentThread());
+                    return method.invoke(friendsStorage, args);
+                });
+        FriendRecommender recommender = new FriendRecommender(queryBacked, userStorage,
+                Duration.ofSeconds(60), 100, now::get);
+
+        assertEquals(List.of(new Recommendation(popular, 300)), recommender.recommend(user.getId(), 5));
+        assertEquals(Set.of(Thread.currentThread()), threads);
+    }
+
+    @Test
+    void givenRecommendedUserDeleted_whenRecommendFromCache_thenLimitFilledFromRestOfRanking() {
+        User a = addUser(1);
+        User b = addUser(2);
+        User c = addUser(3);
+        User d = addUser(4);
+        User e = addUser(5);
+        friendsStorage.addFriend(a.getId(), b.getId());
+        friendsStorage.addFriends(b.getId(), new long[]{c.getId(), d.getId(), e.getId()});
+        assertEquals(List.of(new Recommendation(c, 1)), recommender.recommend(a.getId(), 1));
+
+        userStorage.remove(c.getId());
+
+        assertEquals(List.of(new Recommendation(d, 1)), recommender.recommend(a.getId(), 1));
+        assertEquals(List.of(new Recommendation(d, 1), new Recommendation(e, 1)),
+                recommender.recommend(a.getId(), 3));
+    }
+
+    @Test
+    void givenCachedRanking_whenEdgesChange_thenStaleUntilInvalidated() {
+        User a = addUser(1);
+        User b = addUser(2);
+        User c = addUser(3);
+        friendsStorage.addFriend(a.getId(), b.getId());
+        assertTrue(recommender.recommend(a.getId(), 10).isEmpty());
+
+        friendsStorage.addFriend(b.getId(), c.getId());
+        assertTrue(recommender.recommend(a.getId(), 10).isEmpty());
+
+        recommender.invalidate(a.getId());
+        assertEquals(List.of(new Recommendation(c, 1)), recommender.recommend(a.getId(), 10));
+    }
+
+    @Test
+    void givenExpiredRanking_whenRecommend_thenRecomputed() {
+        User a = addUser(1);
+        User b = addUser(2);
+        User c = addUser(3);
+        friendsStorage.addFriend(a.getId(), b.getId());
+        recommender.recommend(a.getId(), 10);
+        friendsStorage.addFriend(b.getId(), c.getId());
+
+        now.addAndGet(Duration.ofSeconds(61).toNanos());
+
+        assertEquals(List.of(new Recommendation(c, 1)), recommender.recommend(a.getId(), 10));
+    }
+
+    private User addUser(int n) {
+        return userStorage.add(new User("rec" + n + "@mail.ru", "login" + n,
+                "Name" + n, LocalDate.of(1990, 1, 1)));
+    }
+}
@@ -0,0 +1,139 @@
+package storage.cache;
+
+import model.User;
+import org.junit.jupiter.api.Test;
+import storage.memory.InMemoryUserStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingUserStorageTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final AtomicLong now = new AtomicLong();
+
+    private final InMemoryUserStorage delegate = new InMemoryUserStorage() {
+        @Override
+        public Optional<User> getById(long id) {
+            loads.incrementAndGet();
+            return super.getById(id);
+        }
+    };
+
+    private final CachingUserStorage userStorage = new CachingUserStorage(delegate, 32,
+            Duration.ofSeconds(60), Duration.ofSeconds(5), now::get);
+
+    private static final User user = new User("frest@mail.ru", "Oleg",
+            "TerentevO", LocalDate.of(1993, 12, 3));
+
+    @Test
+    void givenAddedUser_whenFind_thenServedFromCache() {
+        User created = userStorage.add(user);
+
+        assertEquals(Optional.of(created), userStorage.getById(created.getId()));
+        assertEquals(0, loads.get());
+        assertEquals(1.0, userStorage.getStats().getHitRate());
+    }
+
+    @Test
+    void givenCachedUser_whenFindAgain_thenLoadedOnce() {
+        long id = delegate.add(user).getId();
+
+        assertEquals(userStorage.getById(id), userStorage.getById(id));
+        assertEquals(1, loads.get());
+        assertEquals(1, userStorage.getStats().getHits());
+        assertEquals(0.5, userStorage.getStats().getHitRate());
+    }
+
+    @Test
+    void givenPartlyCachedIds_whenGetByIds_thenOnlyMissesLoaded() {
+        User first = delegate.add(user);
+        User second = delegate.add(new User("frest1@mail.ru", "Oleg1", "TerentevO1", LocalDate.of(1994, 12, 3)));
+        userStorage.getById(first.getId());
+
+        assertEquals(List.of(first, second),
+                userStorage.getByIds(new long[]{second.getId(), first.getId(), 9999}));
+        assertEquals(3, loads.get());
+        assertEquals(List.of(first, second),
+                userStorage.getByIds(new long[]{first.getId(), second.getId(), 9999}));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void givenUpdatedUser_whenFind_thenFreshValue() {
+        long id = userStorage.add(user).getId();
+        userStorage.getById(id);
+        User updated = new User(id, "frest1@mail.ru", "Oleg1", "TerentevO1", LocalDate.of(2000, 1, 1));
+
+        assertEquals(Optional.of(updated), userStorage.update(updated));
+
+        assertEquals(Optional.of(updated), userStorage.getById(id));
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    void givenRemovedUser_whenFind_thenEmpty() {
+        long id = userStorage.add(user).getId();
+        userStorage.getById(id);
+
+        userStorage.remove(id);
+
+        assertTrue(userStorage.getById(id).isEmpty());
+    }
+
+    @Test
+    void givenMissingId_whenFindAgain_thenNegativeHit() {
+        assertTrue(userStorage.getById(1).isEmpty());
+        assertTrue(userStorage.getById(1).isEmpty());
+
+        assertEquals(1, loads.get());
+        assertEquals(1, userStorage.getStats().getNegativeHits());
+    }
+
+    @Test
+    void givenNegativeEntry_whenUserAdded_thenFound() {
+        assertTrue(userStorage.getById(1).isEmpty());
+
+        long id = userStorage.add(user).getId();
+
+        assertEquals(1, id);
+        assertTrue(userStorage.getById(id).isPresent());
+    }
+
+    @Test
+    void givenExpiredEntry_whenFind_thenReloaded() {
+        long id = userStorage.add(user).getId();
+        userStorage.getById(id);
+
+        now.addAndGet(Duration.ofSeconds(61).toNanos());
+        userStorage.getById(id);
+
+        assertEquals(1, loads.get());
+        assertEquals(1, userStorage.getStats().getExpirations());
+    }
+
+    @Test
+    void givenMoreIdsThanCapacity_whenFind_thenEvicted() {
+        for (long id = 1; id <= 1_000; id++) {
+            userStorage.getById(id);
+        }
+
+        CacheStats stats = userStorage.getStats();
+        assertTrue(stats.getSize() <= 32);
+        assertEquals(1_000 - stats.getSize(), stats.getEvictions());
+    }
+
+    @Test
+    void givenCachedUser_whenReturnedCopyModified_thenCacheUnchanged() {
+        long id = userStorage.add(user).getId();
+        userStorage.getById(id).get().setName("Changed");
+
+        assertEquals("TerentevO", userStorage.getById(id).get().getName());
+    }
+}
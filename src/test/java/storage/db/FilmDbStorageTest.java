@@ -0,0 +1,114 @@
+package storage.db;
+
+import model.Film;
+import model.Genre;
+import model.Mpa;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import storage.SqlConnection;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers
+class FilmDbStorageTest {
+
+    @Container
+    public final PostgreSQLContainer<?> POSTGRESQL_CONTAINER =
+            new PostgreSQLContainer<>("postgres:15")
+                    .withDatabaseName("postgres")
+                    .withUsername("postgres")
+                    .withPassword("iamroot");
+
+    private final AtomicInteger statements = new AtomicInteger();
+    private final FilmDbStorage filmDbStorage = new FilmDbStorage(countingDataSource(SqlConnection.getDataSource()));
+
+    @BeforeEach
+    public void setUp() {
+        POSTGRESQL_CONTAINER.start();
+    }
+
+    @AfterEach
+    public void clean() {
+        filmDbStorage.clearFilms();
+    }
+
+    @Test
+    void givenNewFilm_whenAdded_thenFoundWithMpaAndGenres() {
+        Film created = filmDbStorage.add(film("Film", List.of(new Genre(2, null), new Genre(1, null))));
+
+        assertEquals(new Mpa(3, "PG-13"), created.getMpa());
+        assertEquals(List.of(new Genre(1, "Комедия"), new Genre(2, "Драма")), created.getGenres());
+        assertEquals(Optional.of(created), filmDbStorage.getById(created.getId()));
+    }
+
+    @Test
+    void givenManyFilms_whenListed_thenConstantNumberOfQueries() {
+        for (int i = 0; i < 50; i++) {
+            filmDbStorage.add(film("Film" + i, List.of(new Genre(1 + i % 6, null))));
+        }
+        statements.set(0);
+
+        List<Film> films = filmDbStorage.getFilms();
+
+        assertEquals(50, films.size());
+        assertEquals(2, statements.get());
+        assertEquals(List.of(new Genre(2, "Драма")), films.get(1).getGenres());
+    }
+
+    @Test
+    void givenStoredFilm_whenUpdated_thenGenresReplaced() {
+        Film created = filmDbStorage.add(film("Film", List.of(new Genre(1, null))));
+        Film changed = film("Changed", List.of(new Genre(6, null)));
+        changed.setId(created.getId());
+
+        Film updated = filmDbStorage.update(changed).orElseThrow();
+
+        assertEquals(List.of(new Genre(6, "Боевик")), updated.getGenres());
+        assertEquals(Optional.of(updated), filmDbStorage.getById(created.getId()));
+        assertTrue(filmDbStorage.remove(created.getId()));
+        assertTrue(filmDbStorage.update(changed).isEmpty());
+    }
+
+    private static Film film(String name, List<Genre> genres) {
+        return new Film(name, "Description", LocalDate.of(2000, 1, 1), 120, new Mpa(3, null), genres);
+    }
+
+    private DataSource countingDataSource(DataSource dataSource) {
+        return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(dataSource, method, args);
+                    if (!method.getName().equals("getConnection")) {
+                        return result;
+                    }
+                    Connection connection = (Connection) result;
+                    return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                            (connectionProxy, connectionMethod, connectionArgs) -> {
+                                if (connectionMethod.getName().equals("prepareStatement")) {
+                                    statements.incrementAndGet();
+                                }
+                                return invoke(connection, connectionMethod, connectionArgs);
+                            });
+                });
+    }
+
+    private static Object invoke(Object target, java.lang.reflect.Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
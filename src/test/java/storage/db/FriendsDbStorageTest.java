@@ -1,5 +1,6 @@
 package storage.db;
 
+import model.FriendsBatchResult;
 import model.User;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -132,4 +133,116 @@ class FriendsDbStorageTest {
         assertThat(friends)
                 .isEmpty();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void givenFriendIdBatch_whenAddFriends_thenAppliedDuplicatesAndUnknownReported() {
+        userDbStorage.add(user);
+        userDbStorage.add(user1);
+        userDbStorage.add(user2);
+        List<User> users = userDbStorage.getUsers();
+        long id = users.get(0).getId();
+        long friend1 = users.get(1).getId();
+        long friend2 = users.get(2).getId();
+        friendsDbStorage.addFriend(id, friend1);
+
+        FriendsBatchResult result = friendsDbStorage.addFriends(id, new long[]{friend1, friend2, friend2, id, 1_000});
+
+        assertArrayEquals(new long[]{friend2}, result.getApplied());
+        assertArrayEquals(new long[]{friend1, friend2}, result.getDuplicates());
+        assertArrayEquals(new long[]{id, 1_000}, result.getUnknown());
+        assertThat(friendsDbStorage.getFriends(id)).hasSize(2);
+    }
+
+    @Test
+    public void givenFriendIdBatch_whenRemoveFriends_thenOnlyExistingEdgesApplied() {
+        userDbStorage.add(user);
+        userDbStorage.add(user1);
+        userDbStorage.add(user2);
+        List<User> users = userDbStorage.getUsers();
+        long id = users.get(0).getId();
+        long friend1 = users.get(1).getId();
+        long friend2 = users.get(2).getId();
+        friendsDbStorage.addFriend(id, friend1);
+
+        FriendsBatchResult result = friendsDbStorage.removeFriends(id, new long[]{friend1, friend2});
+
+        assertArrayEquals(new long[]{friend1}, result.getApplied());
+        assertArrayEquals(new long[]{friend2}, result.getDuplicates());
+        assertArrayEquals(new long[0], result.getUnknown());
+        assertThat(friendsDbStorage.getFriends(id)).isEmpty();
+    }
+
+    @Test
+    public void givenGroupOfUsers_whenCommonFriendsOfAll_thenOnlySharedFriends() {
+        userDbStorage.add(user);
+        userDbStorage.add(user1);
+        userDbStorage.add(user2);
+        List<User> users = userDbStorage.getUsers();
+        long id0 = users.get(0).getId();
+        long id1 = users.get(1).getId();
+        long id2 = users.get(2).getId();
+        friendsDbStorage.addFriends(id0, new long[]{id1, id2});
+        friendsDbStorage.addFriend(id1, id2);
+        friendsDbStorage.addFriend(id2, id0);
+
+        assertThat(friendsDbStorage.getCommonFriends(new long[]{id0, id1})).containsExactly(users.get(2));
+        assertThat(friendsDbStorage.getCommonFriends(new long[]{id0, id1, id2})).isEmpty();
+        assertArrayEquals(new long[]{id1, id2}, friendsDbStorage.getFriendIds(id0));
+    }
+
+    @Test
+    public void givenSingleEdgeChanges_whenGetFriendsVersion_thenIncreasesOnlyWhenListChanged() {
+        long id = userDbStorage.add(user).getId();
+        long friendId = userDbStorage.add(user1).getId();
+        long initial = friendsDbStorage.getFriendsVersion(id).getAsLong();
+
+        friendsDbStorage.addFriend(id, friendId);
+        long afterAdd = friendsDbStorage.getFriendsVersion(id).getAsLong();
+        friendsDbStorage.removeFriend(id, friendId);
+        long afterRemove = friendsDbStorage.getFriendsVersion(id).getAsLong();
+        friendsDbStorage.removeFriend(id, friendId);
+
+        assertThat(afterAdd).isGreaterThan(initial);
+        assertThat(afterRemove).isGreaterThan(afterAdd);
+        assertEquals(afterRemove, friendsDbStorage.getFriendsVersion(id).getAsLong());
+        assertTrue(friendsDbStorage.getFriendsVersion(friendId + 1000).isEmpty());
+    }
+
+    @Test
+    public void givenBatchChanges_whenGetFriendsVersion_thenIncreasesOnlyWhenSomethingApplied() {
+        long id = userDbStorage.add(user).getId();
+        long friend1 = userDbStorage.add(user1).getId();
+        long friend2 = userDbStorage.add(user2).getId();
+        long initial = friendsDbStorage.getFriendsVersion(id).getAsLong();
+
+        friendsDbStorage.addFriends(id, new long[]{friend1, friend2});
+        long afterAdd = friendsDbStorage.getFriendsVersion(id).getAsLong();
+        friendsDbStorage.addFriends(id, new long[]{friend1, friend2});
+        long afterDuplicates = friendsDbStorage.getFriendsVersion(id).getAsLong();
+        friendsDbStorage.removeFriends(id, new long[]{friend1});
+        long afterRemove = friendsDbStorage.getFriendsVersion(id).getAsLong();
+
+        assertThat(afterAdd).isGreaterThan(initial);
+        assertEquals(afterAdd, afterDuplicates);
+        assertThat(afterRemove).isGreaterThan(afterAdd);
+    }
+
+    @Test
+    public void givenFriendChanged_whenGetFriendsVersion_thenListVersionFollowsFriendRow() {
+        long id = userDbStorage.add(user).getId();
+        User friend = userDbStorage.add(user1);
+        friendsDbStorage.addFriend(id, friend.getId());
+        long before = friendsDbStorage.getFriendsVersion(id).getAsLong();
+
+        User updated = userDbStorage.update(new User(friend.getId(), "frest9@mail.ru", "Oleg9",
+                "TerentevO9", LocalDate.of(1999, 1, 1))).get();
+
+        long afterUpdate = friendsDbStorage.getFriendsVersion(id).getAsLong();
+        assertThat(afterUpdate).isGreaterThan(before).isGreaterThanOrEqualTo(updated.getVersion());
+
+        userDbStorage.remove(friend.getId());
+
+        assertThat(friendsDbStorage.getFriendsVersion(id).getAsLong()).isGreaterThan(afterUpdate);
+        assertThat(friendsDbStorage.getFriends(id)).isEmpty();
+    }
+}
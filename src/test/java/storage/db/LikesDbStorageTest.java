@@ -0,0 +1,98 @@
+package storage.db;
+
+import model.Film;
+import model.Mpa;
+import model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import storage.SqlConnection;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers
+class LikesDbStorageTest {
+
+    @Container
+    public final PostgreSQLContainer<?> POSTGRESQL_CONTAINER =
+            new PostgreSQLContainer<>("postgres:15")
+                    .withDatabaseName("postgres")
+                    .withUsername("postgres")
+                    .withPassword("iamroot");
+
+    private final LikesDbStorage likesDbStorage = new LikesDbStorage();
+    private final UserDbStorage userDbStorage = new UserDbStorage();
+    private final FilmDbStorage filmDbStorage =
+            new FilmDbStorage(SqlConnection.getDataSource(), new DictionaryDbStorage().load());
+
+    @BeforeEach
+    public void setUp() {
+        POSTGRESQL_CONTAINER.start();
+    }
+
+    @AfterEach
+    public void clean() {
+        likesDbStorage.clearLikes();
+        filmDbStorage.clearFilms();
+        userDbStorage.clearUsers();
+    }
+
+    @Test
+    void givenBatchWithDeletedFilmAndDuplicate_whenLiked_thenOnlyNewExistingPairsInserted() {
+        long film1 = addFilm("Film1");
+        long film2 = addFilm("Film2");
+        long user = addUser("likes1");
+        likesDbStorage.addLike(film1, user);
+
+        int inserted = likesDbStorage.applyLikes(new long[]{film1, film2, film2 + 1000},
+                new long[]{user, user, user}, true);
+
+        assertEquals(1, inserted);
+        assertEquals(1, likesDbStorage.getLikeCount(film1));
+        assertEquals(1, likesDbStorage.getLikeCount(film2));
+        assertEquals(0, likesDbStorage.applyLikes(new long[0], new long[0], true));
+    }
+
+    @Test
+    void givenStoredLikes_whenUnlikedInBatch_thenOnlyListedPairsDeleted() {
+        long film = addFilm("Film");
+        long user1 = addUser("likes1");
+        long user2 = addUser("likes2");
+        likesDbStorage.applyLikes(new long[]{film, film}, new long[]{user1, user2}, true);
+
+        int deleted = likesDbStorage.applyLikes(new long[]{film, film}, new long[]{user1, user1 + 1000}, false);
+
+        assertEquals(1, deleted);
+        assertEquals(1, likesDbStorage.getLikeCount(film));
+    }
+
+    @Test
+    void givenStoredLikes_whenForEachLike_thenEveryPairStreamed() {
+        long film1 = addFilm("Film1");
+        long film2 = addFilm("Film2");
+        long user = addUser("likes1");
+        likesDbStorage.applyLikes(new long[]{film1, film2}, new long[]{user, user}, true);
+        List<long[]> likes = new ArrayList<>();
+
+        likesDbStorage.forEachLike((filmId, userId) -> likes.add(new long[]{filmId, userId}));
+
+        assertThat(likes).containsExactlyInAnyOrder(new long[]{film1, user}, new long[]{film2, user});
+    }
+
+    private long addFilm(String name) {
+        return filmDbStorage.add(new Film(name, "Description", LocalDate.of(2000, 1, 1), 120,
+                new Mpa(1, null), List.of())).getId();
+    }
+
+    private long addUser(String login) {
+        return userDbStorage.add(new User(login + "@mail.ru", login, "Name", LocalDate.of(1990, 1, 1))).getId();
+    }
+}
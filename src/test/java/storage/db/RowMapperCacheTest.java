@@ -0,0 +1,69 @@
+package storage.db;
+
+import model.User;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RowMapperCacheTest {
+
+    @Test
+    public void givenReorderedColumns_whenMapped_thenReadByIndexAndCompiledOncePerQuery() throws SQLException {
+        AtomicInteger compiled = new AtomicInteger();
+        RowMapperCache<User> cache = new RowMapperCache<>(columns -> {
+            compiled.incrementAndGet();
+            return UserDbStorage.compileUserMapper(columns);
+        });
+        ResultSet resultSet = fakeRow(new String[]{"BIRTHDAY", "name", "login", "email", "id", "version"},
+                new Object[]{LocalDate.of(1990, 5, 17), "Oleg", "oleg", "oleg@mail.ru", 7L, 12L});
+
+        User first = cache.forQuery("SELECT birthday, name, login, email, id, version FROM users", resultSet)
+                .mapRow(resultSet);
+        cache.forQuery("SELECT birthday, name, login, email, id, version FROM users", resultSet);
+
+        assertThat(compiled).hasValue(1);
+        assertThat(first.getId()).isEqualTo(7L);
+        assertThat(first.getEmail()).isEqualTo("oleg@mail.ru");
+        assertThat(first.getLogin()).isEqualTo("oleg");
+        assertThat(first.getName()).isEqualTo("Oleg");
+        assertThat(first.getBirthday()).isEqualTo(LocalDate.of(1990, 5, 17));
+        assertThat(first.getVersion()).isEqualTo(12L);
+    }
+
+    @Test
+    public void givenMissingColumn_whenCompiled_thenSqlExceptionNamesIt() {
+        ResultSet resultSet = fakeRow(new String[]{"id", "email"}, new Object[]{1L, "a@b.c"});
+
+        assertThatThrownBy(() -> UserDbStorage.USER_ROWS.forQuery("SELECT id, email FROM users", resultSet))
+                .isInstanceOf(SQLException.class)
+                .hasMessageContaining("login");
+    }
+
+    private static ResultSet fakeRow(String[] labels, Object[] values) {
+        ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+                ResultSetMetaData.class.getClassLoader(), new Class<?>[]{ResultSetMetaData.class},
+                (proxy, method, args) -> method.getName().equals("getColumnCount")
+                        ? labels.length : labels[(Integer) args[0] - 1]);
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getMetaData":
+                            return metaData;
+                        case "getLong":
+                        case "getString":
+                        case "getObject":
+                            return values[(Integer) args[0] - 1];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
@@ -1,5 +1,6 @@
 package storage.db;
 
+import model.BatchAddResult;
 import model.User;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -8,7 +9,9 @@ import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -121,9 +124,18 @@ class UserDbStorageTest {
 
     @Test
     void givenNewValidUser_whenCreated_thenUserCreated() throws Exception {
-        long id = userDbStorage.add(user);
+        User created = userDbStorage.add(user);
 
-        assertEquals(1, id);
+        assertTrue(created.getId() > 0);
+        assertEquals(Optional.of(created), userDbStorage.getById(created.getId()));
+    }
+
+    @Test
+    void givenUpdateUnknownUser_whenUpdated_thenEmpty() throws Exception {
+        User user = new User(100, "frest1@mail.ru", "Oleg1",
+                "TerentevO1", LocalDate.parse("2000-08-20"));
+
+        assertTrue(userDbStorage.update(user).isEmpty());
     }
 
     @Test
@@ -151,8 +163,8 @@ class UserDbStorageTest {
         long id = user3.get().getId();
         User user = new User(id, "frest1@mail.ru", "Oleg1",
                 "TerentevO1", LocalDate.parse("2000-08-20"));
-        userDbStorage.update(user);
 
+        assertEquals(Optional.of(user), userDbStorage.update(user));
         assertEquals(userDbStorage.getById(id), Optional.of(user));
     }
 
@@ -207,6 +219,70 @@ class UserDbStorageTest {
                 .isInstanceOf(NullPointerException.class);
     }
 
+    @Test
+    void givenUsers_whenGetPageAfterId_thenNextUsersInIdOrder() throws Exception {
+        User first = userDbStorage.add(user);
+        User second = userDbStorage.add(user1);
+        User third = userDbStorage.add(new User("frest2@mail.ru", "Oleg2",
+                "TerentevO2", LocalDate.of(1995, 12, 3)));
+
+        assertEquals(List.of(first, second), userDbStorage.getUsers(0, 2));
+        assertEquals(List.of(third), userDbStorage.getUsers(second.getId(), 2));
+        assertTrue(userDbStorage.getUsers(third.getId(), 2).isEmpty());
+    }
+
+    @Test
+    void givenUsers_whenGetByIds_thenExistingUsersInIdOrder() throws Exception {
+        User first = userDbStorage.add(user);
+        User second = userDbStorage.add(user1);
+
+        assertEquals(List.of(first, second),
+                userDbStorage.getByIds(new long[]{second.getId(), 9999, first.getId()}));
+        assertTrue(userDbStorage.getByIds(new long[0]).isEmpty());
+    }
+
+    @Test
+    void givenUsers_whenForEachUser_thenAllUsersVisitedInIdOrder() throws Exception {
+        userDbStorage.add(user);
+        userDbStorage.add(user1);
+        List<User> visited = new ArrayList<>();
+
+        userDbStorage.forEachUser(visited::add);
+
+        assertEquals(userDbStorage.getUsers(), visited);
+    }
+
+    @Test
+    void givenBatchWithDuplicates_whenAddBatch_thenValidRowsAddedAndFailuresReported() throws Exception {
+        userDbStorage.add(user);
+        User duplicateEmail = new User("frest@mail.ru", "Other",
+                "Other", LocalDate.of(1995, 12, 3));
+        User missingLogin = new User("frest3@mail.ru", null,
+                "TerentevO3", LocalDate.of(1995, 12, 3));
+
+        BatchAddResult result = userDbStorage.addBatch(List.of(user1, duplicateEmail, missingLogin));
+
+        assertEquals(1, result.getAdded().size());
+        assertEquals(Optional.of(result.getAdded().get(0)), userDbStorage.getById(result.getAdded().get(0).getId()));
+        assertEquals(2, result.getFailures().size());
+        assertEquals(1, result.getFailures().get(0).getRow());
+        assertEquals("duplicate email (users_email_index)", result.getFailures().get(0).getError());
+        assertEquals(2, result.getFailures().get(1).getRow());
+        assertEquals(2, userDbStorage.getUsers().size());
+    }
+
+    @Test
+    void givenRowRejectedByDatabase_whenDescribed_thenConflictingIndexNamed() {
+        String detail = "ERROR: duplicate key value violates unique constraint ";
+
+        assertEquals("duplicate email (users_email_index)", UserDbStorage.describeRowFailure(
+                new SQLException(detail + "\"users_email_index\"", "23505")));
+        assertEquals("duplicate login (users_login_index)", UserDbStorage.describeRowFailure(
+                new SQLException(detail + "\"users_login_index\"", "23505")));
+        assertEquals("rejected by database (SQLState 22001)", UserDbStorage.describeRowFailure(
+                new SQLException("ERROR: value too long", "22001")));
+    }
+
     @Test
     void givenRemoveValidUser_whenRemoved_thenListSizeZero() throws Exception {
         userDbStorage.add(user);
@@ -221,4 +297,19 @@ class UserDbStorageTest {
 
         assertEquals(0, users1.size());
     }
+
+    @Test
+    void givenUpdatedUser_whenGetVersion_thenVersionIncreasedAndMatchesRow() throws Exception {
+        User added = userDbStorage.add(user);
+        long before = userDbStorage.getVersion(added.getId()).getAsLong();
+        assertEquals(added.getVersion(), before);
+
+        User updated = userDbStorage.update(new User(added.getId(), "frest1@mail.ru", "Oleg1",
+                "TerentevO1", LocalDate.parse("2000-08-20"))).get();
+
+        assertThat(updated.getVersion()).isGreaterThan(before);
+        assertEquals(updated.getVersion(), userDbStorage.getVersion(added.getId()).getAsLong());
+        assertEquals(updated.getVersion(), userDbStorage.getById(added.getId()).get().getVersion());
+        assertTrue(userDbStorage.getVersion(added.getId() + 1000).isEmpty());
+    }
 }
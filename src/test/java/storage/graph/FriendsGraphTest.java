@@ -0,0 +1,103 @@
+package storage.graph;
+
+import org.junit.jupiter.api.Test;
+import util.LongArrayBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FriendsGraphTest {
+
+    @Test
+    void givenSortedEdges_whenBuilt_thenNeighboursLookedUp() {
+        CsrAdjacency adjacency = new CsrAdjacency.Builder()
+                .add(1, 2).add(1, 5).add(3, 1).add(7, 1).add(7, 3)
+                .build();
+
+        assertArrayEquals(new long[]{2, 5}, adjacency.neighbours(1));
+        assertArrayEquals(new long[0], adjacency.neighbours(2));
+        assertArrayEquals(new long[]{1, 3}, adjacency.neighbours(7));
+        assertEquals(3, adjacency.nodeCount());
+        assertEquals(5, adjacency.edgeCount());
+        assertEquals(2, adjacency.degree(7));
+    }
+
+    @Test
+    void givenUnsortedEdges_whenBuilt_thenThrown() {
+        assertThatThrownBy(() -> new CsrAdjacency.Builder().add(2, 1).add(1, 3))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CsrAdjacency.Builder().add(1, 3).add(1, 3))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void givenRandomEdgeAndNodeRemovals_whenCompactedAlongTheWay_thenSameAsTreeSets() {
+        Random random = new Random(11);
+        Map<Long, TreeSet<Long>> expected = new HashMap<>();
+        CsrAdjacency.Builder builder = new CsrAdjacency.Builder();
+        for (long node = 0; node < 50; node += 2) {
+            for (long neighbour = 0; neighbour < 50; neighbour += 3) {
+                builder.add(node, neighbour);
+                expected.computeIfAbsent(node, key -> new TreeSet<>()).add(neighbour);
+            }
+        }
+        FriendsGraph graph = new FriendsGraph(builder.build());
+
+        for (int i = 0; i < 20_000; i++) {
+            long node = random.nextInt(60);
+            long neighbour = random.nextInt(60);
+            if (random.nextInt(100) == 0) {
+                graph.removeNode(node);
+                expected.remove(node);
+                expected.values().forEach(neighbours -> neighbours.remove(node));
+            } else if (random.nextBoolean()) {
+                graph.addEdge(node, neighbour);
+                expected.computeIfAbsent(node, key -> new TreeSet<>()).add(neighbour);
+            } else {
+                graph.removeEdge(node, neighbour);
+                expected.computeIfAbsent(node, key -> new TreeSet<>()).remove(neighbour);
+            }
+            if (i % 1_000 == 0) {
+                graph.compact();
+                assertEquals(0, graph.pendingChanges());
+            }
+            long probe = random.nextInt(60);
+            assertArrayEquals(toArray(expected.get(probe)), graph.neighbours(probe));
+            LongArrayBuilder visited = new LongArrayBuilder();
+            graph.forEachNeighbour(probe, visited::add);
+            assertArrayEquals(toArray(expected.get(probe)), visited.toArray());
+        }
+        graph.compact();
+        for (long node = 0; node < 60; node++) {
+            assertArrayEquals(toArray(expected.get(node)), graph.neighbours(node));
+        }
+    }
+
+    @Test
+    void givenRemovedNode_whenReadAndCompacted_thenIncomingEdgesHiddenThenDropped() {
+        FriendsGraph graph = new FriendsGraph(new CsrAdjacency.Builder()
+                .add(1, 2).add(1, 3).add(2, 1).add(2, 3).add(3, 1)
+                .build());
+
+        graph.removeNode(3);
+        graph.addEdge(2, 3);
+
+        assertArrayEquals(new long[]{2}, graph.neighbours(1));
+        assertArrayEquals(new long[]{1, 3}, graph.neighbours(2));
+        assertArrayEquals(new long[0], graph.neighbours(3));
+        assertEquals(5, graph.edgeCount());
+        graph.compact();
+        assertArrayEquals(new long[]{2}, graph.neighbours(1));
+        assertArrayEquals(new long[]{1, 3}, graph.neighbours(2));
+        assertEquals(3, graph.edgeCount());
+    }
+
+    private static long[] toArray(TreeSet<Long> neighbours) {
+        return neighbours == null ? new long[0] : neighbours.stream().mapToLong(Long::longValue).toArray();
+    }
+}
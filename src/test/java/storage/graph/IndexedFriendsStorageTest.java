@@ -0,0 +1,150 @@
+package storage.graph;
+
+import model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import storage.memory.InMemoryFriendsStorage;
+import storage.memory.InMemoryUserStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexedFriendsStorageTest {
+
+    private final InMemoryUserStorage userStorage = new InMemoryUserStorage();
+    private final InMemoryFriendsStorage delegate = new InMemoryFriendsStorage(userStorage);
+    private final IndexedFriendsStorage friendsStorage = new IndexedFriendsStorage(delegate, userStorage,
+            CsrAdjacency.empty(), 2, Duration.ofMinutes(1));
+
+    @AfterEach
+    public void clean() {
+        friendsStorage.close();
+    }
+
+    @Test
+    void givenAddedFriends_whenGetFriends_thenServedFromGraph() {
+        User first = addUser(1);
+        User second = addUser(2);
+        User third = addUser(3);
+
+        friendsStorage.addFriend(first.getId(), third.getId());
+        friendsStorage.addFriends(first.getId(), new long[]{second.getId(), 42});
+
+        assertEquals(List.of(second, third), friendsStorage.getFriends(first.getId()));
+        assertEquals(delegate.getFriends(first.getId()).size(), friendsStorage.getFriends(first.getId()).size());
+    }
+
+    @Test
+    void givenRemovedFriend_whenGetCommonFriends_thenIntersectionWithoutIt() {
+        User first = addUser(1);
+        User second = addUser(2);
+        User third = addUser(3);
+        User fourth = addUser(4);
+        friendsStorage.addFriends(first.getId(), new long[]{third.getId(), fourth.getId()});
+        friendsStorage.addFriends(second.getId(), new long[]{third.getId(), fourth.getId()});
+
+        friendsStorage.removeFriend(second.getId(), fourth.getId());
+        friendsStorage.getGraph().compact();
+
+        assertEquals(List.of(third), friendsStorage.getCommonFriends(first.getId(), second.getId()));
+    }
+
+    @Test
+    void givenRemovedUser_whenRemoveUser_thenOwnAndIncomingEdgesLeaveGraph() {
+        User first = addUser(1);
+        User second = addUser(2);
+        User third = addUser(3);
+        CsrAdjacency loaded = new CsrAdjacency.Builder().add(first.getId(), second.getId())
+                .add(second.getId(), first.getId()).build();
+        IndexedFriendsStorage storage = new IndexedFriendsStorage(delegate, userStorage, loaded, 100,
+                Duration.ofMinutes(1));
+        storage.addFriends(third.getId(), new long[]{first.getId(), second.getId()});
+
+        userStorage.remove(second.getId());
+        storage.removeUser(second.getId());
+
+        assertArrayEquals(new long[0], storage.getFriendIds(first.getId()));
+        assertArrayEquals(new long[0], storage.getFriendIds(second.getId()));
+        assertArrayEquals(new long[]{first.getId()}, storage.getFriendIds(third.getId()));
+        storage.getGraph().compact();
+        assertEquals(1, storage.getGraph().edgeCount());
+        storage.close();
+    }
+
+    @Test
+    void givenRejectedWrite_whenAddFriend_thenGraphUnchanged() {
+        User first = addUser(1);
+
+        assertThatThrownBy(() -> friendsStorage.addFriend(first.getId(), 42))
+                .isInstanceOf(RuntimeException.class);
+        assertArrayEquals(new long[0], friendsStorage.getGraph().neighbours(first.getId()));
+    }
+
+    @Test
+    void givenLoadedAdjacency_whenGetFriends_thenExistingEdgesServed() {
+        User first = addUser(1);
+        User second = addUser(2);
+        CsrAdjacency loaded = new CsrAdjacency.Builder().add(first.getId(), second.getId()).build();
+        IndexedFriendsStorage storage = new IndexedFriendsStorage(delegate, userStorage, loaded, 2,
+                Duration.ofMinutes(1));
+
+        assertEquals(List.of(second), storage.getFriends(first.getId()));
+        storage.close();
+    }
+
+    @Test
+    void givenWriteCommittedButNotYetInGraph_whenGetFriendsVersion_thenWaitsForGraph() throws Exception {
+        User first = addUser(1);
+        User second = addUser(2);
+        CountDownLatch committed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IndexedFriendsStorage storage = new IndexedFriendsStorage(new InMemoryFriendsStorage(userStorage) {
+            @Override
+            public boolean addFriend(long userId, long friendId) {
+                boolean added = super.addFriend(userId, friendId);
+                committed.countDown();
+                await(release);
+                return added;
+            }
+        }, userStorage, CsrAdjacency.empty(), 100, Duration.ofMinutes(1));
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            threads.submit(() -> storage.addFriend(first.getId(), second.getId()));
+            assertTrue(committed.await(1, TimeUnit.SECONDS));
+            Future<OptionalLong> version = threads.submit(() -> storage.getFriendsVersion(first.getId()));
+
+            assertThrows(TimeoutException.class, () -> version.get(100, TimeUnit.MILLISECONDS));
+            release.countDown();
+            assertTrue(version.get(1, TimeUnit.SECONDS).isPresent());
+            assertEquals(List.of(second), storage.getFriends(first.getId()));
+        } finally {
+            release.countDown();
+            threads.shutdownNow();
+            storage.close();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private User addUser(int n) {
+        return userStorage.add(new User("frest" + n + "@mail.ru", "Oleg" + n,
+                "TerentevO" + n, LocalDate.of(1990 + n, 12, 3)));
+    }
+}
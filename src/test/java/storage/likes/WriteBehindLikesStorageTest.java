@@ -0,0 +1,89 @@
+package storage.likes;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import storage.db.LikesDbStorage;
+import storage.memory.InMemoryLikesStorage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindLikesStorageTest {
+
+    private final RecordingLikesDbStorage delegate = new RecordingLikesDbStorage();
+    private final WriteBehindLikesStorage likesStorage = new WriteBehindLikesStorage(new InMemoryLikesStorage(),
+            delegate, 1_000, Duration.ofHours(1));
+
+    @AfterEach
+    void tearDown() {
+        likesStorage.close();
+    }
+
+    @Test
+    void givenSeveralLikes_whenFlushed_thenWrittenInOneBatch() {
+        likesStorage.addLike(1, 10);
+        likesStorage.addLike(1, 11);
+        likesStorage.addLike(2, 10);
+
+        assertEquals(3, likesStorage.getPendingCount());
+        assertArrayEquals(new long[]{1, 2}, likesStorage.getPopularFilmIds(10));
+
+        likesStorage.flush();
+
+        assertThat(delegate.batches).containsExactly("like 1:10 1:11 2:10");
+        assertEquals(0, likesStorage.getPendingCount());
+    }
+
+    @Test
+    void givenLikeThenUnlike_whenFlushed_thenOnlyLatestChangeWritten() {
+        likesStorage.addLike(1, 10);
+        likesStorage.addLike(2, 10);
+        likesStorage.removeLike(1, 10);
+
+        likesStorage.flush();
+
+        assertThat(delegate.batches).containsExactly("like 2:10", "unlike 1:10");
+    }
+
+    @Test
+    void givenFailingFlush_whenNewerChangeArrives_thenOnlyUnsupersededChangesRequeued() {
+        delegate.failures = 1;
+        likesStorage.addLike(1, 10);
+        likesStorage.addLike(2, 10);
+
+        likesStorage.flush();
+        likesStorage.removeLike(1, 10);
+        likesStorage.flush();
+
+        assertEquals(1, likesStorage.getFailedFlushes());
+        assertThat(delegate.batches).containsExactly("like 2:10", "unlike 1:10");
+    }
+
+    private static class RecordingLikesDbStorage extends LikesDbStorage {
+
+        private final List<String> batches = new ArrayList<>();
+        private int failures;
+
+        RecordingLikesDbStorage() {
+            super(null);
+        }
+
+        @Override
+        public int applyLikes(long[] filmIds, long[] userIds, boolean liked) {
+            if (failures > 0) {
+                failures--;
+                throw new RuntimeException("LikesDbStorage: applyLikes sql exception.");
+            }
+            StringBuilder batch = new StringBuilder(liked ? "like" : "unlike");
+            for (int i = 0; i < filmIds.length; i++) {
+                batch.append(' ').append(filmIds[i]).append(':').append(userIds[i]);
+            }
+            batches.add(batch.toString());
+            return filmIds.length;
+        }
+    }
+}
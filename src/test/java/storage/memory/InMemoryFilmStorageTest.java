@@ -0,0 +1,65 @@
+package storage.memory;
+
+import model.Film;
+import model.Genre;
+import model.Mpa;
+import org.junit.jupiter.api.Test;
+import storage.FilmDictionary;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryFilmStorageTest {
+
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage(FilmDictionary.defaults());
+
+    @Test
+    void givenNewFilm_whenAdded_thenNamesResolvedAndGenresDeduplicated() {
+        Film created = filmStorage.add(film("Film", new Mpa(3, null), List.of(new Genre(2, null),
+                new Genre(1, null), new Genre(2, null))));
+
+        assertEquals(new Mpa(3, "PG-13"), created.getMpa());
+        assertEquals(List.of(new Genre(1, "Комедия"), new Genre(2, "Драма")), created.getGenres());
+        assertEquals(Optional.of(created), filmStorage.getById(created.getId()));
+    }
+
+    @Test
+    void givenUnknownMpa_whenAdded_thenThrown() {
+        assertThatThrownBy(() -> filmStorage.add(film("Film", new Mpa(42, null), List.of())))
+                .hasMessage("InMemoryFilmStorage: add constraint violation.");
+    }
+
+    @Test
+    void givenFilms_whenGetPageAndByIds_thenIdOrder() {
+        Film first = filmStorage.add(film("First", new Mpa(1, null), List.of()));
+        Film second = filmStorage.add(film("Second", new Mpa(1, null), List.of()));
+        Film third = filmStorage.add(film("Third", new Mpa(1, null), List.of()));
+
+        assertEquals(List.of(first, second), filmStorage.getFilms(0, 2));
+        assertEquals(List.of(third), filmStorage.getFilms(second.getId(), 2));
+        assertEquals(List.of(first, third), filmStorage.getByIds(new long[]{third.getId(), 99, first.getId()}));
+    }
+
+    @Test
+    void givenStoredFilm_whenUpdatedAndRemoved_thenChangesApplied() {
+        Film created = filmStorage.add(film("Film", new Mpa(1, null), List.of(new Genre(1, null))));
+        Film changed = film("Changed", new Mpa(4, null), List.of(new Genre(6, null)));
+        changed.setId(created.getId());
+
+        Film updated = filmStorage.update(changed).orElseThrow();
+
+        assertEquals("Changed", updated.getName());
+        assertEquals(List.of(new Genre(6, "Боевик")), updated.getGenres());
+        assertTrue(filmStorage.remove(created.getId()));
+        assertTrue(filmStorage.getById(created.getId()).isEmpty());
+        assertTrue(filmStorage.update(changed).isEmpty());
+    }
+
+    private static Film film(String name, Mpa mpa, List<Genre> genres) {
+        return new Film(name, "Description", LocalDate.of(2000, 1, 1), 120, mpa, genres);
+    }
+}
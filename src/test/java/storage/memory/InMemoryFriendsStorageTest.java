@@ -0,0 +1,193 @@
+package storage.memory;
+
+import model.FriendsBatchResult;
+import model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryFriendsStorageTest {
+
+    @AfterEach
+    public void clean() {
+        userStorage.clearUsers();
+        friendsStorage.clearFriends();
+    }
+
+    private final InMemoryUserStorage userStorage = new InMemoryUserStorage();
+    private final InMemoryFriendsStorage friendsStorage = new InMemoryFriendsStorage(userStorage);
+
+    private static final User user = new User("frest@mail.ru", "Oleg",
+            "TerentevO", LocalDate.of(1993, 12, 3));
+
+    private static final User user1 = new User("frest1@mail.ru", "Oleg1",
+            "TerentevO1", LocalDate.of(1994, 12, 3));
+
+    private static final User user2 = new User("frest2@mail.ru", "Oleg2",
+            "TerentevO2", LocalDate.of(1995, 12, 3));
+
+    @Test
+    public void givenAddValidFriend_whenAdd_thenAddFriendsAndGetFriends() {
+        List<User> users = addUsers();
+
+        friendsStorage.addFriend(users.get(0).getId(), users.get(1).getId());
+
+        Collection<User> friends = friendsStorage.getFriends(users.get(0).getId());
+        assertThat(friends)
+                .isNotEmpty()
+                .hasSize(1)
+                .contains(users.get(1));
+    }
+
+    @Test
+    public void givenAddUnknownFriend_whenAdd_thenThrown() {
+        List<User> users = addUsers();
+
+        assertThatThrownBy(() -> friendsStorage.addFriend(users.get(0).getId(), 100))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("InMemoryFriendsStorage: addFriend constraint violation.");
+    }
+
+    @Test
+    public void givenAddDuplicateFriend_whenAdd_thenThrown() {
+        List<User> users = addUsers();
+        friendsStorage.addFriend(users.get(0).getId(), users.get(1).getId());
+
+        assertThatThrownBy(() -> friendsStorage.addFriend(users.get(0).getId(), users.get(1).getId()))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("InMemoryFriendsStorage: addFriend duplicate friend.");
+    }
+
+    @Test
+    public void givenRemoveFriend_whenRemove_thenRemoveTrue() {
+        List<User> users = addUsers();
+        friendsStorage.addFriend(users.get(0).getId(), users.get(1).getId());
+
+        assertTrue(friendsStorage.removeFriend(users.get(0).getId(), users.get(1).getId()));
+        assertFalse(friendsStorage.removeFriend(users.get(0).getId(), users.get(1).getId()));
+        assertThat(friendsStorage.getFriends(users.get(0).getId())).isEmpty();
+    }
+
+    @Test
+    public void givenCommonFriend_whenCommonFriends_thenFriendListCommonFriends() {
+        List<User> users = addUsers();
+
+        friendsStorage.addFriend(users.get(0).getId(), users.get(1).getId());
+        friendsStorage.addFriend(users.get(1).getId(), users.get(0).getId());
+        friendsStorage.addFriend(users.get(0).getId(), users.get(2).getId());
+        friendsStorage.addFriend(users.get(1).getId(), users.get(2).getId());
+
+        Collection<User> friends = friendsStorage.getCommonFriends(users.get(0).getId(), users.get(1).getId());
+        assertThat(friends)
+                .isNotEmpty()
+                .hasSize(1)
+                .contains(users.get(2));
+    }
+
+    @Test
+    public void givenRemovedUser_whenGetFriends_thenEdgesCascaded() {
+        List<User> users = addUsers();
+        friendsStorage.addFriend(users.get(0).getId(), users.get(1).getId());
+        friendsStorage.addFriend(users.get(0).getId(), users.get(2).getId());
+
+        userStorage.remove(users.get(1).getId());
+
+        assertThat(friendsStorage.getFriends(users.get(0).getId()))
+                .hasSize(1)
+                .contains(users.get(2));
+    }
+
+    @Test
+    public void givenFriendIdBatch_whenAddFriends_thenAppliedDuplicatesAndUnknownReported() {
+        userStorage.add(user);
+        userStorage.add(user1);
+        userStorage.add(user2);
+        List<User> users = userStorage.getUsers();
+        long id = users.get(0).getId();
+        long friend1 = users.get(1).getId();
+        long friend2 = users.get(2).getId();
+        friendsStorage.addFriend(id, friend1);
+
+        FriendsBatchResult result = friendsStorage.addFriends(id, new long[]{friend1, friend2, friend2, id, 1_000});
+
+        assertArrayEquals(new long[]{friend2}, result.getApplied());
+        assertArrayEquals(new long[]{friend1, friend2}, result.getDuplicates());
+        assertArrayEquals(new long[]{id, 1_000}, result.getUnknown());
+        assertThat(friendsStorage.getFriends(id)).hasSize(2);
+    }
+
+    @Test
+    public void givenFriendIdBatch_whenRemoveFriends_thenOnlyExistingEdgesApplied() {
+        userStorage.add(user);
+        userStorage.add(user1);
+        userStorage.add(user2);
+        List<User> users = userStorage.getUsers();
+        long id = users.get(0).getId();
+        long friend1 = users.get(1).getId();
+        long friend2 = users.get(2).getId();
+        friendsStorage.addFriend(id, friend1);
+
+        FriendsBatchResult result = friendsStorage.removeFriends(id, new long[]{friend1, friend2});
+
+        assertArrayEquals(new long[]{friend1}, result.getApplied());
+        assertArrayEquals(new long[]{friend2}, result.getDuplicates());
+        assertArrayEquals(new long[0], result.getUnknown());
+        assertThat(friendsStorage.getFriends(id)).isEmpty();
+    }
+
+    @Test
+    public void givenGroupOfUsers_whenCommonFriendsOfAll_thenOnlySharedFriends() {
+        List<User> users = addUsers();
+        long id0 = users.get(0).getId();
+        long id1 = users.get(1).getId();
+        long id2 = users.get(2).getId();
+        friendsStorage.addFriends(id0, new long[]{id1, id2});
+        friendsStorage.addFriend(id1, id2);
+        friendsStorage.addFriend(id2, id0);
+
+        assertThat(friendsStorage.getCommonFriends(new long[]{id0, id1})).containsExactly(users.get(2));
+        assertThat(friendsStorage.getCommonFriends(new long[]{id0, id1, id2})).isEmpty();
+        assertArrayEquals(new long[]{id1, id2}, friendsStorage.getFriendIds(id0));
+    }
+
+    @Test
+    public void givenFriendsListVersion_whenListOrFriendChanges_thenVersionGrows() {
+        List<User> users = addUsers();
+        long id0 = users.get(0).getId();
+        long id1 = users.get(1).getId();
+        long id2 = users.get(2).getId();
+
+        long empty = friendsStorage.getFriendsVersion(id0).orElseThrow();
+        friendsStorage.addFriend(id0, id1);
+        long added = friendsStorage.getFriendsVersion(id0).orElseThrow();
+        assertThat(friendsStorage.getFriendsVersion(id0)).hasValue(added);
+        friendsStorage.addFriend(id2, id1);
+        assertThat(friendsStorage.getFriendsVersion(id0)).hasValue(added);
+
+        User renamed = userStorage.getById(id1).orElseThrow();
+        renamed.setName("Renamed");
+        userStorage.update(renamed);
+        long friendUpdated = friendsStorage.getFriendsVersion(id0).orElseThrow();
+        userStorage.remove(id1);
+        long friendRemoved = friendsStorage.getFriendsVersion(id0).orElseThrow();
+
+        assertThat(added).isGreaterThan(empty);
+        assertThat(friendUpdated).isGreaterThan(added);
+        assertThat(friendRemoved).isGreaterThan(friendUpdated);
+        assertThat(friendsStorage.getFriendsVersion(id1)).isEmpty();
+    }
+
+    private List<User> addUsers() {
+        userStorage.add(user);
+        userStorage.add(user1);
+        userStorage.add(user2);
+        return userStorage.getUsers();
+    }
+}
@@ -0,0 +1,89 @@
+package storage.memory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryLikesStorageTest {
+
+    private final InMemoryLikesStorage likesStorage = new InMemoryLikesStorage();
+
+    @Test
+    void givenLikes_whenGetPopular_thenMostLikedFirstAndLowerIdOnTies() {
+        likesStorage.addLike(1, 10);
+        likesStorage.addLike(2, 10);
+        likesStorage.addLike(2, 11);
+        likesStorage.addLike(3, 10);
+        likesStorage.addLike(3, 11);
+
+        assertArrayEquals(new long[]{2, 3, 1}, likesStorage.getPopularFilmIds(10));
+        assertArrayEquals(new long[]{2}, likesStorage.getPopularFilmIds(1));
+    }
+
+    @Test
+    void givenRepeatedLike_whenAdded_thenCountedOnce() {
+        assertTrue(likesStorage.addLike(1, 10));
+        assertFalse(likesStorage.addLike(1, 10));
+        assertEquals(1, likesStorage.getLikeCount(1));
+
+        assertTrue(likesStorage.removeLike(1, 10));
+        assertFalse(likesStorage.removeLike(1, 10));
+        assertEquals(0, likesStorage.getLikeCount(1));
+        assertEquals(0, likesStorage.getPopularFilmIds(10).length);
+    }
+
+    @Test
+    void givenRemovedFilmAndUser_whenGetPopular_thenLikesCascaded() {
+        likesStorage.addLike(1, 10);
+        likesStorage.addLike(1, 11);
+        likesStorage.addLike(2, 10);
+        likesStorage.addLike(3, 12);
+
+        likesStorage.removeFilm(1);
+        likesStorage.removeUser(10);
+
+        assertArrayEquals(new long[]{3}, likesStorage.getPopularFilmIds(10));
+        assertEquals(0, likesStorage.getLikeCount(2));
+    }
+
+    @Test
+    void givenRandomLikes_whenGetPopular_thenMatchesFullSort() {
+        Random random = new Random(42);
+        List<Set<Long>> model = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            model.add(new HashSet<>());
+        }
+        for (int i = 0; i < 5_000; i++) {
+            int filmId = random.nextInt(model.size());
+            long userId = random.nextInt(200);
+            if (random.nextInt(4) == 0) {
+                assertEquals(model.get(filmId).remove(userId), likesStorage.removeLike(filmId, userId));
+            } else {
+                assertEquals(model.get(filmId).add(userId), likesStorage.addLike(filmId, userId));
+            }
+        }
+
+        List<Long> expected = LongStream.range(0, model.size())
+                .filter(id -> !model.get((int) id).isEmpty())
+                .boxed()
+                .sorted(Comparator.comparingInt((Long id) -> model.get(id.intValue()).size()).reversed()
+                        .thenComparing(Comparator.naturalOrder()))
+                .limit(20)
+                .collect(Collectors.toList());
+        List<Long> actual = new ArrayList<>();
+        for (long id : likesStorage.getPopularFilmIds(20)) {
+            actual.add(id);
+        }
+        assertThat(actual).isEqualTo(expected);
+    }
+}
@@ -0,0 +1,240 @@
+package storage.memory;
+
+import model.BatchAddResult;
+import model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import storage.UserConstraints;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryUserStorageTest {
+
+    @AfterEach
+    public void clean() {
+        userStorage.clearUsers();
+    }
+
+    private final InMemoryUserStorage userStorage = new InMemoryUserStorage();
+
+    private static final User user = new User("frest@mail.ru", "Oleg",
+            "TerentevO", LocalDate.parse("1946-08-20"));
+
+    private static final User user1 = new User("frest1@mail.ru", "Oleg1",
+            "TerentevO1", LocalDate.of(1994, 12, 3));
+
+    @Test
+    public void givenFindAllUsersWithEmptyList_whenFind_thenListSizeZero() {
+        List<User> users = userStorage.getUsers();
+
+        assertEquals(0, users.size());
+    }
+
+    @Test
+    void givenFindUserByValidId_whenFind_thenFindUser() {
+        long id = userStorage.add(user).getId();
+        User user4 = new User(id, "frest@mail.ru", "Oleg",
+                "TerentevO", LocalDate.parse("1946-08-20"));
+
+        Optional<User> userOptional = userStorage.getById(id);
+        assertThat(userOptional)
+                .isPresent()
+                .hasValue(user4);
+
+        Collection<User> users = userStorage.getUsers();
+        assertThat(users)
+                .isNotEmpty()
+                .hasSize(1)
+                .contains(user4);
+    }
+
+    @Test
+    void givenNewUserWithNullEmail_whenCreated_thenThrown() {
+        User user3 = new User(null, "Oleg",
+                "TerentevO", LocalDate.parse("1946-08-20"));
+
+        assertThatThrownBy(() -> userStorage.add(user3))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("InMemoryUserStorage: add email, login and name are required.");
+    }
+
+    @Test
+    void givenNewUserWithDuplicateLogin_whenCreated_thenThrownAndEmailReleased() {
+        userStorage.add(user);
+        User user3 = new User("other@mail.ru", "Oleg",
+                "TerentevO", LocalDate.parse("1946-08-20"));
+
+        assertThatThrownBy(() -> userStorage.add(user3))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("InMemoryUserStorage: add duplicate login (users_login_index).");
+
+        User user4 = new User("other@mail.ru", "Oleg4",
+                "TerentevO", LocalDate.parse("1946-08-20"));
+        assertTrue(userStorage.add(user4).getId() > 0);
+    }
+
+    @Test
+    void givenStoredUser_whenReturnedCopyModified_thenStorageUnchanged() {
+        long id = userStorage.add(user).getId();
+
+        userStorage.getById(id).get().setName("Changed");
+
+        assertEquals("TerentevO", userStorage.getById(id).get().getName());
+    }
+
+    @Test
+    void givenNewValidUser_whenCreated_thenStoredUserReturned() {
+        User created = userStorage.add(user);
+
+        assertTrue(created.getId() > 0);
+        assertEquals(Optional.of(created), userStorage.getById(created.getId()));
+    }
+
+    @Test
+    void givenFindUserByInvalidId_whenNotFind_thenEmpty() {
+        userStorage.add(user);
+
+        assertTrue(userStorage.getById(5).isEmpty());
+    }
+
+    @Test
+    void givenUpdateValidUser_whenUpdated_thenUserUpdated() {
+        long id = userStorage.add(user).getId();
+        User user = new User(id, "frest1@mail.ru", "Oleg1",
+                "TerentevO1", LocalDate.parse("2000-08-20"));
+
+        assertEquals(Optional.of(user), userStorage.update(user));
+        assertEquals(userStorage.getById(id), Optional.of(user));
+    }
+
+    @Test
+    void givenUpdateToTakenEmail_whenUpdated_thenThrown() {
+        long id = userStorage.add(user).getId();
+        userStorage.add(user1);
+        User user = new User(id, "frest1@mail.ru", "Oleg",
+                "TerentevO", LocalDate.parse("2000-08-20"));
+
+        assertThatThrownBy(() -> userStorage.update(user))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("InMemoryUserStorage: update duplicate email (users_email_index).");
+    }
+
+    @Test
+    void givenUpdateUnknownUser_whenUpdated_thenFalse() {
+        User user = new User(42, "frest1@mail.ru", "Oleg1",
+                "TerentevO1", LocalDate.parse("2000-08-20"));
+
+        assertTrue(userStorage.update(user).isEmpty());
+    }
+
+    @Test
+    void givenUsers_whenGetPageAfterId_thenNextUsersInIdOrder() throws Exception {
+        User first = userStorage.add(user);
+        User second = userStorage.add(user1);
+        User third = userStorage.add(new User("frest2@mail.ru", "Oleg2",
+                "TerentevO2", LocalDate.of(1995, 12, 3)));
+
+        assertEquals(List.of(first, second), userStorage.getUsers(0, 2));
+        assertEquals(List.of(third), userStorage.getUsers(second.getId(), 2));
+        assertTrue(userStorage.getUsers(third.getId(), 2).isEmpty());
+        userStorage.remove(second.getId());
+        assertEquals(List.of(first, third), userStorage.getUsers(0, 2));
+    }
+
+    @Test
+    void givenUsers_whenForEachUser_thenAllUsersVisitedInIdOrder() throws Exception {
+        userStorage.add(user);
+        userStorage.add(user1);
+        List<User> visited = new ArrayList<>();
+
+        userStorage.forEachUser(visited::add);
+
+        assertEquals(userStorage.getUsers(), visited);
+    }
+
+    @Test
+    void givenBatchWithDuplicates_whenAddBatch_thenValidRowsAddedAndFailuresReported() throws Exception {
+        userStorage.add(user);
+        User duplicateEmail = new User("frest@mail.ru", "Other",
+                "Other", LocalDate.of(1995, 12, 3));
+        User missingLogin = new User("frest3@mail.ru", null,
+                "TerentevO3", LocalDate.of(1995, 12, 3));
+
+        BatchAddResult result = userStorage.addBatch(List.of(user1, duplicateEmail, missingLogin));
+
+        assertEquals(1, result.getAdded().size());
+        assertEquals(Optional.of(result.getAdded().get(0)), userStorage.getById(result.getAdded().get(0).getId()));
+        assertEquals(2, result.getFailures().size());
+        assertEquals(1, result.getFailures().get(0).getRow());
+        assertEquals("duplicate email (users_email_index)", result.getFailures().get(0).getError());
+        assertEquals(2, result.getFailures().get(1).getRow());
+        assertEquals(2, userStorage.getUsers().size());
+    }
+
+    @Test
+    void givenBatchWithLongAndRepeatedValues_whenAddBatch_thenSameFailuresAsDatabase() {
+        User longLogin = new User("long@mail.ru", "x".repeat(UserConstraints.MAX_COLUMN_LENGTH + 1),
+                "Long", LocalDate.of(1995, 12, 3));
+        User repeatedEmail = new User(user1.getEmail(), "Repeated", "Repeated", LocalDate.of(1995, 12, 3));
+
+        BatchAddResult result = userStorage.addBatch(List.of(user1, longLogin, repeatedEmail));
+
+        assertEquals(1, result.getAdded().size());
+        assertEquals(UserConstraints.TOO_LONG, result.getFailures().get(0).getError());
+        assertEquals(UserConstraints.DUPLICATE_EMAIL_IN_BATCH, result.getFailures().get(1).getError());
+        assertThatThrownBy(() -> userStorage.add(longLogin))
+                .hasMessage("InMemoryUserStorage: add " + UserConstraints.TOO_LONG + ".");
+    }
+
+    @Test
+    void givenRemoveValidUser_whenRemoved_thenListSizeZero() {
+        long id = userStorage.add(user).getId();
+
+        assertEquals(1, userStorage.getUsers().size());
+        assertTrue(userStorage.remove(id));
+        assertEquals(0, userStorage.getUsers().size());
+        assertFalse(userStorage.remove(id));
+    }
+
+    @Test
+    void givenUpdatedUser_whenVersionRead_thenNewerVersionMatchesStoredUser() {
+        User created = userStorage.add(user);
+        User changed = userStorage.getById(created.getId()).orElseThrow();
+        changed.setName("Changed");
+
+        User updated = userStorage.update(changed).orElseThrow();
+
+        assertTrue(updated.getVersion() > created.getVersion());
+        assertEquals(updated.getVersion(), userStorage.getVersion(created.getId()).orElseThrow());
+        assertEquals(updated.getVersion(), userStorage.getById(created.getId()).orElseThrow().getVersion());
+        userStorage.remove(created.getId());
+        assertTrue(userStorage.getVersion(created.getId()).isEmpty());
+    }
+
+    @Test
+    void givenConcurrentAdds_whenCreated_thenIdsUnique() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            int number = i;
+            executor.execute(() -> userStorage.add(new User("user" + number + "@mail.ru", "login" + number,
+                    "name" + number, LocalDate.of(1990, 1, 1))));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        List<User> users = userStorage.getUsers();
+        assertEquals(1000, users.size());
+        assertEquals(1000, users.stream().mapToLong(User::getId).distinct().count());
+    }
+}
@@ -0,0 +1,237 @@
+package storage.pool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTest {
+
+    private final AtomicInteger opened = new AtomicInteger();
+    private final AtomicInteger prepared = new AtomicInteger();
+    private final AtomicBoolean valid = new AtomicBoolean(true);
+    private final AtomicBoolean broken = new AtomicBoolean();
+
+    private ConnectionPool pool;
+
+    @AfterEach
+    public void clean() {
+        pool.close();
+    }
+
+    @Test
+    void givenReturnedConnection_whenBorrowAgain_thenPhysicalConnectionReused() throws Exception {
+        pool = new ConnectionPool(this::fakeConnection, config(0, 2));
+
+        Connection first = pool.getConnection();
+        String physical = first.toString();
+        first.close();
+        Connection second = pool.getConnection();
+
+        assertEquals(physical, second.toString());
+        assertEquals(1, opened.get());
+        assertEquals(1, pool.getStats().getActive());
+        second.close();
+        assertEquals(0, pool.getStats().getActive());
+        assertEquals(1, pool.getStats().getIdle());
+    }
+
+    @Test
+    void givenPoolExhausted_whenBorrow_thenThrownAfterTimeout() throws Exception {
+        pool = new ConnectionPool(this::fakeConnection, config(0, 1));
+        Connection connection = pool.getConnection();
+
+        assertThatThrownBy(() -> pool.getConnection())
+                .isInstanceOf(SQLTimeoutException.class);
+        assertEquals(1, pool.getStats().getTimeouts());
+        connection.close();
+    }
+
+    @Test
+    void givenClosedHandle_whenUsed_thenThrown() throws Exception {
+        pool = new ConnectionPool(this::fakeConnection, config(0, 1));
+        Connection connection = pool.getConnection();
+        connection.close();
+
+        assertTrue(connection.isClosed());
+        assertThatThrownBy(connection::createStatement)
+                .hasMessage("PooledConnection: connection is closed.");
+    }
+
+    @Test
+    void givenInvalidIdleConnection_whenBorrow_thenReplaced() throws Exception {
+        PoolConfig config = config(0, 1);
+        pool = new ConnectionPool(this::fakeConnection, config);
+        pool.getConnection().close();
+        valid.set(false);
+        Thread.sleep(600);
+
+        pool.getConnection().close();
+
+        assertEquals(2, opened.get());
+        assertEquals(1, pool.getStats().getDestroyed());
+    }
+
+    @Test
+    void givenWaiter_whenBrokenConnectionReturned_thenWaiterGetsNewConnectionBeforeTimeout() throws Exception {
+        PoolConfig config = config(0, 1);
+        config.setAcquireTimeoutMillis(5000);
+        pool = new ConnectionPool(this::fakeConnection, config);
+        Connection connection = pool.getConnection();
+        CompletableFuture<Connection> waiter = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.getConnection();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (pool.getStats().getWaiting() == 0) {
+            Thread.sleep(5);
+        }
+
+        broken.set(true);
+        connection.close();
+        broken.set(false);
+
+        Connection next = waiter.get(1, TimeUnit.SECONDS);
+        assertEquals(2, opened.get());
+        assertEquals(1, pool.getStats().getDestroyed());
+        next.close();
+    }
+
+    @Test
+    void givenSameSql_whenPreparedOnNextBorrow_thenStatementReusedFromCache() throws Exception {
+        pool = new ConnectionPool(this::fakeConnection, config(0, 1));
+
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT 1")) {
+            statement.setLong(1, 1);
+        }
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT 1")) {
+            statement.setLong(1, 2);
+        }
+
+        assertEquals(1, prepared.get());
+        assertEquals(1, pool.getStats().getStatementCacheHits());
+        assertEquals(1, pool.getStats().getStatementCacheMisses());
+    }
+
+    @Test
+    void givenFetchSizeSetOnLease_whenNextBorrowPreparesSameSql_thenFetchSizeReset() throws Exception {
+        pool = new ConnectionPool(this::fakeConnection, config(0, 1));
+
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT 1")) {
+            statement.setFetchSize(500);
+        }
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT 1")) {
+            assertEquals(0, statement.getFetchSize());
+        }
+
+        assertEquals(1, pool.getStats().getStatementCacheHits());
+    }
+
+    @Test
+    void givenFullStatementCache_whenNewSqlPrepared_thenLeastRecentlyUsedEvicted() throws Exception {
+        PoolConfig config = config(0, 1);
+        config.setStatementCacheSize(1);
+        pool = new ConnectionPool(this::fakeConnection, config);
+
+        try (Connection connection = pool.getConnection()) {
+            connection.prepareStatement("SELECT 1").close();
+            connection.prepareStatement("SELECT 2").close();
+            connection.prepareStatement("SELECT 1").close();
+        }
+
+        assertEquals(3, prepared.get());
+        assertEquals(2, pool.getStats().getStatementCacheEvictions());
+        assertEquals(0, pool.getStats().getStatementCacheHits());
+    }
+
+    @Test
+    void givenUnclosedCachedStatement_whenConnectionClosed_thenStatementReturnedToCache() throws Exception {
+        pool = new ConnectionPool(this::fakeConnection, config(0, 1));
+
+        Connection connection = pool.getConnection();
+        PreparedStatement statement = connection.prepareStatement("SELECT 1");
+        connection.close();
+
+        assertTrue(statement.isClosed());
+        try (Connection next = pool.getConnection()) {
+            next.prepareStatement("SELECT 1").close();
+        }
+        assertEquals(1, pool.getStats().getStatementCacheHits());
+    }
+
+    @Test
+    void givenInvalidConfig_whenCreated_thenThrown() {
+        assertThatThrownBy(() -> pool = new ConnectionPool(this::fakeConnection, config(3, 2)))
+                .isInstanceOf(IllegalArgumentException.class);
+        pool = new ConnectionPool(this::fakeConnection, config(0, 1));
+    }
+
+    private PoolConfig config(int minIdle, int maxSize) {
+        PoolConfig config = new PoolConfig();
+        config.setMinIdle(minIdle);
+        config.setMaxSize(maxSize);
+        config.setAcquireTimeoutMillis(100);
+        return config;
+    }
+
+    private PreparedStatement fakeStatement() {
+        AtomicInteger fetchSize = new AtomicInteger();
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "setFetchSize":
+                            fetchSize.set((Integer) args[0]);
+                            return null;
+                        case "getFetchSize":
+                            return fetchSize.get();
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private Connection fakeConnection() {
+        int number = opened.incrementAndGet();
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "isValid":
+                            return valid.get();
+                        case "isClosed":
+                            return closed.get() || broken.get();
+                        case "close":
+                            closed.set(true);
+                            return null;
+                        case "getAutoCommit":
+                            return true;
+                        case "isReadOnly":
+                            return false;
+                        case "prepareStatement":
+                            prepared.incrementAndGet();
+                            return fakeStatement();
+                        case "toString":
+                            return "fake-" + number;
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
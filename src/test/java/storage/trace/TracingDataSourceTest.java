@@ -0,0 +1,160 @@
+package storage.trace;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TracingDataSourceTest {
+
+    private final SqlTracer tracer = new SqlTracer(Duration.ofSeconds(10), 100, Set.of("email"), true);
+
+    @Test
+    public void givenQueryAndUpdate_whenExecuted_thenRowsAndCountsRecordedPerNormalizedStatement()
+            throws SQLException {
+        DataSource dataSource = new TracingDataSource(fakeDataSource(3, 2), tracer);
+        String select = "SELECT friend_id FROM friends WHERE user_id=? ORDER BY friend_id";
+
+        for (int i = 0; i < 2; i++) {
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(select)) {
+                statement.setLong(1, i);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        resultSet.getLong(1);
+                    }
+                }
+            }
+        }
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("DELETE FROM likes WHERE film_id=?")) {
+            statement.setLong(1, 7);
+            statement.executeUpdate();
+        }
+
+        List<StatementStats> top = tracer.top(10, SqlTracer.Order.COUNT);
+        assertThat(top).extracting(StatementStats::getSql)
+                .containsExactly(select, "DELETE FROM likes WHERE film_id=?");
+        assertThat(top.get(0).getCount()).isEqualTo(2);
+        assertThat(top.get(0).getRows()).isEqualTo(6);
+        assertThat(top.get(1).getRows()).isEqualTo(2);
+    }
+
+    @Test
+    public void givenFailingStatement_whenExecuted_thenErrorRecordedAndRethrown() throws SQLException {
+        DataSource dataSource = new TracingDataSource(fakeDataSource(-1, 0), tracer);
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT 1")) {
+            assertThatThrownBy(statement::executeQuery).isInstanceOf(SQLException.class);
+        }
+
+        assertThat(tracer.top(1, SqlTracer.Order.TOTAL).get(0).getErrors()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenLiteralsAndInLists_whenNormalized_thenValuesReplaced() {
+        assertThat(SqlText.normalize("SELECT *  FROM users\n WHERE id IN (1, 2, 3) AND name = 'O''Neil' AND f1.x > -5"))
+                .isEqualTo("SELECT * FROM users WHERE id IN (?) AND name = ? AND f1.x > ?");
+    }
+
+    @Test
+    public void givenRedactedColumns_whenParametersDescribed_thenOnlyThoseValuesHidden() {
+        TracedSql insert = tracer.lookup("INSERT INTO users(email, login, name, birthday) VALUES(?, ?, ?, ?)");
+        TracedSql update = tracer.lookup("UPDATE users SET login=?, email=? WHERE id=?");
+        TracedSql lookup = tracer.lookup("SELECT email FROM users WHERE u.email = ANY(?) OR login = ANY(?)");
+
+        assertThat(tracer.describeParameters(insert, new Object[]{null, "a@b.c", "oleg", "Oleg", null}, 4))
+                .isEqualTo("[1=<redacted>, 2='oleg', 3='Oleg', 4=null]");
+        assertThat(tracer.describeParameters(update, new Object[]{null, "oleg", "a@b.c", 5L}, 3))
+                .isEqualTo("[1='oleg', 2=<redacted>, 3=5]");
+        assertThat(tracer.describeParameters(lookup,
+                new Object[]{null, new String[]{"a@b.c"}, new long[]{1, 2, 3, 4, 5, 6, 7, 8, 9}}, 2))
+                .isEqualTo("[1=<redacted>, 2=long[9]{1, 2, 3, 4, 5, 6, 7, 8, ...}]");
+    }
+
+    @Test
+    public void givenSetNull_whenStatementRecorded_thenNullLoggedAndResultSetNotAProxy() throws SQLException {
+        List<String> described = new ArrayList<>();
+        SqlTracer capturing = new SqlTracer(Duration.ofSeconds(10), 100, Set.of(), true) {
+            @Override
+            void record(TracedSql traced, long executeNanos, long fetchNanos, long rows, Object[] parameters,
+                        int parameterCount, SQLException failure) {
+                described.add(describeParameters(traced, parameters, parameterCount));
+            }
+        };
+        DataSource dataSource = new TracingDataSource(fakeDataSource(1, 0), capturing);
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT id FROM users WHERE name=? OR id=?")) {
+            statement.setNull(1, Types.VARCHAR);
+            statement.setLong(2, 5);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                assertThat(Proxy.isProxyClass(resultSet.getClass())).isFalse();
+                assertThat(resultSet.getStatement()).isSameAs(statement);
+                while (resultSet.next()) {
+                    assertThat(resultSet.getLong(1)).isEqualTo(1L);
+                }
+            }
+        }
+
+        assertThat(described).containsExactly("[1=null, 2=5]");
+    }
+
+    // rowsPerQuery < 0 makes executeQuery fail.
+    private static DataSource fakeDataSource(int rowsPerQuery, int updateCount) {
+        ResultSet[] resultSet = new ResultSet[1];
+        AtomicInteger remaining = new AtomicInteger();
+        resultSet[0] = proxy(ResultSet.class, (method, args) -> {
+            switch (method) {
+                case "next":
+                    return remaining.getAndDecrement() > 0;
+                case "getLong":
+                    return 1L;
+                default:
+                    return null;
+            }
+        });
+        PreparedStatement statement = proxy(PreparedStatement.class, (method, args) -> {
+            switch (method) {
+                case "executeQuery":
+                    if (rowsPerQuery < 0) {
+                        throw new SQLException("boom", "42P01");
+                    }
+                    remaining.set(rowsPerQuery);
+                    return resultSet[0];
+                case "executeUpdate":
+                    return updateCount;
+                default:
+                    return null;
+            }
+        });
+        Connection connection = proxy(Connection.class, (method, args) ->
+                method.equals("prepareStatement") ? statement : null);
+        return proxy(DataSource.class, (method, args) ->
+                method.equals("getConnection") ? connection : null);
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(TracingDataSourceTest.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> handler.invoke(method.getName(), args)));
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object invoke(String method, Object[] args) throws SQLException;
+    }
+}
@@ -0,0 +1,28 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongIntHashMapTest {
+
+    @Test
+    void givenRandomIncrements_whenCompared_thenSameAsHashMap() {
+        Random random = new Random(5);
+        LongIntHashMap counts = new LongIntHashMap();
+        Map<Long, Integer> expected = new HashMap<>();
+
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(2_000) - 100;
+            int delta = random.nextInt(5);
+            assertEquals(expected.merge(key, delta, Integer::sum).intValue(), counts.addTo(key, delta));
+        }
+        assertEquals(expected.size(), counts.size());
+        counts.forEach((key, count) -> assertEquals(expected.get(key).intValue(), count));
+        assertEquals(0, counts.get(5_000));
+    }
+}
@@ -0,0 +1,57 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongObjectHashMapTest {
+
+    @Test
+    void givenRandomOperations_whenCompared_thenSameAsHashMap() {
+        Random random = new Random(42);
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        Map<Long, String> expected = new HashMap<>();
+
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(2_000) - 100;
+            int operation = random.nextInt(3);
+            if (operation == 0) {
+                assertEquals(expected.put(key, "v" + i), map.put(key, "v" + i));
+            } else if (operation == 1) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.get(key), map.get(key));
+                assertEquals(expected.containsKey(key), map.containsKey(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+    }
+
+    @Test
+    void givenRandomOperations_whenCompared_thenSameAsHashSet() {
+        Random random = new Random(7);
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(2_000) - 100;
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(key), set.add(key));
+            } else {
+                assertEquals(expected.remove(key), set.remove(key));
+            }
+            assertEquals(expected.size(), set.size());
+        }
+        long[] keys = set.toSortedArray();
+        assertEquals(expected.size(), keys.length);
+        for (long key : keys) {
+            assertTrue(expected.contains(key));
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortedLongsTest {
+
+    @Test
+    void givenRandomSetsOfSkewedSizes_whenIntersect_thenSameAsRetainAll() {
+        Random random = new Random(3);
+        for (int round = 0; round < 500; round++) {
+            TreeSet<Long> first = randomSet(random, random.nextInt(40), 5_000);
+            TreeSet<Long> second = randomSet(random, random.nextInt(4_000), 5_000);
+            TreeSet<Long> expected = new TreeSet<>(first);
+            expected.retainAll(second);
+
+            assertArrayEquals(toArray(expected), SortedLongs.intersect(toArray(first), toArray(second)));
+            assertArrayEquals(toArray(expected), SortedLongs.intersect(toArray(second), toArray(first)));
+        }
+    }
+
+    @Test
+    void givenSeveralSets_whenIntersectAll_thenCommonValues() {
+        long[][] sets = {
+                {1, 3, 5, 7, 9, 11},
+                {3, 5, 9},
+                {0, 3, 4, 5, 9, 10, 11}
+        };
+
+        assertArrayEquals(new long[]{3, 5, 9}, SortedLongs.intersectAll(sets));
+        assertArrayEquals(new long[0], SortedLongs.intersectAll(new long[][]{{1, 2}, {}, {1, 2}}));
+        assertArrayEquals(new long[0], SortedLongs.intersectAll(new long[0][]));
+    }
+
+    private static TreeSet<Long> randomSet(Random random, int size, int bound) {
+        TreeSet<Long> set = new TreeSet<>();
+        while (set.size() < size) {
+            set.add((long) random.nextInt(bound));
+        }
+        return set;
+    }
+
+    private static long[] toArray(TreeSet<Long> set) {
+        return set.stream().mapToLong(Long::longValue).toArray();
+    }
+}
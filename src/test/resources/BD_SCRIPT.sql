@@ -1,4 +1,8 @@
 DROP TABLE IF EXISTS film, users, film_genre, genre, mpa, likes, friends;
+DROP SEQUENCE IF EXISTS users_version_seq;
+
+-- One clock for every users.version and friends_version, so a newer write always has a larger number.
+CREATE SEQUENCE IF NOT EXISTS users_version_seq;
 
 CREATE TABLE IF NOT EXISTS mpa
 (
@@ -32,11 +36,13 @@ CREATE TABLE IF NOT EXISTS film_genre
 
 CREATE TABLE IF NOT EXISTS users
 (
-    id       BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-    email    VARCHAR(64) NOT NULL,
-    login    VARCHAR(64) NOT NULL,
-    name     VARCHAR(64) NOT NULL,
-    birthday DATE
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email           VARCHAR(64) NOT NULL,
+    login           VARCHAR(64) NOT NULL,
+    name            VARCHAR(64) NOT NULL,
+    birthday        DATE,
+    version         BIGINT      NOT NULL DEFAULT nextval('users_version_seq'),
+    friends_version BIGINT      NOT NULL DEFAULT nextval('users_version_seq')
     );
 CREATE UNIQUE INDEX IF NOT EXISTS users_email_index ON users (email);
 CREATE UNIQUE INDEX IF NOT EXISTS users_login_index ON users (login);
@@ -54,4 +60,19 @@ CREATE TABLE IF NOT EXISTS likes
     film_id BIGINT REFERENCES film (id) ON DELETE CASCADE,
     user_id BIGINT REFERENCES users (id) ON DELETE CASCADE,
     PRIMARY KEY (film_id, user_id)
-    );
\ No newline at end of file
+    );
+
+INSERT INTO mpa (id, name)
+VALUES (1 ,'G'),
+       (2, 'PG'),
+       (3, 'PG-13'),
+       (4, 'R'),
+       (5, 'NC-17');
+
+INSERT INTO genre (id, name)
+VALUES (1, 'Комедия'),
+       (2, 'Драма'),
+       (3, 'Мультфильм'),
+       (4, 'Триллер'),
+       (5, 'Документальный'),
+       (6, 'Боевик');